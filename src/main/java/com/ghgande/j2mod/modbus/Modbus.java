@@ -179,6 +179,18 @@ public interface Modbus {
      */
     int MAX_BITS = 2000;
 
+    /**
+     * Defines the maximum number of coils that can be written
+     * in a single <tt>write multiple coils</tt> request (<b>1968</b>).
+     */
+    int MAX_WRITE_BITS = 1968;
+
+    /**
+     * Defines the maximum number of registers that can be written
+     * in a single <tt>write multiple registers</tt> request (<b>123</b>).
+     */
+    int MAX_WRITE_REGISTERS = 123;
+
     /**
      * Defines the Modbus slave exception offset that is added to the
      * function code, to flag an exception.
@@ -300,6 +312,12 @@ public interface Modbus {
      */
     int DEFAULT_RETRIES = 5;
 
+    /**
+     * Defines the default number of frames kept by the frame
+     * recorder of each transport (=<tt>16</tt>).
+     */
+    int DEFAULT_RECORDED_FRAMES = 16;
+
     /**
      * Defines the default number of msec to delay before transmission<br>
      * Inter-message delays are managed by the SerialTransaction object automatically based on the
@@ -30,6 +30,7 @@ public class ModbusIOException extends ModbusException {
      */
     private static final long serialVersionUID = 1L;
     private boolean eof = false;
+    private boolean timeout = false;
 
     /**
      * Constructs a new <tt>ModbusIOException</tt> instance.
@@ -116,4 +117,26 @@ public class ModbusIOException extends ModbusException {
     public void setEOF(boolean b) {
         eof = b;
     }
+
+    /**
+     * Tests if this <tt>ModbusIOException</tt> is caused by a read timing out.
+     *
+     * @return true if the read timed out, false otherwise.
+     */
+    public boolean isTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the flag that determines whether this <tt>ModbusIOException</tt> was
+     * caused by a read timing out.
+     *
+     * @param b true if the read timed out, false otherwise.
+     *
+     * @return this exception
+     */
+    public ModbusIOException setTimeout(boolean b) {
+        timeout = b;
+        return this;
+    }
 }
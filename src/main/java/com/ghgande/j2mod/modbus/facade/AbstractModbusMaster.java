@@ -19,10 +19,17 @@ import com.ghgande.j2mod.modbus.Modbus;
 import com.ghgande.j2mod.modbus.ModbusException;
 import com.ghgande.j2mod.modbus.io.AbstractModbusTransport;
 import com.ghgande.j2mod.modbus.io.ModbusTransaction;
+import com.ghgande.j2mod.modbus.io.ModbusTransactionResult;
 import com.ghgande.j2mod.modbus.msg.*;
 import com.ghgande.j2mod.modbus.procimg.InputRegister;
 import com.ghgande.j2mod.modbus.procimg.Register;
+import com.ghgande.j2mod.modbus.procimg.SimpleInputRegister;
+import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
 import com.ghgande.j2mod.modbus.util.BitVector;
+import com.ghgande.j2mod.modbus.util.ModbusMetrics;
+
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Modbus/TCP Master facade - common methods for all the facade implementations
@@ -36,6 +43,8 @@ import com.ghgande.j2mod.modbus.util.BitVector;
 public abstract class AbstractModbusMaster {
 
     private static final int DEFAULT_UNIT_ID = 1;
+    private static final int MAX_READ_WRITE_READ_REGISTERS = 125;
+    private static final int MAX_READ_WRITE_WRITE_REGISTERS = 121;
 
     protected ModbusTransaction transaction;
     private ReadCoilsRequest readCoilsRequest;
@@ -47,7 +56,18 @@ public abstract class AbstractModbusMaster {
     private WriteSingleRegisterRequest writeSingleRegisterRequest;
     private WriteMultipleRegistersRequest writeMultipleRegistersRequest;
     private MaskWriteRegisterRequest maskWriteRegisterRequest;
+    private ReadWriteMultipleRequest readWriteMultipleRequest;
+    private final Map<Integer, Boolean> readWriteMultipleSupport = new HashMap<>();
+    private final ModbusTransactionResult result = new ModbusTransactionResult();
+    private volatile ModbusReadCache readCache;
+    private final ModbusReadCache.Loader readLoader = new ModbusReadCache.Loader() {
+        @Override
+        public ModbusResponse load(int functionCode, int unitId, int ref, int count) throws ModbusException {
+            return AbstractModbusMaster.this.load(functionCode, unitId, ref, count);
+        }
+    };
     protected int timeout = Modbus.DEFAULT_TIMEOUT;
+    private volatile ModbusMetrics metrics;
 
     /**
      * Sets the transaction to use
@@ -56,6 +76,32 @@ public abstract class AbstractModbusMaster {
      */
     protected synchronized void setTransaction(ModbusTransaction transaction) {
         this.transaction = transaction;
+        if (transaction != null) {
+            transaction.setMetrics(metrics);
+        }
+    }
+
+    /**
+     * Returns the counters and latencies of the transactions executed by this master.
+     * Recording is off until metrics are set with {@link #setMetrics(ModbusMetrics)}.
+     *
+     * @return Metrics or null if recording is turned off
+     */
+    public ModbusMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets where the transactions of this master are recorded, for example to
+     * share one set of metrics between several masters
+     *
+     * @param metrics Metrics or null to turn recording off
+     */
+    public synchronized void setMetrics(ModbusMetrics metrics) {
+        this.metrics = metrics;
+        if (transaction != null) {
+            transaction.setMetrics(metrics);
+        }
     }
 
     /**
@@ -86,17 +132,12 @@ public abstract class AbstractModbusMaster {
      * @throws ModbusException if an I/O error, a slave exception or
      *                         a transaction error occurs.
      */
-    public synchronized BitVector readCoils(int unitId, int ref, int count) throws ModbusException {
-        checkTransaction();
-        if (readCoilsRequest == null) {
-            readCoilsRequest = new ReadCoilsRequest();
+    public BitVector readCoils(int unitId, int ref, int count) throws ModbusException {
+        ModbusReadCache cache = readCache;
+        BitVector bv = ((ReadCoilsResponse) read(cache, Modbus.READ_COILS, unitId, ref, count)).getCoils();
+        if (cache != null) {
+            bv = BitVector.createBitVector(bv.getBytes(), bv.size());
         }
-        readCoilsRequest.setUnitID(unitId);
-        readCoilsRequest.setReference(ref);
-        readCoilsRequest.setBitCount(count);
-        transaction.setRequest(readCoilsRequest);
-        transaction.execute();
-        BitVector bv = ((ReadCoilsResponse) getAndCheckResponse()).getCoils();
         bv.forceSize(count);
         return bv;
     }
@@ -114,16 +155,7 @@ public abstract class AbstractModbusMaster {
      *                         a transaction error occurs.
      */
     public synchronized boolean writeCoil(int unitId, int ref, boolean state) throws ModbusException {
-        checkTransaction();
-        if (writeCoilRequest == null) {
-            writeCoilRequest = new WriteCoilRequest();
-        }
-        writeCoilRequest.setUnitID(unitId);
-        writeCoilRequest.setReference(ref);
-        writeCoilRequest.setCoil(state);
-        transaction.setRequest(writeCoilRequest);
-        transaction.execute();
-        return ((WriteCoilResponse) getAndCheckResponse()).getCoil();
+        return ((WriteCoilResponse) getAndCheckResponse(tryWriteCoil(unitId, ref, state))).getCoil();
     }
 
     /**
@@ -140,15 +172,7 @@ public abstract class AbstractModbusMaster {
      *                         a transaction error occurs.
      */
     public synchronized void writeMultipleCoils(int unitId, int ref, BitVector coils) throws ModbusException {
-        checkTransaction();
-        if (writeMultipleCoilsRequest == null) {
-            writeMultipleCoilsRequest = new WriteMultipleCoilsRequest();
-        }
-        writeMultipleCoilsRequest.setUnitID(unitId);
-        writeMultipleCoilsRequest.setReference(ref);
-        writeMultipleCoilsRequest.setCoils(coils);
-        transaction.setRequest(writeMultipleCoilsRequest);
-        transaction.execute();
+        tryWriteMultipleCoils(unitId, ref, coils).checkSuccess();
     }
 
     /**
@@ -167,17 +191,12 @@ public abstract class AbstractModbusMaster {
      * @throws ModbusException if an I/O error, a slave exception or
      *                         a transaction error occurs.
      */
-    public synchronized BitVector readInputDiscretes(int unitId, int ref, int count) throws ModbusException {
-        checkTransaction();
-        if (readInputDiscretesRequest == null) {
-            readInputDiscretesRequest = new ReadInputDiscretesRequest();
+    public BitVector readInputDiscretes(int unitId, int ref, int count) throws ModbusException {
+        ModbusReadCache cache = readCache;
+        BitVector bv = ((ReadInputDiscretesResponse) read(cache, Modbus.READ_INPUT_DISCRETES, unitId, ref, count)).getDiscretes();
+        if (cache != null) {
+            bv = BitVector.createBitVector(bv.getBytes(), bv.size());
         }
-        readInputDiscretesRequest.setUnitID(unitId);
-        readInputDiscretesRequest.setReference(ref);
-        readInputDiscretesRequest.setBitCount(count);
-        transaction.setRequest(readInputDiscretesRequest);
-        transaction.execute();
-        BitVector bv = ((ReadInputDiscretesResponse)getAndCheckResponse()).getDiscretes();
         bv.forceSize(count);
         return bv;
     }
@@ -197,17 +216,15 @@ public abstract class AbstractModbusMaster {
      * @throws ModbusException if an I/O error, a slave exception or
      *                         a transaction error occurs.
      */
-    public synchronized InputRegister[] readInputRegisters(int unitId, int ref, int count) throws ModbusException {
-        checkTransaction();
-        if (readInputRegistersRequest == null) {
-            readInputRegistersRequest = new ReadInputRegistersRequest();
+    public InputRegister[] readInputRegisters(int unitId, int ref, int count) throws ModbusException {
+        ModbusReadCache cache = readCache;
+        InputRegister[] registers = ((ReadInputRegistersResponse) read(cache, Modbus.READ_INPUT_REGISTERS, unitId, ref, count)).getRegisters();
+        if (cache != null) {
+            for (int i = 0; i < registers.length; i++) {
+                registers[i] = new SimpleInputRegister(registers[i].getValue());
+            }
         }
-        readInputRegistersRequest.setUnitID(unitId);
-        readInputRegistersRequest.setReference(ref);
-        readInputRegistersRequest.setWordCount(count);
-        transaction.setRequest(readInputRegistersRequest);
-        transaction.execute();
-        return ((ReadInputRegistersResponse) getAndCheckResponse()).getRegisters();
+        return registers;
     }
 
     /**
@@ -225,17 +242,15 @@ public abstract class AbstractModbusMaster {
      * @throws ModbusException if an I/O error, a slave exception or
      *                         a transaction error occurs.
      */
-    public synchronized Register[] readMultipleRegisters(int unitId, int ref, int count) throws ModbusException {
-        checkTransaction();
-        if (readMultipleRegistersRequest == null) {
-            readMultipleRegistersRequest = new ReadMultipleRegistersRequest();
+    public Register[] readMultipleRegisters(int unitId, int ref, int count) throws ModbusException {
+        ModbusReadCache cache = readCache;
+        Register[] registers = ((ReadMultipleRegistersResponse) read(cache, Modbus.READ_MULTIPLE_REGISTERS, unitId, ref, count)).getRegisters();
+        if (cache != null) {
+            for (int i = 0; i < registers.length; i++) {
+                registers[i] = new SimpleRegister(registers[i].getValue());
+            }
         }
-        readMultipleRegistersRequest.setUnitID(unitId);
-        readMultipleRegistersRequest.setReference(ref);
-        readMultipleRegistersRequest.setWordCount(count);
-        transaction.setRequest(readMultipleRegistersRequest);
-        transaction.execute();
-        return ((ReadMultipleRegistersResponse) getAndCheckResponse()).getRegisters();
+        return registers;
     }
 
     /**
@@ -252,16 +267,7 @@ public abstract class AbstractModbusMaster {
      *                         a transaction error occurs.
      */
     public synchronized int writeSingleRegister(int unitId, int ref, Register register) throws ModbusException {
-        checkTransaction();
-        if (writeSingleRegisterRequest == null) {
-            writeSingleRegisterRequest = new WriteSingleRegisterRequest();
-        }
-        writeSingleRegisterRequest.setUnitID(unitId);
-        writeSingleRegisterRequest.setReference(ref);
-        writeSingleRegisterRequest.setRegister(register);
-        transaction.setRequest(writeSingleRegisterRequest);
-        transaction.execute();
-        return ((WriteSingleRegisterResponse) getAndCheckResponse()).getRegisterValue();
+        return ((WriteSingleRegisterResponse) getAndCheckResponse(tryWriteSingleRegister(unitId, ref, register))).getRegisterValue();
     }
 
     /**
@@ -278,16 +284,7 @@ public abstract class AbstractModbusMaster {
      *                         a transaction error occurs.
      */
     public synchronized int writeMultipleRegisters(int unitId, int ref, Register[] registers) throws ModbusException {
-        checkTransaction();
-        if (writeMultipleRegistersRequest == null) {
-            writeMultipleRegistersRequest = new WriteMultipleRegistersRequest();
-        }
-        writeMultipleRegistersRequest.setUnitID(unitId);
-        writeMultipleRegistersRequest.setReference(ref);
-        writeMultipleRegistersRequest.setRegisters(registers);
-        transaction.setRequest(writeMultipleRegistersRequest);
-        transaction.execute();
-        return ((WriteMultipleRegistersResponse) transaction.getResponse()).getWordCount();
+        return ((WriteMultipleRegistersResponse) getAndCheckResponse(tryWriteMultipleRegisters(unitId, ref, registers))).getWordCount();
     }
 
     /**
@@ -304,7 +301,309 @@ public abstract class AbstractModbusMaster {
      *                         a transaction error occurs.
      */
     public synchronized boolean maskWriteRegister(int unitId, int ref, int andMask, int orMask) throws ModbusException {
-        checkTransaction();
+        MaskWriteRegisterResponse response = (MaskWriteRegisterResponse) getAndCheckResponse(tryMaskWriteRegister(unitId, ref, andMask, orMask));
+        return response.getReference() == maskWriteRegisterRequest.getReference() &&
+               response.getAndMask() == maskWriteRegisterRequest.getAndMask() &&
+               response.getOrMask() == maskWriteRegisterRequest.getOrMask();
+    }
+
+    /**
+     * Writes a number of registers to the slave and then reads a number of registers back.
+     * <p>
+     * If the slave supports <tt>read/write multiple registers</tt> (FC 23), both are done
+     * in a single transaction, otherwise a <tt>write multiple registers</tt> (FC 16) is
+     * followed by a <tt>read multiple registers</tt> (FC 3). Support is probed with the
+     * first call for each unit and remembered; a slave that answers FC 23 with an
+     * illegal function exception is not asked again.
+     *
+     * @param unitId    the slave unit id.
+     * @param writeRef  the offset of the register to start writing to.
+     * @param registers a <tt>Register[]</tt> holding the values of
+     *                  the registers to be written.
+     * @param readRef   the offset of the register to start reading from.
+     * @param readCount the number of registers to be read.
+     *
+     * @return a <tt>Register[]</tt> holding the registers read after the write.
+     *
+     * @throws ModbusException if an I/O error, a slave exception or
+     *                         a transaction error occurs.
+     */
+    public synchronized Register[] writeThenReadRegisters(int unitId, int writeRef, Register[] registers, int readRef, int readCount) throws ModbusException {
+        if (!Boolean.FALSE.equals(readWriteMultipleSupport.get(unitId)) &&
+            registers.length <= MAX_READ_WRITE_WRITE_REGISTERS && readCount <= MAX_READ_WRITE_READ_REGISTERS) {
+            ModbusTransactionResult res = tryReadWriteMultipleRegisters(unitId, readRef, readCount, writeRef, registers);
+            if (res.getStatus() == ModbusTransactionResult.Status.SLAVE_EXCEPTION &&
+                res.getExceptionCode() == Modbus.ILLEGAL_FUNCTION_EXCEPTION &&
+                !readWriteMultipleSupport.containsKey(unitId)) {
+                readWriteMultipleSupport.put(unitId, false);
+            }
+            else {
+                InputRegister[] values = ((ReadWriteMultipleResponse) getAndCheckResponse(res)).getRegisters();
+                readWriteMultipleSupport.put(unitId, true);
+                Register[] readRegisters = new Register[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    readRegisters[i] = new SimpleRegister(values[i].getValue());
+                }
+                return readRegisters;
+            }
+        }
+        getAndCheckResponse(tryWriteMultipleRegisters(unitId, writeRef, registers));
+        return ((ReadMultipleRegistersResponse) getAndCheckResponse(tryReadMultipleRegisters(unitId, readRef, readCount))).getRegisters();
+    }
+
+    /**
+     * Returns whether the unit is known to support <tt>read/write multiple registers</tt> (FC 23)
+     *
+     * @param unitId the slave unit id.
+     *
+     * @return True or false if known, null if it has not yet been probed
+     */
+    public synchronized Boolean isReadWriteMultipleSupported(int unitId) {
+        return readWriteMultipleSupport.get(unitId);
+    }
+
+    /**
+     * Forgets what is known about the support for <tt>read/write multiple registers</tt> (FC 23)
+     * so that each unit is probed again, for example after a device has been replaced
+     */
+    public synchronized void clearReadWriteMultipleSupport() {
+        readWriteMultipleSupport.clear();
+    }
+
+    /**
+     * Reads a given number of coil states from the slave without throwing
+     * exceptions - the payload of a successful result is a <tt>ReadCoilsResponse</tt>.
+     * <p>
+     * The returned result is owned by this master and is reused by the next
+     * request, so it must be consumed before another request is made.
+     *
+     * @param unitId the slave unit id.
+     * @param ref    the offset of the coil to start reading from.
+     * @param count  the number of coil states to be read.
+     *
+     * @return the result of the transaction
+     */
+    public synchronized ModbusTransactionResult tryReadCoils(int unitId, int ref, int count) {
+        if (readCoilsRequest == null) {
+            readCoilsRequest = new ReadCoilsRequest();
+        }
+        readCoilsRequest.setUnitID(unitId);
+        readCoilsRequest.setReference(ref);
+        readCoilsRequest.setBitCount(count);
+        return execute(readCoilsRequest);
+    }
+
+    /**
+     * Writes a coil state to the slave without throwing exceptions - the
+     * payload of a successful result is a <tt>WriteCoilResponse</tt>.
+     * <p>
+     * The returned result is owned by this master and is reused by the next
+     * request, so it must be consumed before another request is made.
+     *
+     * @param unitId the slave unit id.
+     * @param ref    the offset of the coil to be written.
+     * @param state  the coil state to be written.
+     *
+     * @return the result of the transaction
+     */
+    public synchronized ModbusTransactionResult tryWriteCoil(int unitId, int ref, boolean state) {
+        if (writeCoilRequest == null) {
+            writeCoilRequest = new WriteCoilRequest();
+        }
+        writeCoilRequest.setUnitID(unitId);
+        writeCoilRequest.setReference(ref);
+        writeCoilRequest.setCoil(state);
+        invalidate(Modbus.READ_COILS, unitId, ref, 1);
+        return execute(writeCoilRequest);
+    }
+
+    /**
+     * Writes a given number of coil states to the slave without throwing
+     * exceptions - the payload of a successful result is a <tt>WriteMultipleCoilsResponse</tt>.
+     * <p>
+     * The returned result is owned by this master and is reused by the next
+     * request, so it must be consumed before another request is made.
+     *
+     * @param unitId the slave unit id.
+     * @param ref    the offset of the coil to start writing to.
+     * @param coils  a <tt>BitVector</tt> which holds the coil states to be written.
+     *
+     * @return the result of the transaction
+     */
+    public synchronized ModbusTransactionResult tryWriteMultipleCoils(int unitId, int ref, BitVector coils) {
+        if (writeMultipleCoilsRequest == null) {
+            writeMultipleCoilsRequest = new WriteMultipleCoilsRequest();
+        }
+        writeMultipleCoilsRequest.setUnitID(unitId);
+        writeMultipleCoilsRequest.setReference(ref);
+        writeMultipleCoilsRequest.setCoils(coils);
+        invalidate(Modbus.READ_COILS, unitId, ref, coils.size());
+        return execute(writeMultipleCoilsRequest);
+    }
+
+    /**
+     * Reads a given number of input discrete states from the slave without throwing
+     * exceptions - the payload of a successful result is a <tt>ReadInputDiscretesResponse</tt>.
+     * <p>
+     * The returned result is owned by this master and is reused by the next
+     * request, so it must be consumed before another request is made.
+     *
+     * @param unitId the slave unit id.
+     * @param ref    the offset of the input discrete to start reading from.
+     * @param count  the number of input discrete states to be read.
+     *
+     * @return the result of the transaction
+     */
+    public synchronized ModbusTransactionResult tryReadInputDiscretes(int unitId, int ref, int count) {
+        if (readInputDiscretesRequest == null) {
+            readInputDiscretesRequest = new ReadInputDiscretesRequest();
+        }
+        readInputDiscretesRequest.setUnitID(unitId);
+        readInputDiscretesRequest.setReference(ref);
+        readInputDiscretesRequest.setBitCount(count);
+        return execute(readInputDiscretesRequest);
+    }
+
+    /**
+     * Reads a given number of input registers from the slave without throwing
+     * exceptions - the payload of a successful result is a <tt>ReadInputRegistersResponse</tt>.
+     * <p>
+     * The returned result is owned by this master and is reused by the next
+     * request, so it must be consumed before another request is made.
+     *
+     * @param unitId the slave unit id.
+     * @param ref    the offset of the input register to start reading from.
+     * @param count  the number of input registers to be read.
+     *
+     * @return the result of the transaction
+     */
+    public synchronized ModbusTransactionResult tryReadInputRegisters(int unitId, int ref, int count) {
+        if (readInputRegistersRequest == null) {
+            readInputRegistersRequest = new ReadInputRegistersRequest();
+        }
+        readInputRegistersRequest.setUnitID(unitId);
+        readInputRegistersRequest.setReference(ref);
+        readInputRegistersRequest.setWordCount(count);
+        return execute(readInputRegistersRequest);
+    }
+
+    /**
+     * Reads a given number of registers from the slave without throwing
+     * exceptions - the payload of a successful result is a <tt>ReadMultipleRegistersResponse</tt>.
+     * <p>
+     * The returned result is owned by this master and is reused by the next
+     * request, so it must be consumed before another request is made.
+     *
+     * @param unitId the slave unit id.
+     * @param ref    the offset of the register to start reading from.
+     * @param count  the number of registers to be read.
+     *
+     * @return the result of the transaction
+     */
+    public synchronized ModbusTransactionResult tryReadMultipleRegisters(int unitId, int ref, int count) {
+        if (readMultipleRegistersRequest == null) {
+            readMultipleRegistersRequest = new ReadMultipleRegistersRequest();
+        }
+        readMultipleRegistersRequest.setUnitID(unitId);
+        readMultipleRegistersRequest.setReference(ref);
+        readMultipleRegistersRequest.setWordCount(count);
+        return execute(readMultipleRegistersRequest);
+    }
+
+    /**
+     * Writes a single register to the slave without throwing exceptions - the
+     * payload of a successful result is a <tt>WriteSingleRegisterResponse</tt>.
+     * <p>
+     * The returned result is owned by this master and is reused by the next
+     * request, so it must be consumed before another request is made.
+     *
+     * @param unitId   the slave unit id.
+     * @param ref      the offset of the register to be written.
+     * @param register a <tt>Register</tt> holding the value of the register
+     *                 to be written.
+     *
+     * @return the result of the transaction
+     */
+    public synchronized ModbusTransactionResult tryWriteSingleRegister(int unitId, int ref, Register register) {
+        if (writeSingleRegisterRequest == null) {
+            writeSingleRegisterRequest = new WriteSingleRegisterRequest();
+        }
+        writeSingleRegisterRequest.setUnitID(unitId);
+        writeSingleRegisterRequest.setReference(ref);
+        writeSingleRegisterRequest.setRegister(register);
+        invalidate(Modbus.READ_MULTIPLE_REGISTERS, unitId, ref, 1);
+        return execute(writeSingleRegisterRequest);
+    }
+
+    /**
+     * Writes a number of registers to the slave without throwing exceptions - the
+     * payload of a successful result is a <tt>WriteMultipleRegistersResponse</tt>.
+     * <p>
+     * The returned result is owned by this master and is reused by the next
+     * request, so it must be consumed before another request is made.
+     *
+     * @param unitId    the slave unit id.
+     * @param ref       the offset of the register to start writing to.
+     * @param registers a <tt>Register[]</tt> holding the values of
+     *                  the registers to be written.
+     *
+     * @return the result of the transaction
+     */
+    public synchronized ModbusTransactionResult tryWriteMultipleRegisters(int unitId, int ref, Register[] registers) {
+        if (writeMultipleRegistersRequest == null) {
+            writeMultipleRegistersRequest = new WriteMultipleRegistersRequest();
+        }
+        writeMultipleRegistersRequest.setUnitID(unitId);
+        writeMultipleRegistersRequest.setReference(ref);
+        writeMultipleRegistersRequest.setRegisters(registers);
+        invalidate(Modbus.READ_MULTIPLE_REGISTERS, unitId, ref, registers.length);
+        return execute(writeMultipleRegistersRequest);
+    }
+
+    /**
+     * Writes and reads a number of registers in a single transaction without throwing
+     * exceptions - the payload of a successful result is a <tt>ReadWriteMultipleResponse</tt>.
+     * <p>
+     * The returned result is owned by this master and is reused by the next
+     * request, so it must be consumed before another request is made.
+     *
+     * @param unitId    the slave unit id.
+     * @param readRef   the offset of the register to start reading from.
+     * @param readCount the number of registers to be read.
+     * @param writeRef  the offset of the register to start writing to.
+     * @param registers a <tt>Register[]</tt> holding the values of
+     *                  the registers to be written.
+     *
+     * @return the result of the transaction
+     */
+    public synchronized ModbusTransactionResult tryReadWriteMultipleRegisters(int unitId, int readRef, int readCount, int writeRef, Register[] registers) {
+        if (readWriteMultipleRequest == null) {
+            readWriteMultipleRequest = new ReadWriteMultipleRequest();
+        }
+        readWriteMultipleRequest.setUnitID(unitId);
+        readWriteMultipleRequest.setReadReference(readRef);
+        readWriteMultipleRequest.setReadWordCount(readCount);
+        readWriteMultipleRequest.setWriteReference(writeRef);
+        readWriteMultipleRequest.setRegisters(registers);
+        invalidate(Modbus.READ_MULTIPLE_REGISTERS, unitId, writeRef, registers.length);
+        return execute(readWriteMultipleRequest);
+    }
+
+    /**
+     * Mask write a single register to the slave without throwing exceptions - the
+     * payload of a successful result is a <tt>MaskWriteRegisterResponse</tt>.
+     * <p>
+     * The returned result is owned by this master and is reused by the next
+     * request, so it must be consumed before another request is made.
+     *
+     * @param unitId    the slave unit id.
+     * @param ref       the offset of the register to start writing to.
+     * @param andMask   AND mask.
+     * @param orMask    OR mask.
+     *
+     * @return the result of the transaction
+     */
+    public synchronized ModbusTransactionResult tryMaskWriteRegister(int unitId, int ref, int andMask, int orMask) {
         if (maskWriteRegisterRequest == null) {
             maskWriteRegisterRequest = new MaskWriteRegisterRequest();
         }
@@ -312,13 +611,8 @@ public abstract class AbstractModbusMaster {
         maskWriteRegisterRequest.setReference(ref);
         maskWriteRegisterRequest.setAndMask(andMask);
         maskWriteRegisterRequest.setOrMask(orMask);
-        transaction.setRequest(maskWriteRegisterRequest);
-        transaction.execute();
-
-        MaskWriteRegisterResponse response = (MaskWriteRegisterResponse) getAndCheckResponse();
-        return response.getReference() == maskWriteRegisterRequest.getReference() &&
-               response.getAndMask() == maskWriteRegisterRequest.getAndMask() &&
-               response.getOrMask() == maskWriteRegisterRequest.getOrMask();
+        invalidate(Modbus.READ_MULTIPLE_REGISTERS, unitId, ref, 1);
+        return execute(maskWriteRegisterRequest);
     }
 
     /**
@@ -475,15 +769,100 @@ public abstract class AbstractModbusMaster {
     }
 
     /**
-     * Reads the response from the transaction
-     * If there is no response, then it throws an error
+     * Reads a block of data, going through the read cache if there is one
+     *
+     * @param cache        Read cache to use or null
+     * @param functionCode Read function code
+     * @param unitId       the slave unit id.
+     * @param ref          the offset to start reading from.
+     * @param count        the number of items to read.
+     *
+     * @return Modbus response
+     *
+     * @throws ModbusException if an I/O error, a slave exception or
+     *                         a transaction error occurs.
+     */
+    private ModbusResponse read(ModbusReadCache cache, int functionCode, int unitId, int ref, int count) throws ModbusException {
+        String endpoint = cache == null ? null : getEndpoint();
+        if (endpoint == null) {
+            return load(functionCode, unitId, ref, count);
+        }
+        return cache.read(endpoint, functionCode, unitId, ref, count, readLoader);
+    }
+
+    /**
+     * Reads a block of data from the slave
+     *
+     * @param functionCode Read function code
+     * @param unitId       the slave unit id.
+     * @param ref          the offset to start reading from.
+     * @param count        the number of items to read.
+     *
+     * @return Modbus response
+     *
+     * @throws ModbusException if an I/O error, a slave exception or
+     *                         a transaction error occurs.
+     */
+    private synchronized ModbusResponse load(int functionCode, int unitId, int ref, int count) throws ModbusException {
+        switch (functionCode) {
+            case Modbus.READ_COILS:
+                return getAndCheckResponse(tryReadCoils(unitId, ref, count));
+            case Modbus.READ_INPUT_DISCRETES:
+                return getAndCheckResponse(tryReadInputDiscretes(unitId, ref, count));
+            case Modbus.READ_INPUT_REGISTERS:
+                return getAndCheckResponse(tryReadInputRegisters(unitId, ref, count));
+            default:
+                return getAndCheckResponse(tryReadMultipleRegisters(unitId, ref, count));
+        }
+    }
+
+    /**
+     * Removes any cached reads that overlap a write
+     *
+     * @param functionCode Read function code of the table being written to
+     * @param unitId       the slave unit id.
+     * @param ref          the offset of the first item written.
+     * @param count        the number of items written.
+     */
+    private void invalidate(int functionCode, int unitId, int ref, int count) {
+        ModbusReadCache cache = readCache;
+        String endpoint = cache == null ? null : getEndpoint();
+        if (endpoint != null) {
+            cache.invalidate(endpoint, functionCode, unitId, ref, count);
+        }
+    }
+
+    /**
+     * Executes the request on the current transaction, populating the
+     * reusable result of this master
+     *
+     * @param request Request to execute
+     *
+     * @return Result of the transaction
+     */
+    private ModbusTransactionResult execute(ModbusRequest request) {
+        if (transaction == null) {
+            result.reset(request);
+            result.setFailure(ModbusTransactionResult.Status.NOT_EXECUTABLE, "No transaction created, probably not connected", null, 0);
+            return result;
+        }
+        transaction.setRequest(request);
+        return transaction.execute(result);
+    }
+
+    /**
+     * Reads the response from the transaction result
+     * If the transaction failed or there is no response, then it throws an error
+     *
+     * @param result Result of the transaction
      *
      * @return Modbus response
      *
-     * @throws ModbusException If response is null
+     * @throws ModbusException If the transaction failed or the response is null
      */
-    private ModbusResponse getAndCheckResponse() throws ModbusException {
-        ModbusResponse res = transaction.getResponse();
+    private ModbusResponse getAndCheckResponse(ModbusTransactionResult result) throws ModbusException {
+        result.checkSuccess();
+        ModbusResponse res = result.getResponse();
         if (res == null) {
             throw new ModbusException("No response");
         }
@@ -491,14 +870,27 @@ public abstract class AbstractModbusMaster {
     }
 
     /**
-     * Checks to make sure there is a transaction to use
+     * Returns the read cache used by this master
      *
-     * @throws ModbusException If transaction is null
+     * @return Read cache or null if reads are not cached
      */
-    private void checkTransaction() throws ModbusException {
-        if (transaction == null) {
-            throw new ModbusException("No transaction created, probably not connected");
-        }
+    public ModbusReadCache getReadCache() {
+        return readCache;
+    }
+
+    /**
+     * Sets the read cache to use for the readCoils, readInputDiscretes, readInputRegisters
+     * and readMultipleRegisters methods. Identical concurrent reads are collapsed into a
+     * single transaction and responses are reused until they expire. Writes made through
+     * this master invalidate any overlapping cached reads.
+     * The same cache can be shared between masters, and masters with the same
+     * {@link #getEndpoint() endpoint} share entries. Reads are not cached if the
+     * endpoint is not known.
+     *
+     * @param readCache Read cache to use or null to disable caching
+     */
+    public void setReadCache(ModbusReadCache readCache) {
+        this.readCache = readCache;
     }
 
     /**
@@ -557,4 +949,16 @@ public abstract class AbstractModbusMaster {
      */
     public abstract boolean isConnected();
 
+    /**
+     * Returns the endpoint this master talks to - <tt>host:port</tt> for TCP and
+     * UDP or the port name for serial. Masters with the same endpoint share
+     * entries in a read cache.
+     *
+     * @return Endpoint or null if not known
+     */
+    public String getEndpoint() {
+        AbstractModbusTransport transport = getTransport();
+        return transport == null ? null : transport.getEndpoint();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.facade;
+
+import com.ghgande.j2mod.modbus.io.AbstractModbusTransport;
+import com.ghgande.j2mod.modbus.io.ModbusFrameRecorder;
+import com.ghgande.j2mod.modbus.util.ModbusMetrics;
+import com.ghgande.j2mod.modbus.util.ModbusStats;
+
+import java.util.Map;
+
+/**
+ * Management bean of a master, reporting its connection and the transactions it has executed
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class ModbusMasterStats extends ModbusStats implements ModbusMasterStatsMBean {
+
+    private final AbstractModbusMaster master;
+
+    /**
+     * Constructs the bean of a master
+     *
+     * @param master Master to report
+     * @param name   Name to register under, such as the address of the slave
+     */
+    public ModbusMasterStats(AbstractModbusMaster master, String name) {
+        super(name);
+        this.master = master;
+    }
+
+    /**
+     * Returns the master being reported
+     *
+     * @return Master
+     */
+    public AbstractModbusMaster getMaster() {
+        return master;
+    }
+
+    @Override
+    public ModbusMetrics getMetrics() {
+        return master.getMetrics();
+    }
+
+    @Override
+    protected String getType() {
+        return "Master";
+    }
+
+    @Override
+    protected void addGauges(Map<String, Number> gauges) {
+        gauges.put("connected", isConnected() ? 1 : 0);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return master.isConnected();
+    }
+
+    @Override
+    public int getTimeout() {
+        return master.getTimeout();
+    }
+
+    @Override
+    public String dumpFrames() {
+        AbstractModbusTransport transport = master.getTransport();
+        ModbusFrameRecorder recorder = transport == null ? null : transport.getFrameRecorder();
+        return recorder == null ? "" : recorder.dump();
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.facade;
+
+import com.ghgande.j2mod.modbus.util.ModbusStatsMBean;
+
+/**
+ * Management interface of a master and its connection
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public interface ModbusMasterStatsMBean extends ModbusStatsMBean {
+
+    /**
+     * Returns true if the master is connected
+     *
+     * @return True if connected
+     */
+    boolean isConnected();
+
+    /**
+     * Returns the transaction timeout
+     *
+     * @return Timeout in milliseconds
+     */
+    int getTimeout();
+
+    /**
+     * Formats the last frames written and read by the master
+     *
+     * @return Text of the frames
+     */
+    String dumpFrames();
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.facade;
+
+import com.ghgande.j2mod.modbus.ModbusException;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived cache of read responses that can be attached to one or more
+ * master facades using {@link AbstractModbusMaster#setReadCache(ModbusReadCache)}.
+ * <p>
+ * Reads are keyed by endpoint ({@link AbstractModbusMaster#getEndpoint()},
+ * <tt>host:port</tt> or the serial port name, so masters talking to the same
+ * device share entries), unit ID, function code, reference and count. Concurrent
+ * identical reads are collapsed into a single transaction, and the response is
+ * re-used for subsequent identical reads until the time-to-live expires.
+ * Writes made through a facade invalidate all entries for the same endpoint and
+ * unit that overlap the written range.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class ModbusReadCache {
+
+    /**
+     * Number of cache misses between sweeps for expired entries
+     */
+    private static final int PURGE_INTERVAL = 256;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private volatile long ttlNanos;
+    private int missCount;
+
+    /**
+     * Reads the value of a block of data from a device
+     */
+    public interface Loader {
+
+        /**
+         * Reads the data from the device
+         *
+         * @param functionCode Read function code
+         * @param unitId       Unit ID
+         * @param ref          Start reference
+         * @param count        Number of items
+         *
+         * @return Response from the device
+         *
+         * @throws ModbusException if the read fails
+         */
+        ModbusResponse load(int functionCode, int unitId, int ref, int count) throws ModbusException;
+    }
+
+    /**
+     * Creates a cache
+     *
+     * @param ttl Time-to-live of a response in milliseconds - 0 only collapses concurrent reads
+     */
+    public ModbusReadCache(long ttl) {
+        setTtl(ttl);
+    }
+
+    /**
+     * Returns the time-to-live of a response
+     *
+     * @return Time-to-live in milliseconds
+     */
+    public long getTtl() {
+        return TimeUnit.NANOSECONDS.toMillis(ttlNanos);
+    }
+
+    /**
+     * Sets the time-to-live of a response
+     *
+     * @param ttl Time-to-live in milliseconds - 0 only collapses concurrent reads
+     */
+    public void setTtl(long ttl) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("Time-to-live cannot be negative");
+        }
+        ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+    }
+
+    /**
+     * Returns the response for the read, either from the cache, by waiting for an
+     * identical read that is already in progress or by calling the loader
+     * <p>
+     * The same response instance is handed to every caller, so it must not be modified.
+     *
+     * @param endpoint     Endpoint the read is for
+     * @param functionCode Read function code
+     * @param unitId       Unit ID
+     * @param ref          Start reference
+     * @param count        Number of items
+     * @param loader       Loader to use if the value is not available
+     *
+     * @return Response
+     *
+     * @throws ModbusException if the read fails
+     */
+    public ModbusResponse read(String endpoint, int functionCode, int unitId, int ref, int count, Loader loader) throws ModbusException {
+        Key key = new Key(endpoint, functionCode, unitId, ref, count);
+        while (true) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (!entry.isDone()) {
+                    return entry.await();
+                }
+                if (entry.isValid(System.nanoTime())) {
+                    return entry.response;
+                }
+                entries.remove(key, entry);
+            }
+
+            // Become the owner of the read if nobody else has in the meantime
+
+            Entry ownEntry = new Entry();
+            if (entries.putIfAbsent(key, ownEntry) == null) {
+                purgeIfRequired();
+                try {
+                    ModbusResponse response = loader.load(functionCode, unitId, ref, count);
+                    ownEntry.complete(response, null, System.nanoTime() + ttlNanos);
+                    if (ttlNanos == 0) {
+                        entries.remove(key, ownEntry);
+                    }
+                    return response;
+                }
+                catch (ModbusException e) {
+                    entries.remove(key, ownEntry);
+                    ownEntry.complete(null, e, 0);
+                    throw e;
+                }
+                catch (RuntimeException e) {
+                    entries.remove(key, ownEntry);
+                    ownEntry.complete(null, new ModbusException(e.getMessage(), e), 0);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all entries for the endpoint and unit that overlap the given range
+     * Reads that are in progress are allowed to complete but their responses are not kept
+     *
+     * @param endpoint     Endpoint that was written to
+     * @param functionCode Read function code of the table that was written to
+     * @param unitId       Unit ID
+     * @param ref          Start reference of the write
+     * @param count        Number of items written
+     */
+    public void invalidate(String endpoint, int functionCode, int unitId, int ref, int count) {
+        for (Iterator<Key> keys = entries.keySet().iterator(); keys.hasNext(); ) {
+            Key key = keys.next();
+            if (key.functionCode == functionCode && key.unitId == unitId &&
+                key.ref < ref + count && ref < key.ref + key.count && Objects.equals(key.endpoint, endpoint)) {
+                keys.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries from the cache
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of entries currently held (including reads in progress)
+     *
+     * @return Number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Sweeps the cache for expired entries every so often so that keys which
+     * are never read again do not accumulate
+     */
+    private void purgeIfRequired() {
+        boolean purge;
+        synchronized (this) {
+            purge = ++missCount >= PURGE_INTERVAL;
+            if (purge) {
+                missCount = 0;
+            }
+        }
+        if (purge) {
+            long now = System.nanoTime();
+            for (Iterator<Entry> values = entries.values().iterator(); values.hasNext(); ) {
+                Entry entry = values.next();
+                if (entry.isDone() && !entry.isValid(now)) {
+                    values.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Identifies a read
+     */
+    private static class Key {
+        final String endpoint;
+        final int functionCode;
+        final int unitId;
+        final int ref;
+        final int count;
+        final int hash;
+
+        Key(String endpoint, int functionCode, int unitId, int ref, int count) {
+            this.endpoint = endpoint;
+            this.functionCode = functionCode;
+            this.unitId = unitId;
+            this.ref = ref;
+            this.count = count;
+            hash = Objects.hash(endpoint, functionCode, unitId, ref, count);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)obj;
+            return functionCode == other.functionCode && unitId == other.unitId && ref == other.ref &&
+                   count == other.count && Objects.equals(endpoint, other.endpoint);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A response, or a read that is still in progress
+     */
+    private static class Entry {
+        private boolean done;
+        private ModbusResponse response;
+        private ModbusException failure;
+        private long expires;
+
+        synchronized boolean isDone() {
+            return done;
+        }
+
+        synchronized boolean isValid(long now) {
+            return done && failure == null && expires - now > 0;
+        }
+
+        synchronized void complete(ModbusResponse response, ModbusException failure, long expires) {
+            this.response = response;
+            this.failure = failure;
+            this.expires = expires;
+            done = true;
+            notifyAll();
+        }
+
+        synchronized ModbusResponse await() throws ModbusException {
+            while (!done) {
+                try {
+                    wait();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ModbusException("Interrupted waiting for read in progress", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return response;
+        }
+    }
+}
@@ -127,4 +127,9 @@ public class ModbusSerialMaster extends AbstractModbusMaster {
     public boolean isConnected() {
         return connection != null && connection.isOpen();
     }
+
+    @Override
+    public String getEndpoint() {
+        return connection == null ? null : connection.getPortName();
+    }
 }
\ No newline at end of file
@@ -19,10 +19,14 @@ import com.ghgande.j2mod.modbus.Modbus;
 import com.ghgande.j2mod.modbus.io.AbstractModbusTransport;
 import com.ghgande.j2mod.modbus.io.ModbusTCPTransaction;
 import com.ghgande.j2mod.modbus.net.TCPMasterConnection;
+import com.ghgande.j2mod.modbus.net.TCPMasterConnector;
 
 import java.net.InetAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 /**
  * Modbus/TCP Master facade.
@@ -36,6 +40,7 @@ public class ModbusTCPMaster extends AbstractModbusMaster {
     private final TCPMasterConnection connection;
     private boolean reconnecting = false;
     private final boolean useRtuOverTcp;
+    private final String endpoint;
 
     /**
      * Constructs a new master facade instance for communication
@@ -120,6 +125,7 @@ public class ModbusTCPMaster extends AbstractModbusMaster {
             connection = new TCPMasterConnection(slaveAddress);
             connection.setPort(port);
             connection.setTimeout(timeout);
+            endpoint = slaveAddress.getHostAddress() + ":" + port;
             this.timeout = timeout;
             setReconnecting(reconnect);
         }
@@ -137,12 +143,55 @@ public class ModbusTCPMaster extends AbstractModbusMaster {
     public synchronized void connect() throws Exception {
         if (connection != null && !connection.isConnected()) {
             connection.connect(useRtuOverTcp);
-            transaction = connection.getModbusTransport().createTransaction();
-            ((ModbusTCPTransaction)transaction).setReconnecting(reconnecting);
-            setTransaction(transaction);
+            prepareTransaction();
         }
     }
 
+    /**
+     * Connects a group of <tt>ModbusTCPMaster</tt> instances with their slaves in parallel.
+     * <p>
+     * The connections are opened using non-blocking connects so that the time taken is
+     * bounded by the slowest slave (or the timeout) rather than the sum of the timeouts
+     * of all the slaves that are unreachable.
+     *
+     * @param masters   Masters to connect
+     * @param connector Connector to use to open the connections
+     *
+     * @return Identity map of the masters that could not be connected and the reason why (empty if all succeeded)
+     *
+     * @throws Exception if the connections cannot be attempted
+     */
+    public static Map<ModbusTCPMaster, Exception> connect(Collection<ModbusTCPMaster> masters, TCPMasterConnector connector) throws Exception {
+        Map<TCPMasterConnection, ModbusTCPMaster> pending = new IdentityHashMap<>();
+        for (ModbusTCPMaster master : masters) {
+            if (master.connection != null && !master.connection.isConnected()) {
+                master.connection.setUseRtuOverTcp(master.useRtuOverTcp);
+                pending.put(master.connection, master);
+            }
+        }
+        Map<TCPMasterConnection, Exception> failures = connector.connect(pending.keySet());
+        Map<ModbusTCPMaster, Exception> failedMasters = new IdentityHashMap<>();
+        for (Map.Entry<TCPMasterConnection, ModbusTCPMaster> entry : pending.entrySet()) {
+            Exception failure = failures.get(entry.getKey());
+            if (failure == null) {
+                entry.getValue().prepareTransaction();
+            }
+            else {
+                failedMasters.put(entry.getValue(), failure);
+            }
+        }
+        return failedMasters;
+    }
+
+    /**
+     * Creates the transaction to use for the newly opened connection
+     */
+    private synchronized void prepareTransaction() {
+        transaction = connection.getModbusTransport().createTransaction();
+        ((ModbusTCPTransaction)transaction).setReconnecting(reconnecting);
+        setTransaction(transaction);
+    }
+
     /**
      * Disconnects this <tt>ModbusTCPMaster</tt> from the slave.
      */
@@ -198,6 +247,11 @@ public class ModbusTCPMaster extends AbstractModbusMaster {
         return connection != null && connection.isConnected();
     }
 
+    @Override
+    public String getEndpoint() {
+        return endpoint;
+    }
+
     /**
      * A {@link ModbusTCPMaster} is equal if the underlying {@link TCPMasterConnection} is equal. There can't be 2
      * un-identical {@link ModbusTCPMaster}s with the same connection at the same time. One of the two, will raise a
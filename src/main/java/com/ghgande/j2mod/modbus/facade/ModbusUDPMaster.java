@@ -32,6 +32,7 @@ import java.net.UnknownHostException;
 public class ModbusUDPMaster extends AbstractModbusMaster {
 
     private final UDPMasterConnection connection;
+    private final String endpoint;
 
     /**
      * Constructs a new master facade instance for communication
@@ -72,6 +73,7 @@ public class ModbusUDPMaster extends AbstractModbusMaster {
             connection = new UDPMasterConnection(slaveAddress);
             connection.setPort(port);
             connection.setTimeout(timeout);
+            endpoint = slaveAddress.getHostAddress() + ":" + port;
         }
         catch (UnknownHostException e) {
             throw new RuntimeException("Failed to construct ModbusUDPMaster instance.", e);
@@ -121,4 +123,9 @@ public class ModbusUDPMaster extends AbstractModbusMaster {
     public boolean isConnected() {
         return connection != null && connection.isConnected();
     }
+
+    @Override
+    public String getEndpoint() {
+        return endpoint;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.facade;
+
+import com.ghgande.j2mod.modbus.Modbus;
+import com.ghgande.j2mod.modbus.procimg.Register;
+import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
+import com.ghgande.j2mod.modbus.util.BitVector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Write-behind queue for single register and coil writes made through a master facade.
+ * <p>
+ * Writes are buffered for a short window. Within the window, a newer value for the
+ * same address replaces the older one (last value wins) and adjacent addresses on the
+ * same unit are merged into <tt>write multiple registers</tt> (FC 16) or
+ * <tt>write multiple coils</tt> (FC 15) requests, split to stay within the protocol limits.
+ * The future returned for each write is completed when the request carrying its
+ * address (or a newer value for it) has been acknowledged by the slave.
+ * <p>
+ * Writes to different units or tables may be sent in a different order to the one
+ * they were queued in.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class ModbusWriteBehind implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModbusWriteBehind.class);
+
+    private final AbstractModbusMaster master;
+    private final long window;
+    private final ScheduledExecutorService scheduler;
+    private final Object flushLock = new Object();
+    private Map<Integer, TreeMap<Integer, PendingWrite>> registers = new HashMap<>();
+    private Map<Integer, TreeMap<Integer, PendingWrite>> coils = new HashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean closed;
+
+    /**
+     * Creates a write-behind queue for the master
+     *
+     * @param master Master to write through
+     * @param window Number of milliseconds to buffer writes before sending them
+     */
+    public ModbusWriteBehind(AbstractModbusMaster master, long window) {
+        if (master == null) {
+            throw new IllegalArgumentException("Master cannot be null");
+        }
+        this.master = master;
+        this.window = window;
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Modbus Write Behind");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Queues a write of a single holding register
+     *
+     * @param unitId the slave unit id.
+     * @param ref    the offset of the register to be written.
+     * @param value  the value to write.
+     *
+     * @return Future completed when the value (or a newer one) has been acknowledged
+     */
+    public synchronized CompletableFuture<Void> writeRegister(int unitId, int ref, int value) {
+        return queue(registers, unitId, ref, value & 0xFFFF);
+    }
+
+    /**
+     * Queues a write of a single coil
+     *
+     * @param unitId the slave unit id.
+     * @param ref    the offset of the coil to be written.
+     * @param state  the coil state to be written.
+     *
+     * @return Future completed when the state (or a newer one) has been acknowledged
+     */
+    public synchronized CompletableFuture<Void> writeCoil(int unitId, int ref, boolean state) {
+        return queue(coils, unitId, ref, state ? 1 : 0);
+    }
+
+    /**
+     * Returns the number of addresses waiting to be written
+     *
+     * @return Number of addresses
+     */
+    public synchronized int getPendingCount() {
+        int count = 0;
+        for (TreeMap<Integer, PendingWrite> pending : registers.values()) {
+            count += pending.size();
+        }
+        for (TreeMap<Integer, PendingWrite> pending : coils.values()) {
+            count += pending.size();
+        }
+        return count;
+    }
+
+    /**
+     * Sends all the buffered writes now, blocking until they have been acknowledged or have failed
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Integer, TreeMap<Integer, PendingWrite>> pendingRegisters;
+            Map<Integer, TreeMap<Integer, PendingWrite>> pendingCoils;
+            synchronized (this) {
+                pendingRegisters = registers;
+                pendingCoils = coils;
+                registers = new HashMap<>();
+                coils = new HashMap<>();
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+            }
+            for (Map.Entry<Integer, TreeMap<Integer, PendingWrite>> entry : pendingRegisters.entrySet()) {
+                send(entry.getKey(), entry.getValue(), false);
+            }
+            for (Map.Entry<Integer, TreeMap<Integer, PendingWrite>> entry : pendingCoils.entrySet()) {
+                send(entry.getKey(), entry.getValue(), true);
+            }
+        }
+    }
+
+    /**
+     * Sends any buffered writes and stops the queue - further writes are rejected
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flush();
+        scheduler.shutdown();
+    }
+
+    /**
+     * Adds a value to the buffer, replacing any pending value for the same address
+     *
+     * @param table  Buffer for the table being written
+     * @param unitId the slave unit id.
+     * @param ref    the address being written.
+     * @param value  the value to write.
+     *
+     * @return Future for the caller
+     */
+    private CompletableFuture<Void> queue(Map<Integer, TreeMap<Integer, PendingWrite>> table, int unitId, int ref, int value) {
+        if (closed) {
+            throw new IllegalStateException("Write behind queue is closed");
+        }
+        TreeMap<Integer, PendingWrite> unitWrites = table.get(unitId);
+        if (unitWrites == null) {
+            unitWrites = new TreeMap<>();
+            table.put(unitId, unitWrites);
+        }
+        PendingWrite pending = unitWrites.get(ref);
+        if (pending == null) {
+            pending = new PendingWrite();
+            unitWrites.put(ref, pending);
+        }
+        pending.value = value;
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        pending.futures.add(future);
+        if (scheduledFlush == null) {
+            scheduledFlush = scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, window, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    /**
+     * Sends the writes for a unit, merging runs of adjacent addresses into single requests
+     *
+     * @param unitId  the slave unit id.
+     * @param writes  Writes sorted by address
+     * @param isCoils True if the writes are coils, false if they are registers
+     */
+    private void send(int unitId, TreeMap<Integer, PendingWrite> writes, boolean isCoils) {
+        int maxRun = isCoils ? Modbus.MAX_WRITE_BITS : Modbus.MAX_WRITE_REGISTERS;
+        List<PendingWrite> run = new ArrayList<>();
+        int start = 0;
+        for (Map.Entry<Integer, PendingWrite> entry : writes.entrySet()) {
+            int ref = entry.getKey();
+            if (!run.isEmpty() && (ref != start + run.size() || run.size() >= maxRun)) {
+                sendRun(unitId, start, run, isCoils);
+                run.clear();
+            }
+            if (run.isEmpty()) {
+                start = ref;
+            }
+            run.add(entry.getValue());
+        }
+        if (!run.isEmpty()) {
+            sendRun(unitId, start, run, isCoils);
+        }
+    }
+
+    /**
+     * Sends a run of adjacent writes as a single request and completes the futures of the callers
+     *
+     * @param unitId  the slave unit id.
+     * @param start   Address of the first write
+     * @param run     Writes in address order
+     * @param isCoils True if the writes are coils, false if they are registers
+     */
+    private void sendRun(int unitId, int start, List<PendingWrite> run, boolean isCoils) {
+        Exception failure = null;
+        try {
+            if (isCoils) {
+                if (run.size() == 1) {
+                    master.writeCoil(unitId, start, run.get(0).value != 0);
+                }
+                else {
+                    BitVector bits = new BitVector(run.size());
+                    for (int i = 0; i < run.size(); i++) {
+                        bits.setBit(i, run.get(i).value != 0);
+                    }
+                    master.writeMultipleCoils(unitId, start, bits);
+                }
+            }
+            else {
+                if (run.size() == 1) {
+                    master.writeSingleRegister(unitId, start, new SimpleRegister(run.get(0).value));
+                }
+                else {
+                    Register[] values = new Register[run.size()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = new SimpleRegister(run.get(i).value);
+                    }
+                    master.writeMultipleRegisters(unitId, start, values);
+                }
+            }
+        }
+        catch (Exception e) {
+            logger.debug("Write behind of {} {} from {} on unit {} failed - {}", run.size(), isCoils ? "coils" : "registers", start, unitId, e.getMessage());
+            failure = e;
+        }
+        for (PendingWrite pending : run) {
+            for (CompletableFuture<Void> future : pending.futures) {
+                if (failure == null) {
+                    future.complete(null);
+                }
+                else {
+                    future.completeExceptionally(failure);
+                }
+            }
+        }
+    }
+
+    /**
+     * Latest value for an address and the callers waiting for it to be written
+     */
+    private static class PendingWrite {
+        int value;
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(1);
+    }
+}
@@ -17,11 +17,18 @@ package com.ghgande.j2mod.modbus.io;
 
 import com.ghgande.j2mod.modbus.Modbus;
 import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.msg.ModbusFunctionFactory;
+import com.ghgande.j2mod.modbus.msg.ModbusFunctionRegistry;
+import com.ghgande.j2mod.modbus.msg.ModbusMessage;
 import com.ghgande.j2mod.modbus.msg.ModbusRequest;
 import com.ghgande.j2mod.modbus.msg.ModbusResponse;
 import com.ghgande.j2mod.modbus.net.AbstractModbusListener;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Interface defining the I/O mechanisms for
@@ -33,7 +40,14 @@ import java.io.IOException;
  */
 public abstract class AbstractModbusTransport {
 
+    private static final Logger logger = LoggerFactory.getLogger(AbstractModbusTransport.class);
+    private static final AbstractTransportInterceptor[] NO_INTERCEPTORS = new AbstractTransportInterceptor[0];
+
     protected int timeout = Modbus.DEFAULT_TIMEOUT;
+    private volatile AbstractTransportInterceptor[] interceptors = NO_INTERCEPTORS;
+    private volatile ModbusFrameRecorder frameRecorder = new ModbusFrameRecorder(Modbus.DEFAULT_RECORDED_FRAMES);
+    private ModbusRequest[] recycledRequests;
+    private ModbusFunctionFactory[] recycledFactories;
 
     /**
      * Set the socket timeout
@@ -115,4 +129,218 @@ public abstract class AbstractModbusTransport {
      */
     public abstract ModbusResponse readResponse() throws ModbusIOException;
 
-}
\ No newline at end of file
+    /**
+     * Returns the remote end of a TCP or UDP transport, or the port of a
+     * serial transport
+     *
+     * @return Endpoint or null if not known
+     */
+    public String getEndpoint() {
+        return null;
+    }
+
+    /**
+     * Returns the recorder keeping the last frames written and read
+     *
+     * @return Recorder or null if frames are not being recorded
+     */
+    public ModbusFrameRecorder getFrameRecorder() {
+        return frameRecorder;
+    }
+
+    /**
+     * Sets the recorder keeping the last frames written and read
+     *
+     * @param frameRecorder Recorder or null to stop recording frames
+     */
+    public void setFrameRecorder(ModbusFrameRecorder frameRecorder) {
+        this.frameRecorder = frameRecorder;
+    }
+
+    /**
+     * Logs the recorded frames if the recorder is set to dump them on errors
+     *
+     * @param reason Error that caused the dump
+     */
+    void dumpFrames(String reason) {
+        ModbusFrameRecorder recorder = frameRecorder;
+        if (recorder != null && recorder.isDumpOnError()) {
+            logger.warn("{} on {} - last {} frames:\n{}", reason, getEndpoint(), Math.min(recorder.getCount(), recorder.getCapacity()), recorder.dump());
+        }
+    }
+
+    /**
+     * Records a frame that was dropped because its checksum is wrong and
+     * dumps the recorded frames
+     *
+     * @param frame  Buffer holding the frame, including its checksum
+     * @param offset Start of the frame
+     * @param length Length of the frame
+     */
+    protected void notifyChecksumError(byte[] frame, int offset, int length) {
+        ModbusFrameRecorder recorder = frameRecorder;
+        if (recorder != null) {
+            recorder.record(ModbusFrameRecorder.Direction.INVALID, frame, offset, length);
+            dumpFrames("Checksum error");
+        }
+    }
+
+    /**
+     * Adds an interceptor to the end of the chain called for every frame
+     * written or read. The chain is copied on change so that the I/O path can
+     * walk it without locking.
+     *
+     * @param interceptor Interceptor to add
+     */
+    public synchronized void addInterceptor(AbstractTransportInterceptor interceptor) {
+        if (interceptor != null) {
+            AbstractTransportInterceptor[] chain = Arrays.copyOf(interceptors, interceptors.length + 1);
+            chain[chain.length - 1] = interceptor;
+            interceptors = chain;
+        }
+    }
+
+    /**
+     * Removes an interceptor from the chain
+     *
+     * @param interceptor Interceptor to remove
+     */
+    public synchronized void removeInterceptor(AbstractTransportInterceptor interceptor) {
+        AbstractTransportInterceptor[] chain = interceptors;
+        for (int i = 0; i < chain.length; i++) {
+            if (chain[i] == interceptor) {
+                AbstractTransportInterceptor[] copy = new AbstractTransportInterceptor[chain.length - 1];
+                System.arraycopy(chain, 0, copy, 0, i);
+                System.arraycopy(chain, i + 1, copy, i, copy.length - i);
+                interceptors = copy;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes all interceptors
+     */
+    public synchronized void clearInterceptors() {
+        interceptors = NO_INTERCEPTORS;
+    }
+
+    /**
+     * Returns the interceptors in the order they are called
+     *
+     * @return Copy of the chain
+     */
+    public AbstractTransportInterceptor[] getInterceptors() {
+        return interceptors.clone();
+    }
+
+    /**
+     * Calls the interceptors before a message is written
+     *
+     * @param msg Message to be written
+     *
+     * @throws ModbusIOException if an interceptor stops the write
+     */
+    protected void notifyInterceptorsBeforeWrite(ModbusMessage msg) throws ModbusIOException {
+        for (AbstractTransportInterceptor interceptor : interceptors) {
+            interceptor.beforeWrite(this, msg);
+        }
+    }
+
+    /**
+     * Records a message that has been written and calls the interceptors
+     *
+     * @param msg    Message written
+     * @param frame  Buffer holding the frame
+     * @param offset Start of the frame
+     * @param length Length of the frame
+     */
+    protected void notifyInterceptorsAfterWrite(ModbusMessage msg, byte[] frame, int offset, int length) {
+        ModbusFrameRecorder recorder = frameRecorder;
+        if (recorder != null) {
+            recorder.record(ModbusFrameRecorder.Direction.SENT, frame, offset, length);
+        }
+        for (AbstractTransportInterceptor interceptor : interceptors) {
+            interceptor.afterWrite(this, msg, frame, offset, length);
+        }
+    }
+
+    /**
+     * Records a message that has been read and calls the interceptors
+     *
+     * @param msg    Message read
+     * @param frame  Buffer holding the frame or null if not available
+     * @param offset Start of the frame
+     * @param length Length of the frame
+     *
+     * @throws ModbusIOException if an interceptor rejects the message
+     */
+    protected void notifyInterceptorsAfterRead(ModbusMessage msg, byte[] frame, int offset, int length) throws ModbusIOException {
+        ModbusFrameRecorder recorder = frameRecorder;
+        if (recorder != null) {
+            if (frame == null) {
+                recorder.record(ModbusFrameRecorder.Direction.RECEIVED, msg);
+            }
+            else {
+                recorder.record(ModbusFrameRecorder.Direction.RECEIVED, frame, offset, length);
+            }
+        }
+        for (AbstractTransportInterceptor interceptor : interceptors) {
+            interceptor.afterRead(this, msg, frame, offset, length);
+        }
+    }
+
+    /**
+     * Calls the interceptors when a message cannot be written or read
+     *
+     * @param msg Message being written or null if reading
+     * @param ex  Exception about to be thrown
+     *
+     * @return The exception so that it can be thrown by the caller
+     */
+    protected ModbusIOException notifyInterceptorsError(ModbusMessage msg, ModbusIOException ex) {
+        for (AbstractTransportInterceptor interceptor : interceptors) {
+            interceptor.onError(this, msg, ex);
+        }
+        return ex;
+    }
+
+    /**
+     * Creates the request to read a frame with the given function code into.
+     * <p>
+     * If the listener recycles requests, the transport keeps one request per
+     * function code and returns it again for every frame with that code, each
+     * frame overwriting the fields of the last. A transport serves a single
+     * connection and its requests are handled one at a time, so the request
+     * is never in use when the next frame arrives. The request is marked as
+     * recycled so that it also reuses its responses, see
+     * {@link ModbusRequest#setRecycled(boolean)}. Reading the frame into it may
+     * still allocate its payload.
+     *
+     * @param functionCode Function code of the frame
+     * @param listener     Listener the request was received by
+     *
+     * @return Request to read the frame into
+     */
+    protected ModbusRequest createRequest(int functionCode, AbstractModbusListener listener) {
+        if (listener == null || !listener.isRecycleRequests() || functionCode < 0 || functionCode > ModbusFunctionRegistry.MAX_FUNCTION_CODE) {
+            return ModbusRequest.createModbusRequest(functionCode);
+        }
+        if (recycledRequests == null) {
+            recycledRequests = new ModbusRequest[ModbusFunctionRegistry.MAX_FUNCTION_CODE + 1];
+            recycledFactories = new ModbusFunctionFactory[ModbusFunctionRegistry.MAX_FUNCTION_CODE + 1];
+        }
+
+        // A request is only reused while the registration it came from is current
+
+        ModbusFunctionFactory factory = ModbusFunctionRegistry.getFactory(functionCode);
+        ModbusRequest request = recycledRequests[functionCode];
+        if (request == null || recycledFactories[functionCode] != factory) {
+            request = ModbusRequest.createModbusRequest(functionCode);
+            request.setRecycled(true);
+            recycledRequests[functionCode] = request;
+            recycledFactories[functionCode] = factory;
+        }
+        return request;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.io;
+
+import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.msg.ModbusMessage;
+
+/**
+ * Any class that wants to see the frames written to and read from a transport
+ * can extend this class and be added to the transport with
+ * {@link AbstractModbusTransport#addInterceptor(AbstractTransportInterceptor)}.
+ * <p>
+ * Interceptors are called on the thread doing the I/O, in the order they were
+ * added, so they should return quickly. The frame bytes passed to them belong
+ * to the transport and are only valid for the duration of the call.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public abstract class AbstractTransportInterceptor {
+
+    /**
+     * Called before a message is written
+     *
+     * @param transport Transport being used
+     * @param msg       Message to be written
+     *
+     * @throws ModbusIOException to stop the message being written
+     */
+    public void beforeWrite(AbstractModbusTransport transport, ModbusMessage msg) throws ModbusIOException {
+    }
+
+    /**
+     * Called when a message has been written
+     *
+     * @param transport Transport being used
+     * @param msg       Message written
+     * @param frame     Buffer holding the frame as written, including any header and checksum
+     * @param offset    Start of the frame in the buffer
+     * @param length    Length of the frame
+     */
+    public void afterWrite(AbstractModbusTransport transport, ModbusMessage msg, byte[] frame, int offset, int length) {
+    }
+
+    /**
+     * Called when a request or response has been read
+     *
+     * @param transport Transport being used
+     * @param msg       Message read
+     * @param frame     Buffer holding the frame as read, or null if the transport
+     *                  decodes headless TCP frames straight from the stream
+     * @param offset    Start of the frame in the buffer
+     * @param length    Length of the frame
+     *
+     * @throws ModbusIOException to reject the message
+     */
+    public void afterRead(AbstractModbusTransport transport, ModbusMessage msg, byte[] frame, int offset, int length) throws ModbusIOException {
+    }
+
+    /**
+     * Called when a message cannot be written or read, including a message
+     * rejected by {@link #afterRead}, but not one stopped by {@link #beforeWrite}
+     *
+     * @param transport Transport being used
+     * @param msg       Message being written, or null if reading
+     * @param ex        Exception that will be thrown
+     */
+    public void onError(AbstractModbusTransport transport, ModbusMessage msg, ModbusIOException ex) {
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.io;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * <tt>DataInput</tt> that reads straight from a <tt>ByteBuffer</tt>.
+ * <p>
+ * Values are read big-endian whatever the byte order of the buffer, and
+ * reading past the limit of the buffer throws an <tt>EOFException</tt> instead
+ * of a <tt>BufferUnderflowException</tt>, so message <tt>readData</tt> methods
+ * can be used on a buffer without copying it into a stream first.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class ByteBufferDataInput implements DataInput {
+
+    private ByteBuffer buffer;
+
+    /**
+     * Constructs a new <tt>ByteBufferDataInput</tt> reading from the given buffer
+     *
+     * @param buffer Buffer to read from, starting at its position
+     */
+    public ByteBufferDataInput(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Returns the buffer being read
+     *
+     * @return Buffer
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Sets the buffer to read from
+     *
+     * @param buffer Buffer to read from, starting at its position
+     */
+    public void setBuffer(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        require(len);
+        buffer.get(b, off, len);
+    }
+
+    @Override
+    public int skipBytes(int n) throws IOException {
+        int skip = Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + skip);
+        return skip;
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        require(1);
+        return buffer.get();
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return readByte() & 0xFF;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        return (short)readUnsignedShort();
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        require(2);
+        return ((buffer.get() & 0xFF) << 8) | (buffer.get() & 0xFF);
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        return (char)readUnsignedShort();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        require(4);
+        return ((buffer.get() & 0xFF) << 24) | ((buffer.get() & 0xFF) << 16) |
+                ((buffer.get() & 0xFF) << 8) | (buffer.get() & 0xFF);
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        require(8);
+        return ((long)readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        if (!buffer.hasRemaining()) {
+            return null;
+        }
+        StringBuilder line = new StringBuilder();
+        while (buffer.hasRemaining()) {
+            int c = buffer.get() & 0xFF;
+            if (c == '\n') {
+                break;
+            }
+            if (c == '\r') {
+                if (buffer.hasRemaining() && buffer.get(buffer.position()) == '\n') {
+                    buffer.get();
+                }
+                break;
+            }
+            line.append((char)c);
+        }
+        return line.toString();
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+
+    /**
+     * Checks that the buffer holds enough bytes
+     *
+     * @param count Number of bytes needed
+     *
+     * @throws EOFException if the buffer is too short
+     */
+    private void require(int count) throws EOFException {
+        if (buffer.remaining() < count) {
+            throw new EOFException(String.format("Need %d bytes but only %d remain", count, buffer.remaining()));
+        }
+    }
+}
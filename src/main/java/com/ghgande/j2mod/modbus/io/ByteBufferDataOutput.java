@@ -0,0 +1,166 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * <tt>DataOutput</tt> that writes straight into a <tt>ByteBuffer</tt>.
+ * <p>
+ * Values are written big-endian whatever the byte order of the buffer, and
+ * writing past the limit of the buffer throws an <tt>IOException</tt> instead of
+ * a <tt>BufferOverflowException</tt>, so message <tt>writeData</tt> methods can
+ * fill a buffer without going through a stream.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class ByteBufferDataOutput implements DataOutput {
+
+    private ByteBuffer buffer;
+
+    /**
+     * Constructs a new <tt>ByteBufferDataOutput</tt> writing to the given buffer
+     *
+     * @param buffer Buffer to write to, starting at its position
+     */
+    public ByteBufferDataOutput(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Returns the buffer being written
+     *
+     * @return Buffer
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Sets the buffer to write to
+     *
+     * @param buffer Buffer to write to, starting at its position
+     */
+    public void setBuffer(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        require(1);
+        buffer.put((byte)b);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        require(len);
+        buffer.put(b, off, len);
+    }
+
+    @Override
+    public void writeBoolean(boolean v) throws IOException {
+        write(v ? 1 : 0);
+    }
+
+    @Override
+    public void writeByte(int v) throws IOException {
+        write(v);
+    }
+
+    @Override
+    public void writeShort(int v) throws IOException {
+        require(2);
+        buffer.put((byte)(v >>> 8));
+        buffer.put((byte)v);
+    }
+
+    @Override
+    public void writeChar(int v) throws IOException {
+        writeShort(v);
+    }
+
+    @Override
+    public void writeInt(int v) throws IOException {
+        require(4);
+        buffer.put((byte)(v >>> 24));
+        buffer.put((byte)(v >>> 16));
+        buffer.put((byte)(v >>> 8));
+        buffer.put((byte)v);
+    }
+
+    @Override
+    public void writeLong(long v) throws IOException {
+        require(8);
+        writeInt((int)(v >>> 32));
+        writeInt((int)v);
+    }
+
+    @Override
+    public void writeFloat(float v) throws IOException {
+        writeInt(Float.floatToIntBits(v));
+    }
+
+    @Override
+    public void writeDouble(double v) throws IOException {
+        writeLong(Double.doubleToLongBits(v));
+    }
+
+    @Override
+    public void writeBytes(String s) throws IOException {
+        require(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            buffer.put((byte)s.charAt(i));
+        }
+    }
+
+    @Override
+    public void writeChars(String s) throws IOException {
+        require(s.length() * 2);
+        for (int i = 0; i < s.length(); i++) {
+            writeShort(s.charAt(i));
+        }
+    }
+
+    @Override
+    public void writeUTF(String s) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(s.length() + 2);
+        new DataOutputStream(bytes).writeUTF(s);
+        write(bytes.toByteArray());
+    }
+
+    /**
+     * Checks that the buffer has room for enough bytes
+     *
+     * @param count Number of bytes needed
+     *
+     * @throws IOException if the buffer is too short
+     */
+    private void require(int count) throws IOException {
+        if (buffer.remaining() < count) {
+            throw new IOException(String.format("Need room for %d bytes but only %d remain", count, buffer.remaining()));
+        }
+    }
+}
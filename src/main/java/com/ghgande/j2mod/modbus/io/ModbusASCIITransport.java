@@ -21,11 +21,14 @@ import com.ghgande.j2mod.modbus.msg.ModbusMessage;
 import com.ghgande.j2mod.modbus.msg.ModbusRequest;
 import com.ghgande.j2mod.modbus.msg.ModbusResponse;
 import com.ghgande.j2mod.modbus.net.AbstractModbusListener;
+import com.ghgande.j2mod.modbus.util.LRC;
+import com.ghgande.j2mod.modbus.util.ModbusEventRecorder;
 import com.ghgande.j2mod.modbus.util.ModbusUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 
 /**
  * Class that implements the Modbus/ASCII transport
@@ -68,8 +71,9 @@ public class ModbusASCIITransport extends ModbusSerialTransport {
                 if (logger.isDebugEnabled()) {
                     logger.debug("Writing: {}", ModbusUtil.toHex(buf, 0, len));
                 }
-                writeAsciiByte(calculateLRC(buf, 0, len)); //LRC
+                writeAsciiByte(LRC.calculate(buf, 0, len)); //LRC
                 writeAsciiByte(FRAME_END);                 //FRAMEEND
+                notifyInterceptorsAfterWrite(msg, buf, 0, len);
                 byteOutputStream.reset();
                 // clears out the echoed message
                 // for RS485
@@ -102,12 +106,16 @@ public class ModbusASCIITransport extends ModbusSerialTransport {
                     byteInputOutputStream.reset();
                     while ((in = readAsciiByte()) != FRAME_END) {
                         if (in == -1) {
-                            throw new IOException(I_O_EXCEPTION_SERIAL_PORT_TIMEOUT);
+                            throw new InterruptedIOException(I_O_EXCEPTION_SERIAL_PORT_TIMEOUT);
                         }
                         byteInputOutputStream.writeByte(in);
                     }
                     //check LRC
-                    if (inBuffer[byteInputOutputStream.size() - 1] != calculateLRC(inBuffer, 0, byteInputOutputStream.size(), 1)) {
+                    int len = byteInputOutputStream.size();
+                    int lrc = LRC.calculate(inBuffer, 0, len - 1);
+                    if ((inBuffer[len - 1] & 0xFF) != lrc) {
+                        ModbusEventRecorder.getInstance().checksumError(getCommPort().getPortName(), len - 1, lrc, inBuffer[len - 1] & 0xFF);
+                        notifyChecksumError(inBuffer, 0, len);
                         continue;
                     }
                     byteInputStream.reset(inBuffer, byteInputOutputStream.size());
@@ -117,11 +125,12 @@ public class ModbusASCIITransport extends ModbusSerialTransport {
 
                     int functionCode = byteInputStream.readUnsignedByte();
                     //create request
-                    request = ModbusRequest.createModbusRequest(functionCode);
+                    request = createRequest(functionCode, listener);
                     request.setHeadless();
                     //read message
                     byteInputStream.reset(inBuffer, byteInputOutputStream.size());
                     request.readFrom(byteInputStream);
+                    notifyInterceptorsAfterRead(request, inBuffer, 0, len - 1);
                 }
                 done = true;
             } while (!done);
@@ -145,7 +154,7 @@ public class ModbusASCIITransport extends ModbusSerialTransport {
                 //1. Skip to FRAME_START
                 while ((in = readAsciiByte()) != FRAME_START) {
                     if (in == -1) {
-                        throw new IOException(I_O_EXCEPTION_SERIAL_PORT_TIMEOUT);
+                        throw new InterruptedIOException(I_O_EXCEPTION_SERIAL_PORT_TIMEOUT);
                     }
                 }
                 //2. Read to FRAME_END
@@ -153,7 +162,7 @@ public class ModbusASCIITransport extends ModbusSerialTransport {
                     byteInputOutputStream.reset();
                     while ((in = readAsciiByte()) != FRAME_END) {
                         if (in == -1) {
-                            throw new IOException(I_O_EXCEPTION_SERIAL_PORT_TIMEOUT);
+                            throw new InterruptedIOException(I_O_EXCEPTION_SERIAL_PORT_TIMEOUT);
                         }
                         byteInputOutputStream.writeByte(in);
                     }
@@ -162,7 +171,10 @@ public class ModbusASCIITransport extends ModbusSerialTransport {
                         logger.debug("Received: {}", ModbusUtil.toHex(inBuffer, 0, len));
                     }
                     //check LRC
-                    if (inBuffer[len - 1] != calculateLRC(inBuffer, 0, len, 1)) {
+                    int lrc = LRC.calculate(inBuffer, 0, len - 1);
+                    if ((inBuffer[len - 1] & 0xFF) != lrc) {
+                        ModbusEventRecorder.getInstance().checksumError(getCommPort().getPortName(), len - 1, lrc, inBuffer[len - 1] & 0xFF);
+                        notifyChecksumError(inBuffer, 0, len);
                         continue;
                     }
 
@@ -180,6 +192,7 @@ public class ModbusASCIITransport extends ModbusSerialTransport {
                     //read message
                     byteInputStream.reset(inBuffer, byteInputOutputStream.size());
                     response.readFrom(byteInputStream);
+                    notifyInterceptorsAfterRead(response, inBuffer, 0, len - 1);
                 }
                 done = true;
             } while (!done);
@@ -187,37 +200,8 @@ public class ModbusASCIITransport extends ModbusSerialTransport {
         }
         catch (Exception ex) {
             logger.debug(ex.getMessage());
-            throw new ModbusIOException("I/O exception - failed to read");
-        }
-    }
-
-    /**
-     * Calculates a LRC checksum
-     *
-     * @param data   Data to use
-     * @param off    Offset into byte array
-     * @param length Number of bytes to use
-     * @return Checksum
-     */
-    private static int calculateLRC(byte[] data, int off, int length) {
-        return calculateLRC(data, off, length, 0);
-    }
-
-    /**
-     * Calculates a LRC checksum
-     *
-     * @param data     Data to use
-     * @param off      Offset into byte array
-     * @param length   Number of bytes to use
-     * @param tailskip Bytes to skip at tail
-     * @return Checksum
-     */
-    private static byte calculateLRC(byte[] data, int off, int length, int tailskip) {
-        int lrc = 0;
-        for (int i = off; i < length - tailskip; i++) {
-            lrc += ((int) data[i]) & 0xFF;
+            throw new ModbusIOException("I/O exception - failed to read").setTimeout(ex instanceof InterruptedIOException);
         }
-        return (byte) ((-lrc) & 0xff);
     }
 
 }
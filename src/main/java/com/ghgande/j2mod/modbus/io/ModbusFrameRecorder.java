@@ -0,0 +1,287 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.io;
+
+import com.ghgande.j2mod.modbus.Modbus;
+import com.ghgande.j2mod.modbus.msg.ModbusMessage;
+import com.ghgande.j2mod.modbus.msg.ModbusMessageImpl;
+import com.ghgande.j2mod.modbus.util.ModbusUtil;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Keeps the last frames written and read by a transport so that they can be
+ * looked at after a problem without having to turn on debug logging.
+ * <p>
+ * Frames are copied into a fixed block of memory allocated up front, so
+ * recording a frame costs a copy and a timestamp and nothing is formatted until
+ * {@link #dump()} is called. Frames longer than {@link #MAX_FRAME_LENGTH} are
+ * truncated.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class ModbusFrameRecorder {
+
+    /**
+     * Number of bytes kept of each frame, enough for a TCP frame with its header
+     */
+    public static final int MAX_FRAME_LENGTH = Modbus.MAX_MESSAGE_LENGTH + 6;
+
+    /**
+     * Direction of a recorded frame
+     */
+    public enum Direction {
+        SENT, RECEIVED, INVALID
+    }
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int capacity;
+    private final byte[] data;
+    private final ByteBuffer buffer;
+    private final int[] lengths;
+    private final long[] timestamps;
+    private final byte[] directions;
+    private long count;
+    private volatile boolean dumpOnError = true;
+
+    /**
+     * Constructs a recorder
+     *
+     * @param capacity Number of frames to keep
+     */
+    public ModbusFrameRecorder(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        data = new byte[capacity * MAX_FRAME_LENGTH];
+        buffer = ByteBuffer.wrap(data);
+        lengths = new int[capacity];
+        timestamps = new long[capacity];
+        directions = new byte[capacity];
+    }
+
+    /**
+     * Returns the number of frames kept
+     *
+     * @return Capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of frames recorded since the recorder was created or
+     * cleared, including those that have been overwritten
+     *
+     * @return Count
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns true if the frames are logged when the transport sees a bad
+     * checksum or a response to the wrong transaction
+     *
+     * @return True if dumped on error
+     */
+    public boolean isDumpOnError() {
+        return dumpOnError;
+    }
+
+    /**
+     * Sets whether the frames are logged when the transport sees a bad
+     * checksum or a response to the wrong transaction
+     *
+     * @param dumpOnError True to dump on error
+     */
+    public void setDumpOnError(boolean dumpOnError) {
+        this.dumpOnError = dumpOnError;
+    }
+
+    /**
+     * Records a frame
+     *
+     * @param direction Direction of the frame
+     * @param frame     Buffer holding the frame
+     * @param offset    Start of the frame
+     * @param length    Length of the frame
+     */
+    public synchronized void record(Direction direction, byte[] frame, int offset, int length) {
+        int slot = (int)(count++ % capacity);
+        System.arraycopy(frame, offset, data, slot * MAX_FRAME_LENGTH, Math.min(length, MAX_FRAME_LENGTH));
+        lengths[slot] = length;
+        timestamps[slot] = System.nanoTime();
+        directions[slot] = (byte)direction.ordinal();
+    }
+
+    /**
+     * Records a message read from a transport that does not keep the frame,
+     * as its unit, function code and data
+     * <p>
+     * The data is written straight into the slot of the frame.
+     *
+     * @param direction Direction of the frame
+     * @param msg       Message
+     */
+    public synchronized void record(Direction direction, ModbusMessage msg) {
+        int slot = (int)(count++ % capacity);
+        int start = slot * MAX_FRAME_LENGTH;
+        data[start] = (byte)msg.getUnitID();
+        data[start + 1] = (byte)msg.getFunctionCode();
+        int length = 2;
+        if (msg instanceof ModbusMessageImpl) {
+            buffer.limit(start + MAX_FRAME_LENGTH);
+            buffer.position(start + 2);
+            try {
+                ((ModbusMessageImpl)msg).writeData(buffer);
+            }
+            catch (IOException | BufferOverflowException e) {
+                // Keep whatever fitted in the slot
+            }
+            length = buffer.position() - start;
+        }
+        else {
+            byte[] message = msg.getMessage();
+            if (message != null) {
+                System.arraycopy(message, 0, data, start + 2, Math.min(message.length, MAX_FRAME_LENGTH - 2));
+                length += message.length;
+            }
+        }
+        lengths[slot] = length;
+        timestamps[slot] = System.nanoTime();
+        directions[slot] = (byte)direction.ordinal();
+    }
+
+    /**
+     * Discards all the recorded frames
+     */
+    public synchronized void clear() {
+        count = 0;
+    }
+
+    /**
+     * Returns a copy of the recorded frames, oldest first
+     *
+     * @return Frames
+     */
+    public synchronized List<Frame> getFrames() {
+        int size = (int)Math.min(count, capacity);
+        List<Frame> frames = new ArrayList<Frame>(size);
+        for (long i = count - size; i < count; i++) {
+            int slot = (int)(i % capacity);
+            int start = slot * MAX_FRAME_LENGTH;
+            frames.add(new Frame(timestamps[slot], DIRECTIONS[directions[slot]], Arrays.copyOfRange(data, start, start + Math.min(lengths[slot], MAX_FRAME_LENGTH)), lengths[slot]));
+        }
+        return frames;
+    }
+
+    /**
+     * Formats the recorded frames, oldest first, one per line with its time
+     * relative to the newest frame
+     *
+     * @return Text of the frames
+     */
+    public String dump() {
+        List<Frame> frames = getFrames();
+        StringBuilder text = new StringBuilder();
+        if (frames.isEmpty()) {
+            return text.toString();
+        }
+        long newest = frames.get(frames.size() - 1).getTimestamp();
+        for (Frame frame : frames) {
+            text.append(String.format(Locale.ROOT, "%12.6f ms %-8s %3d: ", (frame.getTimestamp() - newest) / 1000000.0, frame.getDirection(), frame.getLength()));
+            text.append(ModbusUtil.toHex(frame.getData()));
+            if (frame.isTruncated()) {
+                text.append(" ...");
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Frame held by the recorder
+     */
+    public static class Frame {
+        private final long timestamp;
+        private final Direction direction;
+        private final byte[] data;
+        private final int length;
+
+        Frame(long timestamp, Direction direction, byte[] data, int length) {
+            this.timestamp = timestamp;
+            this.direction = direction;
+            this.data = data;
+            this.length = length;
+        }
+
+        /**
+         * Returns when the frame was recorded
+         *
+         * @return Value of System.nanoTime()
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Returns the direction of the frame
+         *
+         * @return Direction
+         */
+        public Direction getDirection() {
+            return direction;
+        }
+
+        /**
+         * Returns the bytes kept of the frame
+         *
+         * @return Frame bytes
+         */
+        public byte[] getData() {
+            return data.clone();
+        }
+
+        /**
+         * Returns the length of the frame, which is more than the bytes kept
+         * if it was truncated
+         *
+         * @return Length
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Returns true if only the start of the frame was kept
+         *
+         * @return True if truncated
+         */
+        public boolean isTruncated() {
+            return length > data.length;
+        }
+    }
+}
@@ -17,15 +17,19 @@ package com.ghgande.j2mod.modbus.io;
 
 import com.ghgande.j2mod.modbus.Modbus;
 import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.msg.ModbusFunctionRegistry;
 import com.ghgande.j2mod.modbus.msg.ModbusMessage;
 import com.ghgande.j2mod.modbus.msg.ModbusRequest;
 import com.ghgande.j2mod.modbus.msg.ModbusResponse;
 import com.ghgande.j2mod.modbus.net.AbstractModbusListener;
+import com.ghgande.j2mod.modbus.util.CRC16;
+import com.ghgande.j2mod.modbus.util.ModbusEventRecorder;
 import com.ghgande.j2mod.modbus.util.ModbusUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 
 /**
  * Class that implements the ModbusRTU transport flavor.
@@ -60,6 +64,26 @@ public class ModbusRTUTransport extends ModbusSerialTransport {
         out.write(inpBuf, 0, byteCount);
     }
 
+    /**
+     * Read the data of a user defined function laid out as registered
+     *
+     * @param format Layout of the data excluding the 2 byte CRC
+     * @param out    Output buffer to populate
+     * @throws IOException If data cannot be read from the port
+     */
+    private void readFrameData(ModbusFunctionRegistry.FrameFormat format, BytesOutputStream out) throws IOException {
+        if (!format.isByteCountFollows()) {
+            readRequestData(format.getFixedLength(), out);
+            return;
+        }
+        byte[] inpBuf = new byte[format.getFixedLength()];
+        readBytes(inpBuf, inpBuf.length);
+        out.write(inpBuf, 0, inpBuf.length);
+        int byteCount = readByte();
+        out.write(byteCount);
+        readRequestData(byteCount, out);
+    }
+
     /**
      * getRequest - Read a request, after the unit and function code
      *
@@ -123,10 +147,17 @@ public class ModbusRTUTransport extends ModbusSerialTransport {
                         break;
 
                     default:
-                        throw new IOException(String.format("getResponse unrecognised function code [%s]", function));
+                        ModbusFunctionRegistry.FrameFormat format = ModbusFunctionRegistry.getRequestFormat(function);
+                        if (format == null) {
+                            throw new IOException(String.format("getResponse unrecognised function code [%s]", function));
+                        }
+                        readFrameData(format, out);
                 }
             }
         }
+        catch (InterruptedIOException e) {
+            throw e;
+        }
         catch (IOException e) {
             throw new IOException("getResponse serial port exception");
         }
@@ -223,7 +254,11 @@ public class ModbusRTUTransport extends ModbusSerialTransport {
                         break;
 
                     default:
-                        throw new IOException(String.format("getResponse unrecognised function code [%s]", function));
+                        ModbusFunctionRegistry.FrameFormat format = ModbusFunctionRegistry.getResponseFormat(function);
+                        if (format == null) {
+                            throw new IOException(String.format("getResponse unrecognised function code [%s]", function));
+                        }
+                        readFrameData(format, out);
 
                 }
             }
@@ -233,6 +268,9 @@ public class ModbusRTUTransport extends ModbusSerialTransport {
 
             }
         }
+        catch (InterruptedIOException e) {
+            throw e;
+        }
         catch (IOException e) {
             throw new IOException(String.format("getResponse serial port exception - %s", e.getMessage()));
         }
@@ -257,14 +295,15 @@ public class ModbusRTUTransport extends ModbusSerialTransport {
                 msg.setHeadless();
                 msg.writeTo(byteOutputStream);
                 len = byteOutputStream.size();
-                int[] crc = ModbusUtil.calculateCRC(byteOutputStream.getBuffer(), 0, len);
-                byteOutputStream.writeByte(crc[0]);
-                byteOutputStream.writeByte(crc[1]);
+                int crc = CRC16.calculate(byteOutputStream.getBuffer(), 0, len);
+                byteOutputStream.writeByte(crc & 0xFF);
+                byteOutputStream.writeByte(crc >>> 8);
                 // write message
                 writeBytes(byteOutputStream.getBuffer(), byteOutputStream.size());
                 if (logger.isDebugEnabled()) {
                     logger.debug("Sent: {}", ModbusUtil.toHex(byteOutputStream.getBuffer(), 0, byteOutputStream.size()));
                 }
+                notifyInterceptorsAfterWrite(msg, byteOutputStream.getBuffer(), 0, byteOutputStream.size());
                 // clears out the echoed message
                 // for RS485
                 if (echo) {
@@ -298,7 +337,7 @@ public class ModbusRTUTransport extends ModbusSerialTransport {
                         byteInputOutputStream.writeByte(fc);
 
                         // create request to acquire length of message
-                        request = ModbusRequest.createModbusRequest(fc);
+                        request = createRequest(fc, listener);
                         request.setHeadless();
 
                         /*
@@ -318,11 +357,13 @@ public class ModbusRTUTransport extends ModbusSerialTransport {
                         byteInputStream.reset(inBuffer, dlength);
 
                         // check CRC
-                        int[] crc = ModbusUtil.calculateCRC(inBuffer, 0, dlength); // does not include CRC
-                        if (ModbusUtil.unsignedByteToInt(inBuffer[dlength]) != crc[0] || ModbusUtil.unsignedByteToInt(inBuffer[dlength + 1]) != crc[1]) {
+                        int crc = CRC16.calculate(inBuffer, 0, dlength); // does not include CRC
+                        if (ModbusUtil.unsignedByteToInt(inBuffer[dlength]) != (crc & 0xFF) || ModbusUtil.unsignedByteToInt(inBuffer[dlength + 1]) != crc >>> 8) {
                             if (logger.isDebugEnabled()) {
-                                logger.debug("CRC should be {}, {}", Integer.toHexString(crc[0]), Integer.toHexString(crc[1]));
+                                logger.debug("CRC should be {}, {}", Integer.toHexString(crc & 0xFF), Integer.toHexString(crc >>> 8));
                             }
+                            ModbusEventRecorder.getInstance().checksumError(getCommPort().getPortName(), dlength, crc, ModbusUtil.unsignedByteToInt(inBuffer[dlength]) | ModbusUtil.unsignedByteToInt(inBuffer[dlength + 1]) << 8);
+                            notifyChecksumError(inBuffer, 0, dlength + 2);
 
                             // Drain the input in case the frame was misread and more
                             // was to follow.
@@ -333,6 +374,7 @@ public class ModbusRTUTransport extends ModbusSerialTransport {
                         // read request
                         byteInputStream.reset(inBuffer, dlength);
                         request.readFrom(byteInputStream);
+                        notifyInterceptorsAfterRead(request, inBuffer, 0, dlength + 2);
 
                         return request;
 
@@ -445,9 +487,11 @@ public class ModbusRTUTransport extends ModbusSerialTransport {
                         byteInputStream.reset(inBuffer, dlength);
 
                         // check CRC
-                        int[] crc = ModbusUtil.calculateCRC(inBuffer, 0, dlength); // does not include CRC
-                        if (ModbusUtil.unsignedByteToInt(inBuffer[dlength]) != crc[0] || ModbusUtil.unsignedByteToInt(inBuffer[dlength + 1]) != crc[1]) {
-                            logger.debug("CRC should be {}, {}", crc[0], crc[1]);
+                        int crc = CRC16.calculate(inBuffer, 0, dlength); // does not include CRC
+                        if (ModbusUtil.unsignedByteToInt(inBuffer[dlength]) != (crc & 0xFF) || ModbusUtil.unsignedByteToInt(inBuffer[dlength + 1]) != crc >>> 8) {
+                            logger.debug("CRC should be {}, {}", crc & 0xFF, crc >>> 8);
+                            ModbusEventRecorder.getInstance().checksumError(getCommPort().getPortName(), dlength, crc, ModbusUtil.unsignedByteToInt(inBuffer[dlength]) | ModbusUtil.unsignedByteToInt(inBuffer[dlength + 1]) << 8);
+                            notifyChecksumError(inBuffer, 0, dlength + 2);
                             throw new IOException("CRC Error in received frame: " + dlength + " bytes: " + ModbusUtil.toHex(byteInputStream.getBuffer(), 0, dlength));
                         }
                     }
@@ -458,6 +502,7 @@ public class ModbusRTUTransport extends ModbusSerialTransport {
                     // read response
                     byteInputStream.reset(inBuffer, dlength);
                     response.readFrom(byteInputStream);
+                    notifyInterceptorsAfterRead(response, inBuffer, 0, dlength + 2);
                     done = true;
                 }
             } while (!done);
@@ -465,7 +510,8 @@ public class ModbusRTUTransport extends ModbusSerialTransport {
         }
         catch (IOException ex) {
             // FIXME: This printout is wrong when reading response from other slave
-            throw new ModbusIOException("I/O exception - failed to read response for request [%s] - %s", ModbusUtil.toHex(lastRequest), ex.getMessage());
+            throw new ModbusIOException("I/O exception - failed to read response for request [%s] - %s", ModbusUtil.toHex(lastRequest), ex.getMessage())
+                    .setTimeout(ex instanceof InterruptedIOException);
         }
     }
 }
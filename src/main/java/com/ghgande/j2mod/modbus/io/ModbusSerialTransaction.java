@@ -16,9 +16,7 @@
 package com.ghgande.j2mod.modbus.io;
 
 import com.ghgande.j2mod.modbus.Modbus;
-import com.ghgande.j2mod.modbus.ModbusException;
 import com.ghgande.j2mod.modbus.ModbusIOException;
-import com.ghgande.j2mod.modbus.ModbusSlaveException;
 import com.ghgande.j2mod.modbus.msg.ExceptionResponse;
 import com.ghgande.j2mod.modbus.msg.ModbusRequest;
 import com.ghgande.j2mod.modbus.net.AbstractSerialConnection;
@@ -104,22 +102,25 @@ public class ModbusSerialTransaction extends ModbusTransaction {
         this.transDelayMS = newTransDelayMS;
     }
 
-    /**
-     * Asserts if this <tt>ModbusTCPTransaction</tt> is
-     * executable.
-     *
-     * @throws ModbusException if the transaction cannot be asserted.
-     */
-    private void assertExecutable() throws ModbusException {
-        if (request == null || transport == null) {
-            throw new ModbusException("Assertion failed, transaction not executable");
+    @Override
+    protected String getEndpoint() {
+        if (transport instanceof ModbusSerialTransport) {
+            AbstractSerialConnection commPort = ((ModbusSerialTransport)transport).getCommPort();
+            if (commPort != null) {
+                return commPort.getPortName();
+            }
         }
+        return null;
     }
 
     @Override
-    public void execute() throws ModbusException {
+    protected synchronized ModbusTransactionResult executeTransaction(ModbusTransactionResult result) {
         //1. assert executeability
-        assertExecutable();
+        result.reset(request);
+        if (request == null || transport == null) {
+            result.setFailure(ModbusTransactionResult.Status.NOT_EXECUTABLE, "Assertion failed, transaction not executable", null, 0);
+            return result;
+        }
 
         //3. write request, and read response,
         //   while holding the lock on the IO object
@@ -130,17 +131,16 @@ public class ModbusSerialTransaction extends ModbusTransaction {
                 // Wait between adjacent requests
                 ((ModbusSerialTransport) transport).waitBetweenFrames(transDelayMS, lastTransactionTimestamp);
 
-                synchronized (this) {
-                    //write request message
-                    transport.writeRequest(request);
-                    //read response message
-                    response = transport.readResponse();
-                    finished = true;
-                }
+                //write request message
+                transport.writeRequest(request);
+                //read response message
+                response = transport.readResponse();
+                finished = true;
             }
             catch (ModbusIOException e) {
                 if (++tries >= retries) {
-                    throw e;
+                    result.setFailure(ModbusTransactionResult.Status.IO_ERROR, null, e, tries);
+                    return result;
                 }
                 ModbusUtil.sleep(getRandomSleepTime(tries));
                 logger.debug("Execute try {} error: {}", tries, e.getMessage());
@@ -149,16 +149,18 @@ public class ModbusSerialTransaction extends ModbusTransaction {
 
         //4. deal with exceptions
         if (response instanceof ExceptionResponse) {
-            throw new ModbusSlaveException(((ExceptionResponse) response).getExceptionCode());
+            result.setSlaveException(response, ((ExceptionResponse) response).getExceptionCode(), tries + 1);
+            return result;
         }
 
         // Check that the response is for this request
-        if (isCheckingValidity()) {
-            checkValidity();
-        }
+        if (!isCheckingValidity() || checkValidity(result, tries + 1)) {
+            result.setSuccess(response, tries + 1);
 
-        // Set the last transaction timestamp
-        lastTransactionTimestamp = System.nanoTime();
+            // Set the last transaction timestamp
+            lastTransactionTimestamp = System.nanoTime();
+        }
+        return result;
     }
 
 }
@@ -23,14 +23,15 @@ import com.ghgande.j2mod.modbus.msg.ModbusRequest;
 import com.ghgande.j2mod.modbus.msg.ModbusResponse;
 import com.ghgande.j2mod.modbus.net.AbstractModbusListener;
 import com.ghgande.j2mod.modbus.net.AbstractSerialConnection;
+import com.ghgande.j2mod.modbus.util.ModbusEventRecorder;
 import com.ghgande.j2mod.modbus.util.ModbusUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.Collections;
-import java.util.HashSet;
+import java.io.InterruptedIOException;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
  * Abstract base class for serial <tt>ModbusTransport</tt>
@@ -62,7 +63,7 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
     private static final String COMM_PORT_IS_NOT_VALID_OR_NOT_OPEN = "Comm port is not valid or not open";
     private AbstractSerialConnection commPort;
     boolean echo = false;     // require RS-485 echo processing
-    private final Set<AbstractSerialTransportListener> listeners = Collections.synchronizedSet(new HashSet<AbstractSerialTransportListener>());
+    private final Set<AbstractSerialTransportListener> listeners = new CopyOnWriteArraySet<AbstractSerialTransportListener>();
 
     /**
      * Creates a new transaction suitable for the serial port
@@ -104,9 +105,11 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
      */
     private void writeMessage(ModbusMessage msg) throws ModbusIOException {
         open();
+        notifyInterceptorsBeforeWrite(msg);
         notifyListenersBeforeWrite(msg);
         try {
             writeMessageOut(msg);
+            ModbusEventRecorder.getInstance().frameSent(commPort.getPortName(), msg);
             long startTime = System.nanoTime();
 
             // Wait here for the message to have been sent
@@ -137,6 +140,9 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
                 logger.debug("nothing to do");
             }
         }
+        catch (ModbusIOException ex) {
+            throw notifyInterceptorsError(msg, ex);
+        }
         finally {
             notifyListenersAfterWrite(msg);
         }
@@ -146,7 +152,14 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
     public ModbusRequest readRequest(AbstractModbusListener listener) throws ModbusIOException {
         open();
         notifyListenersBeforeRequest();
-        ModbusRequest req = readRequestIn(listener);
+        ModbusRequest req;
+        try {
+            req = readRequestIn(listener);
+        }
+        catch (ModbusIOException ex) {
+            throw notifyInterceptorsError(null, ex);
+        }
+        ModbusEventRecorder.getInstance().frameReceived(commPort.getPortName(), req);
         notifyListenersAfterRequest(req);
         return req;
     }
@@ -154,7 +167,14 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
     @Override
     public ModbusResponse readResponse() throws ModbusIOException {
         notifyListenersBeforeResponse();
-        ModbusResponse res = readResponseIn();
+        ModbusResponse res;
+        try {
+            res = readResponseIn();
+        }
+        catch (ModbusIOException ex) {
+            throw notifyInterceptorsError(null, ex);
+        }
+        ModbusEventRecorder.getInstance().frameReceived(commPort.getPortName(), res);
         notifyListenersAfterResponse(res);
         return res;
     }
@@ -248,10 +268,8 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
      * Calls any listeners with the given event and current port
      */
     private void notifyListenersBeforeRequest() {
-        synchronized (listeners) {
-            for (AbstractSerialTransportListener listener : listeners) {
-                listener.beforeRequestRead(commPort);
-            }
+        for (AbstractSerialTransportListener listener : listeners) {
+            listener.beforeRequestRead(commPort);
         }
     }
 
@@ -261,10 +279,8 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
      * @param req Request received
      */
     private void notifyListenersAfterRequest(ModbusRequest req) {
-        synchronized (listeners) {
-            for (AbstractSerialTransportListener listener : listeners) {
-                listener.afterRequestRead(commPort, req);
-            }
+        for (AbstractSerialTransportListener listener : listeners) {
+            listener.afterRequestRead(commPort, req);
         }
     }
 
@@ -272,10 +288,8 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
      * Calls any listeners with the given event and current port
      */
     private void notifyListenersBeforeResponse() {
-        synchronized (listeners) {
-            for (AbstractSerialTransportListener listener : listeners) {
-                listener.beforeResponseRead(commPort);
-            }
+        for (AbstractSerialTransportListener listener : listeners) {
+            listener.beforeResponseRead(commPort);
         }
     }
 
@@ -285,10 +299,8 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
      * @param res Response received
      */
     private void notifyListenersAfterResponse(ModbusResponse res) {
-        synchronized (listeners) {
-            for (AbstractSerialTransportListener listener : listeners) {
-                listener.afterResponseRead(commPort, res);
-            }
+        for (AbstractSerialTransportListener listener : listeners) {
+            listener.afterResponseRead(commPort, res);
         }
     }
 
@@ -298,10 +310,8 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
      * @param msg Message to be sent
      */
     private void notifyListenersBeforeWrite(ModbusMessage msg) {
-        synchronized (listeners) {
-            for (AbstractSerialTransportListener listener : listeners) {
-                listener.beforeMessageWrite(commPort, msg);
-            }
+        for (AbstractSerialTransportListener listener : listeners) {
+            listener.beforeMessageWrite(commPort, msg);
         }
     }
 
@@ -311,10 +321,8 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
      * @param msg Message sent
      */
     private void notifyListenersAfterWrite(ModbusMessage msg) {
-        synchronized (listeners) {
-            for (AbstractSerialTransportListener listener : listeners) {
-                listener.afterMessageWrite(commPort, msg);
-            }
+        for (AbstractSerialTransportListener listener : listeners) {
+            listener.afterMessageWrite(commPort, msg);
         }
     }
 
@@ -322,10 +330,8 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
      * Calls any listeners with the given event and current port
      */
     public void notifyListenersDisconnected() {
-        synchronized (listeners) {
-            for (AbstractSerialTransportListener listener : listeners) {
-                listener.disconnected(commPort);
-            }
+        for (AbstractSerialTransportListener listener : listeners) {
+            listener.disconnected(commPort);
         }
     }
     
@@ -341,6 +347,11 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
         setTimeout(timeout);
     }
 
+    @Override
+    public String getEndpoint() {
+        return commPort == null ? null : commPort.getPortName();
+    }
+
     /**
      * Returns the comms port being used for this transport
      *
@@ -404,7 +415,7 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
             byte[] buffer = new byte[1];
             int cnt = commPort.readBytes(buffer, 1);
             if (cnt != 1) {
-                throw new IOException(CANNOT_READ_FROM_SERIAL_PORT);
+                throw new InterruptedIOException(CANNOT_READ_FROM_SERIAL_PORT);
             }
             else {
                 return buffer[0] & 0xff;
@@ -426,7 +437,7 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
         if (commPort != null && commPort.isOpen()) {
             int cnt = commPort.readBytes(buffer, bytesToRead);
             if (cnt != bytesToRead) {
-                throw new IOException("Cannot read from serial port - truncated");
+                throw new InterruptedIOException("Cannot read from serial port - truncated");
             }
         }
         else {
@@ -465,7 +476,7 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
             byte[] buffer = new byte[1];
             int cnt = commPort.readBytes(buffer, 1);
             if (cnt != 1) {
-                throw new IOException(CANNOT_READ_FROM_SERIAL_PORT);
+                throw new InterruptedIOException(CANNOT_READ_FROM_SERIAL_PORT);
             }
             else if (buffer[0] == ':') {
                 return FRAME_START;
@@ -480,7 +491,7 @@ public abstract class ModbusSerialTransport extends AbstractModbusTransport {
                 byte firstValue = buffer[0];
                 cnt = commPort.readBytes(buffer, 1);
                 if (cnt != 1) {
-                    throw new IOException(CANNOT_READ_FROM_SERIAL_PORT);
+                    throw new InterruptedIOException(CANNOT_READ_FROM_SERIAL_PORT);
                 }
                 else {
                     int combinedValue = (Character.digit(firstValue, 16) << 4) + Character.digit(buffer[0], 16);
@@ -16,9 +16,7 @@
 package com.ghgande.j2mod.modbus.io;
 
 import com.ghgande.j2mod.modbus.Modbus;
-import com.ghgande.j2mod.modbus.ModbusException;
 import com.ghgande.j2mod.modbus.ModbusIOException;
-import com.ghgande.j2mod.modbus.ModbusSlaveException;
 import com.ghgande.j2mod.modbus.msg.ExceptionResponse;
 import com.ghgande.j2mod.modbus.msg.ModbusRequest;
 import com.ghgande.j2mod.modbus.net.TCPMasterConnection;
@@ -39,6 +37,7 @@ public class ModbusTCPTransaction extends ModbusTransaction {
 
     // instance attributes and associations
     private TCPMasterConnection connection;
+    private String endpoint;
     protected boolean reconnecting = Modbus.DEFAULT_RECONNECTING;
 
     /**
@@ -82,6 +81,7 @@ public class ModbusTCPTransaction extends ModbusTransaction {
      */
     public void setConnection(TCPMasterConnection con) {
         connection = con;
+        endpoint = null;
         transport = con.getModbusTransport();
     }
 
@@ -108,10 +108,24 @@ public class ModbusTCPTransaction extends ModbusTransaction {
     }
 
     @Override
-    public synchronized void execute() throws ModbusException {
+    protected String getEndpoint() {
+        TCPMasterConnection con = connection;
+        if (con == null) {
+            return null;
+        }
+        if (endpoint == null) {
+            endpoint = (con.getAddress() == null ? "" : con.getAddress().getHostAddress()) + ":" + con.getPort();
+        }
+        return endpoint;
+    }
 
+    @Override
+    protected synchronized ModbusTransactionResult executeTransaction(ModbusTransactionResult result) {
+
+        result.reset(request);
         if (request == null || connection == null) {
-            throw new ModbusException("Invalid request or connection");
+            result.setFailure(ModbusTransactionResult.Status.NOT_EXECUTABLE, "Invalid request or connection", null, 0);
+            return result;
         }
 
         // Try sending the message up to retries time. Note that the message
@@ -131,7 +145,9 @@ public class ModbusTCPTransaction extends ModbusTransaction {
                     transport = connection.getModbusTransport();
                 }
                 catch (Exception ex) {
-                    throw new ModbusIOException("Connection failed for %s:%d %s", connection.getAddress().toString(), connection.getPort(), ex.getMessage());
+                    logger.debug("Connection failed for {}:{} {}", connection.getAddress(), connection.getPort(), ex.getMessage());
+                    result.setFailure(ModbusTransactionResult.Status.IO_ERROR, "Connection failed", ex, retryCounter + 1);
+                    return result;
                 }
             }
 
@@ -155,7 +171,8 @@ public class ModbusTCPTransaction extends ModbusTransaction {
 
                 // The slave may have returned an exception -- check for that.
                 if (response instanceof ExceptionResponse) {
-                    throw new ModbusSlaveException(((ExceptionResponse)response).getExceptionCode());
+                    result.setSlaveException(response, ((ExceptionResponse)response).getExceptionCode(), retryCounter + 1);
+                    return result;
                 }
 
                 // We need to keep retrying if;
@@ -165,7 +182,8 @@ public class ModbusTCPTransaction extends ModbusTransaction {
                 if (responseIsInValid()) {
                     retryCounter++;
                     if (retryCounter >= retryLimit) {
-                        throw new ModbusIOException("Executing transaction failed (tried %d times)", retryLimit);
+                        result.setFailure(ModbusTransactionResult.Status.IO_ERROR, "Executing transaction failed", null, retryLimit);
+                        return result;
                     }
                     keepTrying = true;
                     long sleepTime = getRandomSleepTime(retryCounter);
@@ -174,16 +192,21 @@ public class ModbusTCPTransaction extends ModbusTransaction {
                     }
                     else {
                         logger.debug("Failed to get a valid response, transaction IDs do not match (try: {}) - retrying after {} milliseconds", retryCounter, sleepTime);
+                        transport.dumpFrames("Transaction ID mismatch");
                     }
                     ModbusUtil.sleep(sleepTime);
                 }
+                else {
+                    result.setSuccess(response, retryCounter + 1);
+                }
             }
             catch (ModbusIOException ex) {
 
                 // Up the retry counter and check if we are exhausted
                 retryCounter++;
                 if (retryCounter >= retryLimit) {
-                    throw new ModbusIOException("Executing transaction %s failed (tried %d times) %s", request.getHexMessage(), retryLimit, ex.getMessage());
+                    result.setFailure(ModbusTransactionResult.Status.IO_ERROR, "Executing transaction failed", ex, retryLimit);
+                    return result;
                 }
                 else {
                     long sleepTime = getRandomSleepTime(retryCounter);
@@ -207,6 +230,7 @@ public class ModbusTCPTransaction extends ModbusTransaction {
             connection.close();
         }
         incrementTransactionID();
+        return result;
     }
 
     /**
@@ -22,6 +22,8 @@ import com.ghgande.j2mod.modbus.msg.ModbusRequest;
 import com.ghgande.j2mod.modbus.msg.ModbusResponse;
 import com.ghgande.j2mod.modbus.net.AbstractModbusListener;
 import com.ghgande.j2mod.modbus.net.TCPMasterConnection;
+import com.ghgande.j2mod.modbus.util.CRC16;
+import com.ghgande.j2mod.modbus.util.ModbusEventRecorder;
 import com.ghgande.j2mod.modbus.util.ModbusUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,6 +50,7 @@ public class ModbusTCPTransport extends AbstractModbusTransport {
     private final BytesInputStream byteInputStream = new BytesInputStream(Modbus.MAX_MESSAGE_LENGTH + 6);
     private final BytesOutputStream byteOutputStream = new BytesOutputStream(Modbus.MAX_MESSAGE_LENGTH + 6); // write frames
     protected Socket socket = null;
+    private String endpoint;
     protected TCPMasterConnection master = null;
     private boolean headless = false; // Some TCP implementations are.
     private long lastActivityTimestamp;  // System.nanoTime() of last transportation
@@ -94,6 +97,7 @@ public class ModbusTCPTransport extends AbstractModbusTransport {
             this.socket = null;
         }
         this.socket = socket;
+        endpoint = socket.getInetAddress() == null ? null : socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
         setTimeout(timeout);
         prepareStreams(socket);
     }
@@ -136,6 +140,11 @@ public class ModbusTCPTransport extends AbstractModbusTransport {
         }
     }
 
+    @Override
+    public String getEndpoint() {
+        return endpoint;
+    }
+
     /** 
      * @return last activity timestamp for the transport (System.nanoTime() timestamp)
      * @see System#nanoTime() 
@@ -205,7 +214,7 @@ public class ModbusTCPTransport extends AbstractModbusTransport {
                     int functionCode = byteInputStream.readUnsignedByte();
 
                     byteInputStream.reset();
-                    req = ModbusRequest.createModbusRequest(functionCode);
+                    req = createRequest(functionCode, listener);
                     req.setUnitID(unit);
                     req.setHeadless(false);
 
@@ -214,6 +223,7 @@ public class ModbusTCPTransport extends AbstractModbusTransport {
                     req.setDataLength(count);
 
                     req.readFrom(byteInputStream);
+                    notifyInterceptorsAfterRead(req, buffer, 0, count + 6);
                 }
                 else {
 
@@ -222,7 +232,7 @@ public class ModbusTCPTransport extends AbstractModbusTransport {
                     int unit = dataInputStream.readByte();
                     int function = dataInputStream.readByte();
 
-                    req = ModbusRequest.createModbusRequest(function);
+                    req = createRequest(function, listener);
                     req.setUnitID(unit);
                     req.setHeadless(true);
                     req.readData(dataInputStream);
@@ -234,21 +244,26 @@ public class ModbusTCPTransport extends AbstractModbusTransport {
                     if (logger.isDebugEnabled()) {
                         logger.debug("Read: {}", req.getHexMessage());
                     }
+                    notifyInterceptorsAfterRead(req, null, 0, 0);
                 }
             }
+            ModbusEventRecorder.getInstance().frameReceived(endpoint, req);
             return req;
         }
+        catch (ModbusIOException ex) {
+            throw notifyInterceptorsError(null, ex);
+        }
         catch (EOFException eoex) {
-            throw new ModbusIOException("End of File", true);
+            throw notifyInterceptorsError(null, new ModbusIOException("End of File", true));
         }
         catch (SocketTimeoutException x) {
-            throw new ModbusIOException("Timeout reading request", x);
+            throw notifyInterceptorsError(null, new ModbusIOException("Timeout reading request", x).setTimeout(true));
         }
         catch (SocketException sockex) {
-            throw new ModbusIOException("Socket Exception", sockex);
+            throw notifyInterceptorsError(null, new ModbusIOException("Socket Exception", sockex));
         }
         catch (IOException ex) {
-            throw new ModbusIOException("I/O exception - failed to read", ex);
+            throw notifyInterceptorsError(null, new ModbusIOException("I/O exception - failed to read", ex));
         }
     }
 
@@ -297,6 +312,7 @@ public class ModbusTCPTransport extends AbstractModbusTransport {
 
                     response.setTransactionID(transaction);
                     response.setProtocolID(protocol);
+                    notifyInterceptorsAfterRead(response, buffer, 0, count + 6);
                 }
                 else {
                     // This is a headless response. It has the same format as a
@@ -312,21 +328,26 @@ public class ModbusTCPTransport extends AbstractModbusTransport {
                     // Now discard the CRC. Which hopefully wasn't needed
                     // because this is a TCP transport.
                     dataInputStream.readShort();
+                    notifyInterceptorsAfterRead(response, null, 0, 0);
                 }
             }
             if (logger.isDebugEnabled()) {
                 logger.debug("Successfully read: {}", response.getHexMessage());
             }
+            ModbusEventRecorder.getInstance().frameReceived(endpoint, response);
             return response;
         }
+        catch (ModbusIOException ex) {
+            throw notifyInterceptorsError(null, ex);
+        }
         catch (EOFException ex1) {
-            throw new ModbusIOException("Premature end of stream (Message truncated) - %s", ex1.getMessage());
+            throw notifyInterceptorsError(null, new ModbusIOException("Premature end of stream (Message truncated) - %s", ex1.getMessage()));
         }
         catch (SocketTimeoutException ex2) {
-            throw new ModbusIOException("Socket timeout reading response - %s", ex2.getMessage());
+            throw notifyInterceptorsError(null, new ModbusIOException("Socket timeout reading response - %s", ex2.getMessage()).setTimeout(true));
         }
         catch (Exception ex3) {
-            throw new ModbusIOException("General exception - failed to read - %s", ex3.getMessage());
+            throw notifyInterceptorsError(null, new ModbusIOException("General exception - failed to read - %s", ex3.getMessage()));
         }
     }
 
@@ -372,7 +393,8 @@ public class ModbusTCPTransport extends AbstractModbusTransport {
      */
     void writeMessage(ModbusMessage msg, boolean useRtuOverTcp) throws ModbusIOException {
         lastActivityTimestamp = System.nanoTime();
-        
+        notifyInterceptorsBeforeWrite(msg);
+
         try {
             if (logger.isDebugEnabled()) {
                 logger.debug("Sending: {}", msg.getHexMessage());
@@ -394,13 +416,15 @@ public class ModbusTCPTransport extends AbstractModbusTransport {
             // Add CRC for RTU over TCP
             if (useRtuOverTcp) {
                 int len = byteOutputStream.size();
-                int[] crc = ModbusUtil.calculateCRC(byteOutputStream.getBuffer(), 0, len);
-                byteOutputStream.writeByte(crc[0]);
-                byteOutputStream.writeByte(crc[1]);
+                int crc = CRC16.calculate(byteOutputStream.getBuffer(), 0, len);
+                byteOutputStream.writeByte(crc & 0xFF);
+                byteOutputStream.writeByte(crc >>> 8);
             }
 
             dataOutputStream.write(byteOutputStream.toByteArray());
             dataOutputStream.flush();
+            notifyInterceptorsAfterWrite(msg, byteOutputStream.getBuffer(), 0, byteOutputStream.size());
+            ModbusEventRecorder.getInstance().frameSent(endpoint, msg);
             if (logger.isDebugEnabled()) {
                 logger.debug("Successfully sent: {}", ModbusUtil.toHex(byteOutputStream.toByteArray()));
             }
@@ -415,10 +439,10 @@ public class ModbusTCPTransport extends AbstractModbusTransport {
                     // Do nothing.
                 }
             }
-            throw new ModbusIOException("I/O socket exception - failed to write - %s", ex1.getMessage());
+            throw notifyInterceptorsError(msg, new ModbusIOException("I/O socket exception - failed to write - %s", ex1.getMessage()));
         }
         catch (Exception ex2) {
-            throw new ModbusIOException("General exception - failed to write - %s", ex2.getMessage());
+            throw notifyInterceptorsError(msg, new ModbusIOException("General exception - failed to write - %s", ex2.getMessage()));
         }
     }
 
@@ -17,9 +17,11 @@ package com.ghgande.j2mod.modbus.io;
 
 import com.ghgande.j2mod.modbus.Modbus;
 import com.ghgande.j2mod.modbus.ModbusException;
-import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.ModbusSlaveException;
 import com.ghgande.j2mod.modbus.msg.ModbusRequest;
 import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+import com.ghgande.j2mod.modbus.util.ModbusEventRecorder;
+import com.ghgande.j2mod.modbus.util.ModbusMetrics;
 
 import java.util.Random;
 
@@ -42,7 +44,10 @@ public abstract class ModbusTransaction {
     boolean validityCheck = Modbus.DEFAULT_VALIDITYCHECK;
     int retries = Modbus.DEFAULT_RETRIES;
     private final Random random = new Random(System.nanoTime());
+    private final ModbusTransactionResult result = new ModbusTransactionResult();
     static int transactionID = Modbus.DEFAULT_TRANSACTION_ID;
+    private volatile ModbusMetrics metrics;
+    private volatile boolean executingLegacy;
 
     /**
      * Returns the <tt>ModbusRequest</tt> instance
@@ -159,18 +164,24 @@ public abstract class ModbusTransaction {
      * Checks the validity of the transaction, by
      * checking if the values of the response correspond
      * to the values of the request.
+     * If they do not, the result is marked as an invalid response.
      *
-     * @throws ModbusException if the transaction is not valid.
+     * @param result Result to update if the transaction is not valid
+     * @param attempts Number of attempts made so far
+     * @return true if the transaction is valid
      */
-    void checkValidity() throws ModbusException {
+    boolean checkValidity(ModbusTransactionResult result, int attempts) {
         if (request != null && response != null) {
             if (request.getUnitID() != response.getUnitID()) {
-                throw new ModbusIOException("Unit ID mismatch - Request [%s] Response [%s]", request.getHexMessage(), response.getHexMessage());
+                result.setFailure(ModbusTransactionResult.Status.INVALID_RESPONSE, "Unit ID mismatch", null, attempts);
+                return false;
             }
             if (request.getFunctionCode() != response.getFunctionCode()) {
-                throw new ModbusIOException("Function code mismatch - Request [%s] Response [%s]", request.getHexMessage(), response.getHexMessage());
+                result.setFailure(ModbusTransactionResult.Status.INVALID_RESPONSE, "Function code mismatch", null, attempts);
+                return false;
             }
         }
+        return true;
     }
 
     /**
@@ -185,6 +196,94 @@ public abstract class ModbusTransaction {
      * @throws ModbusException if an I/O error occurs,
      *                         or the response is a modbus protocol exception.
      */
-    public abstract void execute() throws ModbusException;
+    public synchronized void execute() throws ModbusException {
+        if (executingLegacy) {
+            throw new ModbusException("%s must override executeTransaction or execute", getClass().getName());
+        }
+        execute(result).checkSuccess();
+    }
+
+    /**
+     * Executes this <tt>ModbusTransaction</tt> without throwing exceptions.
+     * <p>
+     * Timeouts, slave exceptions and mismatched responses are reported
+     * through the status of the given result, which is reset before use
+     * and can be reused across executions. The exception that {@link #execute()}
+     * would have thrown can be obtained from {@link ModbusTransactionResult#createException()}.
+     *
+     * @param result Result to populate
+     * @return the populated result
+     */
+    public ModbusTransactionResult execute(ModbusTransactionResult result) {
+        ModbusMetrics m = metrics;
+        ModbusEventRecorder events = ModbusEventRecorder.getInstance();
+        Object event = events.beginTransaction();
+        if (m == null && event == null) {
+            return executeTransaction(result);
+        }
+        long start = System.nanoTime();
+        executeTransaction(result);
+        if (m != null) {
+            m.recordTransaction(getEndpoint(), result, System.nanoTime() - start);
+        }
+        events.endTransaction(event, getEndpoint(), result);
+        return result;
+    }
+
+    /**
+     * Returns the metrics that transactions are recorded in
+     *
+     * @return Metrics or null if transactions are not recorded
+     */
+    public ModbusMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the metrics that transactions are recorded in
+     *
+     * @param metrics Metrics or null to stop recording
+     */
+    public void setMetrics(ModbusMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the name of the slave this transaction talks to, used to key its metrics
+     *
+     * @return Address and port, or serial port name, null if not known
+     */
+    protected String getEndpoint() {
+        return null;
+    }
+
+    /**
+     * Executes the transaction, populating the result
+     * <p>
+     * Subclasses written before this method existed override {@link #execute()}
+     * instead. For those, this calls <tt>execute()</tt> and converts what it
+     * returns or throws into the result.
+     *
+     * @param result Result to populate, reset before use
+     * @return the populated result
+     */
+    protected ModbusTransactionResult executeTransaction(ModbusTransactionResult result) {
+        result.reset(request);
+        executingLegacy = true;
+        try {
+            execute();
+            result.setSuccess(response, 1);
+        }
+        catch (ModbusSlaveException ex) {
+            result.setSlaveException(response, ex.getType(), 1);
+        }
+        catch (ModbusException ex) {
+            result.setFailure(ModbusTransactionResult.Status.IO_ERROR, null, ex, 1);
+        }
+        finally {
+            executingLegacy = false;
+        }
+        return result;
+    }
 
 }
\ No newline at end of file
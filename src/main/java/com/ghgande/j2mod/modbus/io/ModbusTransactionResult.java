@@ -0,0 +1,254 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.io;
+
+import com.ghgande.j2mod.modbus.ModbusException;
+import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.ModbusSlaveException;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+
+/**
+ * Class holding the outcome of executing a <tt>ModbusTransaction</tt>
+ * without throwing exceptions.
+ * <p>
+ * Instances are designed to be reused - the transaction resets the
+ * result at the start of every execution, so a caller polling many devices
+ * can hold on to a single instance. The equivalent exception is only
+ * created if {@link #checkSuccess()} or {@link #createException()} is called.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class ModbusTransactionResult {
+
+    /**
+     * The possible outcomes of a transaction
+     */
+    public enum Status {
+
+        /**
+         * A valid, non-exception response was received
+         */
+        SUCCESS,
+
+        /**
+         * The slave returned a Modbus exception response
+         */
+        SLAVE_EXCEPTION,
+
+        /**
+         * The transaction failed due to an I/O error or timeout after all retries
+         */
+        IO_ERROR,
+
+        /**
+         * The response did not match the request (unit ID or function code)
+         */
+        INVALID_RESPONSE,
+
+        /**
+         * The transaction could not be executed e.g. no request or connection
+         */
+        NOT_EXECUTABLE
+    }
+
+    private Status status = Status.SUCCESS;
+    private int exceptionCode;
+    private int attempts;
+    private String message;
+    private Exception cause;
+    private ModbusRequest request;
+    private ModbusResponse response;
+
+    /**
+     * Clears the result ready for a new execution
+     *
+     * @param request Request that is about to be executed
+     */
+    public void reset(ModbusRequest request) {
+        this.request = request;
+        status = Status.SUCCESS;
+        exceptionCode = 0;
+        attempts = 0;
+        message = null;
+        cause = null;
+        response = null;
+    }
+
+    /**
+     * Records a successful transaction
+     *
+     * @param response Response received
+     * @param attempts Number of attempts it took
+     */
+    public void setSuccess(ModbusResponse response, int attempts) {
+        this.status = Status.SUCCESS;
+        this.response = response;
+        this.attempts = attempts;
+    }
+
+    /**
+     * Records a Modbus exception response from the slave
+     *
+     * @param response      Exception response received
+     * @param exceptionCode Modbus exception code
+     * @param attempts      Number of attempts it took
+     */
+    public void setSlaveException(ModbusResponse response, int exceptionCode, int attempts) {
+        this.status = Status.SLAVE_EXCEPTION;
+        this.response = response;
+        this.exceptionCode = exceptionCode;
+        this.attempts = attempts;
+    }
+
+    /**
+     * Records a failed transaction
+     *
+     * @param status   Failure status
+     * @param message  Constant description of the failure (not formatted)
+     * @param cause    Underlying exception if there was one, otherwise null
+     * @param attempts Number of attempts made
+     */
+    public void setFailure(Status status, String message, Exception cause, int attempts) {
+        this.status = status;
+        this.message = message;
+        this.cause = cause;
+        this.attempts = attempts;
+    }
+
+    /**
+     * Returns true if the transaction completed with a valid, non-exception response
+     *
+     * @return True if successful
+     */
+    public boolean isSuccess() {
+        return status == Status.SUCCESS;
+    }
+
+    /**
+     * Returns the outcome of the transaction
+     *
+     * @return Status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the Modbus exception code if the status is {@link Status#SLAVE_EXCEPTION}
+     *
+     * @return Exception code or 0
+     */
+    public int getExceptionCode() {
+        return exceptionCode;
+    }
+
+    /**
+     * Returns the number of attempts made to execute the transaction
+     *
+     * @return Number of attempts
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Returns the constant description of the failure
+     *
+     * @return Message or null if successful
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the underlying exception that caused the failure (if any)
+     *
+     * @return Cause or null
+     */
+    public Exception getCause() {
+        return cause;
+    }
+
+    /**
+     * Returns the request that was executed
+     *
+     * @return Request
+     */
+    public ModbusRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * Returns the response payload - only valid for {@link Status#SUCCESS},
+     * {@link Status#SLAVE_EXCEPTION} and {@link Status#INVALID_RESPONSE}
+     *
+     * @return Response or null
+     */
+    public ModbusResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * Creates the exception that the throwing API would have raised for this result
+     *
+     * @return Exception or null if the transaction was successful
+     */
+    public ModbusException createException() {
+        switch (status) {
+            case SUCCESS:
+                return null;
+
+            case SLAVE_EXCEPTION:
+                return new ModbusSlaveException(exceptionCode);
+
+            case INVALID_RESPONSE:
+                if (request != null && response != null) {
+                    return new ModbusIOException("%s - Request [%s] Response [%s]", message, request.getHexMessage(), response.getHexMessage());
+                }
+                return new ModbusIOException(message);
+
+            case IO_ERROR:
+                if (message == null && cause instanceof ModbusException) {
+                    return (ModbusException)cause;
+                }
+                if (cause == null) {
+                    return new ModbusIOException("%s (tried %d times)", message, attempts);
+                }
+                return new ModbusIOException("%s (tried %d times) %s", message, attempts, cause.getMessage());
+
+            default:
+                return new ModbusException(message);
+        }
+    }
+
+    /**
+     * Throws the equivalent exception if the transaction was not successful
+     *
+     * @throws ModbusException if the result is not {@link Status#SUCCESS}
+     */
+    public void checkSuccess() throws ModbusException {
+        if (status != Status.SUCCESS) {
+            throw createException();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return status == Status.SLAVE_EXCEPTION ? status + " (" + ModbusSlaveException.getMessage(exceptionCode) + ")" : String.valueOf(status);
+    }
+}
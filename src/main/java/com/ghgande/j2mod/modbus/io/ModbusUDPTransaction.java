@@ -16,9 +16,7 @@
 package com.ghgande.j2mod.modbus.io;
 
 import com.ghgande.j2mod.modbus.Modbus;
-import com.ghgande.j2mod.modbus.ModbusException;
 import com.ghgande.j2mod.modbus.ModbusIOException;
-import com.ghgande.j2mod.modbus.ModbusSlaveException;
 import com.ghgande.j2mod.modbus.msg.ExceptionResponse;
 import com.ghgande.j2mod.modbus.msg.ModbusRequest;
 import com.ghgande.j2mod.modbus.net.AbstractUDPTerminal;
@@ -41,6 +39,7 @@ public class ModbusUDPTransaction extends ModbusTransaction {
 
     //instance attributes and associations
     private AbstractUDPTerminal terminal;
+    private String endpoint;
 
     /**
      * Constructs a new <tt>ModbusUDPTransaction</tt>
@@ -93,16 +92,34 @@ public class ModbusUDPTransaction extends ModbusTransaction {
      */
     public void setTerminal(AbstractUDPTerminal terminal) {
         this.terminal = terminal;
+        endpoint = null;
         if (terminal.isActive()) {
             transport = terminal.getTransport();
         }
     }
 
     @Override
-    public void execute() throws ModbusIOException, ModbusSlaveException, ModbusException {
+    protected String getEndpoint() {
+        AbstractUDPTerminal term = terminal;
+        if (term == null) {
+            return null;
+        }
+        if (endpoint == null) {
+            endpoint = (term.getAddress() == null ? "" : term.getAddress().getHostAddress()) + ":" + term.getPort();
+        }
+        return endpoint;
+    }
+
+    @Override
+    protected synchronized ModbusTransactionResult executeTransaction(ModbusTransactionResult result) {
 
         //1. assert executeability
-        assertExecutable();
+        result.reset(request);
+        if (request == null || terminal == null) {
+            result.setFailure(ModbusTransactionResult.Status.NOT_EXECUTABLE, "Assertion failed, transaction not executable", null, 0);
+            return result;
+        }
+
         //2. open the connection if not connected
         if (!terminal.isActive()) {
             try {
@@ -111,29 +128,30 @@ public class ModbusUDPTransaction extends ModbusTransaction {
             }
             catch (Exception ex) {
                 logger.debug("Terminal activation failed.", ex);
-                throw new ModbusIOException("Activation failed");
+                result.setFailure(ModbusTransactionResult.Status.IO_ERROR, "Activation failed", ex, 1);
+                return result;
             }
         }
 
         //3. Retry transaction retries times, in case of
         //I/O Exception problems.
         int retryCount = 0;
+        response = null;
         while (retryCount <= retries) {
             try {
-                //3. write request, and read response,
-                //   while holding the lock on the IO object
-                synchronized (this) {
-                    //write request message
-                    transport.writeRequest(request);
-                    //read response message
-                    response = transport.readResponse();
-                    break;
-                }
+                //write request message
+                transport.writeRequest(request);
+                //read response message
+                response = transport.readResponse();
+                break;
             }
             catch (ModbusIOException ex) {
                 retryCount++;
                 if (retryCount > retries) {
                     logger.error("Cannot send UDP message", ex);
+                    result.setFailure(ModbusTransactionResult.Status.IO_ERROR, "Executing transaction failed", ex, retryCount);
+                    incrementTransactionID();
+                    return result;
                 }
                 else {
                     ModbusUtil.sleep(getRandomSleepTime(retryCount));
@@ -143,29 +161,18 @@ public class ModbusUDPTransaction extends ModbusTransaction {
 
         //4. deal with "application level" exceptions
         if (response instanceof ExceptionResponse) {
-            throw new ModbusSlaveException(((ExceptionResponse)response).getExceptionCode());
+            result.setSlaveException(response, ((ExceptionResponse)response).getExceptionCode(), retryCount + 1);
+            return result;
         }
 
         // Check that the response is for this request
-        if (isCheckingValidity()) {
-            checkValidity();
+        if (!isCheckingValidity() || checkValidity(result, retryCount + 1)) {
+            result.setSuccess(response, retryCount + 1);
         }
 
         //toggle the id
         incrementTransactionID();
-    }
-
-    /**
-     * Asserts if this <tt>ModbusTCPTransaction</tt> is
-     * executable.
-     *
-     * @throws ModbusException if this transaction cannot be
-     *                         asserted as executable.
-     */
-    private void assertExecutable() throws ModbusException {
-        if (request == null || terminal == null) {
-            throw new ModbusException("Assertion failed, transaction not executable");
-        }
+        return result;
     }
 
     /**
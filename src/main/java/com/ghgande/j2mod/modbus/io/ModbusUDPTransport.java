@@ -22,6 +22,7 @@ import com.ghgande.j2mod.modbus.msg.ModbusRequest;
 import com.ghgande.j2mod.modbus.msg.ModbusResponse;
 import com.ghgande.j2mod.modbus.net.AbstractModbusListener;
 import com.ghgande.j2mod.modbus.net.AbstractUDPTerminal;
+import com.ghgande.j2mod.modbus.util.ModbusEventRecorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +43,7 @@ public class ModbusUDPTransport extends AbstractModbusTransport {
 
     //instance attributes
     private final AbstractUDPTerminal terminal;
+    private String endpoint;
     private final BytesOutputStream byteOutputStream = new BytesOutputStream(Modbus.MAX_MESSAGE_LENGTH);
     private final BytesInputStream byteInputStream = new BytesInputStream(Modbus.MAX_MESSAGE_LENGTH);
 
@@ -91,17 +93,23 @@ public class ModbusUDPTransport extends AbstractModbusTransport {
         try {
             ModbusRequest req;
             synchronized (byteInputStream) {
-                byteInputStream.reset(terminal.receiveMessage());
+                byte[] frame = terminal.receiveMessage();
+                byteInputStream.reset(frame);
                 byteInputStream.skip(7);
                 int functionCode = byteInputStream.readUnsignedByte();
                 byteInputStream.reset();
-                req = ModbusRequest.createModbusRequest(functionCode);
+                req = createRequest(functionCode, listener);
                 req.readFrom(byteInputStream);
+                notifyInterceptorsAfterRead(req, frame, 0, frame.length);
             }
+            ModbusEventRecorder.getInstance().frameReceived(getEndpoint(), req);
             return req;
         }
+        catch (ModbusIOException ex) {
+            throw notifyInterceptorsError(null, ex);
+        }
         catch (Exception ex) {
-            throw new ModbusIOException("I/O exception - failed to read", ex);
+            throw notifyInterceptorsError(null, new ModbusIOException("I/O exception - failed to read", ex));
         }
     }
 
@@ -111,22 +119,41 @@ public class ModbusUDPTransport extends AbstractModbusTransport {
         try {
             ModbusResponse res;
             synchronized (byteInputStream) {
-                byteInputStream.reset(terminal.receiveMessage());
+                byte[] frame = terminal.receiveMessage();
+                byteInputStream.reset(frame);
                 byteInputStream.skip(7);
                 int functionCode = byteInputStream.readUnsignedByte();
                 byteInputStream.reset();
                 res = ModbusResponse.createModbusResponse(functionCode);
                 res.readFrom(byteInputStream);
+                notifyInterceptorsAfterRead(res, frame, 0, frame.length);
             }
+            ModbusEventRecorder.getInstance().frameReceived(getEndpoint(), res);
             return res;
         }
+        catch (ModbusIOException ex) {
+            throw notifyInterceptorsError(null, ex);
+        }
         catch (InterruptedIOException ioex) {
-            throw new ModbusIOException("Socket was interrupted", ioex);
+            throw notifyInterceptorsError(null, new ModbusIOException("Socket was interrupted", ioex).setTimeout(true));
         }
         catch (Exception ex) {
             logger.debug("I/O exception while reading modbus response.", ex);
-            throw new ModbusIOException("I/O exception - failed to read - %s", ex.getMessage());
+            throw notifyInterceptorsError(null, new ModbusIOException("I/O exception - failed to read - %s", ex.getMessage()));
+        }
+    }
+
+    /**
+     * Returns the address and port of the terminal
+     *
+     * @return Endpoint
+     */
+    @Override
+    public String getEndpoint() {
+        if (endpoint == null && terminal.getAddress() != null) {
+            endpoint = terminal.getAddress().getHostAddress() + ":" + terminal.getPort();
         }
+        return endpoint;
     }
 
     /**
@@ -135,6 +162,7 @@ public class ModbusUDPTransport extends AbstractModbusTransport {
      * @throws ModbusIOException If the port cannot be written to
      */
     private void writeMessage(ModbusMessage msg) throws ModbusIOException {
+        notifyInterceptorsBeforeWrite(msg);
         try {
             synchronized (byteOutputStream) {
                 int len = msg.getOutputLength();
@@ -143,10 +171,12 @@ public class ModbusUDPTransport extends AbstractModbusTransport {
                 byte[] data = byteOutputStream.getBuffer();
                 data = Arrays.copyOf(data, len);
                 terminal.sendMessage(data);
+                notifyInterceptorsAfterWrite(msg, data, 0, len);
             }
+            ModbusEventRecorder.getInstance().frameSent(getEndpoint(), msg);
         }
         catch (Exception ex) {
-            throw new ModbusIOException("I/O exception - failed to write", ex);
+            throw notifyInterceptorsError(msg, new ModbusIOException("I/O exception - failed to write", ex));
         }
     }
 
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Serial frame dropped because its CRC or LRC is wrong
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+@Name("com.ghgande.j2mod.ChecksumError")
+@Label("Modbus Checksum Error")
+@Category({"Modbus", "Frames"})
+@Description("Serial frame dropped because its CRC or LRC is wrong")
+@StackTrace(false)
+final class ChecksumErrorEvent extends Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Size")
+    @DataAmount
+    int length;
+
+    @Label("Expected Checksum")
+    int expected;
+
+    @Label("Actual Checksum")
+    int actual;
+}
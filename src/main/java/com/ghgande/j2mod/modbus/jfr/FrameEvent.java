@@ -0,0 +1,49 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Frame written to or read from a transport
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+@Category({"Modbus", "Frames"})
+@StackTrace(false)
+abstract class FrameEvent extends Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Transaction ID")
+    int transactionId;
+
+    @Label("Unit ID")
+    int unitId;
+
+    @Label("Function Code")
+    int functionCode;
+
+    @Label("Size")
+    @DataAmount
+    int length;
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.jfr;
+
+import com.ghgande.j2mod.modbus.io.ModbusTransactionResult;
+import com.ghgande.j2mod.modbus.msg.ModbusMessage;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+import com.ghgande.j2mod.modbus.util.ModbusEventRecorder;
+
+/**
+ * Recorder that commits Java Flight Recorder events.
+ * <p>
+ * Each event is only filled in if a recording has it enabled, so the cost
+ * when nothing is being recorded is an allocation the JIT can remove and a
+ * flag check. This class is loaded by {@link ModbusEventRecorder#getInstance()}
+ * and is only compiled on JDKs that have the <tt>jdk.jfr</tt> module.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class JfrEventRecorder extends ModbusEventRecorder {
+
+    /**
+     * Constructs the recorder, failing if the JDK does not have JFR
+     */
+    public JfrEventRecorder() {
+        new TransactionEvent().isEnabled();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public Object beginTransaction() {
+        TransactionEvent event = new TransactionEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endTransaction(Object token, String endpoint, ModbusTransactionResult result) {
+        if (!(token instanceof TransactionEvent)) {
+            return;
+        }
+        TransactionEvent event = (TransactionEvent)token;
+        event.end();
+        if (event.shouldCommit()) {
+            ModbusRequest request = result.getRequest();
+            ModbusResponse response = result.getResponse();
+            event.endpoint = endpoint;
+            if (request != null) {
+                event.unitId = request.getUnitID();
+                event.functionCode = request.getFunctionCode();
+                event.requestBytes = request.getOutputLength();
+            }
+            if (response != null) {
+                event.responseBytes = response.getOutputLength();
+            }
+            event.retries = Math.max(0, result.getAttempts() - 1);
+            event.status = String.valueOf(result.getStatus());
+            event.exceptionCode = result.getExceptionCode();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void frameSent(String endpoint, ModbusMessage message) {
+        FrameSentEvent event = new FrameSentEvent();
+        if (message != null && event.shouldCommit()) {
+            commit(event, endpoint, message);
+        }
+    }
+
+    @Override
+    public void frameReceived(String endpoint, ModbusMessage message) {
+        FrameReceivedEvent event = new FrameReceivedEvent();
+        if (message != null && event.shouldCommit()) {
+            commit(event, endpoint, message);
+        }
+    }
+
+    @Override
+    public void connectionOpened(String endpoint, boolean inbound) {
+        ConnectionOpenedEvent event = new ConnectionOpenedEvent();
+        if (event.shouldCommit()) {
+            commit(event, endpoint, inbound);
+        }
+    }
+
+    @Override
+    public void connectionClosed(String endpoint, boolean inbound) {
+        ConnectionClosedEvent event = new ConnectionClosedEvent();
+        if (event.shouldCommit()) {
+            commit(event, endpoint, inbound);
+        }
+    }
+
+    @Override
+    public void connectionIdleTimeout(String endpoint, long idleNanos) {
+        ConnectionIdleTimeoutEvent event = new ConnectionIdleTimeoutEvent();
+        if (event.shouldCommit()) {
+            event.idle = idleNanos;
+            commit(event, endpoint, true);
+        }
+    }
+
+    @Override
+    public void checksumError(String endpoint, int length, int expected, int actual) {
+        ChecksumErrorEvent event = new ChecksumErrorEvent();
+        if (event.shouldCommit()) {
+            event.endpoint = endpoint;
+            event.length = length;
+            event.expected = expected;
+            event.actual = actual;
+            event.commit();
+        }
+    }
+
+    /**
+     * Fills in and commits a frame event
+     *
+     * @param event    Event
+     * @param endpoint Endpoint of the transport
+     * @param message  Message in the frame
+     */
+    private static void commit(FrameEvent event, String endpoint, ModbusMessage message) {
+        event.endpoint = endpoint;
+        event.transactionId = message.getTransactionID();
+        event.unitId = message.getUnitID();
+        event.functionCode = message.getFunctionCode();
+        event.length = message.getOutputLength();
+        event.commit();
+    }
+
+    /**
+     * Fills in and commits a connection event
+     *
+     * @param event    Event
+     * @param endpoint Remote end of the connection
+     * @param inbound  True if the connection was accepted by a slave
+     */
+    private static void commit(ConnectionEvent event, String endpoint, boolean inbound) {
+        event.endpoint = endpoint;
+        event.inbound = inbound;
+        event.commit();
+    }
+}
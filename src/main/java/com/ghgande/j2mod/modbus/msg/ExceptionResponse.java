@@ -83,6 +83,15 @@ public class ExceptionResponse extends ModbusResponse {
         return exceptionCode;
     }
 
+    /**
+     * Sets the Modbus exception code of this <tt>ExceptionResponse</tt>.
+     *
+     * @param exc the exception code as <tt>int</tt>.
+     */
+    void setExceptionCode(int exc) {
+        exceptionCode = exc;
+    }
+
     @Override
     public void writeData(DataOutput dout) throws IOException {
         dout.writeByte(getExceptionCode());
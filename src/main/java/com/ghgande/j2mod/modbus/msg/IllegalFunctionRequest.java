@@ -92,8 +92,9 @@ public class IllegalFunctionRequest extends ModbusRequest {
      */
     @Override
     public void readData(DataInput din) throws IOException {
-        // skip all following bytes
-        int length = getDataLength();
+        // skip all following bytes - with a header the length also
+        // counts the unit ID and function code, which have been read
+        int length = isHeadless() ? getDataLength() : getDataLength() - 2;
         for (int i = 0; i < length; i++) {
             din.readByte();
         }
@@ -149,7 +149,7 @@ public class MaskWriteRegisterRequest extends ModbusRequest {
         catch (IllegalAddressException iaex) {
             return createExceptionResponse(Modbus.ILLEGAL_ADDRESS_EXCEPTION);
         }
-        response = (MaskWriteRegisterResponse)getResponse();
+        response = (MaskWriteRegisterResponse)getRecycledResponse();
         response.setReference(reference);
         response.setAndMask(andMask);
         response.setOrMask(orMask);
@@ -0,0 +1,496 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.msg;
+
+import com.ghgande.j2mod.modbus.Modbus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only view of a raw Modbus frame.
+ * <p>
+ * Gateways, proxies and monitors often only need the unit, function code,
+ * reference and count of a frame before passing the bytes on. This class
+ * reads those fields straight out of the frame bytes without creating a
+ * request or response, and can check that the frame is well formed. A single
+ * view can be re-pointed at each frame in turn with one of the <tt>wrap</tt>
+ * methods. When the full message is needed, {@link #toRequest()} and
+ * {@link #toResponse()} decode it.
+ * <p>
+ * A frame is the MBAP header (unless the view is headless), the unit, the
+ * function code and the data. Serial frames must be wrapped without their
+ * CRC or LRC. Field accessors return -1 if the function code has no such
+ * field or the frame is too short to hold it.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public final class ModbusFrameView {
+
+    private static final int HEADER_LENGTH = 6;
+
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+    private boolean headless;
+    private boolean request;
+
+    /**
+     * Points this view at a frame held in an array
+     *
+     * @param frame    Array holding the frame
+     * @param offset   Index of the first byte of the frame
+     * @param length   Number of bytes in the frame
+     * @param headless True if the frame has no MBAP header
+     * @param request  True if the frame is a request, false if it is a response
+     *
+     * @return This view
+     */
+    public ModbusFrameView wrap(byte[] frame, int offset, int length, boolean headless, boolean request) {
+        if (offset < 0 || length < 0 || offset + length > frame.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (buffer == null || !buffer.hasArray() || buffer.array() != frame || buffer.arrayOffset() != 0) {
+            buffer = ByteBuffer.wrap(frame);
+        }
+        return set(offset, length, headless, request);
+    }
+
+    /**
+     * Points this view at the frame between the position and limit of a buffer.
+     * The position and limit of the buffer are not changed.
+     *
+     * @param frame    Buffer holding the frame
+     * @param headless True if the frame has no MBAP header
+     * @param request  True if the frame is a request, false if it is a response
+     *
+     * @return This view
+     */
+    public ModbusFrameView wrap(ByteBuffer frame, boolean headless, boolean request) {
+        buffer = frame;
+        return set(frame.position(), frame.remaining(), headless, request);
+    }
+
+    private ModbusFrameView set(int offset, int length, boolean headless, boolean request) {
+        this.offset = offset;
+        this.length = length;
+        this.headless = headless;
+        this.request = request;
+        return this;
+    }
+
+    /**
+     * Returns true if the frame has no MBAP header
+     *
+     * @return True if headless
+     */
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    /**
+     * Returns true if the frame is a request
+     *
+     * @return True for a request, false for a response
+     */
+    public boolean isRequest() {
+        return request;
+    }
+
+    /**
+     * Returns the number of bytes in the frame
+     *
+     * @return Frame length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the transaction identifier from the MBAP header
+     *
+     * @return Transaction ID or -1 if there is no header
+     */
+    public int getTransactionID() {
+        return headless ? -1 : getShort(0);
+    }
+
+    /**
+     * Returns the protocol identifier from the MBAP header
+     *
+     * @return Protocol ID or -1 if there is no header
+     */
+    public int getProtocolID() {
+        return headless ? -1 : getShort(2);
+    }
+
+    /**
+     * Returns the length field of the MBAP header - the number of bytes that
+     * follow it, including the unit and function code
+     *
+     * @return Header length or -1 if there is no header
+     */
+    public int getHeaderLength() {
+        return headless ? -1 : getShort(4);
+    }
+
+    /**
+     * Returns the unit identifier
+     *
+     * @return Unit ID
+     */
+    public int getUnitID() {
+        return getByte(headerSize());
+    }
+
+    /**
+     * Returns the function code, including the exception bit of exception responses
+     *
+     * @return Function code
+     */
+    public int getFunctionCode() {
+        return getByte(headerSize() + 1);
+    }
+
+    /**
+     * Returns true if the frame is an exception response
+     *
+     * @return True if the exception bit of the function code is set
+     */
+    public boolean isException() {
+        int functionCode = getFunctionCode();
+        return !request && functionCode >= 0 && (functionCode & 0x80) != 0;
+    }
+
+    /**
+     * Returns the exception code of an exception response
+     *
+     * @return Exception code or -1 if this is not an exception response
+     */
+    public int getExceptionCode() {
+        return isException() ? getData(0) : -1;
+    }
+
+    /**
+     * Returns the number of data bytes after the function code
+     *
+     * @return Data length
+     */
+    public int getDataLength() {
+        return Math.max(-1, length - headerSize() - 2);
+    }
+
+    /**
+     * Returns the starting reference of the request or response. For a read/write
+     * multiple registers request this is the read reference.
+     *
+     * @return Reference
+     */
+    public int getReference() {
+        if (isException()) {
+            return -1;
+        }
+        switch (getFunctionCode()) {
+            case Modbus.READ_COILS:
+            case Modbus.READ_INPUT_DISCRETES:
+            case Modbus.READ_MULTIPLE_REGISTERS:
+            case Modbus.READ_INPUT_REGISTERS:
+            case Modbus.READ_WRITE_MULTIPLE:
+            case Modbus.READ_FIFO_QUEUE:
+                return request ? getDataShort(0) : -1;
+            case Modbus.WRITE_COIL:
+            case Modbus.WRITE_SINGLE_REGISTER:
+            case Modbus.WRITE_MULTIPLE_COILS:
+            case Modbus.WRITE_MULTIPLE_REGISTERS:
+            case Modbus.MASK_WRITE_REGISTER:
+                return getDataShort(0);
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Returns the number of coils, inputs or registers addressed by a request,
+     * or written according to a write multiple response. For a read/write
+     * multiple registers request this is the read count.
+     *
+     * @return Count
+     */
+    public int getCount() {
+        if (isException()) {
+            return -1;
+        }
+        switch (getFunctionCode()) {
+            case Modbus.READ_COILS:
+            case Modbus.READ_INPUT_DISCRETES:
+            case Modbus.READ_MULTIPLE_REGISTERS:
+            case Modbus.READ_INPUT_REGISTERS:
+            case Modbus.READ_WRITE_MULTIPLE:
+                return request ? getDataShort(2) : -1;
+            case Modbus.WRITE_MULTIPLE_COILS:
+            case Modbus.WRITE_MULTIPLE_REGISTERS:
+                return getDataShort(2);
+            case Modbus.WRITE_COIL:
+            case Modbus.WRITE_SINGLE_REGISTER:
+                return getDataLength() >= 4 ? 1 : -1;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Returns the value of a write single coil or write single register frame
+     *
+     * @return Value, 0xFF00 for a coil that is on
+     */
+    public int getValue() {
+        int functionCode = getFunctionCode();
+        if (functionCode == Modbus.WRITE_COIL || functionCode == Modbus.WRITE_SINGLE_REGISTER) {
+            return getDataShort(2);
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the byte count of the frames that carry one
+     *
+     * @return Byte count
+     */
+    public int getByteCount() {
+        if (!request && getFunctionCode() == Modbus.READ_FIFO_QUEUE) {
+            return getDataShort(0);
+        }
+        int position = getByteCountPosition();
+        return position < 0 ? -1 : getData(position);
+    }
+
+    /**
+     * Returns a register value carried by the frame - the values of a read
+     * registers response, or the values to write of a write multiple or
+     * read/write multiple registers request
+     *
+     * @param index Index of the register in the frame
+     *
+     * @return Value or -1 if there is no such register
+     */
+    public int getRegisterValue(int index) {
+        int position;
+        switch (isException() ? -1 : getFunctionCode()) {
+            case Modbus.READ_MULTIPLE_REGISTERS:
+            case Modbus.READ_INPUT_REGISTERS:
+            case Modbus.READ_WRITE_MULTIPLE:
+            case Modbus.WRITE_MULTIPLE_REGISTERS:
+                position = getByteCountPosition();
+                break;
+            default:
+                return -1;
+        }
+        int byteCount = getByteCount();
+        if (position < 0 || index < 0 || index >= byteCount / 2) {
+            return -1;
+        }
+        return getDataShort(position + 1 + index * 2);
+    }
+
+    /**
+     * Returns the number of data bytes the function code calls for, worked out
+     * from the fixed layout of the function or its byte count
+     *
+     * @return Expected data length or -1 if it cannot be worked out from the frame
+     */
+    public int getExpectedDataLength() {
+        if (isException()) {
+            return 1;
+        }
+        int functionCode = getFunctionCode();
+        int fixed = getFixedDataLength(functionCode);
+        if (fixed >= 0) {
+            return fixed;
+        }
+        if (!request && functionCode == Modbus.READ_FIFO_QUEUE) {
+            int byteCount = getDataShort(0);
+            return byteCount < 0 ? -1 : 2 + byteCount;
+        }
+        int position = getByteCountPosition();
+        if (position >= 0) {
+            int byteCount = getData(position);
+            return byteCount < 0 ? -1 : position + 1 + byteCount;
+        }
+        ModbusFunctionRegistry.FrameFormat format = request ? ModbusFunctionRegistry.getRequestFormat(functionCode) : ModbusFunctionRegistry.getResponseFormat(functionCode);
+        if (format != null) {
+            if (!format.isByteCountFollows()) {
+                return format.getFixedLength();
+            }
+            int byteCount = getData(format.getFixedLength());
+            return byteCount < 0 ? -1 : format.getFixedLength() + 1 + byteCount;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks that the frame is consistent - the MBAP header matches the frame
+     * length and, where the function code fixes it, the data is the right length
+     *
+     * @return True if the frame is well formed
+     */
+    public boolean isValid() {
+        if (getDataLength() < 0) {
+            return false;
+        }
+        if (!headless && (getProtocolID() != Modbus.DEFAULT_PROTOCOL_ID || getHeaderLength() != length - HEADER_LENGTH)) {
+            return false;
+        }
+        int expected = getExpectedDataLength();
+        return expected < 0 || expected == getDataLength();
+    }
+
+    /**
+     * Copies the frame bytes to a buffer, for forwarding it unchanged
+     *
+     * @param dest Buffer to copy to, starting at its position
+     */
+    public void copyTo(ByteBuffer dest) {
+        dest.put(getFrame());
+    }
+
+    /**
+     * Returns a buffer covering the frame, sharing its bytes
+     *
+     * @return Buffer positioned at the start of the frame with its limit at the end
+     */
+    public ByteBuffer getFrame() {
+        ByteBuffer frame = buffer.duplicate();
+        frame.limit(offset + length);
+        frame.position(offset);
+        return frame;
+    }
+
+    /**
+     * Decodes the frame into a request
+     *
+     * @return Request
+     *
+     * @throws IOException if the frame cannot be decoded
+     */
+    public ModbusRequest toRequest() throws IOException {
+        ModbusRequest req = ModbusRequest.createModbusRequest(getFunctionCode());
+        req.setHeadless(headless);
+        req.readFrom(getFrame());
+        return req;
+    }
+
+    /**
+     * Decodes the frame into a response
+     *
+     * @return Response
+     *
+     * @throws IOException if the frame cannot be decoded
+     */
+    public ModbusResponse toResponse() throws IOException {
+        ModbusResponse res = ModbusResponse.createModbusResponse(getFunctionCode());
+        res.setHeadless(headless);
+        res.readFrom(getFrame());
+        return res;
+    }
+
+    /**
+     * Returns the data length of function codes whose layout is fixed
+     *
+     * @param functionCode Function code
+     *
+     * @return Length or -1 if the frame carries a byte count or the function is not built in
+     */
+    private int getFixedDataLength(int functionCode) {
+        switch (functionCode) {
+            case Modbus.READ_EXCEPTION_STATUS:
+                return request ? 0 : 1;
+            case Modbus.READ_COMM_EVENT_COUNTER:
+                return request ? 0 : 4;
+            case Modbus.READ_COMM_EVENT_LOG:
+            case Modbus.REPORT_SLAVE_ID:
+                return request ? 0 : -1;
+            case Modbus.READ_FIFO_QUEUE:
+                return request ? 2 : -1;
+            case Modbus.READ_COILS:
+            case Modbus.READ_INPUT_DISCRETES:
+            case Modbus.READ_MULTIPLE_REGISTERS:
+            case Modbus.READ_INPUT_REGISTERS:
+                return request ? 4 : -1;
+            case Modbus.WRITE_COIL:
+            case Modbus.WRITE_SINGLE_REGISTER:
+            case Modbus.READ_SERIAL_DIAGNOSTICS:
+                return 4;
+            case Modbus.WRITE_MULTIPLE_COILS:
+            case Modbus.WRITE_MULTIPLE_REGISTERS:
+                return request ? -1 : 4;
+            case Modbus.MASK_WRITE_REGISTER:
+                return 6;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Returns the position in the data of the byte count
+     *
+     * @return Position or -1 if the frame has no byte count
+     */
+    private int getByteCountPosition() {
+        if (isException()) {
+            return -1;
+        }
+        switch (getFunctionCode()) {
+            case Modbus.READ_COILS:
+            case Modbus.READ_INPUT_DISCRETES:
+            case Modbus.READ_MULTIPLE_REGISTERS:
+            case Modbus.READ_INPUT_REGISTERS:
+            case Modbus.READ_COMM_EVENT_LOG:
+            case Modbus.REPORT_SLAVE_ID:
+                return request ? -1 : 0;
+            case Modbus.READ_FILE_RECORD:
+            case Modbus.WRITE_FILE_RECORD:
+                return 0;
+            case Modbus.WRITE_MULTIPLE_COILS:
+            case Modbus.WRITE_MULTIPLE_REGISTERS:
+                return request ? 4 : -1;
+            case Modbus.READ_WRITE_MULTIPLE:
+                return request ? 8 : 0;
+            default:
+                return -1;
+        }
+    }
+
+    private int headerSize() {
+        return headless ? 0 : HEADER_LENGTH;
+    }
+
+    private int getByte(int index) {
+        return index < length ? buffer.get(offset + index) & 0xFF : -1;
+    }
+
+    private int getShort(int index) {
+        return index + 1 < length ? ((buffer.get(offset + index) & 0xFF) << 8) | (buffer.get(offset + index + 1) & 0xFF) : -1;
+    }
+
+    private int getData(int index) {
+        return getByte(headerSize() + 2 + index);
+    }
+
+    private int getDataShort(int index) {
+        return getShort(headerSize() + 2 + index);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.msg;
+
+/**
+ * Interface for creating the messages of a Modbus function code.
+ * <p>
+ * A factory is registered with {@link ModbusFunctionRegistry} against a function
+ * code, and every transport then uses it to create the request or response to
+ * decode a frame into. The request also answers the function on a slave through
+ * {@link ModbusRequest#createResponse(com.ghgande.j2mod.modbus.net.AbstractModbusListener)},
+ * so registering a factory is all that is needed to support a vendor specific
+ * function code on both masters and slaves.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public interface ModbusFunctionFactory {
+
+    /**
+     * Creates an empty request to be read from the wire
+     *
+     * @return New request
+     */
+    ModbusRequest createRequest();
+
+    /**
+     * Creates an empty response to be read from the wire
+     *
+     * @return New response
+     */
+    ModbusResponse createResponse();
+}
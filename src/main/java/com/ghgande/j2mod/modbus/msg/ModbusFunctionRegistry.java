@@ -0,0 +1,412 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.msg;
+
+import com.ghgande.j2mod.modbus.Modbus;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Registry of the function codes understood by the transports, indexed by
+ * function code so that finding the messages for a frame is a single array lookup.
+ * <p>
+ * All the standard function codes are registered when the class is loaded.
+ * Applications can register factories for vendor specific function codes
+ * (65 to 72 and 100 to 110 are reserved for user defined functions) or replace
+ * a standard one. Requests with a function code that has no factory are
+ * answered with an illegal function exception, as before.
+ * <p>
+ * TCP, UDP and ASCII frames carry their own length, but an RTU frame does not,
+ * so a user defined function that is to be used over RTU must also be registered
+ * with the {@link FrameFormat} of its request and response data.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public final class ModbusFunctionRegistry {
+
+    /**
+     * Highest function code - codes with the top bit set are exception responses
+     */
+    public static final int MAX_FUNCTION_CODE = 127;
+
+    private static final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<Entry>(MAX_FUNCTION_CODE + 1);
+
+    static {
+        registerBuiltIn(Modbus.READ_COILS, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new ReadCoilsRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new ReadCoilsResponse();
+            }
+        });
+        registerBuiltIn(Modbus.READ_INPUT_DISCRETES, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new ReadInputDiscretesRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new ReadInputDiscretesResponse();
+            }
+        });
+        registerBuiltIn(Modbus.READ_MULTIPLE_REGISTERS, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new ReadMultipleRegistersRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new ReadMultipleRegistersResponse();
+            }
+        });
+        registerBuiltIn(Modbus.READ_INPUT_REGISTERS, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new ReadInputRegistersRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new ReadInputRegistersResponse();
+            }
+        });
+        registerBuiltIn(Modbus.WRITE_COIL, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new WriteCoilRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new WriteCoilResponse();
+            }
+        });
+        registerBuiltIn(Modbus.WRITE_SINGLE_REGISTER, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new WriteSingleRegisterRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new WriteSingleRegisterResponse();
+            }
+        });
+        registerBuiltIn(Modbus.WRITE_MULTIPLE_COILS, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new WriteMultipleCoilsRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new WriteMultipleCoilsResponse();
+            }
+        });
+        registerBuiltIn(Modbus.WRITE_MULTIPLE_REGISTERS, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new WriteMultipleRegistersRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new WriteMultipleRegistersResponse();
+            }
+        });
+        registerBuiltIn(Modbus.READ_EXCEPTION_STATUS, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new ReadExceptionStatusRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new ReadExceptionStatusResponse();
+            }
+        });
+        registerBuiltIn(Modbus.READ_SERIAL_DIAGNOSTICS, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new ReadSerialDiagnosticsRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new ReadSerialDiagnosticsResponse();
+            }
+        });
+        registerBuiltIn(Modbus.READ_COMM_EVENT_COUNTER, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new ReadCommEventCounterRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new ReadCommEventCounterResponse();
+            }
+        });
+        registerBuiltIn(Modbus.READ_COMM_EVENT_LOG, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new ReadCommEventLogRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new ReadCommEventLogResponse();
+            }
+        });
+        registerBuiltIn(Modbus.REPORT_SLAVE_ID, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new ReportSlaveIDRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new ReportSlaveIDResponse();
+            }
+        });
+        registerBuiltIn(Modbus.READ_FILE_RECORD, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new ReadFileRecordRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new ReadFileRecordResponse();
+            }
+        });
+        registerBuiltIn(Modbus.WRITE_FILE_RECORD, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new WriteFileRecordRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new WriteFileRecordResponse();
+            }
+        });
+        registerBuiltIn(Modbus.MASK_WRITE_REGISTER, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new MaskWriteRegisterRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new MaskWriteRegisterResponse();
+            }
+        });
+        registerBuiltIn(Modbus.READ_WRITE_MULTIPLE, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new ReadWriteMultipleRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new ReadWriteMultipleResponse();
+            }
+        });
+        registerBuiltIn(Modbus.READ_FIFO_QUEUE, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new ReadFIFOQueueRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new ReadFIFOQueueResponse();
+            }
+        });
+        registerBuiltIn(Modbus.READ_MEI, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new ReadMEIRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new ReadMEIResponse();
+            }
+        });
+    }
+
+    /**
+     * Prevent instantiation
+     */
+    private ModbusFunctionRegistry() {
+    }
+
+    /**
+     * Registers the factory for a function code whose frames carry their own length,
+     * replacing any existing registration
+     *
+     * @param functionCode Function code from 1 to 127
+     * @param factory      Factory for the messages of the function
+     */
+    public static void register(int functionCode, ModbusFunctionFactory factory) {
+        register(functionCode, factory, null, null);
+    }
+
+    /**
+     * Registers the factory for a function code, replacing any existing registration
+     *
+     * @param functionCode   Function code from 1 to 127
+     * @param factory        Factory for the messages of the function
+     * @param requestFormat  Layout of the request data on RTU, null if not used over RTU
+     * @param responseFormat Layout of the response data on RTU, null if not used over RTU
+     */
+    public static void register(int functionCode, ModbusFunctionFactory factory, FrameFormat requestFormat, FrameFormat responseFormat) {
+        if (functionCode < 1 || functionCode > MAX_FUNCTION_CODE) {
+            throw new IllegalArgumentException("Function code must be between 1 and " + MAX_FUNCTION_CODE);
+        }
+        if (factory == null) {
+            throw new IllegalArgumentException("Factory must be set");
+        }
+        entries.set(functionCode, new Entry(factory, requestFormat, responseFormat));
+    }
+
+    /**
+     * Removes the registration for a function code, so that requests for it are
+     * answered with an illegal function exception
+     *
+     * @param functionCode Function code
+     */
+    public static void unregister(int functionCode) {
+        if (functionCode >= 1 && functionCode <= MAX_FUNCTION_CODE) {
+            entries.set(functionCode, null);
+        }
+    }
+
+    /**
+     * Returns the factory registered for a function code
+     *
+     * @param functionCode Function code
+     *
+     * @return Factory or null if the function code is not registered
+     */
+    public static ModbusFunctionFactory getFactory(int functionCode) {
+        Entry entry = getEntry(functionCode);
+        return entry == null ? null : entry.factory;
+    }
+
+    /**
+     * Returns the RTU layout of the request data of a user registered function code
+     *
+     * @param functionCode Function code
+     *
+     * @return Format or null if none was registered
+     */
+    public static FrameFormat getRequestFormat(int functionCode) {
+        Entry entry = getEntry(functionCode);
+        return entry == null ? null : entry.requestFormat;
+    }
+
+    /**
+     * Returns the RTU layout of the response data of a user registered function code
+     *
+     * @param functionCode Function code
+     *
+     * @return Format or null if none was registered
+     */
+    public static FrameFormat getResponseFormat(int functionCode) {
+        Entry entry = getEntry(functionCode);
+        return entry == null ? null : entry.responseFormat;
+    }
+
+    private static Entry getEntry(int functionCode) {
+        if (functionCode < 0 || functionCode > MAX_FUNCTION_CODE) {
+            return null;
+        }
+        return entries.get(functionCode);
+    }
+
+    private static void registerBuiltIn(int functionCode, ModbusFunctionFactory factory) {
+        entries.set(functionCode, new Entry(factory, null, null));
+    }
+
+    /**
+     * Layout of the data that follows the function code in an RTU frame, so that
+     * the transport knows where the frame ends
+     * <p>
+     * The data is a fixed number of bytes, optionally followed by a byte count and
+     * that many more bytes, as in the write multiple registers request.
+     */
+    public static final class FrameFormat {
+        private final int fixedLength;
+        private final boolean byteCountFollows;
+
+        /**
+         * Constructs a format
+         *
+         * @param fixedLength      Number of bytes before the byte count, or all the bytes if there is none
+         * @param byteCountFollows True if a byte count and that many bytes follow the fixed part
+         */
+        public FrameFormat(int fixedLength, boolean byteCountFollows) {
+            if (fixedLength < 0 || fixedLength > Modbus.MAX_MESSAGE_LENGTH) {
+                throw new IllegalArgumentException("Invalid fixed length " + fixedLength);
+            }
+            this.fixedLength = fixedLength;
+            this.byteCountFollows = byteCountFollows;
+        }
+
+        /**
+         * Returns the number of bytes before the byte count
+         *
+         * @return Fixed length
+         */
+        public int getFixedLength() {
+            return fixedLength;
+        }
+
+        /**
+         * Returns true if a byte count follows the fixed part
+         *
+         * @return True if the data is counted
+         */
+        public boolean isByteCountFollows() {
+            return byteCountFollows;
+        }
+    }
+
+    /**
+     * Registration of one function code
+     */
+    private static final class Entry {
+        final ModbusFunctionFactory factory;
+        final FrameFormat requestFormat;
+        final FrameFormat responseFormat;
+
+        Entry(ModbusFunctionFactory factory, FrameFormat requestFormat, FrameFormat responseFormat) {
+            this.factory = factory;
+            this.requestFormat = requestFormat;
+            this.responseFormat = responseFormat;
+        }
+    }
+}
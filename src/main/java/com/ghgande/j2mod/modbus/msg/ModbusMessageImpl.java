@@ -16,11 +16,17 @@
 package com.ghgande.j2mod.modbus.msg;
 
 import com.ghgande.j2mod.modbus.Modbus;
+import com.ghgande.j2mod.modbus.io.ByteBufferDataInput;
+import com.ghgande.j2mod.modbus.io.ByteBufferDataOutput;
 import com.ghgande.j2mod.modbus.util.ModbusUtil;
 
 import java.io.DataInput;
 import java.io.DataOutput;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 
 /**
  * Abstract class implementing a <tt>ModbusMessage</tt>. This class provides
@@ -199,6 +205,161 @@ public abstract class ModbusMessageImpl implements ModbusMessage {
         readData(din);
     }
 
+    /**
+     * Writes this message to a buffer, starting at its position and big-endian
+     * whatever the byte order of the buffer. The position is left after the
+     * last byte written.
+     *
+     * @param buffer the buffer to write to.
+     *
+     * @throws IOException if the buffer does not have room for the message, in
+     *                     which case the position is left unchanged.
+     */
+    public void writeTo(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        try {
+            requireRoom(buffer, isHeadless() ? getDataLength() : getDataLength() + 6);
+            if (!isHeadless()) {
+                putShort(buffer, getTransactionID());
+                putShort(buffer, getProtocolID());
+                putShort(buffer, getDataLength());
+            }
+            buffer.put((byte)getUnitID());
+            buffer.put((byte)getFunctionCode());
+            writeData(buffer);
+        }
+        catch (BufferOverflowException ex) {
+            buffer.position(start);
+            throw new IOException("Buffer too small for message", ex);
+        }
+        catch (IOException ex) {
+            buffer.position(start);
+            throw ex;
+        }
+    }
+
+    /**
+     * Reads this message from a buffer, starting at its position. If the
+     * message has a header, the data is not allowed to run past the length it
+     * gives. The position is left after the last byte read.
+     *
+     * @param buffer the buffer to read from.
+     *
+     * @throws IOException if the buffer does not hold the whole message, in
+     *                     which case the position is left unchanged.
+     */
+    public void readFrom(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        int limit = buffer.limit();
+        try {
+            if (!isHeadless()) {
+                requireRemaining(buffer, 6);
+                setTransactionID(getUnsignedShort(buffer));
+                setProtocolID(getUnsignedShort(buffer));
+                dataLength = getUnsignedShort(buffer);
+                if (buffer.remaining() < dataLength) {
+                    throw new EOFException(String.format("Header length %d is more than the %d bytes left in the buffer", dataLength, buffer.remaining()));
+                }
+                buffer.limit(buffer.position() + dataLength);
+            }
+            requireRemaining(buffer, 2);
+            setUnitID(buffer.get() & 0xFF);
+            setFunctionCode(buffer.get() & 0xFF);
+            readData(buffer);
+        }
+        catch (BufferUnderflowException ex) {
+            buffer.position(start);
+            throw new EOFException("Buffer too short for message");
+        }
+        catch (IOException ex) {
+            buffer.position(start);
+            throw ex;
+        }
+        finally {
+            buffer.limit(limit);
+        }
+    }
+
+    /**
+     * Writes the subclass specific data to the given buffer.
+     * <p>
+     * By default this calls {@link #writeData(DataOutput)} through a
+     * <tt>ByteBufferDataOutput</tt>, messages on the hot path override it to
+     * write the buffer directly.
+     *
+     * @param buffer the buffer to write to.
+     *
+     * @throws IOException if the buffer is too small.
+     */
+    public void writeData(ByteBuffer buffer) throws IOException {
+        writeData(new ByteBufferDataOutput(buffer));
+    }
+
+    /**
+     * Reads the subclass specific data from the given buffer.
+     * <p>
+     * By default this calls {@link #readData(DataInput)} through a
+     * <tt>ByteBufferDataInput</tt>, messages on the hot path override it to
+     * read the buffer directly.
+     *
+     * @param buffer the buffer to read from.
+     *
+     * @throws IOException if the buffer is too short.
+     */
+    public void readData(ByteBuffer buffer) throws IOException {
+        readData(new ByteBufferDataInput(buffer));
+    }
+
+    /**
+     * Checks that a buffer has enough bytes left
+     *
+     * @param buffer the buffer to check.
+     * @param count  the number of bytes needed.
+     *
+     * @throws EOFException if the buffer is too short.
+     */
+    protected static void requireRemaining(ByteBuffer buffer, int count) throws EOFException {
+        if (buffer.remaining() < count) {
+            throw new EOFException(String.format("Need %d bytes but only %d remain", count, buffer.remaining()));
+        }
+    }
+
+    /**
+     * Checks that a buffer has room for enough bytes
+     *
+     * @param buffer the buffer to check.
+     * @param count  the number of bytes to be written.
+     *
+     * @throws IOException if the buffer is too small.
+     */
+    protected static void requireRoom(ByteBuffer buffer, int count) throws IOException {
+        if (buffer.remaining() < count) {
+            throw new IOException(String.format("Need room for %d bytes but only %d remain", count, buffer.remaining()));
+        }
+    }
+
+    /**
+     * Reads a big-endian unsigned short from a buffer
+     *
+     * @param buffer the buffer to read from.
+     *
+     * @return the value.
+     */
+    protected static int getUnsignedShort(ByteBuffer buffer) {
+        return ((buffer.get() & 0xFF) << 8) | (buffer.get() & 0xFF);
+    }
+
+    /**
+     * Writes a big-endian short to a buffer
+     *
+     * @param buffer the buffer to write to.
+     * @param value  the value, only the low 16 bits are written.
+     */
+    protected static void putShort(ByteBuffer buffer, int value) {
+        buffer.put((byte)(value >>> 8));
+        buffer.put((byte)value);
+    }
+
     /**
      * Writes the subclass specific data to the given DataOutput.
      *
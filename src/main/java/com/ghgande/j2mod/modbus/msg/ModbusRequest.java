@@ -15,7 +15,6 @@
  */
 package com.ghgande.j2mod.modbus.msg;
 
-import com.ghgande.j2mod.modbus.Modbus;
 import com.ghgande.j2mod.modbus.net.AbstractModbusListener;
 
 /**
@@ -29,80 +28,24 @@ import com.ghgande.j2mod.modbus.net.AbstractModbusListener;
  */
 public abstract class ModbusRequest extends ModbusMessageImpl {
 
+    private boolean recycled;
+    private ModbusResponse recycledResponse;
+    private ExceptionResponse recycledExceptionResponse;
+
     /**
      * Factory method creating the required specialized <tt>ModbusRequest</tt>
-     * instance.
+     * instance from the factory registered in {@link ModbusFunctionRegistry}.
      *
      * @param functionCode the function code of the request as <tt>int</tt>.
      *
      * @return a ModbusRequest instance specific for the given function type.
      */
     public static ModbusRequest createModbusRequest(int functionCode) {
-        ModbusRequest request;
-
-        switch (functionCode) {
-            case Modbus.READ_COILS:
-                request = new ReadCoilsRequest();
-                break;
-            case Modbus.READ_INPUT_DISCRETES:
-                request = new ReadInputDiscretesRequest();
-                break;
-            case Modbus.READ_MULTIPLE_REGISTERS:
-                request = new ReadMultipleRegistersRequest();
-                break;
-            case Modbus.READ_INPUT_REGISTERS:
-                request = new ReadInputRegistersRequest();
-                break;
-            case Modbus.WRITE_COIL:
-                request = new WriteCoilRequest();
-                break;
-            case Modbus.WRITE_SINGLE_REGISTER:
-                request = new WriteSingleRegisterRequest();
-                break;
-            case Modbus.WRITE_MULTIPLE_COILS:
-                request = new WriteMultipleCoilsRequest();
-                break;
-            case Modbus.WRITE_MULTIPLE_REGISTERS:
-                request = new WriteMultipleRegistersRequest();
-                break;
-            case Modbus.READ_EXCEPTION_STATUS:
-                request = new ReadExceptionStatusRequest();
-                break;
-            case Modbus.READ_SERIAL_DIAGNOSTICS:
-                request = new ReadSerialDiagnosticsRequest();
-                break;
-            case Modbus.READ_COMM_EVENT_COUNTER:
-                request = new ReadCommEventCounterRequest();
-                break;
-            case Modbus.READ_COMM_EVENT_LOG:
-                request = new ReadCommEventLogRequest();
-                break;
-            case Modbus.REPORT_SLAVE_ID:
-                request = new ReportSlaveIDRequest();
-                break;
-            case Modbus.READ_FILE_RECORD:
-                request = new ReadFileRecordRequest();
-                break;
-            case Modbus.WRITE_FILE_RECORD:
-                request = new WriteFileRecordRequest();
-                break;
-            case Modbus.MASK_WRITE_REGISTER:
-                request = new MaskWriteRegisterRequest();
-                break;
-            case Modbus.READ_WRITE_MULTIPLE:
-                request = new ReadWriteMultipleRequest();
-                break;
-            case Modbus.READ_FIFO_QUEUE:
-                request = new ReadFIFOQueueRequest();
-                break;
-            case Modbus.READ_MEI:
-                request = new ReadMEIRequest();
-                break;
-            default:
-                request = new IllegalFunctionRequest(functionCode);
-                break;
+        ModbusFunctionFactory factory = ModbusFunctionRegistry.getFactory(functionCode);
+        if (factory == null) {
+            return new IllegalFunctionRequest(functionCode);
         }
-        return request;
+        return factory.createRequest();
     }
 
     /**
@@ -149,7 +92,67 @@ public abstract class ModbusRequest extends ModbusMessageImpl {
      * @return a ModbusResponse instance representing the exception response.
      */
     public ModbusResponse createExceptionResponse(int code) {
-        return updateResponseWithHeader(new ExceptionResponse(getFunctionCode(), code), true);
+        if (!recycled) {
+            return updateResponseWithHeader(new ExceptionResponse(getFunctionCode(), code), true);
+        }
+        ExceptionResponse response = recycledExceptionResponse;
+        if (response == null) {
+            response = new ExceptionResponse(getFunctionCode(), code);
+            recycledExceptionResponse = response;
+        }
+        else {
+            response.setExceptionCode(code);
+            response.setAuxiliaryType(ModbusResponse.AuxiliaryMessageTypes.NONE);
+        }
+        return updateResponseWithHeader(response, true);
+    }
+
+    /**
+     * Tests if this request is reused for one frame after another on a connection
+     *
+     * @return True if the request is recycled
+     */
+    public boolean isRecycled() {
+        return recycled;
+    }
+
+    /**
+     * Sets whether this request is reused for one frame after another on a connection.
+     * <p>
+     * A recycled request also keeps the response and exception response it creates
+     * and fills them in again for the next frame, so a response must not be used
+     * once the next frame has been read into the request.
+     *
+     * @param recycled True if the request is recycled
+     */
+    public void setRecycled(boolean recycled) {
+        this.recycled = recycled;
+        if (!recycled) {
+            recycledResponse = null;
+            recycledExceptionResponse = null;
+        }
+    }
+
+    /**
+     * Returns the response for {@link #createResponse(AbstractModbusListener)} to fill in.
+     * A recycled request returns the response it returned for the previous frame, with
+     * its header updated to match this one, otherwise it creates one with {@link #getResponse()}.
+     * The caller must set every field of the payload.
+     *
+     * @return Response to fill in
+     */
+    protected ModbusResponse getRecycledResponse() {
+        if (!recycled) {
+            return getResponse();
+        }
+        ModbusResponse response = recycledResponse;
+        if (response == null) {
+            response = getResponse();
+            recycledResponse = response;
+            return response;
+        }
+        response.setAuxiliaryType(ModbusResponse.AuxiliaryMessageTypes.NONE);
+        return updateResponseWithHeader(response);
     }
 
     /**
@@ -158,7 +161,7 @@ public abstract class ModbusRequest extends ModbusMessageImpl {
      * @param response Response to update
      * @return Updated response
      */
-    ModbusResponse updateResponseWithHeader(ModbusResponse response) {
+    protected ModbusResponse updateResponseWithHeader(ModbusResponse response) {
         return updateResponseWithHeader(response, false);
     }
 
@@ -169,7 +172,7 @@ public abstract class ModbusRequest extends ModbusMessageImpl {
      * @param ignoreFunctionCode True if the function code should stay unmolested
      * @return Updated response
      */
-    ModbusResponse updateResponseWithHeader(ModbusResponse response, boolean ignoreFunctionCode) {
+    protected ModbusResponse updateResponseWithHeader(ModbusResponse response, boolean ignoreFunctionCode) {
 
         // transfer header data
         response.setHeadless(isHeadless());
@@ -15,7 +15,6 @@
  */
 package com.ghgande.j2mod.modbus.msg;
 
-import com.ghgande.j2mod.modbus.Modbus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,83 +44,21 @@ public abstract class ModbusResponse extends ModbusMessageImpl {
 
     /**
      * Factory method creating the required specialized <tt>ModbusResponse</tt>
-     * instance.
+     * instance from the factory registered in {@link ModbusFunctionRegistry}.
      *
      * @param functionCode the function code of the response as <tt>int</tt>.
      *
      * @return a ModbusResponse instance specific for the given function code.
      */
     public static ModbusResponse createModbusResponse(int functionCode) {
-        ModbusResponse response;
-
-        switch (functionCode) {
-            case Modbus.READ_COILS:
-                response = new ReadCoilsResponse();
-                break;
-            case Modbus.READ_INPUT_DISCRETES:
-                response = new ReadInputDiscretesResponse();
-                break;
-            case Modbus.READ_MULTIPLE_REGISTERS:
-                response = new ReadMultipleRegistersResponse();
-                break;
-            case Modbus.READ_INPUT_REGISTERS:
-                response = new ReadInputRegistersResponse();
-                break;
-            case Modbus.WRITE_COIL:
-                response = new WriteCoilResponse();
-                break;
-            case Modbus.WRITE_SINGLE_REGISTER:
-                response = new WriteSingleRegisterResponse();
-                break;
-            case Modbus.WRITE_MULTIPLE_COILS:
-                response = new WriteMultipleCoilsResponse();
-                break;
-            case Modbus.WRITE_MULTIPLE_REGISTERS:
-                response = new WriteMultipleRegistersResponse();
-                break;
-            case Modbus.READ_EXCEPTION_STATUS:
-                response = new ReadExceptionStatusResponse();
-                break;
-            case Modbus.READ_SERIAL_DIAGNOSTICS:
-                response = new ReadSerialDiagnosticsResponse();
-                break;
-            case Modbus.READ_COMM_EVENT_COUNTER:
-                response = new ReadCommEventCounterResponse();
-                break;
-            case Modbus.READ_COMM_EVENT_LOG:
-                response = new ReadCommEventLogResponse();
-                break;
-            case Modbus.REPORT_SLAVE_ID:
-                response = new ReportSlaveIDResponse();
-                break;
-            case Modbus.READ_FILE_RECORD:
-                response = new ReadFileRecordResponse();
-                break;
-            case Modbus.WRITE_FILE_RECORD:
-                response = new WriteFileRecordResponse();
-                break;
-            case Modbus.MASK_WRITE_REGISTER:
-                response = new MaskWriteRegisterResponse();
-                break;
-            case Modbus.READ_WRITE_MULTIPLE:
-                response = new ReadWriteMultipleResponse();
-                break;
-            case Modbus.READ_FIFO_QUEUE:
-                response = new ReadFIFOQueueResponse();
-                break;
-            case Modbus.READ_MEI:
-                response = new ReadMEIResponse();
-                break;
-            default:
-                if ((functionCode & 0x80) != 0) {
-                    response = new ExceptionResponse(functionCode);
-                }
-                else {
-                    response = new ExceptionResponse();
-                }
-                break;
+        if ((functionCode & 0x80) != 0) {
+            return new ExceptionResponse(functionCode);
+        }
+        ModbusFunctionFactory factory = ModbusFunctionRegistry.getFactory(functionCode);
+        if (factory == null) {
+            return new ExceptionResponse();
         }
-        return response;
+        return factory.createResponse();
     }
 
     /**
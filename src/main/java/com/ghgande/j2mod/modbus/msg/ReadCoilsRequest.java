@@ -17,6 +17,7 @@ package com.ghgande.j2mod.modbus.msg;
 
 import com.ghgande.j2mod.modbus.Modbus;
 import com.ghgande.j2mod.modbus.net.AbstractModbusListener;
+import com.ghgande.j2mod.modbus.procimg.BitRangeAccess;
 import com.ghgande.j2mod.modbus.procimg.DigitalOut;
 import com.ghgande.j2mod.modbus.procimg.IllegalAddressException;
 import com.ghgande.j2mod.modbus.procimg.ProcessImage;
@@ -85,23 +86,44 @@ public class ReadCoilsRequest extends ModbusRequest {
         // 1. get process image
         ProcessImage procimg = listener.getProcessImage(getUnitID());
 
-        // 2. get input discretes range
+        // 2. get coil range
         try {
+            if (procimg instanceof BitRangeAccess) {
+                byte[] bits = ((BitRangeAccess)procimg).getCoilBytes(getReference(), getBitCount());
+                response = getCoilsResponse();
+                ((ReadCoilsResponse)response).getCoils().setBytes(bits);
+                return response;
+            }
             douts = procimg.getDigitalOutRange(getReference(), getBitCount());
         }
         catch (IllegalAddressException e) {
             return createExceptionResponse(Modbus.ILLEGAL_ADDRESS_EXCEPTION);
         }
-        response = getResponse();
+        response = getCoilsResponse();
 
         // Populate the discrete values from the process image.
+        boolean[] states = new boolean[douts.length];
         for (int i = 0; i < douts.length; i++) {
-            ((ReadCoilsResponse)response).setCoilStatus(i, douts[i].isSet());
+            states[i] = douts[i].isSet();
         }
+        ((ReadCoilsResponse)response).getCoils().setBooleans(states);
 
         return response;
     }
 
+    /**
+     * Returns the response to fill in, sized for the number of coils read
+     *
+     * @return Response
+     */
+    private ReadCoilsResponse getCoilsResponse() {
+        ReadCoilsResponse response = (ReadCoilsResponse)getRecycledResponse();
+        if (response.getBitCount() != bitCount) {
+            response.setBitCount(bitCount);
+        }
+        return response;
+    }
+
     /**
      * Returns the reference of the register to to start reading from with this
      * <tt>ReadCoilsRequest</tt>.
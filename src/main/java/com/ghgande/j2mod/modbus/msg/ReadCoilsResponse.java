@@ -17,6 +17,7 @@ package com.ghgande.j2mod.modbus.msg;
 
 import com.ghgande.j2mod.modbus.Modbus;
 import com.ghgande.j2mod.modbus.util.BitVector;
+import com.ghgande.j2mod.modbus.util.UnsynchronizedBitVector;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -84,6 +85,16 @@ public class ReadCoilsResponse extends ModbusResponse {
         }
     }
 
+    /**
+     * setBitCount -- size the response for a given number of coils
+     *
+     * @param count the number of bits to be read.
+     */
+    void setBitCount(int count) {
+        coils = new BitVector(count);
+        setDataLength(coils.byteSize() + 1);
+    }
+
     /**
      * getCoils -- get the coils bit vector.
      *
@@ -153,7 +164,7 @@ public class ReadCoilsResponse extends ModbusResponse {
         byte[] data = new byte[count];
 
         input.readFully(data, 0, count);
-        coils = BitVector.createBitVector(data);
+        coils = UnsynchronizedBitVector.createUnsynchronizedBitVector(data, count * 8);
         setDataLength(count + 1);
     }
 
@@ -17,10 +17,12 @@ package com.ghgande.j2mod.modbus.msg;
 
 import com.ghgande.j2mod.modbus.Modbus;
 import com.ghgande.j2mod.modbus.net.AbstractModbusListener;
+import com.ghgande.j2mod.modbus.procimg.FIFO;
 import com.ghgande.j2mod.modbus.procimg.IllegalAddressException;
 import com.ghgande.j2mod.modbus.procimg.InputRegister;
 import com.ghgande.j2mod.modbus.procimg.ProcessImage;
 import com.ghgande.j2mod.modbus.procimg.Register;
+import com.ghgande.j2mod.modbus.procimg.RingBufferFIFO;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -80,6 +82,17 @@ public class ReadFIFOQueueRequest extends ModbusRequest {
         ProcessImage procimg = listener.getProcessImage(getUnitID());
 
         try {
+            // A ring buffer FIFO at this address is drained in one step, so
+            // the count always matches the values returned.
+            FIFO fifo = procimg.getFIFOByAddress(reference);
+            if (fifo instanceof RingBufferFIFO) {
+                int[] values = new int[RingBufferFIFO.MAX_READ_COUNT];
+                int count = ((RingBufferFIFO)fifo).drain(values, values.length);
+                response = (ReadFIFOQueueResponse)getResponse();
+                response.setRegisters(values, count);
+                return response;
+            }
+
             // Get the FIFO queue location and read the count of available
             // registers.
             Register queue = procimg.getRegister(reference);
@@ -17,7 +17,6 @@ package com.ghgande.j2mod.modbus.msg;
 
 import com.ghgande.j2mod.modbus.Modbus;
 import com.ghgande.j2mod.modbus.procimg.InputRegister;
-import com.ghgande.j2mod.modbus.procimg.SimpleInputRegister;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -35,7 +34,7 @@ public class ReadFIFOQueueResponse extends ModbusResponse {
 
     // Message fields.
     private int count;
-    private InputRegister[] registers;
+    private int[] values;
 
     /**
      * Constructs a new <tt>ReadFIFOQueueResponse</tt> instance.
@@ -46,7 +45,7 @@ public class ReadFIFOQueueResponse extends ModbusResponse {
         setFunctionCode(Modbus.READ_FIFO_QUEUE);
 
         count = 0;
-        registers = new InputRegister[0];
+        values = new int[0];
 
         setDataLength(7);
     }
@@ -73,13 +72,7 @@ public class ReadFIFOQueueResponse extends ModbusResponse {
     }
 
     public synchronized int[] getRegisters() {
-        int[] values = new int[count];
-
-        for (int i = 0; i < count; i++) {
-            values[i] = getRegister(i);
-        }
-
-        return values;
+        return Arrays.copyOf(values, count);
     }
 
     /**
@@ -89,21 +82,38 @@ public class ReadFIFOQueueResponse extends ModbusResponse {
      */
     public synchronized void setRegisters(InputRegister[] regs) {
         if (regs == null) {
-            registers = null;
+            values = new int[0];
             count = 0;
             return;
         }
-
-        registers = Arrays.copyOf(regs, regs.length);
         if (regs.length > 31) {
             throw new IllegalArgumentException();
         }
 
+        values = new int[regs.length];
+        for (int i = 0; i < regs.length; i++) {
+            values[i] = regs[i].toUnsignedShort();
+        }
         count = regs.length;
     }
 
+    /**
+     * setRegisters -- set the queued values directly, without wrapping
+     * each one in a register.
+     *
+     * @param values Array holding the values as unsigned shorts
+     * @param count  Number of values from the start of the array to send
+     */
+    public synchronized void setRegisters(int[] values, int count) {
+        if (count < 0 || count > 31 || count > values.length) {
+            throw new IllegalArgumentException();
+        }
+        this.values = Arrays.copyOf(values, count);
+        this.count = count;
+    }
+
     public int getRegister(int index) {
-        return registers[index].getValue();
+        return values[index];
     }
 
     /**
@@ -133,10 +143,10 @@ public class ReadFIFOQueueResponse extends ModbusResponse {
         // The first register is the number of registers which
         // follow.  Save that as count, not as a register.
         count = din.readUnsignedShort();
-        registers = new InputRegister[count];
+        values = new int[count];
 
         for (int i = 0; i < count; i++) {
-            registers[i] = new SimpleInputRegister(din.readShort());
+            values[i] = din.readUnsignedShort();
         }
     }
 
@@ -155,9 +165,8 @@ public class ReadFIFOQueueResponse extends ModbusResponse {
         result[3] = (byte)(count & 0xFF);
 
         for (int i = 0; i < count; i++) {
-            byte[] value = registers[i].toBytes();
-            result[i * 2 + 4] = value[0];
-            result[i * 2 + 5] = value[1];
+            result[i * 2 + 4] = (byte)(values[i] >> 8);
+            result[i * 2 + 5] = (byte)(values[i] & 0xFF);
         }
         return result;
     }
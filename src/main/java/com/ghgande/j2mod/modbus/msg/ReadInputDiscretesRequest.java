@@ -17,6 +17,7 @@ package com.ghgande.j2mod.modbus.msg;
 
 import com.ghgande.j2mod.modbus.Modbus;
 import com.ghgande.j2mod.modbus.net.AbstractModbusListener;
+import com.ghgande.j2mod.modbus.procimg.BitRangeAccess;
 import com.ghgande.j2mod.modbus.procimg.DigitalIn;
 import com.ghgande.j2mod.modbus.procimg.IllegalAddressException;
 import com.ghgande.j2mod.modbus.procimg.ProcessImage;
@@ -88,21 +89,42 @@ public class ReadInputDiscretesRequest extends ModbusRequest {
         ProcessImage procimg = listener.getProcessImage(getUnitID());
         // 2. get input discretes range
         try {
+            if (procimg instanceof BitRangeAccess) {
+                byte[] bits = ((BitRangeAccess)procimg).getDiscreteInputBytes(getReference(), getBitCount());
+                response = getDiscretesResponse();
+                response.getDiscretes().setBytes(bits);
+                return response;
+            }
             dins = procimg.getDigitalInRange(getReference(), getBitCount());
         }
         catch (IllegalAddressException e) {
             return createExceptionResponse(Modbus.ILLEGAL_ADDRESS_EXCEPTION);
         }
-        response = (ReadInputDiscretesResponse)getResponse();
+        response = getDiscretesResponse();
 
         // Populate the discrete values from the process image.
+        boolean[] states = new boolean[dins.length];
         for (int i = 0; i < dins.length; i++) {
-            response.setDiscreteStatus(i, dins[i].isSet());
+            states[i] = dins[i].isSet();
         }
+        response.getDiscretes().setBooleans(states);
 
         return response;
     }
 
+    /**
+     * Returns the response to fill in, sized for the number of input discretes read
+     *
+     * @return Response
+     */
+    private ReadInputDiscretesResponse getDiscretesResponse() {
+        ReadInputDiscretesResponse response = (ReadInputDiscretesResponse)getRecycledResponse();
+        if (response.getBitCount() != getBitCount()) {
+            response.setBitCount(getBitCount());
+        }
+        return response;
+    }
+
     /**
      * Returns the reference of the discrete to to start reading from with
      * this <tt>ReadInputDiscretesRequest</tt>.
@@ -17,6 +17,7 @@ package com.ghgande.j2mod.modbus.msg;
 
 import com.ghgande.j2mod.modbus.Modbus;
 import com.ghgande.j2mod.modbus.util.BitVector;
+import com.ghgande.j2mod.modbus.util.UnsynchronizedBitVector;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -143,7 +144,7 @@ public class ReadInputDiscretesResponse extends ModbusResponse {
         }
 
         //decode bytes into bitvector
-        discretes = BitVector.createBitVector(data);
+        discretes = UnsynchronizedBitVector.createUnsynchronizedBitVector(data, count * 8);
         if (discretes != null) {
             bitCount = discretes.size();
         }
@@ -24,6 +24,7 @@ import com.ghgande.j2mod.modbus.procimg.ProcessImage;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Class implementing a <tt>ReadInputRegistersRequest</tt>. The implementation
@@ -91,7 +92,7 @@ public class ReadInputRegistersRequest extends ModbusRequest {
         catch (IllegalAddressException iaex) {
             return createExceptionResponse(Modbus.ILLEGAL_ADDRESS_EXCEPTION);
         }
-        response = getResponse();
+        response = (ReadInputRegistersResponse)getRecycledResponse();
         response.setRegisters(inpregs);
 
         return response;
@@ -154,6 +155,20 @@ public class ReadInputRegistersRequest extends ModbusRequest {
         wordCount = din.readUnsignedShort();
     }
 
+    @Override
+    public void writeData(ByteBuffer buffer) throws IOException {
+        requireRoom(buffer, 4);
+        putShort(buffer, reference);
+        putShort(buffer, wordCount);
+    }
+
+    @Override
+    public void readData(ByteBuffer buffer) throws IOException {
+        requireRemaining(buffer, 4);
+        reference = getUnsignedShort(buffer);
+        wordCount = getUnsignedShort(buffer);
+    }
+
     @Override
     public byte[] getMessage() {
         byte[] result = new byte[4];
@@ -22,6 +22,7 @@ import com.ghgande.j2mod.modbus.procimg.SimpleInputRegister;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -170,6 +171,32 @@ public class ReadInputRegistersResponse extends ModbusResponse {
         setDataLength(byteCount);
     }
 
+    @Override
+    public void writeData(ByteBuffer buffer) throws IOException {
+        requireRoom(buffer, 1 + getWordCount() * 2);
+        buffer.put((byte)byteCount);
+        for (int k = 0; k < getWordCount(); k++) {
+            putShort(buffer, registers[k].getValue());
+        }
+    }
+
+    @Override
+    public void readData(ByteBuffer buffer) throws IOException {
+        requireRemaining(buffer, 1);
+        int count = buffer.get(buffer.position()) & 0xFF;
+        requireRemaining(buffer, 1 + (count / 2) * 2);
+        buffer.get();
+        byteCount = count;
+
+        InputRegister[] inputRegisters = new InputRegister[getWordCount()];
+        for (int k = 0; k < getWordCount(); k++) {
+            inputRegisters[k] = new SimpleInputRegister(buffer.get(), buffer.get());
+        }
+        registers = inputRegisters;
+
+        setDataLength(byteCount);
+    }
+
     @Override
     public byte[] getMessage() {
         byte[] result = new byte[registers.length * 2 + 1];
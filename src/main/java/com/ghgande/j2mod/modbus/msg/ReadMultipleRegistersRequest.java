@@ -20,10 +20,12 @@ import com.ghgande.j2mod.modbus.net.AbstractModbusListener;
 import com.ghgande.j2mod.modbus.procimg.IllegalAddressException;
 import com.ghgande.j2mod.modbus.procimg.ProcessImage;
 import com.ghgande.j2mod.modbus.procimg.Register;
+import com.ghgande.j2mod.modbus.procimg.RegisterRangeAccess;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Class implementing a <tt>ReadMultipleRegistersRequest</tt>. The
@@ -78,19 +80,24 @@ public class ReadMultipleRegistersRequest extends ModbusRequest {
     @Override
     public ModbusResponse createResponse(AbstractModbusListener listener) {
         ReadMultipleRegistersResponse response;
-        Register[] regs;
 
         // 1. get process image
         ProcessImage procimg = listener.getProcessImage(getUnitID());
         // 2. get input registers range
         try {
-            regs = procimg.getRegisterRange(getReference(), getWordCount());
+            if (procimg instanceof RegisterRangeAccess) {
+                int[] values = ((RegisterRangeAccess)procimg).getRegisterValues(getReference(), getWordCount());
+                response = (ReadMultipleRegistersResponse)getRecycledResponse();
+                response.setRegisterValues(values);
+                return response;
+            }
+            Register[] regs = procimg.getRegisterRange(getReference(), getWordCount());
+            response = (ReadMultipleRegistersResponse)getRecycledResponse();
+            response.setRegisters(regs);
         }
         catch (IllegalAddressException e) {
             return createExceptionResponse(Modbus.ILLEGAL_ADDRESS_EXCEPTION);
         }
-        response = (ReadMultipleRegistersResponse)getResponse();
-        response.setRegisters(regs);
 
         return response;
     }
@@ -152,6 +159,20 @@ public class ReadMultipleRegistersRequest extends ModbusRequest {
         wordCount = din.readUnsignedShort();
     }
 
+    @Override
+    public void writeData(ByteBuffer buffer) throws IOException {
+        requireRoom(buffer, 4);
+        putShort(buffer, reference);
+        putShort(buffer, wordCount);
+    }
+
+    @Override
+    public void readData(ByteBuffer buffer) throws IOException {
+        requireRemaining(buffer, 4);
+        reference = getUnsignedShort(buffer);
+        wordCount = getUnsignedShort(buffer);
+    }
+
     @Override
     public byte[] getMessage() {
         byte[] result = new byte[4];
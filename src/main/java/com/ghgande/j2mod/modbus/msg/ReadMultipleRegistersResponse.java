@@ -22,6 +22,7 @@ import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -39,6 +40,7 @@ public class ReadMultipleRegistersResponse extends ModbusResponse {
     // instance attributes
     private int byteCount;
     private Register[] registers;
+    private boolean ownRegisters;
 
     /**
      * Constructs a new <tt>ReadMultipleRegistersResponse</tt> instance.
@@ -142,6 +144,31 @@ public class ReadMultipleRegistersResponse extends ModbusResponse {
     public synchronized void setRegisters(Register[] registers) {
         byteCount = registers == null ? 0 : registers.length * 2;
         this.registers = registers == null ? null : Arrays.copyOf(registers, registers.length);
+        ownRegisters = false;
+        setDataLength(byteCount + 1);
+    }
+
+    /**
+     * Sets the values of the registers for this response. The registers set by the
+     * previous call are reused if there are as many, so a recycled response does not
+     * allocate new ones for every frame.
+     *
+     * @param values Register values
+     */
+    synchronized void setRegisterValues(int[] values) {
+        if (!ownRegisters || registers == null || registers.length != values.length) {
+            registers = new Register[values.length];
+            for (int i = 0; i < values.length; i++) {
+                registers[i] = new SimpleRegister(values[i]);
+            }
+            ownRegisters = true;
+        }
+        else {
+            for (int i = 0; i < values.length; i++) {
+                registers[i].setValue(values[i]);
+            }
+        }
+        byteCount = values.length * 2;
         setDataLength(byteCount + 1);
     }
 
@@ -167,6 +194,31 @@ public class ReadMultipleRegistersResponse extends ModbusResponse {
         setDataLength(byteCount + 1);
     }
 
+    @Override
+    public void writeData(ByteBuffer buffer) throws IOException {
+        requireRoom(buffer, 1 + getWordCount() * 2);
+        buffer.put((byte)byteCount);
+        for (int k = 0; k < getWordCount(); k++) {
+            putShort(buffer, registers[k].getValue());
+        }
+    }
+
+    @Override
+    public void readData(ByteBuffer buffer) throws IOException {
+        requireRemaining(buffer, 1);
+        int count = buffer.get(buffer.position()) & 0xFF;
+        requireRemaining(buffer, 1 + (count / 2) * 2);
+        buffer.get();
+        byteCount = count;
+
+        registers = new Register[getWordCount()];
+        for (int k = 0; k < getWordCount(); k++) {
+            registers[k] = new SimpleRegister(buffer.get(), buffer.get());
+        }
+
+        setDataLength(byteCount + 1);
+    }
+
     @Override
     public byte[] getMessage() {
         byte[] result;
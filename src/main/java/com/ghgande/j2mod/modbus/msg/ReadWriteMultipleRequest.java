@@ -110,6 +110,23 @@ public class ReadWriteMultipleRequest extends ModbusRequest {
 
         // 2. get input registers range
         try {
+            if (procimg instanceof RegisterRangeAccess) {
+                RegisterRangeAccess rangeAccess = (RegisterRangeAccess)procimg;
+                int[] values = new int[getWriteWordCount()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = getRegister(i).getValue();
+                }
+                rangeAccess.setRegisterValues(getWriteReference(), values);
+                values = rangeAccess.getRegisterValues(getReadReference(), getReadWordCount());
+                readRegs = new InputRegister[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    readRegs[i] = new SimpleInputRegister(values[i]);
+                }
+                response = (ReadWriteMultipleResponse)getRecycledResponse();
+                response.setRegisters(readRegs);
+                return response;
+            }
+
             // First the write
             writeRegs = procimg.getRegisterRange(getWriteReference(), getWriteWordCount());
             for (int i = 0; i < writeRegs.length; i++) {
@@ -127,7 +144,7 @@ public class ReadWriteMultipleRequest extends ModbusRequest {
         catch (IllegalAddressException e) {
             return createExceptionResponse(Modbus.ILLEGAL_ADDRESS_EXCEPTION);
         }
-        response = (ReadWriteMultipleResponse)getResponse();
+        response = (ReadWriteMultipleResponse)getRecycledResponse();
         response.setRegisters(readRegs);
 
         return response;
@@ -203,6 +220,7 @@ public class ReadWriteMultipleRequest extends ModbusRequest {
     public synchronized void setRegisters(Register[] registers) {
         writeCount = registers != null ? registers.length : 0;
         this.registers = registers != null ? Arrays.copyOf(registers, registers.length) : null;
+        setDataLength(9 + writeCount * 2);
     }
 
     /**
@@ -88,7 +88,7 @@ public class WriteCoilRequest extends ModbusRequest {
         catch (IllegalAddressException iaex) {
             return createExceptionResponse(Modbus.ILLEGAL_ADDRESS_EXCEPTION);
         }
-        response = (WriteCoilResponse)getResponse();
+        response = (WriteCoilResponse)getRecycledResponse();
         response.setReference(getReference());
         response.setCoil(getCoil());
 
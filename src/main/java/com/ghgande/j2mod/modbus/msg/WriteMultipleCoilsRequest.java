@@ -17,10 +17,12 @@ package com.ghgande.j2mod.modbus.msg;
 
 import com.ghgande.j2mod.modbus.Modbus;
 import com.ghgande.j2mod.modbus.net.AbstractModbusListener;
+import com.ghgande.j2mod.modbus.procimg.BitRangeAccess;
 import com.ghgande.j2mod.modbus.procimg.DigitalOut;
 import com.ghgande.j2mod.modbus.procimg.IllegalAddressException;
 import com.ghgande.j2mod.modbus.procimg.ProcessImage;
 import com.ghgande.j2mod.modbus.util.BitVector;
+import com.ghgande.j2mod.modbus.util.UnsynchronizedBitVector;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -112,16 +114,22 @@ public class WriteMultipleCoilsRequest extends ModbusRequest {
         ProcessImage procimg = listener.getProcessImage(getUnitID());
         // 2. get coil range
         try {
-            douts = procimg.getDigitalOutRange(reference, coils.size());
-            // 3. set coils
-            for (int i = 0; i < douts.length; i++) {
-                douts[i].set(coils.getBit(i));
+            if (procimg instanceof BitRangeAccess) {
+                ((BitRangeAccess)procimg).setCoilBytes(reference, coils.size(), coils.getBytes());
+            }
+            else {
+                douts = procimg.getDigitalOutRange(reference, coils.size());
+                // 3. set coils
+                boolean[] states = coils.getBooleans();
+                for (int i = 0; i < douts.length; i++) {
+                    douts[i].set(states[i]);
+                }
             }
         }
         catch (IllegalAddressException iaex) {
             return createExceptionResponse(Modbus.ILLEGAL_ADDRESS_EXCEPTION);
         }
-        response = (WriteMultipleCoilsResponse)getResponse();
+        response = (WriteMultipleCoilsResponse)getRecycledResponse();
         response.setBitCount(coils.size());
         response.setReference(reference);
 
@@ -238,7 +246,7 @@ public class WriteMultipleCoilsRequest extends ModbusRequest {
         }
 
         // decode bytes into BitVector, sets data and bitcount
-        coils = BitVector.createBitVector(data, bitcount);
+        coils = UnsynchronizedBitVector.createUnsynchronizedBitVector(data, bitcount);
 
         // update data length
         setDataLength(coilBytes + 5);
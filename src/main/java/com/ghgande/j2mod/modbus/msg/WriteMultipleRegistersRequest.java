@@ -21,11 +21,13 @@ import com.ghgande.j2mod.modbus.net.AbstractModbusListener;
 import com.ghgande.j2mod.modbus.procimg.IllegalAddressException;
 import com.ghgande.j2mod.modbus.procimg.ProcessImage;
 import com.ghgande.j2mod.modbus.procimg.Register;
+import com.ghgande.j2mod.modbus.procimg.RegisterRangeAccess;
 import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -97,21 +99,29 @@ public class WriteMultipleRegistersRequest extends ModbusRequest {
         WriteMultipleRegistersResponse response;
 
         if (nonWordDataHandler == null) {
-            Register[] regs;
             // 1. get process image
             ProcessImage procimg = listener.getProcessImage(getUnitID());
             // 2. get registers
             try {
-                regs = procimg.getRegisterRange(getReference(), getWordCount());
-                // 3. set Register values
-                for (int i = 0; i < regs.length; i++) {
-                    regs[i].setValue(this.getRegister(i).getValue());
+                if (procimg instanceof RegisterRangeAccess) {
+                    int[] values = new int[getWordCount()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = getRegister(i).getValue();
+                    }
+                    ((RegisterRangeAccess)procimg).setRegisterValues(getReference(), values);
+                }
+                else {
+                    Register[] regs = procimg.getRegisterRange(getReference(), getWordCount());
+                    // 3. set Register values
+                    for (int i = 0; i < regs.length; i++) {
+                        regs[i].setValue(this.getRegister(i).getValue());
+                    }
                 }
             }
             catch (IllegalAddressException iaex) {
                 return createExceptionResponse(Modbus.ILLEGAL_ADDRESS_EXCEPTION);
             }
-            response = (WriteMultipleRegistersResponse)getResponse();
+            response = (WriteMultipleRegistersResponse)getRecycledResponse();
             response.setReference(getReference());
             response.setWordCount(getWordCount());
         }
@@ -121,7 +131,7 @@ public class WriteMultipleRegistersRequest extends ModbusRequest {
                 return createExceptionResponse(result);
             }
 
-            response = (WriteMultipleRegistersResponse)getResponse();
+            response = (WriteMultipleRegistersResponse)getRecycledResponse();
             response.setReference(getReference());
             response.setWordCount(nonWordDataHandler.getWordCount());
         }
@@ -290,6 +300,46 @@ public class WriteMultipleRegistersRequest extends ModbusRequest {
         }
     }
 
+    @Override
+    public void writeData(ByteBuffer buffer) throws IOException {
+        if (nonWordDataHandler != null) {
+            super.writeData(buffer);
+            return;
+        }
+        int registerCount = registers != null ? registers.length : 0;
+        requireRoom(buffer, 5 + registerCount * 2);
+        putShort(buffer, reference);
+        putShort(buffer, registerCount);
+        buffer.put((byte)(registerCount * 2));
+        for (int i = 0; i < registerCount; i++) {
+            putShort(buffer, registers[i].getValue());
+        }
+    }
+
+    @Override
+    public void readData(ByteBuffer buffer) throws IOException {
+        if (nonWordDataHandler != null) {
+            super.readData(buffer);
+            return;
+        }
+        requireRemaining(buffer, 5);
+        int start = buffer.position();
+        int byteCount = buffer.get(start + 4) & 0xFF;
+        int registerCount = ((buffer.get(start + 2) & 0xFF) << 8) | (buffer.get(start + 3) & 0xFF);
+        if (byteCount < registerCount * 2) {
+            throw new IOException(String.format("Byte count %d is too small for %d registers", byteCount, registerCount));
+        }
+        requireRemaining(buffer, 5 + byteCount);
+
+        reference = getUnsignedShort(buffer);
+        buffer.position(start + 5);
+        registers = new Register[registerCount];
+        for (int register = 0; register < registerCount; register++) {
+            registers[register] = new SimpleRegister(buffer.get(), buffer.get());
+        }
+        buffer.position(start + 5 + byteCount);
+    }
+
     @Override
     public byte[] getMessage() {
         int len = 5;
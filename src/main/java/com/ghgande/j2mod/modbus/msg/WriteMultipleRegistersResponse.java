@@ -20,6 +20,7 @@ import com.ghgande.j2mod.modbus.Modbus;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Class implementing a <tt>WriteMultipleRegistersResponse</tt>. The
@@ -127,6 +128,22 @@ public class WriteMultipleRegistersResponse extends ModbusResponse {
         setDataLength(4);
     }
 
+    @Override
+    public void writeData(ByteBuffer buffer) throws IOException {
+        requireRoom(buffer, 4);
+        putShort(buffer, reference);
+        putShort(buffer, wordCount);
+    }
+
+    @Override
+    public void readData(ByteBuffer buffer) throws IOException {
+        requireRemaining(buffer, 4);
+        setReference(getUnsignedShort(buffer));
+        setWordCount(getUnsignedShort(buffer));
+
+        setDataLength(4);
+    }
+
     @Override
     public byte[] getMessage() {
         byte[] result = new byte[4];
@@ -90,7 +90,10 @@ public class WriteSingleRegisterRequest extends ModbusRequest {
         catch (IllegalAddressException iaex) {
             return createExceptionResponse(Modbus.ILLEGAL_ADDRESS_EXCEPTION);
         }
-        return updateResponseWithHeader(new WriteSingleRegisterResponse(this.getReference(), reg.getValue()));
+        WriteSingleRegisterResponse response = (WriteSingleRegisterResponse)getRecycledResponse();
+        response.setReference(getReference());
+        response.setRegisterValue(reg.getValue());
+        return response;
     }
 
     /**
@@ -81,7 +81,7 @@ public class WriteSingleRegisterResponse
      *
      * @param value the returned register value.
      */
-    private void setRegisterValue(int value) {
+    void setRegisterValue(int value) {
         registerValue = value;
     }
 
@@ -103,7 +103,7 @@ public class WriteSingleRegisterResponse
      *
      * @param ref the reference of the written register.
      */
-    private void setReference(int ref) {
+    void setReference(int ref) {
         reference = ref;
     }
 
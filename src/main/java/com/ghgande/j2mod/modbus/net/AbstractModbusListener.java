@@ -18,17 +18,24 @@ package com.ghgande.j2mod.modbus.net;
 import com.ghgande.j2mod.modbus.Modbus;
 import com.ghgande.j2mod.modbus.ModbusIOException;
 import com.ghgande.j2mod.modbus.io.AbstractModbusTransport;
+import com.ghgande.j2mod.modbus.io.ModbusFrameRecorder;
 import com.ghgande.j2mod.modbus.io.ModbusRTUTransport;
+import com.ghgande.j2mod.modbus.msg.ExceptionResponse;
 import com.ghgande.j2mod.modbus.msg.ModbusRequest;
 import com.ghgande.j2mod.modbus.msg.ModbusResponse;
 import com.ghgande.j2mod.modbus.msg.ModbusResponse.AuxiliaryMessageTypes;
 import com.ghgande.j2mod.modbus.procimg.ProcessImage;
+import com.ghgande.j2mod.modbus.procimg.ProcessImageBusyException;
 import com.ghgande.j2mod.modbus.slave.ModbusSlave;
 import com.ghgande.j2mod.modbus.slave.ModbusSlaveFactory;
+import com.ghgande.j2mod.modbus.slave.ProcessImageChangeBus;
+import com.ghgande.j2mod.modbus.util.ModbusMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetAddress;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
  * Definition of a listener class
@@ -45,6 +52,10 @@ public abstract class AbstractModbusListener implements Runnable {
     protected String error;
     protected int timeout = Modbus.DEFAULT_TIMEOUT;
     protected String threadName;
+    protected volatile boolean recycleRequests;
+    private String endpoint;
+    private volatile ModbusSlave slave;
+    private final Set<AbstractModbusTransport> transports = new CopyOnWriteArraySet<AbstractModbusTransport>();
 
     /**
      * Stop the listener thread for this <tt>ModbusListener</tt> instance.
@@ -58,6 +69,7 @@ public abstract class AbstractModbusListener implements Runnable {
      */
     public void setPort(int port) {
         this.port = ((port > 0) ? port : Modbus.DEFAULT_PORT);
+        endpoint = null;
     }
 
     /**
@@ -76,6 +88,7 @@ public abstract class AbstractModbusListener implements Runnable {
      */
     public void setAddress(InetAddress addr) {
         address = addr;
+        endpoint = null;
     }
 
     /**
@@ -136,6 +149,28 @@ public abstract class AbstractModbusListener implements Runnable {
         this.timeout = timeout;
     }
 
+    /**
+     * Returns true if each connection reuses its request and response objects from one frame to the next
+     *
+     * @return True if requests are recycled
+     */
+    public boolean isRecycleRequests() {
+        return recycleRequests;
+    }
+
+    /**
+     * Sets whether each connection reuses its request and response objects from one frame
+     * to the next, rather than creating new ones for every frame
+     * <p>
+     * Only enable this if nothing keeps a reference to a request or response after it
+     * has been answered.
+     *
+     * @param recycleRequests True to recycle requests
+     */
+    public void setRecycleRequests(boolean recycleRequests) {
+        this.recycleRequests = recycleRequests;
+    }
+
     /**
      * Reads the request, checks it is valid and that the unit ID is ok
      * and sends back a response
@@ -156,6 +191,7 @@ public abstract class AbstractModbusListener implements Runnable {
         if (request == null) {
             throw new ModbusIOException("Request for transport %s is invalid (null)", transport.getClass().getSimpleName());
         }
+        long start = System.nanoTime();
         ModbusResponse response;
 
         // Test if Process image exists for this Unit ID
@@ -165,7 +201,20 @@ public abstract class AbstractModbusListener implements Runnable {
             response.setAuxiliaryType(ModbusResponse.AuxiliaryMessageTypes.UNIT_ID_MISSMATCH);
         }
         else {
-            response = request.createResponse(this);
+            try {
+                response = request.createResponse(this);
+            }
+            catch (ProcessImageBusyException ex) {
+
+                // The values are changing too fast to copy, so ask the master to try again later
+
+                logger.debug("Process image is busy: {}", ex.getMessage());
+                response = request.createExceptionResponse(Modbus.SLAVE_BUSY_EXCEPTION);
+            }
+            ProcessImageChangeBus changeBus = getChangeBus();
+            if (changeBus != null && !(response instanceof ExceptionResponse)) {
+                changeBus.publish(request.getUnitID(), spi, request);
+            }
         }
 
         if (logger.isDebugEnabled()) {
@@ -180,7 +229,81 @@ public abstract class AbstractModbusListener implements Runnable {
         }
 
         // Write the response
-        transport.writeResponse(response);
+        ModbusMetrics metrics = getMetrics();
+        if (metrics == null) {
+            transport.writeResponse(response);
+            return;
+        }
+        boolean written = false;
+        try {
+            transport.writeResponse(response);
+            written = true;
+        }
+        finally {
+            metrics.recordRequest(getEndpoint(), request, written ? response : null, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Adds a transport serving a connection, whose frames can then be dumped
+     *
+     * @param transport Transport
+     */
+    void addTransport(AbstractModbusTransport transport) {
+        transports.add(transport);
+    }
+
+    /**
+     * Removes a transport once its connection is closed
+     *
+     * @param transport Transport
+     */
+    void removeTransport(AbstractModbusTransport transport) {
+        transports.remove(transport);
+    }
+
+    /**
+     * Formats the last frames written and read on each open connection of
+     * this listener
+     *
+     * @return Text of the frames
+     */
+    public String dumpFrames() {
+        StringBuilder text = new StringBuilder();
+        for (AbstractModbusTransport transport : transports) {
+            ModbusFrameRecorder recorder = transport.getFrameRecorder();
+            if (recorder != null) {
+                text.append(transport.getEndpoint()).append('\n').append(recorder.dump());
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Returns the name of this listener, used to key its metrics
+     *
+     * @return Local address and port
+     */
+    protected String getEndpoint() {
+        if (endpoint == null) {
+            endpoint = (address == null ? "0.0.0.0" : address.getHostAddress()) + ":" + port;
+        }
+        return endpoint;
+    }
+
+    /**
+     * Returns the slave that owns this listener. A listener belongs to one slave
+     * for its lifetime, so the slave is only looked up in the factory until it is found.
+     *
+     * @return Slave or null if the listener is not owned by a slave
+     */
+    private ModbusSlave getSlave() {
+        ModbusSlave owner = slave;
+        if (owner == null) {
+            owner = ModbusSlaveFactory.getSlave(this);
+            slave = owner;
+        }
+        return owner;
     }
 
     /**
@@ -190,13 +313,39 @@ public abstract class AbstractModbusListener implements Runnable {
      * @return Process image associated with this listener and Unit ID
      */
     public ProcessImage getProcessImage(int unitId) {
-        ModbusSlave slave = ModbusSlaveFactory.getSlave(this);
+        ModbusSlave slave = getSlave();
         if (slave != null) {
             return slave.getProcessImage(unitId);
         }
         return null;
     }
 
+    /**
+     * Returns the bus that changes made by requests to this listener are published on
+     *
+     * @return Change bus or null if there is none
+     */
+    public ProcessImageChangeBus getChangeBus() {
+        ModbusSlave slave = getSlave();
+        if (slave != null) {
+            return slave.getChangeBus();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the metrics that requests handled by this listener are recorded in
+     *
+     * @return Metrics or null if requests are not recorded
+     */
+    public ModbusMetrics getMetrics() {
+        ModbusSlave slave = getSlave();
+        if (slave != null) {
+            return slave.getMetrics();
+        }
+        return null;
+    }
+
     /**
      * Gets the name of the thread used by the listener
      *
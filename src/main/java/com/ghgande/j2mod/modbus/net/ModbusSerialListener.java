@@ -55,6 +55,11 @@ public class ModbusSerialListener extends AbstractModbusListener {
         this.serialCon = serialCon;
     }
 
+    @Override
+    protected String getEndpoint() {
+        return serialCon == null ? "" : serialCon.getPortName();
+    }
+
     @Override
     public void setTimeout(int timeout) {
         super.setTimeout(timeout);
@@ -88,8 +93,14 @@ public class ModbusSerialListener extends AbstractModbusListener {
         listening = true;
         try {
             AbstractModbusTransport transport = serialCon.getModbusTransport();
-            while (listening) {
-                safeHandleRequest(transport);
+            addTransport(transport);
+            try {
+                while (listening) {
+                    safeHandleRequest(transport);
+                }
+            }
+            finally {
+                removeTransport(transport);
             }
         }
         catch (Exception e) {
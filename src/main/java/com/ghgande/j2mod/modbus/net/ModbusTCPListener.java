@@ -227,4 +227,30 @@ public class ModbusTCPListener extends AbstractModbusListener {
         }
     }
 
+    /**
+     * Returns the number of connections currently being served
+     *
+     * @return Active connection count
+     */
+    public int getActiveConnections() {
+        return threadPool.getActiveCount();
+    }
+
+    /**
+     * Returns the number of accepted connections waiting for a free handler thread
+     *
+     * @return Queued connection count
+     */
+    public int getQueuedConnections() {
+        return threadPool.getQueueSize();
+    }
+
+    /**
+     * Returns the number of handler threads
+     *
+     * @return Pool size
+     */
+    public int getPoolSize() {
+        return threadPool.getSize();
+    }
 }
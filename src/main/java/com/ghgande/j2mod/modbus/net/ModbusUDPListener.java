@@ -102,6 +102,7 @@ public class ModbusUDPListener extends AbstractModbusListener {
         }
 
         listening = true;
+        addTransport(transport);
         try {
             while (listening) {
                 handleRequest(transport, this);
@@ -113,6 +114,7 @@ public class ModbusUDPListener extends AbstractModbusListener {
             }
         }
         finally {
+            removeTransport(transport);
             try {
                 terminal.deactivate();
                 transport.close();
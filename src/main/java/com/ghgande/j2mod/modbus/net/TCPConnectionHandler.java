@@ -17,6 +17,7 @@ package com.ghgande.j2mod.modbus.net;
 
 import com.ghgande.j2mod.modbus.ModbusIOException;
 import com.ghgande.j2mod.modbus.io.AbstractModbusTransport;
+import com.ghgande.j2mod.modbus.util.ModbusEventRecorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,6 +71,7 @@ public class TCPConnectionHandler implements Runnable {
                     if (nanosIdle > (maxIdleSeconds * nanosPerSecond)) {
                         // Watchdog timer elapsed
                         logger.warn("Watchdog expired: {}, limit: {}", nanosIdle / nanosPerSecond, maxIdleSeconds);
+                        ModbusEventRecorder.getInstance().connectionIdleTimeout(TCPConnectionHandler.this.connection.getEndpoint(), nanosIdle);
 
                         // Socket.close() will cause read operation to fail
                         TCPConnectionHandler.this.connection.close();
@@ -87,6 +89,7 @@ public class TCPConnectionHandler implements Runnable {
 
     @Override
     public void run() {
+        listener.addTransport(transport);
         try {
             do {
                 listener.handleRequest(transport, listener);
@@ -98,6 +101,7 @@ public class TCPConnectionHandler implements Runnable {
             }
         }
         finally {
+            listener.removeTransport(transport);
             connection.close();
         }
     }
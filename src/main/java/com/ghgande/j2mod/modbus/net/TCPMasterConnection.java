@@ -19,6 +19,7 @@ import com.ghgande.j2mod.modbus.Modbus;
 import com.ghgande.j2mod.modbus.io.AbstractModbusTransport;
 import com.ghgande.j2mod.modbus.io.ModbusRTUTCPTransport;
 import com.ghgande.j2mod.modbus.io.ModbusTCPTransport;
+import com.ghgande.j2mod.modbus.util.ModbusEventRecorder;
 import com.ghgande.j2mod.modbus.util.ModbusUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -129,18 +130,9 @@ public class TCPMasterConnection {
             // Create a socket without auto-connecting
 
             socket = new Socket();
-            socket.setReuseAddress(true);
-            socket.setSoLinger(true, 1);
-            socket.setKeepAlive(true);
+            configureSocket(socket);
             setTimeout(timeout);
 
-            // If a Network Interface has been specified, then attempt to force the socket
-            // to be bound to that card
-
-            if (networkInterface != null) {
-                socket.bind(new InetSocketAddress(networkInterface.getInetAddresses().nextElement(), 0));
-            }
-
             // Connect - only wait for the timeout number of milliseconds
 
             socket.connect(new InetSocketAddress(address, port), timeout);
@@ -149,9 +141,47 @@ public class TCPMasterConnection {
 
             prepareTransport(useRtuOverTcp);
             connected = true;
+            ModbusEventRecorder.getInstance().connectionOpened(getEndpoint(), false);
+        }
+    }
+
+    /**
+     * Applies the socket options used by all master connections and binds
+     * the socket to the network interface if one has been specified
+     *
+     * @param socket Unconnected socket to configure
+     *
+     * @throws IOException if the socket options cannot be set
+     */
+    void configureSocket(Socket socket) throws IOException {
+        socket.setReuseAddress(true);
+        socket.setSoLinger(true, 1);
+        socket.setKeepAlive(true);
+
+        // If a Network Interface has been specified, then attempt to force the socket
+        // to be bound to that card
+
+        if (networkInterface != null) {
+            socket.bind(new InetSocketAddress(networkInterface.getInetAddresses().nextElement(), 0));
         }
     }
 
+    /**
+     * Completes the opening of this <tt>TCPMasterConnection</tt> using a socket
+     * that has already been connected elsewhere e.g. by a {@link TCPMasterConnector}
+     *
+     * @param socket Connected socket to use
+     *
+     * @throws IOException if the transport cannot be prepared
+     */
+    synchronized void setConnectedSocket(Socket socket) throws IOException {
+        this.socket = socket;
+        setTimeout(timeout);
+        prepareTransport(useRtuOverTcp);
+        connected = true;
+        ModbusEventRecorder.getInstance().connectionOpened(getEndpoint(), false);
+    }
+
     /**
      * Tests if this <tt>TCPMasterConnection</tt> is connected.
      *
@@ -213,10 +243,20 @@ public class TCPMasterConnection {
             }
             finally {
                 connected = false;
+                ModbusEventRecorder.getInstance().connectionClosed(getEndpoint(), false);
             }
         }
     }
 
+    /**
+     * Returns the address and port of the slave
+     *
+     * @return Endpoint
+     */
+    private String getEndpoint() {
+        return address == null ? null : address.getHostAddress() + ":" + port;
+    }
+
     /**
      * Returns the <tt>ModbusTransport</tt> associated with this
      * <tt>TCPMasterConnection</tt>.
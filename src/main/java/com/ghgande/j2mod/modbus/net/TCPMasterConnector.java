@@ -0,0 +1,292 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.net;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class that opens many <tt>TCPMasterConnection</tt> instances in parallel.
+ * <p>
+ * Each connection is started with a non-blocking <tt>SocketChannel</tt> connect
+ * and a single selector waits for them all, so the time taken to open a fleet of
+ * connections is bounded by the slowest device (or the connection timeout) rather
+ * than the sum of all the timeouts.
+ * Once connected, the socket is switched back to blocking mode and handed to the
+ * connection to prepare its transport exactly as {@link TCPMasterConnection#connect()} would.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class TCPMasterConnector {
+
+    private static final Logger logger = LoggerFactory.getLogger(TCPMasterConnector.class);
+
+    /**
+     * Default maximum number of connection attempts in progress at any one time
+     */
+    public static final int DEFAULT_MAX_CONCURRENT = 256;
+
+    private int maxConcurrent;
+
+    /**
+     * Constructs a connector with the default concurrency cap
+     */
+    public TCPMasterConnector() {
+        this(DEFAULT_MAX_CONCURRENT);
+    }
+
+    /**
+     * Constructs a connector
+     *
+     * @param maxConcurrent Maximum number of connection attempts in progress at any one time
+     */
+    public TCPMasterConnector(int maxConcurrent) {
+        setMaxConcurrent(maxConcurrent);
+    }
+
+    /**
+     * Returns the maximum number of connection attempts in progress at any one time
+     *
+     * @return Concurrency cap
+     */
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Sets the maximum number of connection attempts in progress at any one time
+     *
+     * @param maxConcurrent Concurrency cap (must be greater than zero)
+     */
+    public void setMaxConcurrent(int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("Maximum concurrent connections must be greater than zero");
+        }
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * Opens all the given connections that are not already connected.
+     * <p>
+     * The timeout of each connection is used as its connect timeout, measured
+     * from the point its connection attempt is started. This method blocks until
+     * every connection has either been opened or has failed.
+     *
+     * @param connections Connections to open
+     *
+     * @return Identity map of the connections that could not be opened and the reason why (empty if all succeeded)
+     *
+     * @throws IOException if the selector cannot be opened
+     */
+    public Map<TCPMasterConnection, Exception> connect(Collection<TCPMasterConnection> connections) throws IOException {
+        Map<TCPMasterConnection, Exception> failures = new IdentityHashMap<>();
+        Deque<TCPMasterConnection> waiting = new ArrayDeque<>();
+        for (TCPMasterConnection connection : connections) {
+            if (!connection.isConnected()) {
+                waiting.add(connection);
+            }
+        }
+        logger.debug("Opening {} connections (maximum {} concurrently)", waiting.size(), maxConcurrent);
+
+        try (Selector selector = Selector.open()) {
+            List<PendingConnect> finished = new ArrayList<>();
+            int inFlight = 0;
+            while (!waiting.isEmpty() || inFlight > 0) {
+
+                // Start as many connection attempts as the cap allows
+
+                while (inFlight < maxConcurrent && !waiting.isEmpty()) {
+                    PendingConnect pending = start(waiting.poll(), failures);
+                    if (pending != null) {
+                        if (pending.channel.isConnected()) {
+                            finished.add(pending);
+                        }
+                        else {
+                            pending.channel.register(selector, SelectionKey.OP_CONNECT, pending);
+                            inFlight++;
+                        }
+                    }
+                }
+
+                // Wait for something to complete, but no longer than the nearest deadline
+
+                if (inFlight > 0) {
+                    selector.select(getWaitTime(selector));
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        PendingConnect pending = (PendingConnect)key.attachment();
+                        try {
+                            if (pending.channel.finishConnect()) {
+                                key.cancel();
+                                inFlight--;
+                                finished.add(pending);
+                            }
+                        }
+                        catch (IOException e) {
+                            key.cancel();
+                            inFlight--;
+                            fail(pending, e, failures);
+                        }
+                    }
+
+                    // Abandon any attempts that have run out of time
+
+                    long now = System.nanoTime();
+                    for (SelectionKey key : selector.keys()) {
+                        PendingConnect pending = (PendingConnect)key.attachment();
+                        if (key.isValid() && now - pending.deadline >= 0) {
+                            key.cancel();
+                            inFlight--;
+                            fail(pending, new SocketTimeoutException("Connect timed out"), failures);
+                        }
+                    }
+                }
+
+                // The keys of completed channels must be flushed from the selector
+                // before the channels can be put back into blocking mode
+
+                if (!finished.isEmpty()) {
+                    selector.selectNow();
+                    for (PendingConnect pending : finished) {
+                        complete(pending, failures);
+                    }
+                    finished.clear();
+                }
+            }
+        }
+        logger.debug("Finished opening connections - {} failed", failures.size());
+        return failures;
+    }
+
+    /**
+     * Creates a non-blocking channel for the connection and starts connecting it
+     *
+     * @param connection Connection to open
+     * @param failures   Map of failures to add to if the attempt cannot be started
+     *
+     * @return Pending connection or null if it failed to start
+     */
+    private PendingConnect start(TCPMasterConnection connection, Map<TCPMasterConnection, Exception> failures) {
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            connection.configureSocket(channel.socket());
+            int timeout = connection.getTimeout();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout > 0 ? timeout : Integer.MAX_VALUE);
+            PendingConnect pending = new PendingConnect(connection, channel, deadline);
+            channel.connect(new InetSocketAddress(connection.getAddress(), connection.getPort()));
+            return pending;
+        }
+        catch (IOException e) {
+            closeQuietly(channel);
+            failures.put(connection, e);
+            logger.debug("Cannot start connection to {}:{} - {}", connection.getAddress(), connection.getPort(), e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Hands a connected channel over to its connection
+     *
+     * @param pending  Connected channel
+     * @param failures Map of failures to add to if the transport cannot be prepared
+     */
+    private void complete(PendingConnect pending, Map<TCPMasterConnection, Exception> failures) {
+        try {
+            pending.channel.configureBlocking(true);
+            pending.connection.setConnectedSocket(pending.channel.socket());
+            logger.debug("Connected to {}:{}", pending.connection.getAddress(), pending.connection.getPort());
+        }
+        catch (IOException e) {
+            fail(pending, e, failures);
+        }
+    }
+
+    /**
+     * Records a failed connection attempt and releases its channel
+     *
+     * @param pending  Failed attempt
+     * @param e        Reason for the failure
+     * @param failures Map of failures to add to
+     */
+    private void fail(PendingConnect pending, Exception e, Map<TCPMasterConnection, Exception> failures) {
+        closeQuietly(pending.channel);
+        failures.put(pending.connection, e);
+        logger.debug("Cannot connect to {}:{} - {}", pending.connection.getAddress(), pending.connection.getPort(), e.getMessage());
+    }
+
+    /**
+     * Returns the number of milliseconds until the nearest deadline of the registered attempts
+     *
+     * @param selector Selector holding the attempts
+     *
+     * @return Milliseconds to wait (at least 1)
+     */
+    private static long getWaitTime(Selector selector) {
+        long now = System.nanoTime();
+        long wait = Long.MAX_VALUE;
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid()) {
+                wait = Math.min(wait, ((PendingConnect)key.attachment()).deadline - now);
+            }
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait));
+    }
+
+    /**
+     * Closes the channel ignoring any errors
+     *
+     * @param channel Channel to close (may be null)
+     */
+    private static void closeQuietly(SocketChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            }
+            catch (IOException e) {
+                // Do nothing.
+            }
+        }
+    }
+
+    /**
+     * A connection attempt that is in progress
+     */
+    private static class PendingConnect {
+        final TCPMasterConnection connection;
+        final SocketChannel channel;
+        final long deadline;
+
+        PendingConnect(TCPMasterConnection connection, SocketChannel channel, long deadline) {
+            this.connection = connection;
+            this.channel = channel;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -19,6 +19,7 @@ import com.ghgande.j2mod.modbus.Modbus;
 import com.ghgande.j2mod.modbus.io.AbstractModbusTransport;
 import com.ghgande.j2mod.modbus.io.ModbusRTUTCPTransport;
 import com.ghgande.j2mod.modbus.io.ModbusTCPTransport;
+import com.ghgande.j2mod.modbus.util.ModbusEventRecorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -84,6 +85,7 @@ public class TCPSlaveConnection {
                 logger.warn("Could not close socket", ex);
             }
             connected = false;
+            ModbusEventRecorder.getInstance().connectionClosed(getEndpoint(), true);
         }
     }
 
@@ -132,6 +134,16 @@ public class TCPSlaveConnection {
         }
 
         connected = true;
+        ModbusEventRecorder.getInstance().connectionOpened(getEndpoint(), true);
+    }
+
+    /**
+     * Returns the address and port of the master
+     *
+     * @return Endpoint
+     */
+    String getEndpoint() {
+        return socket.getInetAddress() == null ? null : socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
     }
 
     /**
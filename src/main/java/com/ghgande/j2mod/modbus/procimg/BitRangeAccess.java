@@ -0,0 +1,67 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.procimg;
+
+/**
+ * Interface implemented by process images that can copy a range of coils or
+ * discrete inputs to and from the packed form used on the wire.
+ * <p>
+ * The bytes are packed as in the <tt>Read Coils</tt>, <tt>Read Input Discretes</tt>
+ * and <tt>Write Multiple Coils</tt> messages: the first bit of the range is the
+ * least significant bit of the first byte. When the process image of a listener
+ * implements this interface, those requests use it in preference to reading or
+ * writing a <tt>DigitalIn</tt> or <tt>DigitalOut</tt> object per bit.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public interface BitRangeAccess {
+
+    /**
+     * Returns a range of coils packed into bytes
+     *
+     * @param offset the start offset.
+     * @param count  the number of coils to read.
+     *
+     * @return (count + 7) / 8 bytes, with any unused high bits of the last byte clear.
+     *
+     * @throws IllegalAddressException if the range from offset to offset+count is non existant.
+     */
+    byte[] getCoilBytes(int offset, int count) throws IllegalAddressException;
+
+    /**
+     * Sets a range of coils from packed bytes
+     *
+     * @param offset the start offset.
+     * @param count  the number of coils to write.
+     * @param bits   the packed states, at least (count + 7) / 8 bytes.
+     *
+     * @throws IllegalAddressException if the range from offset to offset+count is non existant.
+     */
+    void setCoilBytes(int offset, int count, byte[] bits) throws IllegalAddressException;
+
+    /**
+     * Returns a range of discrete inputs packed into bytes
+     *
+     * @param offset the start offset.
+     * @param count  the number of discrete inputs to read.
+     *
+     * @return (count + 7) / 8 bytes, with any unused high bits of the last byte clear.
+     *
+     * @throws IllegalAddressException if the range from offset to offset+count is non existant.
+     */
+    byte[] getDiscreteInputBytes(int offset, int count) throws IllegalAddressException;
+}
@@ -0,0 +1,604 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.procimg;
+
+import com.ghgande.j2mod.modbus.procimg.ProcessImageProvider.Table;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Process image for data that is read far more often than it is written.
+ * <p>
+ * The values of all four tables are held in immutable versions, and the current
+ * version is published through an atomic reference. Readers never lock: a range
+ * request reads a single version, so it always sees a consistent set of values,
+ * even across tables when read through a {@link Snapshot}.
+ * <p>
+ * Writers collect changes in a {@link Batch} and commit them as one new version.
+ * Each table is split into pages of 256 values and a commit only copies the pages
+ * it changes, sharing the rest with the previous version. Single writes through the
+ * <tt>Register</tt> and <tt>DigitalOut</tt> objects of the image are committed as a
+ * batch of one, whereas <tt>Write Multiple Registers</tt> and <tt>Write Multiple Coils</tt>
+ * requests commit their whole range as one version.
+ * <p>
+ * The size of each table is fixed by the constructor and its objects cannot be
+ * replaced, added or removed - as for a locked image, calls to do so are ignored.
+ * Files and FIFOs behave as in <tt>SimpleProcessImage</tt>.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class CopyOnWriteProcessImage extends SimpleProcessImage implements RegisterRangeAccess, BitRangeAccess {
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final AtomicReference<Version> current;
+
+    /**
+     * Constructs a new <tt>CopyOnWriteProcessImage</tt> with all values set to zero
+     *
+     * @param unit                 Unit ID of this image
+     * @param coilCount            Number of coils
+     * @param discreteInputCount   Number of discrete inputs
+     * @param inputRegisterCount   Number of input registers
+     * @param holdingRegisterCount Number of holding registers
+     */
+    public CopyOnWriteProcessImage(int unit, int coilCount, int discreteInputCount, int inputRegisterCount, int holdingRegisterCount) {
+        super(unit);
+        Pages[] tables = new Pages[Table.values().length];
+        tables[Table.COILS.ordinal()] = new Pages(coilCount);
+        tables[Table.DISCRETE_INPUTS.ordinal()] = new Pages(discreteInputCount);
+        tables[Table.INPUT_REGISTERS.ordinal()] = new Pages(inputRegisterCount);
+        tables[Table.HOLDING_REGISTERS.ordinal()] = new Pages(holdingRegisterCount);
+        current = new AtomicReference<Version>(new Version(0, tables));
+    }
+
+    /**
+     * Returns the current version of the image
+     *
+     * @return Snapshot that will not change however the image is written afterwards
+     */
+    public Snapshot getSnapshot() {
+        return new Snapshot(current.get());
+    }
+
+    /**
+     * Starts a batch of changes to be committed as one version
+     *
+     * @return New empty batch
+     */
+    public Batch beginBatch() {
+        return new Batch();
+    }
+
+    @Override
+    public DigitalOut[] getDigitalOutRange(int ref, int count) {
+        Version version = current.get();
+        version.check(Table.COILS, ref, count);
+        DigitalOut[] douts = new DigitalOut[count];
+        for (int i = 0; i < count; i++) {
+            douts[i] = new CowBit(Table.COILS, ref + i, version);
+        }
+        return douts;
+    }
+
+    @Override
+    public DigitalOut getDigitalOut(int ref) throws IllegalAddressException {
+        current.get().check(Table.COILS, ref, 1);
+        return new CowBit(Table.COILS, ref, null);
+    }
+
+    @Override
+    public int getDigitalOutCount() {
+        return current.get().size(Table.COILS);
+    }
+
+    @Override
+    public DigitalIn[] getDigitalInRange(int ref, int count) {
+        Version version = current.get();
+        version.check(Table.DISCRETE_INPUTS, ref, count);
+        DigitalIn[] dins = new DigitalIn[count];
+        for (int i = 0; i < count; i++) {
+            dins[i] = new CowBit(Table.DISCRETE_INPUTS, ref + i, version);
+        }
+        return dins;
+    }
+
+    @Override
+    public DigitalIn getDigitalIn(int ref) throws IllegalAddressException {
+        current.get().check(Table.DISCRETE_INPUTS, ref, 1);
+        return new CowBit(Table.DISCRETE_INPUTS, ref, null);
+    }
+
+    @Override
+    public int getDigitalInCount() {
+        return current.get().size(Table.DISCRETE_INPUTS);
+    }
+
+    @Override
+    public InputRegister[] getInputRegisterRange(int ref, int count) {
+        Version version = current.get();
+        version.check(Table.INPUT_REGISTERS, ref, count);
+        InputRegister[] regs = new InputRegister[count];
+        for (int i = 0; i < count; i++) {
+            regs[i] = new CowRegister(Table.INPUT_REGISTERS, ref + i, version);
+        }
+        return regs;
+    }
+
+    @Override
+    public InputRegister getInputRegister(int ref) throws IllegalAddressException {
+        current.get().check(Table.INPUT_REGISTERS, ref, 1);
+        return new CowRegister(Table.INPUT_REGISTERS, ref, null);
+    }
+
+    @Override
+    public int getInputRegisterCount() {
+        return current.get().size(Table.INPUT_REGISTERS);
+    }
+
+    @Override
+    public Register[] getRegisterRange(int ref, int count) {
+        Version version = current.get();
+        version.check(Table.HOLDING_REGISTERS, ref, count);
+        Register[] regs = new Register[count];
+        for (int i = 0; i < count; i++) {
+            regs[i] = new CowRegister(Table.HOLDING_REGISTERS, ref + i, version);
+        }
+        return regs;
+    }
+
+    @Override
+    public Register getRegister(int ref) throws IllegalAddressException {
+        current.get().check(Table.HOLDING_REGISTERS, ref, 1);
+        return new CowRegister(Table.HOLDING_REGISTERS, ref, null);
+    }
+
+    @Override
+    public int getRegisterCount() {
+        return current.get().size(Table.HOLDING_REGISTERS);
+    }
+
+    @Override
+    public int[] getRegisterValues(int offset, int count) throws IllegalAddressException {
+        return current.get().getValues(Table.HOLDING_REGISTERS, offset, count);
+    }
+
+    @Override
+    public void setRegisterValues(int offset, int[] values) throws IllegalAddressException {
+        Batch batch = new Batch();
+        for (int i = 0; i < values.length; i++) {
+            batch.set(Table.HOLDING_REGISTERS, offset + i, values[i] & 0xFFFF);
+        }
+        batch.commit();
+    }
+
+    @Override
+    public byte[] getCoilBytes(int offset, int count) throws IllegalAddressException {
+        return current.get().getBits(Table.COILS, offset, count);
+    }
+
+    @Override
+    public void setCoilBytes(int offset, int count, byte[] bits) throws IllegalAddressException {
+        current.get().check(Table.COILS, offset, count);
+        if (bits.length < (count + 7) / 8) {
+            throw new IllegalAddressException();
+        }
+        Batch batch = new Batch();
+        for (int i = 0; i < count; i++) {
+            batch.set(Table.COILS, offset + i, (bits[i >> 3] >> (i & 7)) & 1);
+        }
+        batch.commit();
+    }
+
+    @Override
+    public byte[] getDiscreteInputBytes(int offset, int count) throws IllegalAddressException {
+        return current.get().getBits(Table.DISCRETE_INPUTS, offset, count);
+    }
+
+    @Override
+    protected boolean isLocked(Table table) {
+        return true;
+    }
+
+    /**
+     * Commits a single value
+     *
+     * @param table Table to write
+     * @param index Address of the value
+     * @param value New value
+     */
+    private void commitValue(Table table, int index, int value) {
+        Batch batch = new Batch();
+        batch.set(table, index, value);
+        batch.commit();
+    }
+
+    /**
+     * A set of changes that is applied to the image as a single version
+     * <p>
+     * A batch is not thread-safe and is meant to be filled and committed by one thread.
+     * Setting the same address twice keeps the last value.
+     */
+    public final class Batch {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private final Map<Integer, Integer>[] changes = new Map[Table.values().length];
+        private boolean empty = true;
+
+        private Batch() {
+            for (int i = 0; i < changes.length; i++) {
+                changes[i] = new LinkedHashMap<Integer, Integer>();
+            }
+        }
+
+        /**
+         * Sets a coil
+         *
+         * @param ref   Address of the coil
+         * @param state New state
+         *
+         * @return This batch
+         *
+         * @throws IllegalAddressException if the coil does not exist
+         */
+        public Batch setCoil(int ref, boolean state) throws IllegalAddressException {
+            return set(Table.COILS, ref, state ? 1 : 0);
+        }
+
+        /**
+         * Sets a discrete input
+         *
+         * @param ref   Address of the discrete input
+         * @param state New state
+         *
+         * @return This batch
+         *
+         * @throws IllegalAddressException if the discrete input does not exist
+         */
+        public Batch setDiscreteInput(int ref, boolean state) throws IllegalAddressException {
+            return set(Table.DISCRETE_INPUTS, ref, state ? 1 : 0);
+        }
+
+        /**
+         * Sets an input register
+         *
+         * @param ref   Address of the input register
+         * @param value New value - only the low 16 bits are kept
+         *
+         * @return This batch
+         *
+         * @throws IllegalAddressException if the input register does not exist
+         */
+        public Batch setInputRegister(int ref, int value) throws IllegalAddressException {
+            return set(Table.INPUT_REGISTERS, ref, value & 0xFFFF);
+        }
+
+        /**
+         * Sets a holding register
+         *
+         * @param ref   Address of the holding register
+         * @param value New value - only the low 16 bits are kept
+         *
+         * @return This batch
+         *
+         * @throws IllegalAddressException if the holding register does not exist
+         */
+        public Batch setRegister(int ref, int value) throws IllegalAddressException {
+            return set(Table.HOLDING_REGISTERS, ref, value & 0xFFFF);
+        }
+
+        /**
+         * Publishes the changes as a new version of the image
+         * <p>
+         * Concurrent commits are not blocked; if another batch is committed first the
+         * changes are applied again on top of it.
+         *
+         * @return Version number of the image including the changes
+         */
+        public long commit() {
+            while (true) {
+                Version base = current.get();
+                if (empty) {
+                    return base.number;
+                }
+                Pages[] tables = new Pages[base.tables.length];
+                for (int i = 0; i < tables.length; i++) {
+                    tables[i] = base.tables[i].apply(changes[i]);
+                }
+                Version next = new Version(base.number + 1, tables);
+                if (current.compareAndSet(base, next)) {
+                    return next.number;
+                }
+            }
+        }
+
+        private Batch set(Table table, int ref, int value) throws IllegalAddressException {
+            current.get().check(table, ref, 1);
+            changes[table.ordinal()].put(ref, value);
+            empty = false;
+            return this;
+        }
+    }
+
+    /**
+     * Consistent, unchanging view of every table of the image at one version
+     */
+    public static final class Snapshot {
+        private final Version version;
+
+        private Snapshot(Version version) {
+            this.version = version;
+        }
+
+        /**
+         * Returns the version number, which increases by one for every commit
+         *
+         * @return Version number
+         */
+        public long getVersion() {
+            return version.number;
+        }
+
+        /**
+         * Returns the state of a coil
+         *
+         * @param ref Address of the coil
+         *
+         * @return True if set
+         *
+         * @throws IllegalAddressException if the coil does not exist
+         */
+        public boolean getCoil(int ref) throws IllegalAddressException {
+            return version.getValues(Table.COILS, ref, 1)[0] != 0;
+        }
+
+        /**
+         * Returns the state of a discrete input
+         *
+         * @param ref Address of the discrete input
+         *
+         * @return True if set
+         *
+         * @throws IllegalAddressException if the discrete input does not exist
+         */
+        public boolean getDiscreteInput(int ref) throws IllegalAddressException {
+            return version.getValues(Table.DISCRETE_INPUTS, ref, 1)[0] != 0;
+        }
+
+        /**
+         * Returns the values of a range of input registers
+         *
+         * @param ref   the start offset.
+         * @param count the number of registers.
+         *
+         * @return the values as unsigned shorts.
+         *
+         * @throws IllegalAddressException if the range does not exist
+         */
+        public int[] getInputRegisterValues(int ref, int count) throws IllegalAddressException {
+            return version.getValues(Table.INPUT_REGISTERS, ref, count);
+        }
+
+        /**
+         * Returns the values of a range of holding registers
+         *
+         * @param ref   the start offset.
+         * @param count the number of registers.
+         *
+         * @return the values as unsigned shorts.
+         *
+         * @throws IllegalAddressException if the range does not exist
+         */
+        public int[] getRegisterValues(int ref, int count) throws IllegalAddressException {
+            return version.getValues(Table.HOLDING_REGISTERS, ref, count);
+        }
+    }
+
+    /**
+     * One immutable version of all four tables
+     */
+    private static final class Version {
+        final long number;
+        final Pages[] tables;
+
+        Version(long number, Pages[] tables) {
+            this.number = number;
+            this.tables = tables;
+        }
+
+        int size(Table table) {
+            return tables[table.ordinal()].length;
+        }
+
+        int get(Table table, int index) {
+            return tables[table.ordinal()].get(index);
+        }
+
+        void check(Table table, int ref, int count) throws IllegalAddressException {
+            if (ref < 0 || count < 0 || ref + count > size(table)) {
+                throw new IllegalAddressException();
+            }
+        }
+
+        int[] getValues(Table table, int ref, int count) throws IllegalAddressException {
+            check(table, ref, count);
+            int[] values = new int[count];
+            Pages pages = tables[table.ordinal()];
+            for (int i = 0; i < count; i++) {
+                values[i] = pages.get(ref + i);
+            }
+            return values;
+        }
+
+        byte[] getBits(Table table, int ref, int count) throws IllegalAddressException {
+            check(table, ref, count);
+            byte[] bits = new byte[(count + 7) / 8];
+            Pages pages = tables[table.ordinal()];
+            for (int i = 0; i < count; i++) {
+                if (pages.get(ref + i) != 0) {
+                    bits[i >> 3] |= (byte)(1 << (i & 7));
+                }
+            }
+            return bits;
+        }
+    }
+
+    /**
+     * An immutable table split into pages that versions can share
+     */
+    private static final class Pages {
+        final int length;
+        final int[][] pages;
+
+        Pages(int length) {
+            if (length < 0 || length > 65536) {
+                throw new IllegalArgumentException("Table size must be between 0 and 65536");
+            }
+            this.length = length;
+            pages = new int[(length + PAGE_MASK) >>> PAGE_BITS][];
+            for (int i = 0; i < pages.length; i++) {
+                pages[i] = new int[Math.min(PAGE_SIZE, length - (i << PAGE_BITS))];
+            }
+        }
+
+        private Pages(int length, int[][] pages) {
+            this.length = length;
+            this.pages = pages;
+        }
+
+        int get(int index) {
+            return pages[index >>> PAGE_BITS][index & PAGE_MASK];
+        }
+
+        /**
+         * Returns a copy of this table with the changes applied, copying only the pages they touch
+         *
+         * @param changes Values keyed by address
+         *
+         * @return New table, or this table if there are no changes
+         */
+        Pages apply(Map<Integer, Integer> changes) {
+            if (changes.isEmpty()) {
+                return this;
+            }
+            int[][] copy = pages.clone();
+            boolean[] copied = new boolean[copy.length];
+            for (Map.Entry<Integer, Integer> change : changes.entrySet()) {
+                int index = change.getKey();
+                int page = index >>> PAGE_BITS;
+                if (!copied[page]) {
+                    copy[page] = copy[page].clone();
+                    copied[page] = true;
+                }
+                copy[page][index & PAGE_MASK] = change.getValue();
+            }
+            return new Pages(length, copy);
+        }
+    }
+
+    /**
+     * View of a single register - bound to a version when returned as part of a range
+     */
+    private class CowRegister implements Register {
+        private final Table table;
+        private final int index;
+        private final Version version;
+
+        CowRegister(Table table, int index, Version version) {
+            this.table = table;
+            this.index = index;
+            this.version = version;
+        }
+
+        @Override
+        public int getValue() {
+            return (version == null ? current.get() : version).get(table, index);
+        }
+
+        @Override
+        public int toUnsignedShort() {
+            return getValue();
+        }
+
+        @Override
+        public short toShort() {
+            return (short)getValue();
+        }
+
+        @Override
+        public byte[] toBytes() {
+            int value = getValue();
+            return new byte[]{(byte)(value >> 8), (byte)value};
+        }
+
+        @Override
+        public void setValue(int v) {
+            commitValue(table, index, v & 0xFFFF);
+        }
+
+        @Override
+        public void setValue(short s) {
+            commitValue(table, index, s & 0xFFFF);
+        }
+
+        @Override
+        public void setValue(byte[] bytes) {
+            if (bytes.length < 2) {
+                throw new IllegalArgumentException();
+            }
+            commitValue(table, index, (bytes[0] & 0xff) << 8 | (bytes[1] & 0xff));
+        }
+
+        @Override
+        public String toString() {
+            return Integer.toString(getValue());
+        }
+    }
+
+    /**
+     * View of a single coil or discrete input - bound to a version when returned as part of a range
+     */
+    private class CowBit implements DigitalOut {
+        private final Table table;
+        private final int index;
+        private final Version version;
+
+        CowBit(Table table, int index, Version version) {
+            this.table = table;
+            this.index = index;
+            this.version = version;
+        }
+
+        @Override
+        public boolean isSet() {
+            return (version == null ? current.get() : version).get(table, index) != 0;
+        }
+
+        @Override
+        public void set(boolean b) {
+            commitValue(table, index, b ? 1 : 0);
+        }
+
+        @Override
+        public String toString() {
+            return Boolean.toString(isSet());
+        }
+    }
+}
@@ -47,4 +47,16 @@ public class IllegalAddressException extends RuntimeException {
     public IllegalAddressException(String message) {
         super(message);
     }
+
+    /**
+     * Constructs a new <tt>IllegalAddressException</tt> with the given message,
+     * optionally without a stack trace so that it is cheap to create when an
+     * illegal address is an expected answer rather than a programming error.
+     *
+     * @param message            a message as <tt>String</tt>.
+     * @param writableStackTrace false if the stack trace should not be filled in.
+     */
+    public IllegalAddressException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
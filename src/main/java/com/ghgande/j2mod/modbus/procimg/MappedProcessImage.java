@@ -0,0 +1,416 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.procimg;
+
+import com.ghgande.j2mod.modbus.procimg.ProcessImageProvider.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Process image whose holding registers and coils live in a memory-mapped file,
+ * so that their values survive a restart of the slave.
+ * <p>
+ * Writes from the protocol (FC 5, 6, 15, 16 and 23) and from the application land
+ * directly in the mapped region and opening an existing file simply maps it, so
+ * there is no load or save step. How often the region is forced to the storage
+ * device is controlled by the {@link SyncPolicy}.
+ * <p>
+ * A write of more than one register goes through a small journal in the file: the
+ * new values are recorded and committed before they are applied, and a committed
+ * journal found when the file is opened is replayed. A crash part way through a
+ * range write therefore leaves either all the old or all the new values (with the
+ * <tt>ALWAYS</tt> policy this also holds for a power failure, as each step is forced).
+ * Single registers and single coils are written in place.
+ * <p>
+ * The registers and coils are created by the constructor and cannot be replaced,
+ * added or removed - as for a locked image, calls to do so are ignored. Input
+ * registers and discrete inputs are not persisted and behave as in
+ * <tt>SimpleProcessImage</tt>.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class MappedProcessImage extends SimpleProcessImage implements RegisterRangeAccess, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedProcessImage.class);
+
+    /**
+     * Policy for forcing the mapped region to the storage device
+     */
+    public enum SyncPolicy {
+        /**
+         * Leave it to the operating system, or to explicit calls to {@link #sync()}
+         */
+        NONE,
+
+        /**
+         * Force the region after a write if the sync interval has elapsed since the last time
+         */
+        INTERVAL,
+
+        /**
+         * Force the region after every write
+         */
+        ALWAYS
+    }
+
+    private static final int MAGIC = 0x4A324D50;
+    private static final int VERSION = 1;
+    private static final int MAGIC_POS = 0;
+    private static final int VERSION_POS = 4;
+    private static final int REGISTER_COUNT_POS = 8;
+    private static final int COIL_COUNT_POS = 12;
+    private static final int JOURNAL_STATE_POS = 16;
+    private static final int JOURNAL_OFFSET_POS = 20;
+    private static final int JOURNAL_COUNT_POS = 24;
+    private static final int JOURNAL_DATA_POS = 32;
+    private static final int JOURNAL_EMPTY = 0;
+    private static final int JOURNAL_COMMITTED = 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int registerCount;
+    private final int coilCount;
+    private final int registersPos;
+    private final int coilsPos;
+    private final Object writeLock = new Object();
+    private SyncPolicy syncPolicy;
+    private long syncInterval = 1000;
+    private long lastSync;
+
+    /**
+     * Opens or creates a mapped process image.
+     * <p>
+     * A new file is created with all registers and coils set to zero. An existing
+     * file must have been created with the same number of registers and coils.
+     *
+     * @param unit          Unit ID of this image
+     * @param file          File to map
+     * @param registerCount Number of holding registers
+     * @param coilCount     Number of coils
+     * @param syncPolicy    Policy for forcing writes to the storage device
+     *
+     * @throws IOException if the file cannot be opened or does not match the layout
+     */
+    public MappedProcessImage(int unit, Path file, int registerCount, int coilCount, SyncPolicy syncPolicy) throws IOException {
+        super(unit);
+        if (registerCount < 0 || registerCount > 65536 || coilCount < 0 || coilCount > 65536) {
+            throw new IllegalArgumentException("Register and coil counts must be between 0 and 65536");
+        }
+        this.registerCount = registerCount;
+        this.coilCount = coilCount;
+        this.syncPolicy = syncPolicy == null ? SyncPolicy.NONE : syncPolicy;
+        registersPos = JOURNAL_DATA_POS + registerCount * 2;
+        coilsPos = registersPos + registerCount * 2;
+        int size = coilsPos + coilCount;
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long existing = channel.size();
+            if (existing != 0 && existing != size) {
+                throw new IOException(String.format("File %s has size %d but the image needs %d", file, existing, size));
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (existing == 0) {
+                buffer.putInt(VERSION_POS, VERSION);
+                buffer.putInt(REGISTER_COUNT_POS, registerCount);
+                buffer.putInt(COIL_COUNT_POS, coilCount);
+                buffer.putInt(JOURNAL_STATE_POS, JOURNAL_EMPTY);
+                buffer.force();
+                buffer.putInt(MAGIC_POS, MAGIC);
+                buffer.force();
+                logger.debug("Created process image file {}", file);
+            }
+            else {
+                if (buffer.getInt(MAGIC_POS) != MAGIC || buffer.getInt(VERSION_POS) != VERSION ||
+                    buffer.getInt(REGISTER_COUNT_POS) != registerCount || buffer.getInt(COIL_COUNT_POS) != coilCount) {
+                    throw new IOException(String.format("File %s does not match the layout of the process image", file));
+                }
+                replayJournal();
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        registers.setSize(registerCount);
+        for (int i = 0; i < registerCount; i++) {
+            registers.setElementAt(new MappedRegister(i), i);
+        }
+        digitalOuts.setSize(coilCount);
+        for (int i = 0; i < coilCount; i++) {
+            digitalOuts.setElementAt(new MappedDigitalOut(i), i);
+        }
+        lastSync = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the sync policy
+     *
+     * @return Sync policy
+     */
+    public synchronized SyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
+    /**
+     * Sets the sync policy
+     *
+     * @param syncPolicy Sync policy
+     */
+    public synchronized void setSyncPolicy(SyncPolicy syncPolicy) {
+        this.syncPolicy = syncPolicy == null ? SyncPolicy.NONE : syncPolicy;
+    }
+
+    /**
+     * Returns the minimum time between forced writes for the <tt>INTERVAL</tt> policy
+     *
+     * @return Interval in milliseconds
+     */
+    public synchronized long getSyncInterval() {
+        return syncInterval;
+    }
+
+    /**
+     * Sets the minimum time between forced writes for the <tt>INTERVAL</tt> policy
+     *
+     * @param syncInterval Interval in milliseconds
+     */
+    public synchronized void setSyncInterval(long syncInterval) {
+        this.syncInterval = syncInterval;
+    }
+
+    /**
+     * Forces any changes in the mapped region to the storage device
+     */
+    public void sync() {
+        synchronized (writeLock) {
+            buffer.force();
+            lastSync = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Forces any changes to the storage device and closes the file.
+     * The image must not be used once it has been closed.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        sync();
+        channel.close();
+    }
+
+    @Override
+    public int[] getRegisterValues(int offset, int count) throws IllegalAddressException {
+        checkRange(offset, count, registerCount);
+        int[] values = new int[count];
+        synchronized (writeLock) {
+            for (int i = 0; i < count; i++) {
+                values[i] = buffer.getShort(registersPos + (offset + i) * 2) & 0xFFFF;
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void setRegisterValues(int offset, int[] values) throws IllegalAddressException {
+        checkRange(offset, values.length, registerCount);
+        synchronized (writeLock) {
+            if (values.length == 1) {
+                buffer.putShort(registersPos + offset * 2, (short)values[0]);
+            }
+            else if (values.length > 1) {
+                boolean force = getSyncPolicy() == SyncPolicy.ALWAYS;
+
+                // Record and commit the new values before touching the registers
+
+                for (int i = 0; i < values.length; i++) {
+                    buffer.putShort(JOURNAL_DATA_POS + i * 2, (short)values[i]);
+                }
+                buffer.putInt(JOURNAL_OFFSET_POS, offset);
+                buffer.putInt(JOURNAL_COUNT_POS, values.length);
+                if (force) {
+                    buffer.force();
+                }
+                buffer.putInt(JOURNAL_STATE_POS, JOURNAL_COMMITTED);
+                if (force) {
+                    buffer.force();
+                }
+                for (int i = 0; i < values.length; i++) {
+                    buffer.putShort(registersPos + (offset + i) * 2, (short)values[i]);
+                }
+                if (force) {
+                    buffer.force();
+                }
+                buffer.putInt(JOURNAL_STATE_POS, JOURNAL_EMPTY);
+            }
+            afterWrite();
+        }
+    }
+
+    @Override
+    protected boolean isLocked(Table table) {
+        return table == Table.HOLDING_REGISTERS || table == Table.COILS || super.isLocked(table);
+    }
+
+    /**
+     * Applies a committed journal left behind by a crash during a range write
+     */
+    private void replayJournal() {
+        if (buffer.getInt(JOURNAL_STATE_POS) == JOURNAL_COMMITTED) {
+            int offset = buffer.getInt(JOURNAL_OFFSET_POS);
+            int count = buffer.getInt(JOURNAL_COUNT_POS);
+            if (offset >= 0 && count >= 0 && offset + count <= registerCount) {
+                logger.debug("Replaying journal of {} registers from {}", count, offset);
+                for (int i = 0; i < count; i++) {
+                    buffer.putShort(registersPos + (offset + i) * 2, buffer.getShort(JOURNAL_DATA_POS + i * 2));
+                }
+            }
+            buffer.force();
+        }
+        buffer.putInt(JOURNAL_STATE_POS, JOURNAL_EMPTY);
+        buffer.force();
+    }
+
+    /**
+     * Forces the region to storage if the sync policy requires it - must be called holding the write lock
+     */
+    private void afterWrite() {
+        SyncPolicy policy;
+        long interval;
+        synchronized (this) {
+            policy = syncPolicy;
+            interval = syncInterval;
+        }
+        long now = System.currentTimeMillis();
+        if (policy == SyncPolicy.ALWAYS || (policy == SyncPolicy.INTERVAL && now - lastSync >= interval)) {
+            buffer.force();
+            lastSync = now;
+        }
+    }
+
+    /**
+     * Checks that the range lies within the table
+     *
+     * @param offset the start offset.
+     * @param count  the number of items.
+     * @param size   the size of the table.
+     *
+     * @throws IllegalAddressException if the range is out of bounds
+     */
+    private static void checkRange(int offset, int count, int size) throws IllegalAddressException {
+        if (offset < 0 || count < 0 || offset + count > size) {
+            throw new IllegalAddressException();
+        }
+    }
+
+    /**
+     * View of a single holding register in the mapped region
+     */
+    private class MappedRegister implements Register {
+        private final int position;
+
+        MappedRegister(int index) {
+            position = registersPos + index * 2;
+        }
+
+        @Override
+        public int getValue() {
+            return buffer.getShort(position) & 0xFFFF;
+        }
+
+        @Override
+        public int toUnsignedShort() {
+            return getValue();
+        }
+
+        @Override
+        public short toShort() {
+            return buffer.getShort(position);
+        }
+
+        @Override
+        public byte[] toBytes() {
+            int value = getValue();
+            return new byte[]{(byte)(value >> 8), (byte)value};
+        }
+
+        @Override
+        public void setValue(int v) {
+            synchronized (writeLock) {
+                buffer.putShort(position, (short)v);
+                afterWrite();
+            }
+        }
+
+        @Override
+        public void setValue(short s) {
+            setValue((int)s);
+        }
+
+        @Override
+        public void setValue(byte[] bytes) {
+            if (bytes.length < 2) {
+                throw new IllegalArgumentException();
+            }
+            setValue((bytes[0] & 0xff) << 8 | (bytes[1] & 0xff));
+        }
+
+        @Override
+        public String toString() {
+            return Integer.toString(getValue());
+        }
+    }
+
+    /**
+     * View of a single coil in the mapped region
+     */
+    private class MappedDigitalOut implements DigitalOut {
+        private final int position;
+
+        MappedDigitalOut(int index) {
+            position = coilsPos + index;
+        }
+
+        @Override
+        public boolean isSet() {
+            return buffer.get(position) != 0;
+        }
+
+        @Override
+        public void set(boolean b) {
+            synchronized (writeLock) {
+                buffer.put(position, (byte)(b ? 1 : 0));
+                afterWrite();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return Boolean.toString(isSet());
+        }
+    }
+}
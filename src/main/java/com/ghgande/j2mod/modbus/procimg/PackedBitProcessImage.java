@@ -0,0 +1,177 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.procimg;
+
+import com.ghgande.j2mod.modbus.procimg.ProcessImageProvider.Table;
+
+/**
+ * Process image whose coils and discrete inputs are held as packed bits.
+ * <p>
+ * The coils and discrete inputs are each a fixed block held in a
+ * {@link PackedBitTable}, and the read coils, read input discretes and write
+ * multiple coils requests copy whole ranges between the table and the message
+ * a word at a time. Applications can update the tables in bulk through
+ * {@link #getCoilTable()} and {@link #getDiscreteInputTable()}.
+ * <p>
+ * The <tt>DigitalOut</tt> and <tt>DigitalIn</tt> objects returned by the image are
+ * views of a single bit and cannot be replaced, added or removed - as for a
+ * locked image, calls to do so are ignored. Registers, files and FIFOs behave as
+ * in <tt>SimpleProcessImage</tt>.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class PackedBitProcessImage extends SimpleProcessImage implements BitRangeAccess {
+
+    private final PackedBitTable coils;
+    private final PackedBitTable discreteInputs;
+
+    /**
+     * Constructs a new <tt>PackedBitProcessImage</tt> with all bits clear
+     *
+     * @param unit               Unit ID of this image
+     * @param coilCount          Number of coils
+     * @param discreteInputCount Number of discrete inputs
+     */
+    public PackedBitProcessImage(int unit, int coilCount, int discreteInputCount) {
+        super(unit);
+        coils = new PackedBitTable(coilCount);
+        discreteInputs = new PackedBitTable(discreteInputCount);
+    }
+
+    /**
+     * Returns the table holding the coils
+     *
+     * @return Coil table
+     */
+    public PackedBitTable getCoilTable() {
+        return coils;
+    }
+
+    /**
+     * Returns the table holding the discrete inputs
+     *
+     * @return Discrete input table
+     */
+    public PackedBitTable getDiscreteInputTable() {
+        return discreteInputs;
+    }
+
+    @Override
+    public byte[] getCoilBytes(int offset, int count) throws IllegalAddressException {
+        return coils.getBytes(offset, count);
+    }
+
+    @Override
+    public void setCoilBytes(int offset, int count, byte[] bits) throws IllegalAddressException {
+        coils.setBytes(offset, count, bits);
+    }
+
+    @Override
+    public byte[] getDiscreteInputBytes(int offset, int count) throws IllegalAddressException {
+        return discreteInputs.getBytes(offset, count);
+    }
+
+    @Override
+    public DigitalOut[] getDigitalOutRange(int ref, int count) {
+        checkRange(coils, ref, count);
+        DigitalOut[] douts = new DigitalOut[count];
+        for (int i = 0; i < count; i++) {
+            douts[i] = new PackedBit(coils, ref + i);
+        }
+        return douts;
+    }
+
+    @Override
+    public DigitalOut getDigitalOut(int ref) throws IllegalAddressException {
+        checkRange(coils, ref, 1);
+        return new PackedBit(coils, ref);
+    }
+
+    @Override
+    public int getDigitalOutCount() {
+        return coils.size();
+    }
+
+    @Override
+    public DigitalIn[] getDigitalInRange(int ref, int count) {
+        checkRange(discreteInputs, ref, count);
+        DigitalIn[] dins = new DigitalIn[count];
+        for (int i = 0; i < count; i++) {
+            dins[i] = new PackedBit(discreteInputs, ref + i);
+        }
+        return dins;
+    }
+
+    @Override
+    public DigitalIn getDigitalIn(int ref) throws IllegalAddressException {
+        checkRange(discreteInputs, ref, 1);
+        return new PackedBit(discreteInputs, ref);
+    }
+
+    @Override
+    public int getDigitalInCount() {
+        return discreteInputs.size();
+    }
+
+    @Override
+    protected boolean isLocked(Table table) {
+        return table == Table.COILS || table == Table.DISCRETE_INPUTS || super.isLocked(table);
+    }
+
+    /**
+     * Checks that the range lies within a table
+     *
+     * @param table Table to check
+     * @param ref   the start offset.
+     * @param count the number of bits.
+     *
+     * @throws IllegalAddressException if the range is out of bounds
+     */
+    private static void checkRange(PackedBitTable table, int ref, int count) throws IllegalAddressException {
+        if (ref < 0 || count < 0 || ref + count > table.size()) {
+            throw new IllegalAddressException();
+        }
+    }
+
+    /**
+     * View of a single bit in a table
+     */
+    private static class PackedBit implements DigitalOut {
+        private final PackedBitTable table;
+        private final int index;
+
+        PackedBit(PackedBitTable table, int index) {
+            this.table = table;
+            this.index = index;
+        }
+
+        @Override
+        public boolean isSet() {
+            return table.get(index);
+        }
+
+        @Override
+        public void set(boolean b) {
+            table.set(index, b);
+        }
+
+        @Override
+        public String toString() {
+            return Boolean.toString(isSet());
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.procimg;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Fixed size table of bits packed 64 to a <tt>long</tt>.
+ * <p>
+ * Ranges are copied to and from the packed byte form used on the wire 64 bits
+ * at a time with shifts and masks, so reading or writing 2000 bits takes a few
+ * dozen word operations. Readers take an optimistic snapshot and only lock if
+ * a writer got in the way; writers are serialized.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public final class PackedBitTable {
+
+    private final long[] words;
+    private final int size;
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Constructs a table with all bits clear
+     *
+     * @param size Number of bits
+     */
+    public PackedBitTable(int size) {
+        if (size < 0 || size > 65536) {
+            throw new IllegalArgumentException("Table size must be between 0 and 65536");
+        }
+        this.size = size;
+        words = new long[(size + 63) >>> 6];
+    }
+
+    /**
+     * Returns the number of bits in the table
+     *
+     * @return Size of the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the state of a single bit
+     *
+     * @param index Index of the bit
+     *
+     * @return True if set
+     *
+     * @throws IllegalAddressException if the index is out of range
+     */
+    public boolean get(int index) throws IllegalAddressException {
+        checkRange(index, 1);
+        long stamp = lock.tryOptimisticRead();
+        long word = words[index >>> 6];
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                word = words[index >>> 6];
+            }
+            finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return (word & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets the state of a single bit
+     *
+     * @param index Index of the bit
+     * @param state New state
+     *
+     * @throws IllegalAddressException if the index is out of range
+     */
+    public void set(int index, boolean state) throws IllegalAddressException {
+        checkRange(index, 1);
+        long stamp = lock.writeLock();
+        try {
+            if (state) {
+                words[index >>> 6] |= 1L << index;
+            }
+            else {
+                words[index >>> 6] &= ~(1L << index);
+            }
+        }
+        finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns a range of bits packed into bytes, first bit in the least significant bit of the first byte
+     *
+     * @param offset Index of the first bit
+     * @param count  Number of bits
+     *
+     * @return (count + 7) / 8 bytes, with any unused high bits of the last byte clear
+     *
+     * @throws IllegalAddressException if the range is out of bounds
+     */
+    public byte[] getBytes(int offset, int count) throws IllegalAddressException {
+        checkRange(offset, count);
+        byte[] dest = new byte[(count + 7) >>> 3];
+        long stamp = lock.tryOptimisticRead();
+        copyOut(offset, count, dest);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                copyOut(offset, count, dest);
+            }
+            finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return dest;
+    }
+
+    /**
+     * Sets a range of bits from packed bytes, first bit in the least significant bit of the first byte
+     *
+     * @param offset Index of the first bit
+     * @param count  Number of bits
+     * @param bits   Packed bits, at least (count + 7) / 8 bytes
+     *
+     * @throws IllegalAddressException if the range is out of bounds
+     */
+    public void setBytes(int offset, int count, byte[] bits) throws IllegalAddressException {
+        checkRange(offset, count);
+        if (bits.length < (count + 7) >>> 3) {
+            throw new IllegalArgumentException("Not enough bytes for " + count + " bits");
+        }
+        long stamp = lock.writeLock();
+        try {
+            for (int done = 0; done < count; done += 64) {
+                int n = Math.min(64, count - done);
+                deposit(offset + done, n, readLong(bits, done >>> 3, (n + 7) >>> 3));
+            }
+        }
+        finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Copies a range into packed bytes
+     *
+     * @param offset Index of the first bit
+     * @param count  Number of bits
+     * @param dest   Destination bytes
+     */
+    private void copyOut(int offset, int count, byte[] dest) {
+        for (int done = 0; done < count; done += 64) {
+            int n = Math.min(64, count - done);
+            long value = extract(offset + done);
+            if (n < 64) {
+                value &= (1L << n) - 1;
+            }
+            writeLong(dest, done >>> 3, (n + 7) >>> 3, value);
+        }
+    }
+
+    /**
+     * Returns the 64 bits starting at a position - bits past the end of the table are undefined
+     *
+     * @param position Index of the first bit
+     *
+     * @return Bits with the first in the least significant position
+     */
+    private long extract(int position) {
+        int word = position >>> 6;
+        int shift = position & 63;
+        long value = words[word] >>> shift;
+        if (shift != 0 && word + 1 < words.length) {
+            value |= words[word + 1] << (64 - shift);
+        }
+        return value;
+    }
+
+    /**
+     * Replaces up to 64 bits starting at a position
+     *
+     * @param position Index of the first bit
+     * @param count    Number of bits, 1 to 64
+     * @param value    Bits with the first in the least significant position
+     */
+    private void deposit(int position, int count, long value) {
+        long mask = count == 64 ? -1L : (1L << count) - 1;
+        value &= mask;
+        int word = position >>> 6;
+        int shift = position & 63;
+        words[word] = (words[word] & ~(mask << shift)) | (value << shift);
+        if (shift != 0 && shift + count > 64) {
+            words[word + 1] = (words[word + 1] & ~(mask >>> (64 - shift))) | (value >>> (64 - shift));
+        }
+    }
+
+    private static long readLong(byte[] bytes, int offset, int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value |= (bytes[offset + i] & 0xFFL) << (i << 3);
+        }
+        return value;
+    }
+
+    private static void writeLong(byte[] bytes, int offset, int length, long value) {
+        for (int i = 0; i < length; i++) {
+            bytes[offset + i] = (byte)(value >>> (i << 3));
+        }
+    }
+
+    private void checkRange(int offset, int count) throws IllegalAddressException {
+        if (offset < 0 || count < 0 || offset + count > size) {
+            throw new IllegalAddressException();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.procimg;
+
+/**
+ * Class implementing a <tt>ProcessImageBusyException</tt>. This exception is
+ * thrown when a process image cannot take a consistent copy of the values
+ * asked for because they are being updated too often.
+ * <p>
+ * A slave answers the request with a <tt>SLAVE_BUSY_EXCEPTION</tt> so that the
+ * master can try again later.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class ProcessImageBusyException extends IllegalStateException {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new <tt>ProcessImageBusyException</tt> with the given message.
+     *
+     * @param message a message as <tt>String</tt>.
+     */
+    public ProcessImageBusyException(String message) {
+        super(message);
+    }
+}
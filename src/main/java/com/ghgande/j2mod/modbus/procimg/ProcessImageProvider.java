@@ -0,0 +1,61 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.procimg;
+
+/**
+ * Interface for a source of process image values that are computed when a
+ * request asks for them, rather than held in <tt>Register</tt> and
+ * <tt>DigitalIn</tt> objects ahead of time.
+ * <p>
+ * A provider is plugged into a {@link ProviderProcessImage}. It is called from
+ * the listener threads, possibly concurrently, so implementations must be thread-safe.
+ * Register values are unsigned shorts (0 to 65535) and bit values are 0 or 1.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public interface ProcessImageProvider {
+
+    /**
+     * The tables of a process image
+     */
+    enum Table {
+        COILS, DISCRETE_INPUTS, INPUT_REGISTERS, HOLDING_REGISTERS
+    }
+
+    /**
+     * Reads a range of values
+     *
+     * @param table the table to read from.
+     * @param ref   the start offset.
+     * @param count the number of values to read.
+     * @param dest  the array to fill, starting at index 0.
+     *
+     * @throws IllegalAddressException if any address in the range does not exist.
+     */
+    void read(Table table, int ref, int count, int[] dest) throws IllegalAddressException;
+
+    /**
+     * Writes a range of values - only called for coils and holding registers
+     *
+     * @param table  the table to write to.
+     * @param ref    the start offset.
+     * @param values the values to write.
+     *
+     * @throws IllegalAddressException if any address in the range does not exist or is read-only.
+     */
+    void write(Table table, int ref, int[] values) throws IllegalAddressException;
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.procimg;
+
+import com.ghgande.j2mod.modbus.procimg.ProcessImageProvider.Table;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process image whose coils, discrete inputs, input registers and holding
+ * registers are supplied on demand by a {@link ProcessImageProvider}.
+ * <p>
+ * Each request results in a single call to the provider for the whole range it
+ * addresses, so values are only computed when a client actually asks for them.
+ * Coils and discrete inputs are read and written through <tt>BitRangeAccess</tt>,
+ * so a <tt>Write Multiple Coils</tt> request is a single write to the provider.
+ * Optionally, the values read for a range can be memoized for a time-to-live so
+ * that clients polling the same range do not hit the provider every time; any
+ * write to a table discards the memoized ranges of that table that overlap it.
+ * <p>
+ * The objects returned by the range methods are snapshots of the values at the
+ * time of the call. Setting a coil or holding register obtained from this image
+ * writes straight through to the provider. Objects cannot be added to, set in or
+ * removed from the four provided tables - as for a locked image, calls to do so
+ * are ignored; files and FIFOs behave as in <tt>SimpleProcessImage</tt>.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class ProviderProcessImage extends SimpleProcessImage implements RegisterRangeAccess, BitRangeAccess {
+
+    /**
+     * Number of memoization misses between sweeps for expired entries
+     */
+    private static final int PURGE_INTERVAL = 256;
+    private static final int ADDRESS_SPACE = 65536;
+
+    private final ProcessImageProvider provider;
+    private final Map<Key, Entry> memo = new ConcurrentHashMap<Key, Entry>();
+    private final AtomicLong writeGeneration = new AtomicLong();
+    private volatile long ttlNanos;
+    private int missCount;
+
+    /**
+     * Constructs a process image that reads every request from the provider
+     *
+     * @param unit     Unit ID of this image
+     * @param provider Provider of the values
+     */
+    public ProviderProcessImage(int unit, ProcessImageProvider provider) {
+        this(unit, provider, 0);
+    }
+
+    /**
+     * Constructs a process image that memoizes the values read for each range
+     *
+     * @param unit     Unit ID of this image
+     * @param provider Provider of the values
+     * @param ttl      Time-to-live of the values read for a range in milliseconds - 0 disables memoization
+     */
+    public ProviderProcessImage(int unit, ProcessImageProvider provider, long ttl) {
+        super(unit);
+        if (provider == null) {
+            throw new IllegalArgumentException("Provider cannot be null");
+        }
+        this.provider = provider;
+        setTtl(ttl);
+    }
+
+    /**
+     * Returns the time-to-live of the values read for a range
+     *
+     * @return Time-to-live in milliseconds
+     */
+    public long getTtl() {
+        return TimeUnit.NANOSECONDS.toMillis(ttlNanos);
+    }
+
+    /**
+     * Sets the time-to-live of the values read for a range
+     *
+     * @param ttl Time-to-live in milliseconds - 0 disables memoization
+     */
+    public void setTtl(long ttl) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("Time-to-live cannot be negative");
+        }
+        ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+        if (ttl == 0) {
+            memo.clear();
+        }
+    }
+
+    /**
+     * Discards all memoized values, for example when the provider knows its data has changed
+     */
+    public void invalidate() {
+        writeGeneration.incrementAndGet();
+        memo.clear();
+    }
+
+    @Override
+    public DigitalOut[] getDigitalOutRange(int ref, int count) {
+        int[] values = read(Table.COILS, ref, count);
+        DigitalOut[] douts = new DigitalOut[count];
+        for (int i = 0; i < count; i++) {
+            douts[i] = new ProvidedDigitalOut(ref + i, values[i] != 0);
+        }
+        return douts;
+    }
+
+    @Override
+    public DigitalOut getDigitalOut(int ref) throws IllegalAddressException {
+        return new ProvidedDigitalOut(ref, read(Table.COILS, ref, 1)[0] != 0);
+    }
+
+    @Override
+    public int getDigitalOutCount() {
+        return ADDRESS_SPACE;
+    }
+
+    @Override
+    public DigitalIn[] getDigitalInRange(int ref, int count) {
+        int[] values = read(Table.DISCRETE_INPUTS, ref, count);
+        DigitalIn[] dins = new DigitalIn[count];
+        for (int i = 0; i < count; i++) {
+            dins[i] = new SimpleDigitalIn(values[i] != 0);
+        }
+        return dins;
+    }
+
+    @Override
+    public DigitalIn getDigitalIn(int ref) throws IllegalAddressException {
+        return new SimpleDigitalIn(read(Table.DISCRETE_INPUTS, ref, 1)[0] != 0);
+    }
+
+    @Override
+    public int getDigitalInCount() {
+        return ADDRESS_SPACE;
+    }
+
+    @Override
+    public InputRegister[] getInputRegisterRange(int ref, int count) {
+        int[] values = read(Table.INPUT_REGISTERS, ref, count);
+        InputRegister[] iregs = new InputRegister[count];
+        for (int i = 0; i < count; i++) {
+            iregs[i] = new SimpleInputRegister(values[i]);
+        }
+        return iregs;
+    }
+
+    @Override
+    public InputRegister getInputRegister(int ref) throws IllegalAddressException {
+        return new SimpleInputRegister(read(Table.INPUT_REGISTERS, ref, 1)[0]);
+    }
+
+    @Override
+    public int getInputRegisterCount() {
+        return ADDRESS_SPACE;
+    }
+
+    @Override
+    public Register[] getRegisterRange(int ref, int count) {
+        int[] values = read(Table.HOLDING_REGISTERS, ref, count);
+        Register[] regs = new Register[count];
+        for (int i = 0; i < count; i++) {
+            regs[i] = new ProvidedRegister(ref + i, values[i]);
+        }
+        return regs;
+    }
+
+    @Override
+    public Register getRegister(int ref) throws IllegalAddressException {
+        return new ProvidedRegister(ref, read(Table.HOLDING_REGISTERS, ref, 1)[0]);
+    }
+
+    @Override
+    public int getRegisterCount() {
+        return ADDRESS_SPACE;
+    }
+
+    @Override
+    public int[] getRegisterValues(int offset, int count) throws IllegalAddressException {
+        return read(Table.HOLDING_REGISTERS, offset, count).clone();
+    }
+
+    @Override
+    public void setRegisterValues(int offset, int[] values) throws IllegalAddressException {
+        write(Table.HOLDING_REGISTERS, offset, values);
+    }
+
+    @Override
+    public byte[] getCoilBytes(int offset, int count) throws IllegalAddressException {
+        return pack(read(Table.COILS, offset, count), count);
+    }
+
+    @Override
+    public void setCoilBytes(int offset, int count, byte[] bits) throws IllegalAddressException {
+        if (count < 0 || bits.length < (count + 7) / 8) {
+            throw new IllegalAddressException();
+        }
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = (bits[i >> 3] >> (i & 7)) & 1;
+        }
+        write(Table.COILS, offset, values);
+    }
+
+    @Override
+    public byte[] getDiscreteInputBytes(int offset, int count) throws IllegalAddressException {
+        return pack(read(Table.DISCRETE_INPUTS, offset, count), count);
+    }
+
+    @Override
+    protected boolean isLocked(Table table) {
+        return true;
+    }
+
+    /**
+     * Reads a range from the memo or the provider. The returned array may be shared and must not be modified.
+     *
+     * @param table the table to read from.
+     * @param ref   the start offset.
+     * @param count the number of values.
+     *
+     * @return the values
+     *
+     * @throws IllegalAddressException if the range is invalid
+     */
+    private int[] read(Table table, int ref, int count) throws IllegalAddressException {
+        if (ref < 0 || count < 0 || ref + count > ADDRESS_SPACE) {
+            throw new IllegalAddressException();
+        }
+        long ttl = ttlNanos;
+        if (ttl == 0) {
+            int[] values = new int[count];
+            provider.read(table, ref, count, values);
+            return values;
+        }
+
+        Key key = new Key(table, ref, count);
+        long now = System.nanoTime();
+        Entry entry = memo.get(key);
+        if (entry != null && entry.expires - now > 0) {
+            return entry.values;
+        }
+        long generation = writeGeneration.get();
+        int[] values = new int[count];
+        provider.read(table, ref, count, values);
+
+        // Only keep the values if no write could have overtaken the read
+
+        if (writeGeneration.get() == generation) {
+            Entry fresh = new Entry(values, now + ttl);
+            memo.put(key, fresh);
+
+            // A write that started after the check above may have swept the memo
+            // before the put, so check again and withdraw the values if so
+
+            if (writeGeneration.get() != generation) {
+                memo.remove(key, fresh);
+            }
+        }
+        purgeIfRequired();
+        return values;
+    }
+
+    /**
+     * Writes a range to the provider and discards any memoized values it overlaps
+     *
+     * @param table  the table to write to.
+     * @param ref    the start offset.
+     * @param values the values to write.
+     *
+     * @throws IllegalAddressException if the range is invalid
+     */
+    private void write(Table table, int ref, int[] values) throws IllegalAddressException {
+        if (ref < 0 || ref + values.length > ADDRESS_SPACE) {
+            throw new IllegalAddressException();
+        }
+        try {
+            provider.write(table, ref, values);
+        }
+        finally {
+            writeGeneration.incrementAndGet();
+            for (Iterator<Key> keys = memo.keySet().iterator(); keys.hasNext(); ) {
+                Key key = keys.next();
+                if (key.table == table && key.ref < ref + values.length && ref < key.ref + key.count) {
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Packs bit values into bytes, least significant bit first
+     *
+     * @param values the bit values.
+     * @param count  the number of values.
+     *
+     * @return the packed bytes
+     */
+    private static byte[] pack(int[] values, int count) {
+        byte[] bits = new byte[(count + 7) / 8];
+        for (int i = 0; i < count; i++) {
+            if (values[i] != 0) {
+                bits[i >> 3] |= (byte)(1 << (i & 7));
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Sweeps the memo for expired entries every so often so that ranges which
+     * are never read again do not accumulate
+     */
+    private void purgeIfRequired() {
+        boolean purge;
+        synchronized (memo) {
+            purge = ++missCount >= PURGE_INTERVAL;
+            if (purge) {
+                missCount = 0;
+            }
+        }
+        if (purge) {
+            long now = System.nanoTime();
+            for (Iterator<Entry> entries = memo.values().iterator(); entries.hasNext(); ) {
+                if (entries.next().expires - now <= 0) {
+                    entries.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Identifies a memoized range
+     */
+    private static class Key {
+        final Table table;
+        final int ref;
+        final int count;
+
+        Key(Table table, int ref, int count) {
+            this.table = table;
+            this.ref = ref;
+            this.count = count;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)obj;
+            return table == other.table && ref == other.ref && count == other.count;
+        }
+
+        @Override
+        public int hashCode() {
+            return (table.ordinal() * 31 + ref) * 31 + count;
+        }
+    }
+
+    /**
+     * Memoized values of a range
+     */
+    private static class Entry {
+        final int[] values;
+        final long expires;
+
+        Entry(int[] values, long expires) {
+            this.values = values;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * Snapshot of a holding register that writes through to the provider
+     */
+    private class ProvidedRegister extends SimpleRegister {
+        private final int ref;
+
+        ProvidedRegister(int ref, int value) {
+            super((byte)(value >> 8), (byte)value);
+            this.ref = ref;
+        }
+
+        @Override
+        public synchronized void setValue(int v) {
+            write(Table.HOLDING_REGISTERS, ref, new int[]{v & 0xFFFF});
+            super.setValue(v);
+        }
+
+        @Override
+        public synchronized void setValue(short s) {
+            setValue((int)s);
+        }
+
+        @Override
+        public synchronized void setValue(byte[] bytes) {
+            if (bytes.length < 2) {
+                throw new IllegalArgumentException();
+            }
+            setValue((bytes[0] & 0xff) << 8 | (bytes[1] & 0xff));
+        }
+    }
+
+    /**
+     * Snapshot of a coil that writes through to the provider
+     */
+    private class ProvidedDigitalOut implements DigitalOut {
+        private final int ref;
+        private volatile boolean set;
+
+        ProvidedDigitalOut(int ref, boolean set) {
+            this.ref = ref;
+            this.set = set;
+        }
+
+        @Override
+        public boolean isSet() {
+            return set;
+        }
+
+        @Override
+        public void set(boolean b) {
+            write(Table.COILS, ref, new int[]{b ? 1 : 0});
+            set = b;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.procimg;
+
+/**
+ * Interface implemented by process images that can read and write a range of
+ * holding registers as a single operation.
+ * <p>
+ * When the process image of a listener implements this interface, the read and
+ * write multiple registers requests use it in preference to
+ * {@link ProcessImage#getRegisterRange(int, int)}, so a value spread across several
+ * registers is never seen half-written.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public interface RegisterRangeAccess {
+
+    /**
+     * Returns the values of a range of holding registers as they were at a single point in time
+     *
+     * @param offset the start offset.
+     * @param count  the number of registers to read.
+     *
+     * @return the values as unsigned shorts.
+     *
+     * @throws IllegalAddressException if the range from offset to offset+count is non existant.
+     */
+    int[] getRegisterValues(int offset, int count) throws IllegalAddressException;
+
+    /**
+     * Sets the values of a range of holding registers so that readers see either
+     * all the old values or all the new ones
+     *
+     * @param offset the start offset.
+     * @param values the values to write.
+     *
+     * @throws IllegalAddressException if the range from offset to offset+values.length is non existant.
+     */
+    void setRegisterValues(int offset, int[] values) throws IllegalAddressException;
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.procimg;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * FIFO for high rate event queues, held as a ring buffer of primitive values.
+ * <p>
+ * One application thread pushes values, singly or in bulk, and any number of
+ * listener threads drain them without locking. A <tt>Read FIFO Queue</tt> request
+ * for the address of this FIFO removes up to 31 values in one atomic step and
+ * copies them straight into the response, so the count it returns always
+ * matches the values that follow it.
+ * <p>
+ * When the buffer is full, the {@link OverflowPolicy} decides whether the
+ * oldest values are discarded, the new values are discarded, or the producer
+ * waits for a consumer.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class RingBufferFIFO extends FIFO {
+
+    /**
+     * Maximum number of values returned by a single <tt>Read FIFO Queue</tt> request
+     */
+    public static final int MAX_READ_COUNT = 31;
+
+    /**
+     * What a push does when the buffer is full
+     */
+    public enum OverflowPolicy {
+        /**
+         * Discard the oldest values to make room
+         */
+        DROP_OLDEST,
+        /**
+         * Discard the values being pushed
+         */
+        DROP_NEWEST,
+        /**
+         * Wait until consumers have made room
+         */
+        BLOCK
+    }
+
+    private final AtomicIntegerArray buffer;
+    private final int mask;
+    private final OverflowPolicy policy;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile long tail;
+
+    /**
+     * Constructs a FIFO that holds the 31 most recent values
+     *
+     * @param address Address of the FIFO
+     */
+    public RingBufferFIFO(int address) {
+        this(address, 32, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * Constructs a FIFO
+     *
+     * @param address  Address of the FIFO
+     * @param capacity Number of values the buffer holds - rounded up to a power of two
+     * @param policy   What to do when the buffer is full
+     */
+    public RingBufferFIFO(int address, int capacity, OverflowPolicy policy) {
+        super(address);
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Overflow policy must be set");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        buffer = new AtomicIntegerArray(size);
+        mask = size - 1;
+        this.policy = policy;
+    }
+
+    /**
+     * Returns the number of values the buffer holds
+     *
+     * @return Capacity
+     */
+    public int getCapacity() {
+        return buffer.length();
+    }
+
+    /**
+     * Returns the number of values discarded because the buffer was full
+     *
+     * @return Dropped value count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Adds a value - must only be called by the producer thread
+     *
+     * @param value Value to add, only the low 16 bits are kept
+     *
+     * @return True if the value was added, false if it was dropped
+     */
+    public boolean push(int value) {
+        int capacity = buffer.length();
+        long t = tail;
+        while (true) {
+            long h = head.get();
+            if (t - h < capacity) {
+                break;
+            }
+            if (policy == OverflowPolicy.DROP_NEWEST) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+            else if (policy == OverflowPolicy.DROP_OLDEST) {
+                if (head.compareAndSet(h, h + 1)) {
+                    droppedCount.incrementAndGet();
+                }
+            }
+            else {
+                LockSupport.parkNanos(1000);
+            }
+        }
+        buffer.lazySet((int)t & mask, value & 0xFFFF);
+        tail = t + 1;
+        return true;
+    }
+
+    /**
+     * Adds a block of values, publishing them to consumers together where there is room -
+     * must only be called by the producer thread
+     *
+     * @param values Array holding the values, only the low 16 bits are kept
+     * @param offset Index of the first value
+     * @param length Number of values
+     *
+     * @return Number of values added - less than length only if the policy is
+     * {@link OverflowPolicy#DROP_NEWEST}
+     */
+    public int push(int[] values, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > values.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        int capacity = buffer.length();
+        long t = tail;
+        int pushed = 0;
+        while (pushed < length) {
+            long h = head.get();
+            int free = (int)(capacity - (t - h));
+            if (free <= 0) {
+                if (policy == OverflowPolicy.DROP_NEWEST) {
+                    droppedCount.addAndGet(length - pushed);
+                    break;
+                }
+                else if (policy == OverflowPolicy.DROP_OLDEST) {
+                    int drop = Math.min(length - pushed, capacity);
+                    if (head.compareAndSet(h, h + drop)) {
+                        droppedCount.addAndGet(drop);
+                    }
+                }
+                else {
+                    LockSupport.parkNanos(1000);
+                }
+                continue;
+            }
+            int n = Math.min(free, length - pushed);
+            for (int i = 0; i < n; i++) {
+                buffer.lazySet((int)(t + i) & mask, values[offset + pushed + i] & 0xFFFF);
+            }
+            t += n;
+            pushed += n;
+            tail = t;
+        }
+        return pushed;
+    }
+
+    /**
+     * Removes up to max values in one atomic step - may be called by any thread
+     *
+     * @param dest Array to copy the values into, starting at index 0
+     * @param max  Maximum number of values to remove
+     *
+     * @return Number of values removed
+     */
+    public int drain(int[] dest, int max) {
+        max = Math.min(max, dest.length);
+        while (true) {
+            long h = head.get();
+            int n = (int)Math.min(tail - h, max);
+            if (n <= 0) {
+                return 0;
+            }
+            for (int i = 0; i < n; i++) {
+                dest[i] = buffer.get((int)(h + i) & mask);
+            }
+
+            // The producer only overwrites values after moving the head past them,
+            // so the copy is valid if the head has not moved
+
+            if (head.compareAndSet(h, h + n)) {
+                return n;
+            }
+        }
+    }
+
+    /**
+     * Returns the values currently queued without removing them
+     *
+     * @param max Maximum number of values to return
+     *
+     * @return Values, oldest first
+     */
+    public int[] peek(int max) {
+        while (true) {
+            long h = head.get();
+            int n = (int)Math.max(0, Math.min(tail - h, max));
+            int[] values = new int[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = buffer.get((int)(h + i) & mask);
+            }
+            if (head.get() == h) {
+                return values;
+            }
+        }
+    }
+
+    @Override
+    public int getRegisterCount() {
+        return (int)Math.min(tail - head.get(), MAX_READ_COUNT);
+    }
+
+    @Override
+    public Register[] getRegisters() {
+        int[] values = peek(MAX_READ_COUNT);
+        Register[] result = new Register[values.length + 1];
+        result[0] = new SimpleRegister(values.length);
+        for (int i = 0; i < values.length; i++) {
+            result[i + 1] = new SimpleRegister(values[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public void pushRegister(Register register) {
+        push(register.getValue());
+    }
+
+    @Override
+    public void resetRegisters() {
+        while (true) {
+            long h = head.get();
+            long t = tail;
+            if (t - h <= 0 || head.compareAndSet(h, t)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.procimg;
+
+import com.ghgande.j2mod.modbus.procimg.ProcessImageProvider.Table;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Process image whose holding registers can be read and written in ranges
+ * without a reader ever seeing a range half-written.
+ * <p>
+ * The holding registers are a fixed block held in a single array and guarded by
+ * a sequence lock. Writers (range or single register) are serialized and bump the
+ * sequence number before and after they write; readers take a snapshot without
+ * locking and simply retry if the sequence number changed while they were copying.
+ * A reader that keeps losing to writers eventually takes the write lock so that
+ * it cannot be starved.
+ * <p>
+ * The registers are created by the constructor and cannot be replaced, added or
+ * removed - as for a locked image, calls to do so are ignored. All other tables
+ * behave as in <tt>SimpleProcessImage</tt>.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class SeqlockProcessImage extends SimpleProcessImage implements RegisterRangeAccess {
+
+    /**
+     * Number of optimistic read attempts before a reader falls back to locking
+     */
+    private static final int MAX_OPTIMISTIC_READS = 64;
+
+    private final AtomicIntegerArray values;
+    private final Object writeLock = new Object();
+    private volatile int sequence;
+
+    /**
+     * Constructs a new <tt>SeqlockProcessImage</tt> with a block of holding registers
+     * all set to zero
+     *
+     * @param unit          Unit ID of this image
+     * @param registerCount Number of holding registers
+     */
+    public SeqlockProcessImage(int unit, int registerCount) {
+        super(unit);
+        if (registerCount < 0 || registerCount > 65536) {
+            throw new IllegalArgumentException("Register count must be between 0 and 65536");
+        }
+        values = new AtomicIntegerArray(registerCount);
+        registers.setSize(registerCount);
+        for (int i = 0; i < registerCount; i++) {
+            registers.setElementAt(new SeqlockRegister(i), i);
+        }
+    }
+
+    @Override
+    public int[] getRegisterValues(int offset, int count) throws IllegalAddressException {
+        checkRange(offset, count);
+        int[] snapshot = new int[count];
+        for (int attempt = 0; attempt < MAX_OPTIMISTIC_READS; attempt++) {
+            int before = sequence;
+            if ((before & 1) == 0) {
+                for (int i = 0; i < count; i++) {
+                    snapshot[i] = values.get(offset + i);
+                }
+                if (sequence == before) {
+                    return snapshot;
+                }
+            }
+            Thread.yield();
+        }
+        synchronized (writeLock) {
+            for (int i = 0; i < count; i++) {
+                snapshot[i] = values.get(offset + i);
+            }
+        }
+        return snapshot;
+    }
+
+    @Override
+    public void setRegisterValues(int offset, int[] newValues) throws IllegalAddressException {
+        checkRange(offset, newValues.length);
+        synchronized (writeLock) {
+            sequence++;
+            for (int i = 0; i < newValues.length; i++) {
+                values.set(offset + i, newValues[i] & 0xFFFF);
+            }
+            sequence++;
+        }
+    }
+
+    @Override
+    protected boolean isLocked(Table table) {
+        return table == Table.HOLDING_REGISTERS || super.isLocked(table);
+    }
+
+    /**
+     * Checks that the range lies within the block of registers
+     *
+     * @param offset the start offset.
+     * @param count  the number of registers.
+     *
+     * @throws IllegalAddressException if the range is out of bounds
+     */
+    private void checkRange(int offset, int count) throws IllegalAddressException {
+        if (offset < 0 || count < 0 || offset + count > values.length()) {
+            throw new IllegalAddressException();
+        }
+    }
+
+    /**
+     * Writes a single register under the sequence lock
+     *
+     * @param index Register index
+     * @param value New value
+     */
+    private void setValue(int index, int value) {
+        synchronized (writeLock) {
+            sequence++;
+            values.set(index, value & 0xFFFF);
+            sequence++;
+        }
+    }
+
+    /**
+     * View of a single register in the block
+     */
+    private class SeqlockRegister implements Register {
+        private final int index;
+
+        SeqlockRegister(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public int getValue() {
+            return values.get(index);
+        }
+
+        @Override
+        public int toUnsignedShort() {
+            return getValue();
+        }
+
+        @Override
+        public short toShort() {
+            return (short)getValue();
+        }
+
+        @Override
+        public byte[] toBytes() {
+            int value = getValue();
+            return new byte[]{(byte)(value >> 8), (byte)value};
+        }
+
+        @Override
+        public void setValue(int v) {
+            SeqlockProcessImage.this.setValue(index, v);
+        }
+
+        @Override
+        public void setValue(short s) {
+            SeqlockProcessImage.this.setValue(index, s);
+        }
+
+        @Override
+        public void setValue(byte[] bytes) {
+            if (bytes.length < 2) {
+                throw new IllegalArgumentException();
+            }
+            SeqlockProcessImage.this.setValue(index, (bytes[0] & 0xff) << 8 | (bytes[1] & 0xff));
+        }
+
+        @Override
+        public String toString() {
+            return Integer.toString(getValue());
+        }
+    }
+}
@@ -0,0 +1,478 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.procimg;
+
+import com.ghgande.j2mod.modbus.procimg.ProcessImageProvider.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sun.misc.Unsafe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Process image served directly from a shared-memory file (for example under
+ * <tt>/dev/shm</tt>) that a co-located process writes into, so field data reaches
+ * the Modbus slave without copying or per-register calls.
+ * <p>
+ * The layout is little-endian throughout and starts with a 64 byte header:
+ * <pre>
+ *  offset  type    field
+ *   0      uint32  magic 0x4A32534D
+ *   4      uint32  version (1)
+ *   8      uint32  producer sequence - written only by the external process
+ *  12      uint32  slave sequence - written only by this image
+ *  16      uint32  coil count
+ *  20      uint32  discrete input count
+ *  24      uint32  input register count
+ *  28      uint32  holding register count
+ *  32      uint32  offset of the coils region
+ *  36      uint32  offset of the discrete inputs region
+ *  40      uint32  offset of the input registers region
+ *  44      uint32  offset of the holding registers region
+ *  48..63          reserved (zero)
+ * </pre>
+ * Coils and discrete inputs are one byte each (0 or 1), registers are <tt>uint16</tt>
+ * and every region starts on an 8 byte boundary.
+ * <p>
+ * Each sequence is a seqlock with a single writer: it is incremented to an odd
+ * value before a group of values is changed and back to an even value afterwards.
+ * A reader copies the values it needs and retries if the sequence was odd or has
+ * changed. This image uses the producer sequence for range reads of input and
+ * holding registers, and bumps the slave sequence whenever a master writes coils or
+ * holding registers, so the producer can read those back consistently. If the
+ * producer sequence does not settle, the read fails with a
+ * {@link ProcessImageBusyException}.
+ * <p>
+ * Only range reads of registers are protected. Coils, discrete inputs and single
+ * registers are read straight from the file, so reading several coils or discrete
+ * inputs at once can return a mix of values from before and after an update by
+ * the producer.
+ * <p>
+ * The tables are laid out by the file and cannot be replaced, added to or removed
+ * from - as for a locked image, calls to do so are ignored.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class SharedMemoryProcessImage extends SimpleProcessImage implements RegisterRangeAccess, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedMemoryProcessImage.class);
+
+    /**
+     * Magic number at the start of the layout
+     */
+    public static final int MAGIC = 0x4A32534D;
+
+    /**
+     * Version of the layout
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of the header
+     */
+    public static final int HEADER_SIZE = 64;
+
+    private static final int VERSION_POS = 4;
+    private static final int PRODUCER_SEQUENCE_POS = 8;
+    private static final int SLAVE_SEQUENCE_POS = 12;
+    private static final int COUNTS_POS = 16;
+    private static final int OFFSETS_POS = 32;
+    private static final int MAX_OPTIMISTIC_READS = 1024;
+    private static final Unsafe UNSAFE = getUnsafe();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int coilsPos;
+    private final int discretesPos;
+    private final int inputRegistersPos;
+    private final int registersPos;
+    private final int inputRegisterCount;
+    private final int registerCount;
+    private final Object writeLock = new Object();
+
+    /**
+     * Opens a shared-memory file that has already been laid out by the producer
+     *
+     * @param unit Unit ID of this image
+     * @param file Shared-memory file
+     *
+     * @throws IOException if the file cannot be mapped or its header is not valid
+     */
+    public SharedMemoryProcessImage(int unit, Path file) throws IOException {
+        this(unit, file, -1, -1, -1, -1);
+    }
+
+    /**
+     * Opens a shared-memory file, creating and laying it out if it does not exist.
+     * An existing file must have the given number of items in each table.
+     *
+     * @param unit                Unit ID of this image
+     * @param file                Shared-memory file
+     * @param coilCount           Number of coils
+     * @param discreteCount       Number of discrete inputs
+     * @param inputRegisterCount  Number of input registers
+     * @param registerCount       Number of holding registers
+     *
+     * @throws IOException if the file cannot be mapped or does not match the layout
+     */
+    public SharedMemoryProcessImage(int unit, Path file, int coilCount, int discreteCount, int inputRegisterCount, int registerCount) throws IOException {
+        super(unit);
+        boolean create = coilCount >= 0;
+        channel = FileChannel.open(file, create ?
+                                         new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE} :
+                                         new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE});
+        try {
+            if (channel.size() == 0 && create) {
+                for (int count : new int[]{coilCount, discreteCount, inputRegisterCount, registerCount}) {
+                    if (count < 0 || count > 65536) {
+                        throw new IllegalArgumentException("Table sizes must be between 0 and 65536");
+                    }
+                }
+                int[] counts = {coilCount, discreteCount, inputRegisterCount, registerCount};
+                int[] sizes = {coilCount, discreteCount, inputRegisterCount * 2, registerCount * 2};
+                int[] offsets = new int[4];
+                int position = HEADER_SIZE;
+                for (int i = 0; i < offsets.length; i++) {
+                    offsets[i] = position;
+                    position = align(position + sizes[i]);
+                }
+                buffer = map(position);
+                for (int i = 0; i < counts.length; i++) {
+                    buffer.putInt(COUNTS_POS + i * 4, counts[i]);
+                    buffer.putInt(OFFSETS_POS + i * 4, offsets[i]);
+                }
+                buffer.putInt(VERSION_POS, VERSION);
+                buffer.putInt(0, MAGIC);
+                logger.debug("Created shared memory process image {}", file);
+            }
+            else {
+                if (channel.size() < HEADER_SIZE) {
+                    throw new IOException(String.format("File %s is too small to hold a process image", file));
+                }
+                buffer = map((int)channel.size());
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(VERSION_POS) != VERSION) {
+                    throw new IOException(String.format("File %s is not a version %d shared memory process image", file, VERSION));
+                }
+                if (create && (buffer.getInt(COUNTS_POS) != coilCount || buffer.getInt(COUNTS_POS + 4) != discreteCount ||
+                               buffer.getInt(COUNTS_POS + 8) != inputRegisterCount || buffer.getInt(COUNTS_POS + 12) != registerCount)) {
+                    throw new IOException(String.format("File %s does not match the layout of the process image", file));
+                }
+            }
+            coilCount = buffer.getInt(COUNTS_POS);
+            discreteCount = buffer.getInt(COUNTS_POS + 4);
+            this.inputRegisterCount = buffer.getInt(COUNTS_POS + 8);
+            this.registerCount = buffer.getInt(COUNTS_POS + 12);
+            coilsPos = checkRegion(file, 0, coilCount);
+            discretesPos = checkRegion(file, 1, discreteCount);
+            inputRegistersPos = checkRegion(file, 2, this.inputRegisterCount * 2);
+            registersPos = checkRegion(file, 3, this.registerCount * 2);
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        digitalOuts.setSize(coilCount);
+        for (int i = 0; i < coilCount; i++) {
+            digitalOuts.setElementAt(new SharedDigitalOut(coilsPos + i), i);
+        }
+        digitalIns.setSize(discreteCount);
+        for (int i = 0; i < discreteCount; i++) {
+            digitalIns.setElementAt(new SharedDigitalIn(discretesPos + i), i);
+        }
+        inputRegisters.setSize(this.inputRegisterCount);
+        for (int i = 0; i < this.inputRegisterCount; i++) {
+            inputRegisters.setElementAt(new SharedRegister(inputRegistersPos + i * 2), i);
+        }
+        registers.setSize(this.registerCount);
+        for (int i = 0; i < this.registerCount; i++) {
+            registers.setElementAt(new SharedRegister(registersPos + i * 2), i);
+        }
+    }
+
+    /**
+     * Closes the file - the mapping stays valid until the image is garbage collected
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Returns a consistent snapshot of the input registers, taken between updates by the producer
+     *
+     * @param ref   the start offset.
+     * @param count the number of registers.
+     *
+     * @return Copies of the input registers
+     */
+    @Override
+    public InputRegister[] getInputRegisterRange(int ref, int count) {
+        if (ref < 0 || count < 0 || ref + count > inputRegisterCount) {
+            throw new IllegalAddressException();
+        }
+        int[] values = readValues(inputRegistersPos + ref * 2, count);
+        InputRegister[] result = new InputRegister[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = new SimpleInputRegister(values[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public int[] getRegisterValues(int offset, int count) throws IllegalAddressException {
+        if (offset < 0 || count < 0 || offset + count > registerCount) {
+            throw new IllegalAddressException();
+        }
+        return readValues(registersPos + offset * 2, count);
+    }
+
+    @Override
+    public void setRegisterValues(int offset, int[] values) throws IllegalAddressException {
+        if (offset < 0 || offset + values.length > registerCount) {
+            throw new IllegalAddressException();
+        }
+        synchronized (writeLock) {
+            beginWrite();
+            for (int i = 0; i < values.length; i++) {
+                buffer.putShort(registersPos + (offset + i) * 2, (short)values[i]);
+            }
+            endWrite();
+        }
+    }
+
+    @Override
+    protected boolean isLocked(Table table) {
+        return true;
+    }
+
+    /**
+     * Copies a run of registers between updates by the producer
+     *
+     * @param position Position of the first register
+     * @param count    Number of registers
+     *
+     * @return Register values
+     *
+     * @throws ProcessImageBusyException if the producer is updating so continuously that a
+     *                                    consistent copy cannot be taken
+     */
+    private int[] readValues(int position, int count) {
+        int[] values = new int[count];
+        for (int attempt = 0; attempt < MAX_OPTIMISTIC_READS; attempt++) {
+            int before = buffer.getInt(PRODUCER_SEQUENCE_POS);
+            UNSAFE.loadFence();
+            for (int i = 0; i < count; i++) {
+                values[i] = buffer.getShort(position + i * 2) & 0xFFFF;
+            }
+            UNSAFE.loadFence();
+            if ((before & 1) == 0 && buffer.getInt(PRODUCER_SEQUENCE_POS) == before) {
+                return values;
+            }
+            Thread.yield();
+        }
+        throw new ProcessImageBusyException("Producer sequence did not settle after " + MAX_OPTIMISTIC_READS + " attempts");
+    }
+
+    /**
+     * Marks the start of a write by this image - must be called holding the write lock
+     * The odd sequence must be visible before any of the values change
+     */
+    private void beginWrite() {
+        buffer.putInt(SLAVE_SEQUENCE_POS, buffer.getInt(SLAVE_SEQUENCE_POS) + 1);
+        UNSAFE.storeFence();
+    }
+
+    /**
+     * Marks the end of a write by this image - must be called holding the write lock
+     * The values must be visible before the even sequence is
+     */
+    private void endWrite() {
+        UNSAFE.storeFence();
+        buffer.putInt(SLAVE_SEQUENCE_POS, buffer.getInt(SLAVE_SEQUENCE_POS) + 1);
+    }
+
+    /**
+     * Returns the JDK's <tt>Unsafe</tt> instance for its memory fences, which order the
+     * plain accesses to the mapped file that the seqlock depends on
+     *
+     * @return Unsafe instance
+     */
+    private static Unsafe getUnsafe() {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return (Unsafe)field.get(null);
+        }
+        catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Maps the file
+     *
+     * @param size Size of the mapping
+     *
+     * @return Little-endian buffer over the file
+     *
+     * @throws IOException if the file cannot be mapped
+     */
+    private MappedByteBuffer map(int size) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        return mapped;
+    }
+
+    /**
+     * Returns the offset of a region after checking that it lies within the file
+     *
+     * @param file   File being mapped
+     * @param region Region index
+     * @param size   Size of the region in bytes
+     *
+     * @return Offset of the region
+     *
+     * @throws IOException if the region lies outside the file
+     */
+    private int checkRegion(Path file, int region, int size) throws IOException {
+        int offset = buffer.getInt(OFFSETS_POS + region * 4);
+        if (size < 0 || offset < HEADER_SIZE || (offset & 7) != 0 || (long)offset + size > buffer.capacity()) {
+            throw new IOException(String.format("Region %d of file %s lies outside the file", region, file));
+        }
+        return offset;
+    }
+
+    /**
+     * Rounds a position up to the next 8 byte boundary
+     *
+     * @param position Position
+     *
+     * @return Aligned position
+     */
+    private static int align(int position) {
+        return (position + 7) & ~7;
+    }
+
+    /**
+     * View of a register in shared memory
+     */
+    private class SharedRegister implements Register {
+        private final int position;
+
+        SharedRegister(int position) {
+            this.position = position;
+        }
+
+        @Override
+        public int getValue() {
+            return buffer.getShort(position) & 0xFFFF;
+        }
+
+        @Override
+        public int toUnsignedShort() {
+            return getValue();
+        }
+
+        @Override
+        public short toShort() {
+            return buffer.getShort(position);
+        }
+
+        @Override
+        public byte[] toBytes() {
+            int value = getValue();
+            return new byte[]{(byte)(value >> 8), (byte)value};
+        }
+
+        @Override
+        public void setValue(int v) {
+            synchronized (writeLock) {
+                beginWrite();
+                buffer.putShort(position, (short)v);
+                endWrite();
+            }
+        }
+
+        @Override
+        public void setValue(short s) {
+            setValue((int)s);
+        }
+
+        @Override
+        public void setValue(byte[] bytes) {
+            if (bytes.length < 2) {
+                throw new IllegalArgumentException();
+            }
+            setValue((bytes[0] & 0xff) << 8 | (bytes[1] & 0xff));
+        }
+
+        @Override
+        public String toString() {
+            return Integer.toString(getValue());
+        }
+    }
+
+    /**
+     * View of a discrete input in shared memory
+     */
+    private class SharedDigitalIn implements DigitalIn {
+        final int position;
+
+        SharedDigitalIn(int position) {
+            this.position = position;
+        }
+
+        @Override
+        public boolean isSet() {
+            return buffer.get(position) != 0;
+        }
+
+        @Override
+        public String toString() {
+            return Boolean.toString(isSet());
+        }
+    }
+
+    /**
+     * View of a coil in shared memory
+     */
+    private class SharedDigitalOut extends SharedDigitalIn implements DigitalOut {
+
+        SharedDigitalOut(int position) {
+            super(position);
+        }
+
+        @Override
+        public void set(boolean b) {
+            synchronized (writeLock) {
+                beginWrite();
+                buffer.put(position, (byte)(b ? 1 : 0));
+                endWrite();
+            }
+        }
+    }
+}
@@ -15,6 +15,8 @@
  */
 package com.ghgande.j2mod.modbus.procimg;
 
+import com.ghgande.j2mod.modbus.procimg.ProcessImageProvider.Table;
+
 import java.util.Vector;
 
 /**
@@ -91,6 +93,20 @@ public class SimpleProcessImage implements ProcessImageImplementation {
         return true;
     }
 
+    /**
+     * Tests if a table of the process image is locked. A table is locked when the
+     * whole image is, or when a subclass serves it from storage of its own so that
+     * it cannot be changed with the add, set and remove methods. Calls to those
+     * methods for a locked table are ignored.
+     *
+     * @param table Table to test
+     *
+     * @return whether or not the table is locked.
+     */
+    protected boolean isLocked(Table table) {
+        return isLocked();
+    }
+
     public int getUnitID() {
         return unitID;
     }
@@ -306,7 +322,7 @@ public class SimpleProcessImage implements ProcessImageImplementation {
 
     @Override
     public void setDigitalOut(int ref, DigitalOut out) throws IllegalAddressException {
-        if (!isLocked()) {
+        if (!isLocked(Table.COILS)) {
             try {
                 if (digitalOuts.get(ref) == null) {
                     throw new IllegalAddressException();
@@ -321,7 +337,7 @@ public class SimpleProcessImage implements ProcessImageImplementation {
 
     @Override
     public void addDigitalOut(DigitalOut out) {
-        if (!isLocked()) {
+        if (!isLocked(Table.COILS)) {
             digitalOuts.addElement(out);
         }
     }
@@ -332,7 +348,7 @@ public class SimpleProcessImage implements ProcessImageImplementation {
             throw new IllegalArgumentException();
         }
 
-        if (!isLocked()) {
+        if (!isLocked(Table.COILS)) {
             synchronized (digitalOuts) {
                 if (ref < digitalOuts.size()) {
                     digitalOuts.setElementAt(dout, ref);
@@ -346,14 +362,14 @@ public class SimpleProcessImage implements ProcessImageImplementation {
 
     @Override
     public void removeDigitalOut(DigitalOut out) {
-        if (!isLocked()) {
+        if (!isLocked(Table.COILS)) {
             digitalOuts.removeElement(out);
         }
     }
 
     @Override
     public void setDigitalIn(int ref, DigitalIn di) throws IllegalAddressException {
-        if (!isLocked()) {
+        if (!isLocked(Table.DISCRETE_INPUTS)) {
             try {
                 if (digitalIns.get(ref) == null) {
                     throw new IllegalAddressException();
@@ -368,7 +384,7 @@ public class SimpleProcessImage implements ProcessImageImplementation {
 
     @Override
     public void addDigitalIn(DigitalIn di) {
-        if (!isLocked()) {
+        if (!isLocked(Table.DISCRETE_INPUTS)) {
             digitalIns.addElement(di);
         }
     }
@@ -379,7 +395,7 @@ public class SimpleProcessImage implements ProcessImageImplementation {
             throw new IllegalArgumentException();
         }
 
-        if (!isLocked()) {
+        if (!isLocked(Table.DISCRETE_INPUTS)) {
             synchronized (digitalIns) {
                 if (ref < digitalIns.size()) {
                     digitalIns.setElementAt(d1, ref);
@@ -393,14 +409,14 @@ public class SimpleProcessImage implements ProcessImageImplementation {
 
     @Override
     public void removeDigitalIn(DigitalIn di) {
-        if (!isLocked()) {
+        if (!isLocked(Table.DISCRETE_INPUTS)) {
             digitalIns.removeElement(di);
         }
     }
 
     @Override
     public void setInputRegister(int ref, InputRegister reg) throws IllegalAddressException {
-        if (!isLocked()) {
+        if (!isLocked(Table.INPUT_REGISTERS)) {
             try {
                 if (inputRegisters.get(ref) == null) {
                     throw new IllegalAddressException();
@@ -416,7 +432,7 @@ public class SimpleProcessImage implements ProcessImageImplementation {
 
     @Override
     public void addInputRegister(InputRegister reg) {
-        if (!isLocked()) {
+        if (!isLocked(Table.INPUT_REGISTERS)) {
             inputRegisters.addElement(reg);
         }
     }
@@ -427,7 +443,7 @@ public class SimpleProcessImage implements ProcessImageImplementation {
             throw new IllegalArgumentException();
         }
 
-        if (!isLocked()) {
+        if (!isLocked(Table.INPUT_REGISTERS)) {
             synchronized (inputRegisters) {
                 if (ref < inputRegisters.size()) {
                     inputRegisters.setElementAt(inReg, ref);
@@ -441,14 +457,14 @@ public class SimpleProcessImage implements ProcessImageImplementation {
 
     @Override
     public void removeInputRegister(InputRegister reg) {
-        if (!isLocked()) {
+        if (!isLocked(Table.INPUT_REGISTERS)) {
             inputRegisters.removeElement(reg);
         }
     }
 
     @Override
     public void setRegister(int ref, Register reg) throws IllegalAddressException {
-        if (!isLocked()) {
+        if (!isLocked(Table.HOLDING_REGISTERS)) {
             try {
                 if (registers.get(ref) == null) {
                     throw new IllegalAddressException();
@@ -464,7 +480,7 @@ public class SimpleProcessImage implements ProcessImageImplementation {
 
     @Override
     public void addRegister(Register reg) {
-        if (!isLocked()) {
+        if (!isLocked(Table.HOLDING_REGISTERS)) {
             registers.addElement(reg);
         }
     }
@@ -475,7 +491,7 @@ public class SimpleProcessImage implements ProcessImageImplementation {
             throw new IllegalArgumentException();
         }
 
-        if (!isLocked()) {
+        if (!isLocked(Table.HOLDING_REGISTERS)) {
             synchronized (registers) {
                 if (ref < registers.size()) {
                     registers.setElementAt(reg, ref);
@@ -489,7 +505,7 @@ public class SimpleProcessImage implements ProcessImageImplementation {
 
     @Override
     public void removeRegister(Register reg) {
-        if (!isLocked()) {
+        if (!isLocked(Table.HOLDING_REGISTERS)) {
             registers.removeElement(reg);
         }
     }
@@ -0,0 +1,409 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.procimg;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Process image for devices that expose a few blocks of objects at high,
+ * scattered addresses.
+ * <p>
+ * Coils, discrete inputs, input registers and holding registers are each held in
+ * a two level page table of 256 pages of 256 entries, and a page is only allocated
+ * once an object is added to it. A device with registers at 0-99 and 40000-40100
+ * therefore uses a handful of pages rather than a 40,000 slot vector, and lookups
+ * are constant time and never rely on catching <tt>IndexOutOfBoundsException</tt>.
+ * <p>
+ * Lookups do not lock. An unmapped address is reported with an
+ * <tt>IllegalAddressException</tt> that carries no stack trace, as it is an
+ * expected answer to a request rather than a programming error.
+ * The counts returned for each table are the highest mapped address plus one,
+ * as with <tt>SimpleProcessImage</tt>. Files and FIFOs are held as in
+ * <tt>SimpleProcessImage</tt>.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class SparseProcessImage extends SimpleProcessImage {
+
+    private final SparseTable<DigitalOut> sparseDigitalOuts = new SparseTable<DigitalOut>("coil");
+    private final SparseTable<DigitalIn> sparseDigitalIns = new SparseTable<DigitalIn>("discrete input");
+    private final SparseTable<InputRegister> sparseInputRegisters = new SparseTable<InputRegister>("input register");
+    private final SparseTable<Register> sparseRegisters = new SparseTable<Register>("holding register");
+
+    /**
+     * Constructs a new <tt>SparseProcessImage</tt> instance.
+     */
+    public SparseProcessImage() {
+    }
+
+    /**
+     * Constructs a new <tt>SparseProcessImage</tt> instance having a
+     * (potentially) non-zero unit ID.
+     *
+     * @param unit Unit ID of this image
+     */
+    public SparseProcessImage(int unit) {
+        super(unit);
+    }
+
+    @Override
+    public DigitalOut[] getDigitalOutRange(int ref, int count) {
+        return sparseDigitalOuts.getRange(ref, count, new DigitalOut[Math.max(count, 0)]);
+    }
+
+    @Override
+    public DigitalOut getDigitalOut(int ref) throws IllegalAddressException {
+        return sparseDigitalOuts.getOrThrow(ref);
+    }
+
+    @Override
+    public int getDigitalOutCount() {
+        return sparseDigitalOuts.size();
+    }
+
+    @Override
+    public DigitalIn[] getDigitalInRange(int ref, int count) {
+        return sparseDigitalIns.getRange(ref, count, new DigitalIn[Math.max(count, 0)]);
+    }
+
+    @Override
+    public DigitalIn getDigitalIn(int ref) throws IllegalAddressException {
+        return sparseDigitalIns.getOrThrow(ref);
+    }
+
+    @Override
+    public int getDigitalInCount() {
+        return sparseDigitalIns.size();
+    }
+
+    @Override
+    public InputRegister[] getInputRegisterRange(int ref, int count) {
+        return sparseInputRegisters.getRange(ref, count, new InputRegister[Math.max(count, 0)]);
+    }
+
+    @Override
+    public InputRegister getInputRegister(int ref) throws IllegalAddressException {
+        return sparseInputRegisters.getOrThrow(ref);
+    }
+
+    @Override
+    public int getInputRegisterCount() {
+        return sparseInputRegisters.size();
+    }
+
+    @Override
+    public Register[] getRegisterRange(int ref, int count) {
+        return sparseRegisters.getRange(ref, count, new Register[Math.max(count, 0)]);
+    }
+
+    @Override
+    public Register getRegister(int ref) throws IllegalAddressException {
+        return sparseRegisters.getOrThrow(ref);
+    }
+
+    @Override
+    public int getRegisterCount() {
+        return sparseRegisters.size();
+    }
+
+    @Override
+    public void setDigitalOut(int ref, DigitalOut out) throws IllegalAddressException {
+        if (!isLocked()) {
+            sparseDigitalOuts.replace(ref, out);
+        }
+    }
+
+    @Override
+    public void addDigitalOut(DigitalOut out) {
+        if (!isLocked()) {
+            sparseDigitalOuts.add(out);
+        }
+    }
+
+    @Override
+    public void addDigitalOut(int ref, DigitalOut dout) {
+        if (!isLocked()) {
+            sparseDigitalOuts.put(ref, dout);
+        }
+    }
+
+    @Override
+    public void removeDigitalOut(DigitalOut out) {
+        if (!isLocked()) {
+            sparseDigitalOuts.remove(out);
+        }
+    }
+
+    @Override
+    public void setDigitalIn(int ref, DigitalIn di) throws IllegalAddressException {
+        if (!isLocked()) {
+            sparseDigitalIns.replace(ref, di);
+        }
+    }
+
+    @Override
+    public void addDigitalIn(DigitalIn di) {
+        if (!isLocked()) {
+            sparseDigitalIns.add(di);
+        }
+    }
+
+    @Override
+    public void addDigitalIn(int ref, DigitalIn d1) {
+        if (!isLocked()) {
+            sparseDigitalIns.put(ref, d1);
+        }
+    }
+
+    @Override
+    public void removeDigitalIn(DigitalIn di) {
+        if (!isLocked()) {
+            sparseDigitalIns.remove(di);
+        }
+    }
+
+    @Override
+    public void setInputRegister(int ref, InputRegister reg) throws IllegalAddressException {
+        if (!isLocked()) {
+            sparseInputRegisters.replace(ref, reg);
+        }
+    }
+
+    @Override
+    public void addInputRegister(InputRegister reg) {
+        if (!isLocked()) {
+            sparseInputRegisters.add(reg);
+        }
+    }
+
+    @Override
+    public void addInputRegister(int ref, InputRegister inReg) {
+        if (!isLocked()) {
+            sparseInputRegisters.put(ref, inReg);
+        }
+    }
+
+    @Override
+    public void removeInputRegister(InputRegister reg) {
+        if (!isLocked()) {
+            sparseInputRegisters.remove(reg);
+        }
+    }
+
+    @Override
+    public void setRegister(int ref, Register reg) throws IllegalAddressException {
+        if (!isLocked()) {
+            sparseRegisters.replace(ref, reg);
+        }
+    }
+
+    @Override
+    public void addRegister(Register reg) {
+        if (!isLocked()) {
+            sparseRegisters.add(reg);
+        }
+    }
+
+    @Override
+    public void addRegister(int ref, Register reg) {
+        if (!isLocked()) {
+            sparseRegisters.put(ref, reg);
+        }
+    }
+
+    @Override
+    public void removeRegister(Register reg) {
+        if (!isLocked()) {
+            sparseRegisters.remove(reg);
+        }
+    }
+
+    /**
+     * Returns the number of mapped holding registers
+     *
+     * @return Number of registers actually present
+     */
+    public int getMappedRegisterCount() {
+        return sparseRegisters.getMappedCount();
+    }
+
+    /**
+     * One table of the process image held as a two level page table
+     *
+     * @param <T> Type of object held in the table
+     */
+    private static class SparseTable<T> {
+        private static final int PAGE_BITS = 8;
+        private static final int PAGE_SIZE = 1 << PAGE_BITS;
+        private static final int PAGE_MASK = PAGE_SIZE - 1;
+        private static final int MAX_ADDRESS = 65535;
+
+        private final String name;
+        private final AtomicReferenceArray<AtomicReferenceArray<T>> pages = new AtomicReferenceArray<AtomicReferenceArray<T>>(PAGE_SIZE);
+        private final int[] pageCounts = new int[PAGE_SIZE];
+        private volatile int size;
+        private volatile int mappedCount;
+
+        SparseTable(String name) {
+            this.name = name;
+        }
+
+        T get(int ref) {
+            if (ref < 0 || ref > MAX_ADDRESS) {
+                return null;
+            }
+            AtomicReferenceArray<T> page = pages.get(ref >>> PAGE_BITS);
+            return page == null ? null : page.get(ref & PAGE_MASK);
+        }
+
+        T getOrThrow(int ref) {
+            T value = get(ref);
+            if (value == null) {
+                throw illegalAddress(ref);
+            }
+            return value;
+        }
+
+        T[] getRange(int ref, int count, T[] dest) {
+            if (ref < 0 || count < 0 || ref + count > size) {
+                throw illegalAddress(ref);
+            }
+            int i = 0;
+            while (i < count) {
+                int address = ref + i;
+                AtomicReferenceArray<T> page = pages.get(address >>> PAGE_BITS);
+                if (page == null) {
+                    throw illegalAddress(address);
+                }
+                int end = Math.min(count, i + PAGE_SIZE - (address & PAGE_MASK));
+                for (; i < end; i++) {
+                    T value = page.get((ref + i) & PAGE_MASK);
+                    if (value == null) {
+                        throw illegalAddress(ref + i);
+                    }
+                    dest[i] = value;
+                }
+            }
+            return dest;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int getMappedCount() {
+            return mappedCount;
+        }
+
+        synchronized void put(int ref, T value) {
+            if (ref < 0 || ref > MAX_ADDRESS) {
+                throw new IllegalArgumentException();
+            }
+            int pageIndex = ref >>> PAGE_BITS;
+            AtomicReferenceArray<T> page = pages.get(pageIndex);
+            if (page == null) {
+                if (value == null) {
+                    return;
+                }
+                page = new AtomicReferenceArray<T>(PAGE_SIZE);
+                pages.set(pageIndex, page);
+            }
+            T previous = page.getAndSet(ref & PAGE_MASK, value);
+            if (previous == null && value != null) {
+                pageCounts[pageIndex]++;
+                mappedCount++;
+                if (ref >= size) {
+                    size = ref + 1;
+                }
+            }
+            else if (previous != null && value == null) {
+                mappedCount--;
+                if (--pageCounts[pageIndex] == 0) {
+                    pages.set(pageIndex, null);
+                }
+                if (ref == size - 1) {
+                    size = findSize();
+                }
+            }
+        }
+
+        synchronized void add(T value) {
+            put(size, value);
+        }
+
+        synchronized void replace(int ref, T value) {
+            if (get(ref) == null) {
+                throw illegalAddress(ref);
+            }
+            put(ref, value);
+        }
+
+        synchronized void remove(T value) {
+            for (int pageIndex = 0; pageIndex < PAGE_SIZE; pageIndex++) {
+                AtomicReferenceArray<T> page = pages.get(pageIndex);
+                if (page != null) {
+                    for (int i = 0; i < PAGE_SIZE; i++) {
+                        if (page.get(i) == value) {
+                            put((pageIndex << PAGE_BITS) + i, null);
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        private int findSize() {
+            for (int pageIndex = PAGE_SIZE - 1; pageIndex >= 0; pageIndex--) {
+                AtomicReferenceArray<T> page = pages.get(pageIndex);
+                if (page != null) {
+                    for (int i = PAGE_SIZE - 1; i >= 0; i--) {
+                        if (page.get(i) != null) {
+                            return (pageIndex << PAGE_BITS) + i + 1;
+                        }
+                    }
+                }
+            }
+            return 0;
+        }
+
+        private IllegalAddressException illegalAddress(int ref) {
+            return new UnmappedAddressException(name, ref);
+        }
+    }
+
+    /**
+     * Exception for an address with nothing mapped to it. The message is only
+     * formatted if something asks for it, so a master scanning the address space
+     * costs no more than the allocation of the exception.
+     */
+    private static final class UnmappedAddressException extends IllegalAddressException {
+        private static final long serialVersionUID = 1L;
+        private final String name;
+        private final int ref;
+
+        UnmappedAddressException(String name, int ref) {
+            super(null, false);
+            this.name = name;
+            this.ref = ref;
+        }
+
+        @Override
+        public String getMessage() {
+            return String.format("No %s at address %d", name, ref);
+        }
+    }
+}
@@ -21,6 +21,7 @@ import com.ghgande.j2mod.modbus.net.ModbusSerialListener;
 import com.ghgande.j2mod.modbus.net.ModbusTCPListener;
 import com.ghgande.j2mod.modbus.net.ModbusUDPListener;
 import com.ghgande.j2mod.modbus.procimg.ProcessImage;
+import com.ghgande.j2mod.modbus.util.ModbusMetrics;
 import com.ghgande.j2mod.modbus.util.ModbusUtil;
 import com.ghgande.j2mod.modbus.util.SerialParameters;
 import org.slf4j.Logger;
@@ -48,6 +49,8 @@ public class ModbusSlave {
     private Thread listenerThread;
 
     private final Map<Integer, ProcessImage> processImages = new HashMap<Integer, ProcessImage>();
+    private volatile ProcessImageChangeBus changeBus;
+    private volatile ModbusMetrics metrics;
 
     /**
      * Creates a TCP modbus slave
@@ -192,6 +195,69 @@ public class ModbusSlave {
         return processImages.put(unitId, processImage);
     }
 
+    /**
+     * Returns the bus that changes made to the process images by requests are published on
+     *
+     * @return Change bus or null if changes are not published
+     */
+    public ProcessImageChangeBus getChangeBus() {
+        return changeBus;
+    }
+
+    /**
+     * Sets the bus to publish changes made to the process images by requests on
+     *
+     * @param changeBus Change bus or null to stop publishing changes
+     */
+    public void setChangeBus(ProcessImageChangeBus changeBus) {
+        this.changeBus = changeBus;
+    }
+
+    /**
+     * Returns the counters and latencies of the requests answered by this slave.
+     * Recording is off until metrics are set with {@link #setMetrics(ModbusMetrics)}.
+     *
+     * @return Metrics or null if recording is turned off
+     */
+    public ModbusMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets where the requests answered by this slave are recorded
+     *
+     * @param metrics Metrics or null to turn recording off
+     */
+    public void setMetrics(ModbusMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns true if each connection reuses its request and response objects from one frame to the next
+     *
+     * @return True if requests are recycled
+     */
+    public boolean isRecycleRequests() {
+        return listener.isRecycleRequests();
+    }
+
+    /**
+     * Sets whether each connection reuses its request and response objects from one frame to the next
+     * <p>
+     * Each connection keeps a request per function code, and each request keeps the
+     * response and exception response it answers with. The responses to the register,
+     * coil and discrete input functions are filled in again for every frame, and a
+     * <tt>Read Multiple Registers</tt> response also reuses its registers when the
+     * process image supports range access. Reading a frame still allocates the payload
+     * of the request, such as the registers of a <tt>Write Multiple Registers</tt>,
+     * and the process image may allocate the values it returns.
+     *
+     * @param recycleRequests True to recycle requests
+     */
+    public void setRecycleRequests(boolean recycleRequests) {
+        listener.setRecycleRequests(recycleRequests);
+    }
+
     /**
      * Returns the serial parameters of this slave if it is a Serial type
      *
@@ -239,6 +305,25 @@ public class ModbusSlave {
         ModbusSlaveFactory.close(this);
     }
 
+    /**
+     * Returns true if the listener of this slave has been started
+     *
+     * @return True if running
+     */
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * Formats the last frames written and read on each open connection of
+     * this slave
+     *
+     * @return Text of the frames
+     */
+    public String dumpFrames() {
+        return listener.dumpFrames();
+    }
+
     /**
      * Returns the last error accrued by the listener
      *
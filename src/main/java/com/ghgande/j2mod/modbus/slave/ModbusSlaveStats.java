@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.slave;
+
+import com.ghgande.j2mod.modbus.net.AbstractModbusListener;
+import com.ghgande.j2mod.modbus.net.ModbusTCPListener;
+import com.ghgande.j2mod.modbus.util.ModbusMetrics;
+import com.ghgande.j2mod.modbus.util.ModbusStats;
+
+import java.util.Map;
+
+/**
+ * Management bean of a slave, reporting its listener and the requests it has answered
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class ModbusSlaveStats extends ModbusStats implements ModbusSlaveStatsMBean {
+
+    private final ModbusSlave slave;
+
+    /**
+     * Constructs the bean of a slave, named after its type and port
+     *
+     * @param slave Slave to report
+     */
+    public ModbusSlaveStats(ModbusSlave slave) {
+        this(slave, slave.getType().is(ModbusSlaveType.SERIAL) ? slave.getType().getKey(slave.getSerialParams().getPortName()) : slave.getType().getKey(slave.getPort()));
+    }
+
+    /**
+     * Constructs the bean of a slave
+     *
+     * @param slave Slave to report
+     * @param name  Name to register under
+     */
+    public ModbusSlaveStats(ModbusSlave slave, String name) {
+        super(name);
+        this.slave = slave;
+    }
+
+    /**
+     * Returns the slave being reported
+     *
+     * @return Slave
+     */
+    public ModbusSlave getSlave() {
+        return slave;
+    }
+
+    @Override
+    public ModbusMetrics getMetrics() {
+        return slave.getMetrics();
+    }
+
+    @Override
+    protected String getType() {
+        return "Slave";
+    }
+
+    @Override
+    protected void addGauges(Map<String, Number> gauges) {
+        gauges.put("running", isRunning() ? 1 : 0);
+        gauges.put("active_connections", getActiveConnections());
+        gauges.put("queue_depth", getQueueDepth());
+        gauges.put("pool_size", getPoolSize());
+    }
+
+    @Override
+    public String getSlaveType() {
+        return slave.getType().toString();
+    }
+
+    @Override
+    public int getPort() {
+        return slave.getPort();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return slave.isRunning();
+    }
+
+    @Override
+    public int getActiveConnections() {
+        AbstractModbusListener listener = slave.getListener();
+        return listener instanceof ModbusTCPListener ? ((ModbusTCPListener)listener).getActiveConnections() : 0;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        AbstractModbusListener listener = slave.getListener();
+        return listener instanceof ModbusTCPListener ? ((ModbusTCPListener)listener).getQueuedConnections() : 0;
+    }
+
+    @Override
+    public int getPoolSize() {
+        AbstractModbusListener listener = slave.getListener();
+        return listener instanceof ModbusTCPListener ? ((ModbusTCPListener)listener).getPoolSize() : 0;
+    }
+
+    @Override
+    public String getError() {
+        return slave.getError();
+    }
+
+    @Override
+    public String dumpFrames() {
+        return slave.dumpFrames();
+    }
+}
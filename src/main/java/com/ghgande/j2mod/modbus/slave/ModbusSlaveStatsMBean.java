@@ -0,0 +1,83 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.slave;
+
+import com.ghgande.j2mod.modbus.util.ModbusStatsMBean;
+
+/**
+ * Management interface of a slave and its listener
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public interface ModbusSlaveStatsMBean extends ModbusStatsMBean {
+
+    /**
+     * Returns the type of the slave
+     *
+     * @return TCP, UDP or SERIAL
+     */
+    String getSlaveType();
+
+    /**
+     * Returns the port the slave listens on
+     *
+     * @return Port
+     */
+    int getPort();
+
+    /**
+     * Returns true if the listener is running
+     *
+     * @return True if running
+     */
+    boolean isRunning();
+
+    /**
+     * Returns the number of connections being served - TCP slaves only
+     *
+     * @return Active connection count
+     */
+    int getActiveConnections();
+
+    /**
+     * Returns the number of connections waiting for a handler thread - TCP slaves only
+     *
+     * @return Queue depth
+     */
+    int getQueueDepth();
+
+    /**
+     * Returns the number of handler threads - TCP slaves only
+     *
+     * @return Pool size
+     */
+    int getPoolSize();
+
+    /**
+     * Returns the last error reported by the listener
+     *
+     * @return Error or null
+     */
+    String getError();
+
+    /**
+     * Formats the last frames written and read on each open connection
+     *
+     * @return Text of the frames
+     */
+    String dumpFrames();
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.slave;
+
+import com.ghgande.j2mod.modbus.msg.*;
+import com.ghgande.j2mod.modbus.procimg.*;
+import com.ghgande.j2mod.modbus.procimg.ProcessImageProvider.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Bus that publishes changes made to process images by Modbus requests,
+ * delivering them to listeners asynchronously.
+ * <p>
+ * Attached to a slave with {@link ModbusSlave#setChangeBus(ProcessImageChangeBus)},
+ * every successful coil or holding register write produces a single event for the
+ * whole range it addressed, with the values the request wrote. The values before
+ * the request are not published: reading them outside the write of the process
+ * image could pick up a concurrent change, so they would not be reliable. The
+ * handler thread only copies the values from the request and queues the event;
+ * listeners are called on the executor of the bus, so a slow listener never
+ * delays a response.
+ * <p>
+ * Events that have not yet been delivered are coalesced: a further change to the
+ * same range replaces the new values of the queued event.
+ * The queue is bounded, and when it is full the oldest undelivered event is dropped
+ * and counted. Applications can publish their own bulk updates on the same bus.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class ProcessImageChangeBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessImageChangeBus.class);
+
+    /**
+     * Default maximum number of undelivered events
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final int capacity;
+    private final List<ProcessImageChangeListener> listeners = new CopyOnWriteArrayList<ProcessImageChangeListener>();
+    private final LinkedHashMap<Key, ProcessImageChangeEvent> pending = new LinkedHashMap<Key, ProcessImageChangeEvent>();
+    private boolean draining;
+    private long droppedCount;
+    private long coalescedCount;
+
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /**
+     * Constructs a bus that delivers events on its own daemon thread
+     */
+    public ProcessImageChangeBus() {
+        this(null, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a bus
+     *
+     * @param executor Executor to deliver events on - null to use a single daemon thread owned by the bus
+     * @param capacity Maximum number of undelivered events
+     */
+    public ProcessImageChangeBus(Executor executor, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be greater than zero");
+        }
+        if (executor == null) {
+            ownedExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Modbus Change Bus");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            this.executor = ownedExecutor;
+        }
+        else {
+            ownedExecutor = null;
+            this.executor = executor;
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds a listener
+     *
+     * @param listener Listener to add
+     */
+    public void addListener(ProcessImageChangeListener listener) {
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Removes a listener
+     *
+     * @param listener Listener to remove
+     */
+    public void removeListener(ProcessImageChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the number of events dropped because the queue was full
+     *
+     * @return Dropped event count
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Returns the number of events merged into an undelivered event for the same range
+     *
+     * @return Coalesced event count
+     */
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * Queues an event for delivery
+     *
+     * @param event Event to publish
+     */
+    public void publish(ProcessImageChangeEvent event) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        boolean schedule;
+        synchronized (this) {
+            Key key = new Key(event);
+            ProcessImageChangeEvent queued = pending.get(key);
+            if (queued != null) {
+                pending.put(key, queued.coalesce(event));
+                coalescedCount++;
+            }
+            else {
+                if (pending.size() >= capacity) {
+                    Iterator<ProcessImageChangeEvent> oldest = pending.values().iterator();
+                    oldest.next();
+                    oldest.remove();
+                    droppedCount++;
+                }
+                pending.put(key, event);
+            }
+            schedule = !draining;
+            draining = true;
+        }
+        if (schedule) {
+            try {
+                executor.execute(drainTask);
+            }
+            catch (RejectedExecutionException e) {
+                logger.debug("Change bus executor rejected delivery - {}", e.getMessage());
+                synchronized (this) {
+                    draining = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Publishes the change made by a request that has been applied successfully,
+     * if it is a write and anyone is listening
+     * <p>
+     * The new values are taken from the request, so the process image is not read
+     * and the event holds exactly what the request wrote. A mask write does not
+     * carry its result, so the register is read back and may already include a
+     * later change. Old values are not known and are null.
+     *
+     * @param unitId  Unit ID the request was for
+     * @param image   Process image the request was applied to
+     * @param request Request that was applied
+     */
+    public void publish(int unitId, ProcessImage image, ModbusRequest request) {
+        if (listeners.isEmpty() || image == null) {
+            return;
+        }
+        Table table;
+        int ref;
+        int[] values;
+        if (request instanceof WriteCoilRequest) {
+            table = Table.COILS;
+            ref = ((WriteCoilRequest)request).getReference();
+            values = new int[] {((WriteCoilRequest)request).getCoil() ? 1 : 0};
+        }
+        else if (request instanceof WriteMultipleCoilsRequest) {
+            WriteMultipleCoilsRequest write = (WriteMultipleCoilsRequest)request;
+            table = Table.COILS;
+            ref = write.getReference();
+            values = new int[write.getBitCount()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = write.getCoilStatus(i) ? 1 : 0;
+            }
+        }
+        else if (request instanceof WriteSingleRegisterRequest) {
+            table = Table.HOLDING_REGISTERS;
+            ref = ((WriteSingleRegisterRequest)request).getReference();
+            values = new int[] {((WriteSingleRegisterRequest)request).getRegister().toUnsignedShort()};
+        }
+        else if (request instanceof WriteMultipleRegistersRequest) {
+            WriteMultipleRegistersRequest write = (WriteMultipleRegistersRequest)request;
+            table = Table.HOLDING_REGISTERS;
+            ref = write.getReference();
+            values = new int[write.getWordCount()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = write.getRegisterValue(i);
+            }
+        }
+        else if (request instanceof ReadWriteMultipleRequest) {
+            ReadWriteMultipleRequest write = (ReadWriteMultipleRequest)request;
+            table = Table.HOLDING_REGISTERS;
+            ref = write.getWriteReference();
+            values = new int[write.getWriteWordCount()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = write.getRegister(i).toUnsignedShort();
+            }
+        }
+        else if (request instanceof MaskWriteRegisterRequest) {
+            table = Table.HOLDING_REGISTERS;
+            ref = ((MaskWriteRegisterRequest)request).getReference();
+            values = readRegister(image, ref);
+        }
+        else {
+            return;
+        }
+        if (values != null && values.length > 0) {
+            publish(new ProcessImageChangeEvent(unitId, table, ref, null, values));
+        }
+    }
+
+    /**
+     * Stops the thread owned by the bus, if any - undelivered events are discarded
+     */
+    public void close() {
+        synchronized (this) {
+            pending.clear();
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Delivers queued events until there are none left
+     */
+    private void drain() {
+        while (true) {
+            List<ProcessImageChangeEvent> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+                batch = new ArrayList<ProcessImageChangeEvent>(pending.values());
+                pending.clear();
+            }
+            for (ProcessImageChangeEvent event : batch) {
+                for (ProcessImageChangeListener listener : listeners) {
+                    try {
+                        listener.changed(event);
+                    }
+                    catch (RuntimeException e) {
+                        logger.error("Change listener failed for {}", event, e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the current value of a holding register
+     *
+     * @param image Process image
+     * @param ref   the offset of the register.
+     *
+     * @return Value or null if the register does not exist
+     */
+    private static int[] readRegister(ProcessImage image, int ref) {
+        try {
+            return new int[] {image.getRegister(ref).toUnsignedShort()};
+        }
+        catch (IllegalAddressException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Identifies the range of an event for coalescing
+     */
+    private static class Key {
+        final int unitId;
+        final Table table;
+        final int ref;
+        final int count;
+
+        Key(ProcessImageChangeEvent event) {
+            unitId = event.getUnitId();
+            table = event.getTable();
+            ref = event.getReference();
+            count = event.getCount();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)obj;
+            return unitId == other.unitId && table == other.table && ref == other.ref && count == other.count;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((unitId * 31 + table.ordinal()) * 31 + ref) * 31 + count;
+        }
+    }
+}
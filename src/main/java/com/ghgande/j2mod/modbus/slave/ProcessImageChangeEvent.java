@@ -0,0 +1,146 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.slave;
+
+import com.ghgande.j2mod.modbus.procimg.ProcessImageProvider.Table;
+
+import java.util.Arrays;
+
+/**
+ * A change to a range of coils or holding registers in a process image.
+ * <p>
+ * Register values are unsigned shorts and coil values are 0 or 1. Events
+ * published for Modbus requests carry only the new values; applications
+ * publishing their own changes can also give the old values. When several
+ * changes to the same range are coalesced, the old values are those before
+ * the first change and the new values are those after the last one.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public final class ProcessImageChangeEvent {
+
+    private final int unitId;
+    private final Table table;
+    private final int ref;
+    private final int[] oldValues;
+    private final int[] newValues;
+    private final int changeCount;
+
+    /**
+     * Constructs a change event
+     *
+     * @param unitId    Unit ID of the process image
+     * @param table     Table that changed
+     * @param ref       First address that changed
+     * @param oldValues Values before the change (null if not known)
+     * @param newValues Values after the change
+     */
+    public ProcessImageChangeEvent(int unitId, Table table, int ref, int[] oldValues, int[] newValues) {
+        this(unitId, table, ref, oldValues, newValues, 1);
+    }
+
+    private ProcessImageChangeEvent(int unitId, Table table, int ref, int[] oldValues, int[] newValues, int changeCount) {
+        if (oldValues != null && oldValues.length != newValues.length) {
+            throw new IllegalArgumentException("Old and new values must be the same length");
+        }
+        this.unitId = unitId;
+        this.table = table;
+        this.ref = ref;
+        this.oldValues = oldValues;
+        this.newValues = newValues;
+        this.changeCount = changeCount;
+    }
+
+    /**
+     * Returns the Unit ID of the process image that changed
+     *
+     * @return Unit ID
+     */
+    public int getUnitId() {
+        return unitId;
+    }
+
+    /**
+     * Returns the table that changed
+     *
+     * @return Table
+     */
+    public Table getTable() {
+        return table;
+    }
+
+    /**
+     * Returns the first address that changed
+     *
+     * @return Address
+     */
+    public int getReference() {
+        return ref;
+    }
+
+    /**
+     * Returns the number of addresses in the range
+     *
+     * @return Count
+     */
+    public int getCount() {
+        return newValues.length;
+    }
+
+    /**
+     * Returns the values before the change
+     *
+     * @return Copy of the old values or null if they are not known
+     */
+    public int[] getOldValues() {
+        return oldValues == null ? null : oldValues.clone();
+    }
+
+    /**
+     * Returns the values after the change
+     *
+     * @return Copy of the new values
+     */
+    public int[] getNewValues() {
+        return newValues.clone();
+    }
+
+    /**
+     * Returns the number of changes that were coalesced into this event
+     *
+     * @return 1 unless the event was coalesced
+     */
+    public int getChangeCount() {
+        return changeCount;
+    }
+
+    /**
+     * Returns an event combining this one with a later change to the same range
+     *
+     * @param later Later change
+     *
+     * @return Coalesced event
+     */
+    ProcessImageChangeEvent coalesce(ProcessImageChangeEvent later) {
+        return new ProcessImageChangeEvent(unitId, table, ref, oldValues, later.newValues, changeCount + later.changeCount);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Unit %d %s from %d old %s new %s", unitId, table, ref, Arrays.toString(oldValues), Arrays.toString(newValues));
+    }
+}
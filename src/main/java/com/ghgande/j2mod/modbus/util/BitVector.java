@@ -18,6 +18,8 @@ package com.ghgande.j2mod.modbus.util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+
 /**
  * Class that implements a collection for
  * bits, storing them packed into bytes.
@@ -131,6 +133,16 @@ public class BitVector {
      * @return the <tt>byte[]</tt> used to store the bits.
      */
     public final synchronized byte[] getBytes() {
+        return copyBytes();
+    }
+
+    /**
+     * Returns a copy of the <tt>byte[]</tt> which stores the bits
+     * of this <tt>BitVector</tt> without locking.
+     *
+     * @return the <tt>byte[]</tt> used to store the bits.
+     */
+    byte[] copyBytes() {
         byte[] dest = new byte[data.length];
         System.arraycopy(data, 0, dest, 0, dest.length);
         return dest;
@@ -240,6 +252,214 @@ public class BitVector {
         return data.length;
     }
 
+    /**
+     * Sets or clears all the bits from fromIndex (inclusive) to toIndex (exclusive).
+     * <p>
+     * Whole bytes are filled at once rather than bit by bit.
+     *
+     * @param fromIndex index of the first bit.
+     * @param toIndex   index after the last bit.
+     * @param b         true if the bits should be set, false if they should be reset.
+     *
+     * @throws IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public void setBits(int fromIndex, int toIndex, boolean b) throws IndexOutOfBoundsException {
+        checkRange(fromIndex, toIndex);
+        if (msbAccess) {
+            for (int i = fromIndex; i < toIndex; i++) {
+                setBit(i, b);
+            }
+            return;
+        }
+        int index = fromIndex;
+        while (index < toIndex && (index & 7) != 0) {
+            setBitValue(index++, b);
+        }
+        int fullBytes = (toIndex - index) >>> 3;
+        if (fullBytes > 0) {
+            Arrays.fill(data, index >>> 3, (index >>> 3) + fullBytes, b ? (byte)0xFF : 0);
+            index += fullBytes << 3;
+        }
+        while (index < toIndex) {
+            setBitValue(index++, b);
+        }
+    }
+
+    /**
+     * Returns the bits of this <tt>BitVector</tt> packed into longs,
+     * bit 0 in the least significant bit of the first long.
+     *
+     * @return (size + 63) / 64 longs, with any bits past the size clear.
+     */
+    public long[] getLongs() {
+        long[] words = new long[(size + 63) >>> 6];
+        if (msbAccess) {
+            for (int i = 0; i < size; i++) {
+                if (getBit(i)) {
+                    words[i >>> 6] |= 1L << i;
+                }
+            }
+            return words;
+        }
+        int bytes = (size + 7) >>> 3;
+        for (int i = 0; i < bytes; i++) {
+            words[i >>> 3] |= (data[i] & 0xFFL) << ((i & 7) << 3);
+        }
+        if ((size & 63) != 0) {
+            words[words.length - 1] &= (1L << size) - 1;
+        }
+        return words;
+    }
+
+    /**
+     * Sets the bits of this <tt>BitVector</tt> from longs,
+     * bit 0 in the least significant bit of the first long.
+     * <p>
+     * Bits past the end of the array are left unchanged.
+     *
+     * @param words the packed bits.
+     */
+    public void setLongs(long[] words) {
+        int count = (int)Math.min(size, (long)words.length << 6);
+        if (msbAccess) {
+            for (int i = 0; i < count; i++) {
+                setBit(i, (words[i >>> 6] & (1L << i)) != 0);
+            }
+            return;
+        }
+        int fullBytes = count >>> 3;
+        for (int i = 0; i < fullBytes; i++) {
+            data[i] = (byte)(words[i >>> 3] >>> ((i & 7) << 3));
+        }
+        for (int i = fullBytes << 3; i < count; i++) {
+            setBitValue(i, (words[i >>> 6] & (1L << i)) != 0);
+        }
+    }
+
+    /**
+     * Returns the bits of this <tt>BitVector</tt> as an array of booleans.
+     *
+     * @return one boolean per bit.
+     */
+    public boolean[] getBooleans() {
+        boolean[] values = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = msbAccess ? getBit(i) : (data[i >>> 3] & (1 << (i & 7))) != 0;
+        }
+        return values;
+    }
+
+    /**
+     * Sets the bits of this <tt>BitVector</tt> from an array of booleans.
+     * <p>
+     * Each byte is built up and stored once rather than read and written
+     * for every bit.
+     *
+     * @param values one boolean per bit, bits past the end of the array are left unchanged.
+     */
+    public void setBooleans(boolean[] values) {
+        int count = Math.min(size, values.length);
+        if (msbAccess) {
+            for (int i = 0; i < count; i++) {
+                setBit(i, values[i]);
+            }
+            return;
+        }
+        int fullBytes = count >>> 3;
+        for (int i = 0; i < fullBytes; i++) {
+            int value = 0;
+            for (int bit = 0; bit < 8; bit++) {
+                if (values[(i << 3) + bit]) {
+                    value |= 1 << bit;
+                }
+            }
+            data[i] = (byte)value;
+        }
+        for (int i = fullBytes << 3; i < count; i++) {
+            setBitValue(i, values[i]);
+        }
+    }
+
+    /**
+     * Returns a <tt>BitVector</tt> with a bit set wherever this <tt>BitVector</tt>
+     * and the other one differ.
+     *
+     * @param other the <tt>BitVector</tt> to compare with, of the same size.
+     *
+     * @return a new <tt>BitVector</tt> of the same size holding the changed bits.
+     *
+     * @throws IllegalArgumentException if the sizes differ.
+     */
+    public BitVector diff(BitVector other) {
+        if (other.size != size) {
+            throw new IllegalArgumentException("Cannot compare a BitVector of size " + other.size + " with one of size " + size);
+        }
+        BitVector result = new BitVector(size);
+        if (msbAccess || other.msbAccess) {
+            for (int i = 0; i < size; i++) {
+                result.setBit(i, getBit(i) != other.getBit(i));
+            }
+            return result;
+        }
+        int bytes = (size + 7) >>> 3;
+        for (int i = 0; i < bytes; i++) {
+            result.data[i] = (byte)(data[i] ^ other.data[i]);
+        }
+        if ((size & 7) != 0) {
+            result.data[bytes - 1] &= (byte)((1 << (size & 7)) - 1);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of bits that are set.
+     *
+     * @return the number of set bits within the size of this <tt>BitVector</tt>.
+     */
+    public int cardinality() {
+        int count = 0;
+        int fullBytes = size >>> 3;
+        for (int i = 0; i < fullBytes; i++) {
+            count += Integer.bitCount(data[i] & 0xFF);
+        }
+        for (int i = fullBytes << 3; i < size; i++) {
+            if (getBit(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the index of the first set bit at or after the given index,
+     * for iterating over the set bits with
+     * <tt>for (int i = bv.nextSetBit(0); i &gt;= 0; i = bv.nextSetBit(i + 1))</tt>.
+     * <p>
+     * Bytes with no bits set are skipped whole.
+     *
+     * @param fromIndex the index to start from.
+     *
+     * @return the index of the next set bit, or -1 if there is none.
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex < 0) {
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        }
+        int index = fromIndex;
+        while (index < size) {
+            if ((index & 7) == 0 && data[index >>> 3] == 0) {
+                index += 8;
+            }
+            else {
+                if (getBitValue(index)) {
+                    return index;
+                }
+                index++;
+            }
+        }
+        return -1;
+    }
+
     /**
      * Returns a <tt>String</tt> representing the
      * contents of the bit collection in a way that
@@ -312,6 +532,46 @@ public class BitVector {
         }
     }
 
+    /**
+     * Checks that a range of bits lies within the size of this <tt>BitVector</tt>
+     *
+     * @param fromIndex index of the first bit.
+     * @param toIndex   index after the last bit.
+     *
+     * @throws IndexOutOfBoundsException if the range is out of bounds.
+     */
+    private void checkRange(int fromIndex, int toIndex) throws IndexOutOfBoundsException {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("Range " + fromIndex + " to " + toIndex + " is outside 0 to " + size);
+        }
+    }
+
+    /**
+     * Returns the state of a bit without bounds checks or logging
+     *
+     * @param index the index of the bit.
+     *
+     * @return true if the bit is set.
+     */
+    private boolean getBitValue(int index) {
+        return msbAccess ? getBit(index) : (data[index >>> 3] & (1 << (index & 7))) != 0;
+    }
+
+    /**
+     * Sets the state of a bit in LSB order without bounds checks or logging
+     *
+     * @param index the index of the bit.
+     * @param b     true if the bit should be set, false if it should be reset.
+     */
+    private void setBitValue(int index, boolean b) {
+        if (b) {
+            data[index >>> 3] |= (byte)(1 << (index & 7));
+        }
+        else {
+            data[index >>> 3] &= (byte)~(1 << (index & 7));
+        }
+    }
+
     private int translateIndex(int idx) {
         if (msbAccess) {
             int mod4 = idx % 4;
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.util;
+
+import java.util.zip.Checksum;
+
+/**
+ * The CRC-16 used by Modbus RTU, worked out eight bytes at a time.
+ * <p>
+ * The static {@link #calculate(byte[], int, int)} and
+ * {@link #update(int, byte[], int, int)} methods return the CRC as a primitive
+ * so that nothing is allocated per frame. An instance keeps a running CRC for
+ * frames that are checked while their bytes arrive, and can be used wherever
+ * a <tt>java.util.zip.Checksum</tt> is expected.
+ * <p>
+ * The low byte of the CRC is sent first. Running the CRC over a frame that
+ * ends with its own CRC gives zero.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public final class CRC16 implements Checksum {
+
+    /**
+     * Starting value of the CRC
+     */
+    public static final int INITIAL_VALUE = 0xFFFF;
+
+    private static final int POLYNOMIAL = 0xA001;
+
+    /**
+     * Eight tables of 256 entries - table k holds the effect of a byte followed by k zero bytes
+     */
+    private static final int[] TABLE = new int[8 * 256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+            }
+            TABLE[i] = crc;
+        }
+        for (int k = 1; k < 8; k++) {
+            for (int i = 0; i < 256; i++) {
+                int previous = TABLE[(k - 1) * 256 + i];
+                TABLE[k * 256 + i] = (previous >>> 8) ^ TABLE[previous & 0xFF];
+            }
+        }
+    }
+
+    private int crc = INITIAL_VALUE;
+
+    /**
+     * Returns the CRC of a block of bytes
+     *
+     * @param data   Array holding the bytes
+     * @param offset Index of the first byte
+     * @param length Number of bytes
+     *
+     * @return CRC, low byte first on the wire
+     */
+    public static int calculate(byte[] data, int offset, int length) {
+        return update(INITIAL_VALUE, data, offset, length);
+    }
+
+    /**
+     * Adds a single byte to a CRC
+     *
+     * @param crc   CRC so far
+     * @param value Byte to add, only the low 8 bits are used
+     *
+     * @return Updated CRC
+     */
+    public static int update(int crc, int value) {
+        return (crc >>> 8) ^ TABLE[(crc ^ value) & 0xFF];
+    }
+
+    /**
+     * Adds a block of bytes to a CRC
+     *
+     * @param crc    CRC so far
+     * @param data   Array holding the bytes
+     * @param offset Index of the first byte
+     * @param length Number of bytes
+     *
+     * @return Updated CRC
+     */
+    public static int update(int crc, byte[] data, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > data.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        int i = offset;
+        int end = offset + length;
+        for (; i + 8 <= end; i += 8) {
+            crc = TABLE[7 * 256 + ((crc ^ data[i]) & 0xFF)] ^
+                    TABLE[6 * 256 + (((crc >>> 8) ^ data[i + 1]) & 0xFF)] ^
+                    TABLE[5 * 256 + (data[i + 2] & 0xFF)] ^
+                    TABLE[4 * 256 + (data[i + 3] & 0xFF)] ^
+                    TABLE[3 * 256 + (data[i + 4] & 0xFF)] ^
+                    TABLE[2 * 256 + (data[i + 5] & 0xFF)] ^
+                    TABLE[256 + (data[i + 6] & 0xFF)] ^
+                    TABLE[data[i + 7] & 0xFF];
+        }
+        for (; i < end; i++) {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ data[i]) & 0xFF];
+        }
+        return crc;
+    }
+
+    @Override
+    public void update(int b) {
+        crc = update(crc, b);
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        crc = update(crc, b, off, len);
+    }
+
+    /**
+     * Adds a block of bytes to the CRC
+     *
+     * @param b Bytes to add
+     */
+    public void update(byte[] b) {
+        crc = update(crc, b, 0, b.length);
+    }
+
+    /**
+     * Returns the CRC so far as an int
+     *
+     * @return CRC, low byte first on the wire
+     */
+    public int getCRC() {
+        return crc;
+    }
+
+    @Override
+    public long getValue() {
+        return crc;
+    }
+
+    @Override
+    public void reset() {
+        crc = INITIAL_VALUE;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.util;
+
+import java.util.zip.Checksum;
+
+/**
+ * The longitudinal redundancy check used by Modbus ASCII - the two's
+ * complement of the 8 bit sum of the frame bytes.
+ * <p>
+ * Like {@link CRC16}, the static methods return a primitive, and an instance
+ * keeps a running checksum for bytes as they arrive. Running the check over a
+ * frame that ends with its own LRC gives zero.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public final class LRC implements Checksum {
+
+    private int sum;
+
+    /**
+     * Returns the LRC of a block of bytes
+     *
+     * @param data   Array holding the bytes
+     * @param offset Index of the first byte
+     * @param length Number of bytes
+     *
+     * @return LRC from 0 to 255
+     */
+    public static int calculate(byte[] data, int offset, int length) {
+        return -sum(0, data, offset, length) & 0xFF;
+    }
+
+    /**
+     * Adds a block of bytes to a running sum
+     *
+     * @param sum    Sum so far
+     * @param data   Array holding the bytes
+     * @param offset Index of the first byte
+     * @param length Number of bytes
+     *
+     * @return Updated sum, of which only the low 8 bits matter
+     */
+    public static int sum(int sum, byte[] data, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > data.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        for (int i = offset, end = offset + length; i < end; i++) {
+            sum += data[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void update(int b) {
+        sum += b;
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        sum = sum(sum, b, off, len);
+    }
+
+    /**
+     * Returns the LRC so far as an int
+     *
+     * @return LRC from 0 to 255
+     */
+    public int getLRC() {
+        return -sum & 0xFF;
+    }
+
+    @Override
+    public long getValue() {
+        return getLRC();
+    }
+
+    @Override
+    public void reset() {
+        sum = 0;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds with a fixed relative precision.
+ * <p>
+ * Like an HDR histogram, each power of two is split into 32 equal buckets, so
+ * any recorded value is known to within about 3% however large it is, and the
+ * whole range from a nanosecond up to about 18 minutes fits in a fixed array.
+ * Recording is a couple of atomic increments with no locking, so it can be done
+ * on every request from any number of threads. A {@link Snapshot} copies the
+ * counts for percentiles to be worked out.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Largest value tracked - larger values are recorded as this
+     */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value
+     *
+     * @param nanos Latency in nanoseconds - negative values are recorded as zero
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Returns the number of values recorded
+     *
+     * @return Count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Clears all recorded values
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * Copies the current counts. Values recorded while the copy is made may or
+     * may not be included.
+     *
+     * @return Snapshot
+     */
+    public Snapshot getSnapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sum.sum(), max.get());
+    }
+
+    /**
+     * Returns the bucket a value falls in
+     *
+     * @param value Value from 0 to MAX_VALUE
+     *
+     * @return Bucket index
+     */
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int)value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int)((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Returns the largest value that falls in a bucket
+     *
+     * @param index Bucket index
+     *
+     * @return Highest value of the bucket
+     */
+    private static long bucketHighestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long lowest = (long)(SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Point in time copy of a histogram
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * Returns a snapshot holding the values of this one and another
+         *
+         * @param other Snapshot to add
+         *
+         * @return Combined snapshot
+         */
+        public Snapshot merge(Snapshot other) {
+            long[] combined = counts.clone();
+            for (int i = 0; i < combined.length; i++) {
+                combined[i] += other.counts[i];
+            }
+            return new Snapshot(combined, count + other.count, sum + other.sum, Math.max(max, other.max));
+        }
+
+        /**
+         * Returns the number of values
+         *
+         * @return Count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the sum of the values
+         *
+         * @return Sum in nanoseconds
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * Returns the largest value
+         *
+         * @return Maximum in nanoseconds, 0 if there are no values
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the mean of the values
+         *
+         * @return Mean in nanoseconds, 0 if there are no values
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double)sum / count;
+        }
+
+        /**
+         * Returns the value that the given percentage of values are at or below
+         *
+         * @param percentile Percentile from 0 to 100
+         *
+         * @return Value in nanoseconds, accurate to about 3%, or 0 if there are no values
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            double p = Math.min(Math.max(percentile, 0), 100);
+            long target = Math.max(1, (long)Math.ceil(p / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(bucketHighestValue(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
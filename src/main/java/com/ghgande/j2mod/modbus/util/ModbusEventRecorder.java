@@ -0,0 +1,163 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.util;
+
+import com.ghgande.j2mod.modbus.io.ModbusTransactionResult;
+import com.ghgande.j2mod.modbus.msg.ModbusMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Receives the events of transactions, frames and connections so that they can
+ * be passed on to a profiler.
+ * <p>
+ * This class does nothing with them. If the JDK has Java Flight Recorder the
+ * recorder in the <tt>com.ghgande.j2mod.modbus.jfr</tt> package is used
+ * instead, which commits them as JFR events only while a recording has them
+ * enabled. Setting the system property <tt>com.ghgande.j2mod.jfr</tt> to
+ * <tt>false</tt> keeps the events from ever reaching JFR.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class ModbusEventRecorder {
+
+    /**
+     * System property that turns the JFR events off when set to <tt>false</tt>
+     */
+    public static final String JFR_PROPERTY = "com.ghgande.j2mod.jfr";
+
+    private static final Logger logger = LoggerFactory.getLogger(ModbusEventRecorder.class);
+    private static final String JFR_RECORDER = "com.ghgande.j2mod.modbus.jfr.JfrEventRecorder";
+    private static final ModbusEventRecorder instance = load();
+
+    /**
+     * Constructs a recorder that ignores all events
+     */
+    protected ModbusEventRecorder() {
+    }
+
+    /**
+     * Returns the recorder in use
+     *
+     * @return Recorder
+     */
+    public static ModbusEventRecorder getInstance() {
+        return instance;
+    }
+
+    /**
+     * Loads the JFR recorder if it is compiled in and the JDK supports it
+     *
+     * @return Recorder to use
+     */
+    private static ModbusEventRecorder load() {
+        if (!"false".equalsIgnoreCase(System.getProperty(JFR_PROPERTY))) {
+            try {
+                return (ModbusEventRecorder)Class.forName(JFR_RECORDER).getDeclaredConstructor().newInstance();
+            }
+            catch (Throwable e) {
+                logger.debug("Flight Recorder events are not available - {}", e.toString());
+            }
+        }
+        return new ModbusEventRecorder();
+    }
+
+    /**
+     * Tests if events are passed on to a profiler
+     *
+     * @return True if events can be recorded
+     */
+    public boolean isAvailable() {
+        return false;
+    }
+
+    /**
+     * Called before a transaction is executed
+     *
+     * @return Token to pass to {@link #endTransaction(Object, String, ModbusTransactionResult)}
+     * or null if the transaction is not being recorded
+     */
+    public Object beginTransaction() {
+        return null;
+    }
+
+    /**
+     * Called when a transaction has finished
+     *
+     * @param token    Token returned by {@link #beginTransaction()}
+     * @param endpoint Endpoint of the slave
+     * @param result   Outcome of the transaction
+     */
+    public void endTransaction(Object token, String endpoint, ModbusTransactionResult result) {
+    }
+
+    /**
+     * Called when a frame has been written
+     *
+     * @param endpoint Endpoint the frame was written to
+     * @param message  Message in the frame
+     */
+    public void frameSent(String endpoint, ModbusMessage message) {
+    }
+
+    /**
+     * Called when a frame has been read
+     *
+     * @param endpoint Endpoint the frame was read from
+     * @param message  Message in the frame
+     */
+    public void frameReceived(String endpoint, ModbusMessage message) {
+    }
+
+    /**
+     * Called when a connection is opened
+     *
+     * @param endpoint Remote end of the connection
+     * @param inbound  True if the connection was accepted by a slave
+     */
+    public void connectionOpened(String endpoint, boolean inbound) {
+    }
+
+    /**
+     * Called when a connection is closed
+     *
+     * @param endpoint Remote end of the connection
+     * @param inbound  True if the connection was accepted by a slave
+     */
+    public void connectionClosed(String endpoint, boolean inbound) {
+    }
+
+    /**
+     * Called when a slave closes a connection that has been idle for too long
+     *
+     * @param endpoint  Remote end of the connection
+     * @param idleNanos Time since the connection was last used
+     */
+    public void connectionIdleTimeout(String endpoint, long idleNanos) {
+    }
+
+    /**
+     * Called when a serial frame is dropped because its checksum is wrong
+     *
+     * @param endpoint Port the frame was read from
+     * @param length   Length of the frame without its checksum
+     * @param expected Checksum calculated from the frame
+     * @param actual   Checksum received
+     */
+    public void checksumError(String endpoint, int length, int expected, int actual) {
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.util;
+
+import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.io.ModbusTransactionResult;
+import com.ghgande.j2mod.modbus.msg.ExceptionResponse;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request counters and latency histograms keyed by endpoint, unit ID and function code.
+ * <p>
+ * Masters record each transaction they execute and slaves record each request
+ * they answer. The endpoint is the <tt>address:port</tt> of the remote slave for
+ * a master, the local <tt>address:port</tt> of the listener for a slave, and the
+ * port name for serial connections. Recording takes no locks; counters are
+ * <tt>LongAdder</tt>s and latencies go into a {@link LatencyHistogram}.
+ * <p>
+ * Each endpoint, unit and function code seen costs a histogram of about 9 KB,
+ * so masters and slaves only record once they are given an instance.
+ * <p>
+ * {@link #getSnapshots()} returns a copy of every counter for monitoring.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class ModbusMetrics {
+
+    private final ConcurrentMap<String, EndpointStats> stats = new ConcurrentHashMap<String, EndpointStats>();
+
+    /**
+     * Records a transaction executed by a master. The latency is only recorded
+     * if a response was received.
+     *
+     * @param endpoint Slave the request was sent to
+     * @param result   Result of the transaction
+     * @param nanos    Time the transaction took, including retries
+     */
+    public void recordTransaction(String endpoint, ModbusTransactionResult result, long nanos) {
+        ModbusRequest request = result.getRequest();
+        if (request == null) {
+            return;
+        }
+        Stats s = getStats(endpoint, request.getUnitID(), request.getFunctionCode());
+        s.requests.increment();
+        if (result.getAttempts() > 1) {
+            s.retries.add(result.getAttempts() - 1);
+        }
+        switch (result.getStatus()) {
+            case SUCCESS:
+                s.responses.increment();
+                s.latency.record(nanos);
+                break;
+            case SLAVE_EXCEPTION:
+                s.responses.increment();
+                s.exceptions.increment();
+                s.latency.record(nanos);
+                break;
+            default:
+                s.errors.increment();
+                if (isTimeout(result.getCause())) {
+                    s.timeouts.increment();
+                }
+        }
+    }
+
+    /**
+     * Records a request answered by a slave
+     *
+     * @param endpoint Listener the request arrived on
+     * @param request  Request received
+     * @param response Response sent, null if it could not be sent
+     * @param nanos    Time from reading the request to sending the response
+     */
+    public void recordRequest(String endpoint, ModbusRequest request, ModbusResponse response, long nanos) {
+        Stats s = getStats(endpoint, request.getUnitID(), request.getFunctionCode());
+        s.requests.increment();
+        if (response == null) {
+            s.errors.increment();
+            return;
+        }
+        s.responses.increment();
+        if (response instanceof ExceptionResponse) {
+            s.exceptions.increment();
+        }
+        s.latency.record(nanos);
+    }
+
+    /**
+     * Returns a copy of the counters of every endpoint, unit and function code seen
+     *
+     * @return Snapshots in no particular order
+     */
+    public List<Snapshot> getSnapshots() {
+        List<Snapshot> list = new ArrayList<Snapshot>();
+        for (Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+            AtomicReferenceArray<AtomicReferenceArray<Stats>> units = entry.getValue().units;
+            for (int unitId = 0; unitId < units.length(); unitId++) {
+                AtomicReferenceArray<Stats> functions = units.get(unitId);
+                if (functions == null) {
+                    continue;
+                }
+                for (int functionCode = 0; functionCode < functions.length(); functionCode++) {
+                    Stats s = functions.get(functionCode);
+                    if (s != null) {
+                        list.add(new Snapshot(entry.getKey(), unitId, functionCode,
+                                s.requests.sum(), s.responses.sum(), s.exceptions.sum(), s.timeouts.sum(),
+                                s.retries.sum(), s.errors.sum(), s.latency.getSnapshot()));
+                    }
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Removes all the counters
+     */
+    public void reset() {
+        stats.clear();
+    }
+
+    /**
+     * Returns the counters of an endpoint, unit and function code, creating them
+     * the first time they are seen. The endpoint string is the only key looked up
+     * in a map, so nothing is allocated once the counters exist.
+     *
+     * @param endpoint     Endpoint, may be null
+     * @param unitId       Unit ID
+     * @param functionCode Function code
+     *
+     * @return Counters
+     */
+    private Stats getStats(String endpoint, int unitId, int functionCode) {
+        String name = endpoint == null ? "" : endpoint;
+        EndpointStats e = stats.get(name);
+        if (e == null) {
+            EndpointStats created = new EndpointStats();
+            e = stats.putIfAbsent(name, created);
+            if (e == null) {
+                e = created;
+            }
+        }
+        return e.get(unitId & 0xFF, functionCode & 0xFF);
+    }
+
+    /**
+     * Returns true if the failure was caused by a read timing out, which the
+     * transports report either as an <tt>InterruptedIOException</tt> or as a
+     * <tt>ModbusIOException</tt> flagged as a timeout
+     *
+     * @param cause Cause of the failure
+     *
+     * @return True if it was a timeout
+     */
+    private static boolean isTimeout(Throwable cause) {
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof InterruptedIOException || (t instanceof ModbusIOException && ((ModbusIOException)t).isTimeout())) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counters of one endpoint, indexed by unit ID and then function code
+     */
+    private static final class EndpointStats {
+        final AtomicReferenceArray<AtomicReferenceArray<Stats>> units = new AtomicReferenceArray<AtomicReferenceArray<Stats>>(256);
+
+        Stats get(int unitId, int functionCode) {
+            AtomicReferenceArray<Stats> functions = units.get(unitId);
+            if (functions == null) {
+                units.compareAndSet(unitId, null, new AtomicReferenceArray<Stats>(256));
+                functions = units.get(unitId);
+            }
+            Stats s = functions.get(functionCode);
+            if (s == null) {
+                functions.compareAndSet(functionCode, null, new Stats());
+                s = functions.get(functionCode);
+            }
+            return s;
+        }
+    }
+
+    /**
+     * Live counters of one endpoint, unit and function code
+     */
+    private static final class Stats {
+        final LongAdder requests = new LongAdder();
+        final LongAdder responses = new LongAdder();
+        final LongAdder exceptions = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+    }
+
+    /**
+     * Copy of the counters of one endpoint, unit and function code
+     */
+    public static final class Snapshot {
+        private final String endpoint;
+        private final int unitId;
+        private final int functionCode;
+        private final long requests;
+        private final long responses;
+        private final long exceptions;
+        private final long timeouts;
+        private final long retries;
+        private final long errors;
+        private final LatencyHistogram.Snapshot latency;
+
+        Snapshot(String endpoint, int unitId, int functionCode, long requests, long responses, long exceptions,
+                 long timeouts, long retries, long errors, LatencyHistogram.Snapshot latency) {
+            this.endpoint = endpoint;
+            this.unitId = unitId;
+            this.functionCode = functionCode;
+            this.requests = requests;
+            this.responses = responses;
+            this.exceptions = exceptions;
+            this.timeouts = timeouts;
+            this.retries = retries;
+            this.errors = errors;
+            this.latency = latency;
+        }
+
+        /**
+         * Returns the endpoint
+         *
+         * @return Address and port, or serial port name
+         */
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        /**
+         * Returns the unit ID
+         *
+         * @return Unit ID
+         */
+        public int getUnitId() {
+            return unitId;
+        }
+
+        /**
+         * Returns the function code of the requests
+         *
+         * @return Function code
+         */
+        public int getFunctionCode() {
+            return functionCode;
+        }
+
+        /**
+         * Returns the number of requests
+         *
+         * @return Request count
+         */
+        public long getRequests() {
+            return requests;
+        }
+
+        /**
+         * Returns the number of responses, including exception responses
+         *
+         * @return Response count
+         */
+        public long getResponses() {
+            return responses;
+        }
+
+        /**
+         * Returns the number of exception responses
+         *
+         * @return Exception count
+         */
+        public long getExceptions() {
+            return exceptions;
+        }
+
+        /**
+         * Returns the number of transactions that failed because of a timeout
+         *
+         * @return Timeout count
+         */
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        /**
+         * Returns the number of retries made by masters
+         *
+         * @return Retry count
+         */
+        public long getRetries() {
+            return retries;
+        }
+
+        /**
+         * Returns the number of requests that got no response, including timeouts
+         *
+         * @return Error count
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * Returns the latencies of the requests that got a response
+         *
+         * @return Latency histogram snapshot
+         */
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s unit %d fc %d: requests=%d responses=%d exceptions=%d timeouts=%d retries=%d errors=%d p50=%dns p99=%dns max=%dns",
+                    endpoint, unitId, functionCode, requests, responses, exceptions, timeouts, retries, errors,
+                    latency.getValueAtPercentile(50), latency.getValueAtPercentile(99), latency.getMax());
+        }
+    }
+}
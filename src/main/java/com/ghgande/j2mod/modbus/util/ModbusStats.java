@@ -0,0 +1,267 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.util;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base of the management beans of masters and slaves.
+ * <p>
+ * The totals are worked out from the {@link ModbusMetrics} of the master or
+ * slave each time they are read, so the bean costs nothing between reads. The
+ * same beans feed the {@link PrometheusExporter}.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public abstract class ModbusStats implements ModbusStatsMBean {
+
+    /**
+     * Domain of the object names of the beans
+     */
+    public static final String DOMAIN = "com.ghgande.j2mod";
+
+    private static final long RATE_WINDOW = TimeUnit.MINUTES.toNanos(1);
+
+    private final String name;
+    private ObjectName objectName;
+    private long sampleTime;
+    private long sampleCount;
+    private long previousTime;
+    private long previousCount;
+
+    /**
+     * Constructs the statistics
+     *
+     * @param name Name to register under, unique for the type
+     */
+    protected ModbusStats(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Name must be set");
+        }
+        this.name = name;
+        sampleTime = System.nanoTime();
+        previousTime = sampleTime;
+    }
+
+    /**
+     * Returns the metrics to report
+     *
+     * @return Metrics or null if recording is turned off
+     */
+    public abstract ModbusMetrics getMetrics();
+
+    /**
+     * Returns the type part of the object name
+     *
+     * @return Type such as Slave or Master
+     */
+    protected abstract String getType();
+
+    /**
+     * Returns the current values of the gauges of the master or slave, such as
+     * the number of connections, for exporters
+     *
+     * @return Gauge values keyed by name, in lower case with underscores
+     */
+    public Map<String, Number> getGauges() {
+        Map<String, Number> gauges = new LinkedHashMap<String, Number>();
+        addGauges(gauges);
+        return gauges;
+    }
+
+    /**
+     * Adds the gauges of the master or slave
+     *
+     * @param gauges Map to add the values to
+     */
+    protected void addGauges(Map<String, Number> gauges) {
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the name this bean is registered under
+     *
+     * @return Object name
+     *
+     * @throws JMException if the name is not valid
+     */
+    public synchronized ObjectName getObjectName() throws JMException {
+        if (objectName == null) {
+            objectName = new ObjectName(DOMAIN + ":type=" + getType() + ",name=" + ObjectName.quote(name));
+        }
+        return objectName;
+    }
+
+    /**
+     * Registers this bean with the platform MBean server
+     *
+     * @throws JMException if a bean is already registered under the same name
+     */
+    public void register() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, getObjectName());
+    }
+
+    /**
+     * Removes this bean from the platform MBean server, if it is registered
+     *
+     * @throws JMException if it cannot be removed
+     */
+    public void unregister() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(getObjectName())) {
+            server.unregisterMBean(getObjectName());
+        }
+    }
+
+    @Override
+    public long getRequestCount() {
+        return getTotals().requests;
+    }
+
+    @Override
+    public long getResponseCount() {
+        return getTotals().responses;
+    }
+
+    @Override
+    public long getExceptionCount() {
+        return getTotals().exceptions;
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return getTotals().timeouts;
+    }
+
+    @Override
+    public long getRetryCount() {
+        return getTotals().retries;
+    }
+
+    @Override
+    public long getErrorCount() {
+        return getTotals().errors;
+    }
+
+    @Override
+    public synchronized double getRequestRate() {
+        long now = System.nanoTime();
+        long count = getRequestCount();
+        if (count < sampleCount || count < previousCount) {
+            // The metrics have been reset
+            previousCount = 0;
+            sampleCount = 0;
+        }
+        if (now - sampleTime >= RATE_WINDOW) {
+            previousTime = sampleTime;
+            previousCount = sampleCount;
+            sampleTime = now;
+            sampleCount = count;
+        }
+        long elapsed = now - previousTime;
+        return elapsed <= 0 ? 0 : (count - previousCount) * (double)TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    @Override
+    public double getLatencyMeanMillis() {
+        LatencyHistogram.Snapshot latency = getTotals().latency;
+        return latency == null ? 0 : toMillis(latency.getMean());
+    }
+
+    @Override
+    public double getLatency50thPercentileMillis() {
+        return getLatencyPercentileMillis(50);
+    }
+
+    @Override
+    public double getLatency90thPercentileMillis() {
+        return getLatencyPercentileMillis(90);
+    }
+
+    @Override
+    public double getLatency99thPercentileMillis() {
+        return getLatencyPercentileMillis(99);
+    }
+
+    @Override
+    public double getLatencyMaxMillis() {
+        LatencyHistogram.Snapshot latency = getTotals().latency;
+        return latency == null ? 0 : toMillis(latency.getMax());
+    }
+
+    @Override
+    public void resetMetrics() {
+        ModbusMetrics metrics = getMetrics();
+        if (metrics != null) {
+            metrics.reset();
+        }
+    }
+
+    private double getLatencyPercentileMillis(double percentile) {
+        LatencyHistogram.Snapshot latency = getTotals().latency;
+        return latency == null ? 0 : toMillis(latency.getValueAtPercentile(percentile));
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Adds up the snapshots of every endpoint, unit and function code
+     *
+     * @return Totals
+     */
+    private Totals getTotals() {
+        Totals totals = new Totals();
+        ModbusMetrics metrics = getMetrics();
+        if (metrics != null) {
+            for (ModbusMetrics.Snapshot snapshot : metrics.getSnapshots()) {
+                totals.requests += snapshot.getRequests();
+                totals.responses += snapshot.getResponses();
+                totals.exceptions += snapshot.getExceptions();
+                totals.timeouts += snapshot.getTimeouts();
+                totals.retries += snapshot.getRetries();
+                totals.errors += snapshot.getErrors();
+                totals.latency = totals.latency == null ? snapshot.getLatency() : totals.latency.merge(snapshot.getLatency());
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Sums of the counters
+     */
+    private static final class Totals {
+        long requests;
+        long responses;
+        long exceptions;
+        long timeouts;
+        long retries;
+        long errors;
+        LatencyHistogram.Snapshot latency;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.util;
+
+/**
+ * Management interface of the request statistics of a master or slave, the
+ * totals over all the endpoints, units and function codes in its {@link ModbusMetrics}
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public interface ModbusStatsMBean {
+
+    /**
+     * Returns the name the statistics are registered under
+     *
+     * @return Name
+     */
+    String getName();
+
+    /**
+     * Returns the number of requests
+     *
+     * @return Request count
+     */
+    long getRequestCount();
+
+    /**
+     * Returns the number of responses, including exception responses
+     *
+     * @return Response count
+     */
+    long getResponseCount();
+
+    /**
+     * Returns the number of exception responses
+     *
+     * @return Exception count
+     */
+    long getExceptionCount();
+
+    /**
+     * Returns the number of transactions that timed out
+     *
+     * @return Timeout count
+     */
+    long getTimeoutCount();
+
+    /**
+     * Returns the number of retries
+     *
+     * @return Retry count
+     */
+    long getRetryCount();
+
+    /**
+     * Returns the number of requests that got no response
+     *
+     * @return Error count
+     */
+    long getErrorCount();
+
+    /**
+     * Returns the recent request rate, averaged over one to two minutes
+     *
+     * @return Requests per second
+     */
+    double getRequestRate();
+
+    /**
+     * Returns the mean latency
+     *
+     * @return Mean in milliseconds
+     */
+    double getLatencyMeanMillis();
+
+    /**
+     * Returns the median latency
+     *
+     * @return 50th percentile in milliseconds
+     */
+    double getLatency50thPercentileMillis();
+
+    /**
+     * Returns the 90th percentile latency
+     *
+     * @return 90th percentile in milliseconds
+     */
+    double getLatency90thPercentileMillis();
+
+    /**
+     * Returns the 99th percentile latency
+     *
+     * @return 99th percentile in milliseconds
+     */
+    double getLatency99thPercentileMillis();
+
+    /**
+     * Returns the largest latency
+     *
+     * @return Maximum in milliseconds
+     */
+    double getLatencyMaxMillis();
+
+    /**
+     * Clears all the counters and latencies
+     */
+    void resetMetrics();
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the statistics of masters and slaves in the Prometheus text format.
+ * <p>
+ * Each {@link ModbusStats} added is reported with a <tt>role</tt> and
+ * <tt>source</tt> label. The counters and latencies of every endpoint, unit and
+ * function code are reported separately, with latencies as a summary in
+ * seconds, together with the gauges of the master or slave. {@link #scrape()}
+ * returns the text, and {@link #start(InetSocketAddress)} serves it on
+ * <tt>/metrics</tt> using the HTTP server built into the JDK.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class PrometheusExporter {
+
+    /**
+     * Content type of the text format
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final Logger logger = LoggerFactory.getLogger(PrometheusExporter.class);
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final List<ModbusStats> stats = new CopyOnWriteArrayList<ModbusStats>();
+    private HttpServer server;
+
+    /**
+     * Adds the statistics of a master or slave
+     *
+     * @param modbusStats Statistics to publish
+     *
+     * @return This exporter
+     */
+    public PrometheusExporter add(ModbusStats modbusStats) {
+        stats.add(modbusStats);
+        return this;
+    }
+
+    /**
+     * Stops publishing the statistics of a master or slave
+     *
+     * @param modbusStats Statistics to remove
+     */
+    public void remove(ModbusStats modbusStats) {
+        stats.remove(modbusStats);
+    }
+
+    /**
+     * Starts serving the statistics on <tt>/metrics</tt>
+     *
+     * @param address Address and port to listen on, port 0 for any free port
+     *
+     * @throws IOException if the server cannot be started
+     */
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Exporter is already running");
+        }
+        server = HttpServer.create(address, 0);
+        server.createContext("/metrics", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                }
+                catch (RuntimeException e) {
+                    logger.error("Cannot produce metrics - {}", e.getMessage());
+                    exchange.sendResponseHeaders(500, -1);
+                }
+                finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+        logger.debug("Serving Modbus metrics on {}", server.getAddress());
+    }
+
+    /**
+     * Stops serving the statistics
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    /**
+     * Returns the port the statistics are served on
+     *
+     * @return Port or -1 if not running
+     */
+    public synchronized int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the current statistics in the Prometheus text format
+     *
+     * @return Text exposition
+     */
+    public String scrape() {
+        Map<String, Family> families = new LinkedHashMap<String, Family>();
+        family(families, "modbus_requests_total", "counter", "Requests sent by masters or received by slaves");
+        family(families, "modbus_responses_total", "counter", "Responses received by masters or sent by slaves, including exceptions");
+        family(families, "modbus_exceptions_total", "counter", "Exception responses");
+        family(families, "modbus_timeouts_total", "counter", "Transactions that timed out");
+        family(families, "modbus_retries_total", "counter", "Transaction retries");
+        family(families, "modbus_errors_total", "counter", "Requests that got no response");
+        family(families, "modbus_latency_seconds", "summary", "Time from request to response");
+
+        for (ModbusStats modbusStats : stats) {
+            String role = modbusStats.getType().toLowerCase(Locale.ROOT);
+            String source = "role=\"" + escape(role) + "\",source=\"" + escape(modbusStats.getName()) + "\"";
+            ModbusMetrics metrics = modbusStats.getMetrics();
+            if (metrics != null) {
+                for (ModbusMetrics.Snapshot snapshot : metrics.getSnapshots()) {
+                    String labels = source + ",endpoint=\"" + escape(snapshot.getEndpoint()) + "\",unit=\"" + snapshot.getUnitId() + "\",function=\"" + snapshot.getFunctionCode() + "\"";
+                    families.get("modbus_requests_total").sample("", labels, snapshot.getRequests());
+                    families.get("modbus_responses_total").sample("", labels, snapshot.getResponses());
+                    families.get("modbus_exceptions_total").sample("", labels, snapshot.getExceptions());
+                    families.get("modbus_timeouts_total").sample("", labels, snapshot.getTimeouts());
+                    families.get("modbus_retries_total").sample("", labels, snapshot.getRetries());
+                    families.get("modbus_errors_total").sample("", labels, snapshot.getErrors());
+                    LatencyHistogram.Snapshot latency = snapshot.getLatency();
+                    Family family = families.get("modbus_latency_seconds");
+                    for (double quantile : QUANTILES) {
+                        family.sample("", labels + ",quantile=\"" + quantile + "\"", latency.getValueAtPercentile(quantile * 100) / NANOS_PER_SECOND);
+                    }
+                    family.sample("_sum", labels, latency.getSum() / NANOS_PER_SECOND);
+                    family.sample("_count", labels, latency.getCount());
+                }
+            }
+            for (Map.Entry<String, Number> gauge : modbusStats.getGauges().entrySet()) {
+                String name = "modbus_" + role + "_" + gauge.getKey();
+                Family family = families.get(name);
+                if (family == null) {
+                    family = family(families, name, "gauge", null);
+                }
+                family.sample("", source, gauge.getValue());
+            }
+        }
+
+        StringBuilder text = new StringBuilder();
+        for (Family family : families.values()) {
+            family.appendTo(text);
+        }
+        return text.toString();
+    }
+
+    private static Family family(Map<String, Family> families, String name, String type, String help) {
+        Family family = new Family(name, type, help);
+        families.put(name, family);
+        return family;
+    }
+
+    /**
+     * Escapes a label value
+     *
+     * @param value Value
+     *
+     * @return Escaped value
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Samples of one metric name
+     */
+    private static final class Family {
+        private final String name;
+        private final String type;
+        private final String help;
+        private final StringBuilder samples = new StringBuilder();
+
+        Family(String name, String type, String help) {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+        }
+
+        void sample(String suffix, String labels, Number value) {
+            samples.append(name).append(suffix).append('{').append(labels).append("} ").append(value).append('\n');
+        }
+
+        void appendTo(StringBuilder text) {
+            if (samples.length() == 0) {
+                return;
+            }
+            if (help != null) {
+                text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            }
+            text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            text.append(samples);
+        }
+    }
+}
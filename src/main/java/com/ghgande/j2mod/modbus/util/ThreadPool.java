@@ -21,6 +21,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class implementing a simple thread pool.
@@ -36,6 +37,7 @@ public class ThreadPool {
     private final LinkedBlockingQueue<Runnable> taskPool;
     private final List<PoolThread> threadPool = new ArrayList<PoolThread>();
     private final int size;
+    private final AtomicInteger activeCount = new AtomicInteger();
     private boolean running;
 
     /**
@@ -48,6 +50,33 @@ public class ThreadPool {
         taskPool = new LinkedBlockingQueue<Runnable>();
     }
 
+    /**
+     * Returns the number of threads in the pool
+     *
+     * @return Pool size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of threads currently running a task
+     *
+     * @return Busy thread count
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * Returns the number of tasks waiting for a free thread
+     *
+     * @return Queue depth
+     */
+    public int getQueueSize() {
+        return taskPool.size();
+    }
+
     /**
      * Execute the <tt>Runnable</tt> instance
      * through a thread in this <tt>ThreadPool</tt>.
@@ -114,7 +143,14 @@ public class ThreadPool {
             do {
                 try {
                     logger.debug("{}", this);
-                    taskPool.take().run();
+                    Runnable task = taskPool.take();
+                    activeCount.incrementAndGet();
+                    try {
+                        task.run();
+                    }
+                    finally {
+                        activeCount.decrementAndGet();
+                    }
                 }
                 catch (Exception ex) {
                     if (running) {
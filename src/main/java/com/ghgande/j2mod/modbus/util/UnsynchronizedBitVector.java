@@ -0,0 +1,73 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus.util;
+
+/**
+ * <tt>BitVector</tt> for use by a single thread.
+ * <p>
+ * The byte array accessors of <tt>BitVector</tt> are synchronized so that a
+ * vector can be shared; this variant sets its bytes without locking and offers
+ * {@link #getBytesUnsynchronized()} for code that owns its vectors, such as a
+ * master processing thousands of coils from one thread. Coils and discrete
+ * inputs decoded from a message are held in this class.
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class UnsynchronizedBitVector extends BitVector {
+
+    /**
+     * Constructs a new <tt>UnsynchronizedBitVector</tt> instance
+     * with a given size.
+     *
+     * @param size the number of bits the <tt>UnsynchronizedBitVector</tt>
+     *             should be able to hold.
+     */
+    public UnsynchronizedBitVector(int size) {
+        super(size);
+    }
+
+    /**
+     * Factory method for creating an <tt>UnsynchronizedBitVector</tt> instance
+     * holding a copy of the given byte data.
+     *
+     * @param data a byte[] containing packed bits.
+     * @param size Size to set the bit vector to
+     *
+     * @return the newly created <tt>UnsynchronizedBitVector</tt> instance.
+     */
+    public static UnsynchronizedBitVector createUnsynchronizedBitVector(byte[] data, int size) {
+        UnsynchronizedBitVector bv = new UnsynchronizedBitVector(data.length * 8);
+        bv.setBytes(data, size);
+        return bv;
+    }
+
+    /**
+     * Returns a copy of the <tt>byte[]</tt> which stores
+     * the bits of this <tt>UnsynchronizedBitVector</tt>
+     * without locking.
+     *
+     * @return the <tt>byte[]</tt> used to store the bits.
+     */
+    public byte[] getBytesUnsynchronized() {
+        return copyBytes();
+    }
+
+    @Override
+    public void setBytes(byte[] data) {
+        setBytes(data, size());
+    }
+}
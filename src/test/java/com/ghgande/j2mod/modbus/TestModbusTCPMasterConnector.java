@@ -0,0 +1,45 @@
+package com.ghgande.j2mod.modbus;
+
+import com.ghgande.j2mod.modbus.facade.ModbusTCPMaster;
+import com.ghgande.j2mod.modbus.net.TCPMasterConnector;
+import com.ghgande.j2mod.modbus.utils.AbstractTestModbusTCPMaster;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the parallel opening of connections by the {@link TCPMasterConnector}
+ */
+public class TestModbusTCPMasterConnector extends AbstractTestModbusTCPMaster {
+
+    private static final int UNUSED_PORT = 2504;
+
+    @Test
+    public void testConnectMany() throws Exception {
+        List<ModbusTCPMaster> masters = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            masters.add(new ModbusTCPMaster(LOCALHOST, PORT));
+        }
+        ModbusTCPMaster unreachable = new ModbusTCPMaster(LOCALHOST, UNUSED_PORT, 1000, false);
+        masters.add(unreachable);
+        try {
+            Map<ModbusTCPMaster, Exception> failures = ModbusTCPMaster.connect(masters, new TCPMasterConnector(2));
+            assertEquals("Only the unreachable master should fail", 1, failures.size());
+            assertTrue("Unreachable master should be reported", failures.containsKey(unreachable));
+            assertFalse("Unreachable master should not be connected", unreachable.isConnected());
+            for (ModbusTCPMaster tcpMaster : masters.subList(0, 3)) {
+                assertTrue("Master should be connected", tcpMaster.isConnected());
+                assertEquals("Incorrect value for holding register 1", 251, tcpMaster.readMultipleRegisters(UNIT_ID, 0, 1)[0].getValue());
+            }
+        }
+        finally {
+            for (ModbusTCPMaster tcpMaster : masters) {
+                tcpMaster.disconnect();
+            }
+        }
+    }
+}
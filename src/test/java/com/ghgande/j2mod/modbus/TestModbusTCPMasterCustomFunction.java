@@ -0,0 +1,161 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus;
+
+import com.ghgande.j2mod.modbus.io.ModbusTCPTransaction;
+import com.ghgande.j2mod.modbus.io.ModbusTCPTransport;
+import com.ghgande.j2mod.modbus.msg.*;
+import com.ghgande.j2mod.modbus.net.AbstractModbusListener;
+import com.ghgande.j2mod.modbus.utils.AbstractTestModbusTCPMaster;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.Socket;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests user defined function codes registered with the function registry
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class TestModbusTCPMasterCustomFunction extends AbstractTestModbusTCPMaster {
+
+    private static final int INCREMENT = 65;
+
+    @After
+    public void unregister() {
+        ModbusFunctionRegistry.unregister(INCREMENT);
+    }
+
+    @Test
+    public void testCustomFunction() throws Exception {
+        ModbusFunctionRegistry.register(INCREMENT, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                return new IncrementRequest();
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return new IncrementResponse();
+            }
+        });
+        ModbusResponse response = execute(new IncrementRequest(41));
+        assertTrue("Response should be an increment response", response instanceof IncrementResponse);
+        assertEquals("Incorrect result", 42, ((IncrementResponse)response).value);
+    }
+
+    @Test
+    public void testUnregisteredFunction() throws Exception {
+        try {
+            execute(new IncrementRequest(41));
+            fail("Unregistered function should be rejected");
+        }
+        catch (ModbusSlaveException e) {
+            assertEquals("Incorrect exception code", Modbus.ILLEGAL_FUNCTION_EXCEPTION, e.getType());
+        }
+    }
+
+    private static ModbusResponse execute(ModbusRequest request) throws Exception {
+        ModbusTCPTransport transport = new ModbusTCPTransport(new Socket(LOCALHOST, PORT));
+        try {
+            request.setUnitID(UNIT_ID);
+            ModbusTCPTransaction trans = (ModbusTCPTransaction)transport.createTransaction();
+            trans.setRequest(request);
+            trans.execute();
+            return trans.getResponse();
+        }
+        finally {
+            transport.close();
+        }
+    }
+
+    /**
+     * Request that asks the slave to add one to a value
+     */
+    private static class IncrementRequest extends ModbusRequest {
+        private int value;
+
+        IncrementRequest() {
+            setFunctionCode(INCREMENT);
+            setDataLength(2);
+        }
+
+        IncrementRequest(int value) {
+            this();
+            this.value = value;
+        }
+
+        @Override
+        public ModbusResponse getResponse() {
+            return updateResponseWithHeader(new IncrementResponse());
+        }
+
+        @Override
+        public ModbusResponse createResponse(AbstractModbusListener listener) {
+            IncrementResponse response = (IncrementResponse)getResponse();
+            response.value = (value + 1) & 0xFFFF;
+            return response;
+        }
+
+        @Override
+        public void writeData(DataOutput dout) throws IOException {
+            dout.writeShort(value);
+        }
+
+        @Override
+        public void readData(DataInput din) throws IOException {
+            value = din.readUnsignedShort();
+        }
+
+        @Override
+        public byte[] getMessage() {
+            return new byte[]{(byte)(value >> 8), (byte)value};
+        }
+    }
+
+    /**
+     * Response holding the incremented value
+     */
+    private static class IncrementResponse extends ModbusResponse {
+        private int value;
+
+        IncrementResponse() {
+            setFunctionCode(INCREMENT);
+            setDataLength(2);
+        }
+
+        @Override
+        public void writeData(DataOutput dout) throws IOException {
+            dout.writeShort(value);
+        }
+
+        @Override
+        public void readData(DataInput din) throws IOException {
+            value = din.readUnsignedShort();
+        }
+
+        @Override
+        public byte[] getMessage() {
+            return new byte[]{(byte)(value >> 8), (byte)value};
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus;
+
+import com.ghgande.j2mod.modbus.util.ModbusEventRecorder;
+import com.ghgande.j2mod.modbus.utils.AbstractTestModbusTCPMaster;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the Flight Recorder events of a master and a slave
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class TestModbusTCPMasterFlightRecorder extends AbstractTestModbusTCPMaster {
+
+    private static int count(List<RecordedEvent> events, String name, boolean inbound) {
+        int count = 0;
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name) && (!event.hasField("inbound") || event.getBoolean("inbound") == inbound)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        assertTrue("Flight Recorder events should be available", ModbusEventRecorder.getInstance().isAvailable());
+
+        File file = File.createTempFile("j2mod", ".jfr");
+        try {
+            Recording recording = new Recording();
+            recording.enable("com.ghgande.j2mod.Transaction");
+            recording.enable("com.ghgande.j2mod.FrameSent");
+            recording.enable("com.ghgande.j2mod.FrameReceived");
+            recording.enable("com.ghgande.j2mod.ConnectionOpened");
+            recording.enable("com.ghgande.j2mod.ConnectionClosed");
+            recording.start();
+
+            master.disconnect();
+            master.connect();
+            for (int i = 0; i < 3; i++) {
+                assertEquals("Incorrect register value", 251, master.readMultipleRegisters(UNIT_ID, 0, 1)[0].getValue());
+            }
+
+            // The slave sends its response after the master reads it, give it time to be committed
+
+            Thread.sleep(100);
+            recording.stop();
+            recording.dump(file.toPath());
+            recording.close();
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+            RecordedEvent transaction = null;
+            for (RecordedEvent event : events) {
+                if (event.getEventType().getName().equals("com.ghgande.j2mod.Transaction")) {
+                    transaction = event;
+                }
+            }
+            assertNotNull("Transaction should be recorded", transaction);
+            assertEquals("Incorrect endpoint", LOCALHOST + ":" + PORT, transaction.getString("endpoint"));
+            assertEquals("Incorrect unit", UNIT_ID, transaction.getInt("unitId"));
+            assertEquals("Incorrect function", Modbus.READ_MULTIPLE_REGISTERS, transaction.getInt("functionCode"));
+            assertEquals("Incorrect status", "SUCCESS", transaction.getString("status"));
+            assertTrue("Incorrect request size", transaction.getInt("requestBytes") > 0);
+            assertTrue("Transaction should have a duration", !transaction.getDuration().isNegative());
+
+            assertEquals("Incorrect transaction count", 3, count(events, "com.ghgande.j2mod.Transaction", false));
+            assertEquals("Master and slave should each send 3 frames", 6, count(events, "com.ghgande.j2mod.FrameSent", false));
+            assertEquals("Master and slave should each receive 3 frames", 6, count(events, "com.ghgande.j2mod.FrameReceived", false));
+            assertEquals("Master should open a connection", 1, count(events, "com.ghgande.j2mod.ConnectionOpened", false));
+            assertEquals("Slave should accept a connection", 1, count(events, "com.ghgande.j2mod.ConnectionOpened", true));
+            assertEquals("Master should close its connection", 1, count(events, "com.ghgande.j2mod.ConnectionClosed", false));
+        }
+        finally {
+            assertTrue("Cannot delete recording", file.delete());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus;
+
+import com.ghgande.j2mod.modbus.io.ModbusFrameRecorder;
+import com.ghgande.j2mod.modbus.utils.AbstractTestModbusTCPMaster;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the frames recorded by a master and a slave
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class TestModbusTCPMasterFrameRecorder extends AbstractTestModbusTCPMaster {
+
+    @Test
+    public void testFrames() throws Exception {
+        ModbusFrameRecorder recorder = master.getTransport().getFrameRecorder();
+        assertNotNull("Frames should be recorded by default", recorder);
+        recorder.clear();
+
+        assertEquals("Incorrect register value", 251, master.readMultipleRegisters(UNIT_ID, 0, 1)[0].getValue());
+
+        List<ModbusFrameRecorder.Frame> frames = recorder.getFrames();
+        assertEquals("Request and response should be recorded", 2, frames.size());
+        assertEquals("Incorrect direction", ModbusFrameRecorder.Direction.SENT, frames.get(0).getDirection());
+        assertEquals("Incorrect request length", 12, frames.get(0).getLength());
+        assertEquals("Incorrect direction", ModbusFrameRecorder.Direction.RECEIVED, frames.get(1).getDirection());
+        assertEquals("Incorrect response length", 11, frames.get(1).getLength());
+        assertEquals("Incorrect function code", Modbus.READ_MULTIPLE_REGISTERS, frames.get(1).getData()[7]);
+
+        // The slave records its response once written, which can be after the master has read it
+
+        long deadline = System.currentTimeMillis() + 2000;
+        String dump = slave.dumpFrames();
+        while (!dump.contains("SENT") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            dump = slave.dumpFrames();
+        }
+        assertTrue("Slave should dump the request: " + dump, dump.contains("RECEIVED  12: "));
+        assertTrue("Slave should dump the response: " + dump, dump.contains("SENT      11: "));
+    }
+}
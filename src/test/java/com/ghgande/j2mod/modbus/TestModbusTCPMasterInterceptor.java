@@ -0,0 +1,111 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus;
+
+import com.ghgande.j2mod.modbus.io.AbstractModbusTransport;
+import com.ghgande.j2mod.modbus.io.AbstractTransportInterceptor;
+import com.ghgande.j2mod.modbus.msg.ModbusMessage;
+import com.ghgande.j2mod.modbus.utils.AbstractTestModbusTCPMaster;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the interceptors of a TCP transport
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class TestModbusTCPMasterInterceptor extends AbstractTestModbusTCPMaster {
+
+    private static class RecordingInterceptor extends AbstractTransportInterceptor {
+        final List<byte[]> written = new ArrayList<byte[]>();
+        final List<byte[]> read = new ArrayList<byte[]>();
+        final List<ModbusIOException> errors = new ArrayList<ModbusIOException>();
+        int failures;
+
+        @Override
+        public void beforeWrite(AbstractModbusTransport transport, ModbusMessage msg) throws ModbusIOException {
+            if (failures > 0) {
+                failures--;
+                throw new ModbusIOException("Injected fault");
+            }
+        }
+
+        @Override
+        public void afterWrite(AbstractModbusTransport transport, ModbusMessage msg, byte[] frame, int offset, int length) {
+            written.add(Arrays.copyOfRange(frame, offset, offset + length));
+        }
+
+        @Override
+        public void afterRead(AbstractModbusTransport transport, ModbusMessage msg, byte[] frame, int offset, int length) {
+            read.add(Arrays.copyOfRange(frame, offset, offset + length));
+        }
+
+        @Override
+        public void onError(AbstractModbusTransport transport, ModbusMessage msg, ModbusIOException ex) {
+            errors.add(ex);
+        }
+    }
+
+    @Test
+    public void testFrames() throws Exception {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        AbstractModbusTransport transport = master.getTransport();
+        transport.addInterceptor(interceptor);
+        try {
+            assertEquals("Incorrect register value", 251, master.readMultipleRegisters(UNIT_ID, 0, 1)[0].getValue());
+
+            assertEquals("One request should be written", 1, interceptor.written.size());
+            byte[] request = interceptor.written.get(0);
+            assertEquals("Incorrect request length", 12, request.length);
+            assertEquals("Incorrect unit", UNIT_ID, request[6]);
+            assertEquals("Incorrect function", Modbus.READ_MULTIPLE_REGISTERS, request[7]);
+
+            assertEquals("One response should be read", 1, interceptor.read.size());
+            byte[] response = interceptor.read.get(0);
+            assertEquals("Incorrect response length", 11, response.length);
+            assertEquals("Incorrect transaction", request[1], response[1]);
+            assertEquals("Incorrect byte count", 2, response[8]);
+            assertEquals("Incorrect value", 251, ((response[9] & 0xFF) << 8) | (response[10] & 0xFF));
+            assertTrue("No errors expected", interceptor.errors.isEmpty());
+        }
+        finally {
+            transport.removeInterceptor(interceptor);
+        }
+        assertEquals("Interceptor should be removed", 0, transport.getInterceptors().length);
+    }
+
+    @Test
+    public void testFaultInjection() throws Exception {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        interceptor.failures = 1;
+        AbstractModbusTransport transport = master.getTransport();
+        transport.addInterceptor(interceptor);
+        try {
+            assertEquals("Read should succeed on retry", 251, master.readMultipleRegisters(UNIT_ID, 0, 1)[0].getValue());
+            assertEquals("Injected fault should stop the first write", 1, interceptor.written.size());
+            assertEquals("Injected fault should not be reported as an I/O error", 0, interceptor.errors.size());
+        }
+        finally {
+            transport.clearInterceptors();
+        }
+    }
+}
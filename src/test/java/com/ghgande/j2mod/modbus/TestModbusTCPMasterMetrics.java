@@ -0,0 +1,88 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus;
+
+import com.ghgande.j2mod.modbus.util.ModbusMetrics;
+import com.ghgande.j2mod.modbus.utils.AbstractTestModbusTCPMaster;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the metrics recorded by a master and a slave
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class TestModbusTCPMasterMetrics extends AbstractTestModbusTCPMaster {
+
+    private static ModbusMetrics.Snapshot find(ModbusMetrics metrics, int functionCode) {
+        for (ModbusMetrics.Snapshot snapshot : metrics.getSnapshots()) {
+            if (snapshot.getUnitId() == UNIT_ID && snapshot.getFunctionCode() == functionCode) {
+                return snapshot;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        master.setMetrics(new ModbusMetrics());
+        slave.setMetrics(new ModbusMetrics());
+        try {
+            checkMetrics();
+        }
+        finally {
+            master.setMetrics(null);
+            slave.setMetrics(null);
+        }
+    }
+
+    private void checkMetrics() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Incorrect register value", 251, master.readMultipleRegisters(UNIT_ID, 0, 1)[0].getValue());
+        }
+        try {
+            master.readMultipleRegisters(UNIT_ID, 1000, 1);
+            fail("Reading an illegal address should fail");
+        }
+        catch (ModbusSlaveException e) {
+            assertEquals("Incorrect exception", Modbus.ILLEGAL_ADDRESS_EXCEPTION, e.getType());
+        }
+
+        ModbusMetrics.Snapshot snapshot = find(master.getMetrics(), Modbus.READ_MULTIPLE_REGISTERS);
+        assertNotNull("Master should have recorded the reads", snapshot);
+        assertEquals("Incorrect endpoint", LOCALHOST + ":" + PORT, snapshot.getEndpoint());
+        assertEquals("Incorrect request count", 11, snapshot.getRequests());
+        assertEquals("Incorrect response count", 11, snapshot.getResponses());
+        assertEquals("Incorrect exception count", 1, snapshot.getExceptions());
+        assertEquals("Incorrect error count", 0, snapshot.getErrors());
+        assertEquals("Incorrect latency count", 11, snapshot.getLatency().getCount());
+        assertTrue("Latency should be recorded", snapshot.getLatency().getValueAtPercentile(50) > 0);
+
+        // The slave records a request once its response has been written, which can be after the master has read it
+
+        long deadline = System.currentTimeMillis() + 2000;
+        snapshot = find(slave.getMetrics(), Modbus.READ_MULTIPLE_REGISTERS);
+        while ((snapshot == null || snapshot.getRequests() < 11) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            snapshot = find(slave.getMetrics(), Modbus.READ_MULTIPLE_REGISTERS);
+        }
+        assertNotNull("Slave should have recorded the reads", snapshot);
+        assertEquals("Incorrect slave request count", 11, snapshot.getRequests());
+        assertEquals("Incorrect slave exception count", 1, snapshot.getExceptions());
+    }
+}
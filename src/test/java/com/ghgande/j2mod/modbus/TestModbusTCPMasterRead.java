@@ -15,6 +15,8 @@
  */
 package com.ghgande.j2mod.modbus;
 
+import com.ghgande.j2mod.modbus.io.ModbusTransactionResult;
+import com.ghgande.j2mod.modbus.msg.ReadMultipleRegistersResponse;
 import com.ghgande.j2mod.modbus.procimg.InputRegister;
 import com.ghgande.j2mod.modbus.utils.AbstractTestModbusTCPMaster;
 import org.junit.Test;
@@ -181,6 +183,25 @@ public class TestModbusTCPMasterRead extends AbstractTestModbusTCPMaster {
         }
     }
 
+    @Test
+    public void testTryReadHoldingRegisters() {
+        ModbusTransactionResult result = master.tryReadMultipleRegisters(UNIT_ID, 0, 2);
+        assertTrue("Result should be successful", result.isSuccess());
+        assertEquals("Incorrect status", ModbusTransactionResult.Status.SUCCESS, result.getStatus());
+        ReadMultipleRegistersResponse response = (ReadMultipleRegistersResponse)result.getResponse();
+        assertEquals("Incorrect value for holding register 1", 251, response.getRegisterValue(0));
+        assertEquals("Incorrect value for holding register 2", 1111, response.getRegisterValue(1));
+    }
+
+    @Test
+    public void testTryReadInvalidCoil() {
+        ModbusTransactionResult result = master.tryReadCoils(UNIT_ID, 3, 1);
+        assertFalse("Result should not be successful", result.isSuccess());
+        assertEquals("Incorrect status", ModbusTransactionResult.Status.SLAVE_EXCEPTION, result.getStatus());
+        assertEquals("Incorrect exception code", Modbus.ILLEGAL_ADDRESS_EXCEPTION, result.getExceptionCode());
+        assertTrue("Incorrect exception type", result.createException() instanceof ModbusSlaveException);
+    }
+
     @Test
     public void testIsConnected() {
         assertTrue("Connected to TCP master", master.isConnected());
@@ -0,0 +1,110 @@
+package com.ghgande.j2mod.modbus;
+
+import com.ghgande.j2mod.modbus.facade.ModbusReadCache;
+import com.ghgande.j2mod.modbus.facade.ModbusTCPMaster;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
+import com.ghgande.j2mod.modbus.utils.AbstractTestModbusTCPMaster;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the read cache of the master facade
+ */
+public class TestModbusTCPMasterReadCache extends AbstractTestModbusTCPMaster {
+
+    private ModbusReadCache cache;
+
+    @Before
+    public void setUpCache() {
+        cache = new ModbusReadCache(60000);
+        master.setReadCache(cache);
+    }
+
+    @After
+    public void tearDownCache() {
+        master.setReadCache(null);
+    }
+
+    @Test
+    public void testCachedReadAndInvalidate() throws Exception {
+        assertEquals("Incorrect value for holding register 2", 2222, master.readMultipleRegisters(UNIT_ID, 2, 1)[0].getValue());
+
+        // Change the register behind the back of the master - the cached value should be returned
+        writeRequest(Modbus.WRITE_SINGLE_REGISTER, 2, 5555);
+        assertEquals("Cached value should be returned", 2222, master.readMultipleRegisters(UNIT_ID, 2, 1)[0].getValue());
+
+        // A write through the master to an overlapping range invalidates the cached read
+        master.writeMultipleRegisters(UNIT_ID, 1, new SimpleRegister[] {new SimpleRegister(1111), new SimpleRegister(2222)});
+        assertEquals("Cache should have been invalidated", 0, cache.size());
+        assertEquals("Incorrect value for holding register 2", 2222, master.readMultipleRegisters(UNIT_ID, 2, 1)[0].getValue());
+    }
+
+    @Test
+    public void testMastersShareEndpoint() throws Exception {
+        ModbusTCPMaster other = new ModbusTCPMaster(LOCALHOST, PORT);
+        other.setReadCache(cache);
+        other.connect();
+        try {
+            assertEquals("Masters should have the same endpoint", master.getEndpoint(), other.getEndpoint());
+            assertEquals("Incorrect value for holding register 3", 3333, master.readMultipleRegisters(UNIT_ID, 3, 1)[0].getValue());
+
+            // The other master reads the value cached by the first
+            writeRequest(Modbus.WRITE_SINGLE_REGISTER, 3, 5555);
+            assertEquals("Cached value should be shared", 3333, other.readMultipleRegisters(UNIT_ID, 3, 1)[0].getValue());
+
+            // A write through the other master invalidates the read of the first
+            other.writeSingleRegister(UNIT_ID, 3, new SimpleRegister(3333));
+            assertEquals("Cache should have been invalidated", 0, cache.size());
+        }
+        finally {
+            other.disconnect();
+        }
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        cache.setTtl(0);
+        final AtomicInteger loads = new AtomicInteger();
+        final ModbusReadCache.Loader loader = new ModbusReadCache.Loader() {
+            @Override
+            public ModbusResponse load(int functionCode, int unitId, int ref, int count) throws ModbusException {
+                loads.incrementAndGet();
+                try {
+                    Thread.sleep(200);
+                }
+                catch (InterruptedException e) {
+                    throw new ModbusException("Interrupted");
+                }
+                return null;
+            }
+        };
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        cache.read(master.getEndpoint(), Modbus.READ_MULTIPLE_REGISTERS, UNIT_ID, 0, 1, loader);
+                    }
+                    catch (ModbusException e) {
+                        fail(e.getMessage());
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals("Concurrent identical reads should be collapsed", 1, loads.get());
+    }
+}
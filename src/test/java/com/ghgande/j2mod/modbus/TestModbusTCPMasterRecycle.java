@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus;
+
+import com.ghgande.j2mod.modbus.msg.ModbusFunctionFactory;
+import com.ghgande.j2mod.modbus.msg.ModbusFunctionRegistry;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+import com.ghgande.j2mod.modbus.msg.ReadInputRegistersRequest;
+import com.ghgande.j2mod.modbus.msg.ReadInputRegistersResponse;
+import com.ghgande.j2mod.modbus.procimg.InputRegister;
+import com.ghgande.j2mod.modbus.procimg.Register;
+import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
+import com.ghgande.j2mod.modbus.utils.AbstractTestModbusTCPMaster;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class tests a slave that recycles its request and response objects
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class TestModbusTCPMasterRecycle extends AbstractTestModbusTCPMaster {
+
+    @Test
+    public void testRecycledRequests() throws Exception {
+        final ModbusFunctionFactory original = ModbusFunctionRegistry.getFactory(Modbus.READ_INPUT_REGISTERS);
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger responses = new AtomicInteger();
+        ModbusFunctionRegistry.register(Modbus.READ_INPUT_REGISTERS, new ModbusFunctionFactory() {
+            @Override
+            public ModbusRequest createRequest() {
+                created.incrementAndGet();
+                return new ReadInputRegistersRequest() {
+                    @Override
+                    public ReadInputRegistersResponse getResponse() {
+                        responses.incrementAndGet();
+                        return super.getResponse();
+                    }
+                };
+            }
+
+            @Override
+            public ModbusResponse createResponse() {
+                return original.createResponse();
+            }
+        });
+        slave.setRecycleRequests(true);
+        try {
+            for (int i = 0; i < 10; i++) {
+                int ref = i % 5;
+                InputRegister[] registers = master.readInputRegisters(UNIT_ID, ref, 5 - ref);
+                assertEquals("Incorrect number of registers", 5 - ref, registers.length);
+                assertEquals("Incorrect register value", new int[]{45, 9999, 8888, 7777, 6666}[ref], registers[0].getValue());
+
+                master.writeSingleRegister(UNIT_ID, 1, new SimpleRegister(1000 + i));
+                Register[] holding = master.readMultipleRegisters(UNIT_ID, 1, 1);
+                assertEquals("Recycled write request applied a stale value", 1000 + i, holding[0].getValue());
+            }
+            assertEquals("Request should be created once for the connection", 1, created.get());
+            assertEquals("Response should be created once for the connection", 1, responses.get());
+        }
+        finally {
+            slave.setRecycleRequests(false);
+            ModbusFunctionRegistry.register(Modbus.READ_INPUT_REGISTERS, original);
+            master.writeSingleRegister(UNIT_ID, 1, new SimpleRegister(1111));
+        }
+    }
+}
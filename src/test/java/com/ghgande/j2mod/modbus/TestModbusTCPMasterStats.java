@@ -0,0 +1,109 @@
+/*
+ * Copyright 2002-2016 jamod & j2mod development teams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ghgande.j2mod.modbus;
+
+import com.ghgande.j2mod.modbus.facade.ModbusMasterStats;
+import com.ghgande.j2mod.modbus.slave.ModbusSlaveStats;
+import com.ghgande.j2mod.modbus.util.ModbusMetrics;
+import com.ghgande.j2mod.modbus.util.PrometheusExporter;
+import com.ghgande.j2mod.modbus.utils.AbstractTestModbusTCPMaster;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the management beans and Prometheus exporter of a master and a slave
+ *
+ * @author Steve O'Hara (4NG)
+ * @version 2.0 (March 2016)
+ */
+public class TestModbusTCPMasterStats extends AbstractTestModbusTCPMaster {
+
+    private static String fetch(int port) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection)new URL("http://" + LOCALHOST + ":" + port + "/metrics").openConnection();
+        try {
+            assertEquals("Incorrect status", 200, connection.getResponseCode());
+            assertEquals("Incorrect content type", PrometheusExporter.CONTENT_TYPE, connection.getContentType());
+            InputStream in = connection.getInputStream();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            in.close();
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+        finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void testStats() throws Exception {
+        master.setMetrics(new ModbusMetrics());
+        slave.setMetrics(new ModbusMetrics());
+        ModbusSlaveStats slaveStats = new ModbusSlaveStats(slave);
+        ModbusMasterStats masterStats = new ModbusMasterStats(master, "test");
+        PrometheusExporter exporter = new PrometheusExporter().add(slaveStats).add(masterStats);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        slaveStats.register();
+        masterStats.register();
+        try {
+            for (int i = 0; i < 5; i++) {
+                assertEquals("Incorrect register value", 251, master.readMultipleRegisters(UNIT_ID, 0, 1)[0].getValue());
+            }
+
+            assertEquals("Incorrect request count", 5L, server.getAttribute(masterStats.getObjectName(), "RequestCount"));
+            assertEquals("Master should be connected", true, server.getAttribute(masterStats.getObjectName(), "Connected"));
+            assertEquals("Slave should be running", true, server.getAttribute(slaveStats.getObjectName(), "Running"));
+            assertEquals("Incorrect port", PORT, server.getAttribute(slaveStats.getObjectName(), "Port"));
+            assertTrue("Slave should have a connection", slaveStats.getActiveConnections() >= 1);
+            assertTrue("Latency should be recorded", masterStats.getLatencyMaxMillis() > 0);
+
+            server.invoke(masterStats.getObjectName(), "resetMetrics", null, null);
+            assertEquals("Counts should be reset", 0L, masterStats.getRequestCount());
+            master.readMultipleRegisters(UNIT_ID, 0, 1);
+
+            exporter.start(new InetSocketAddress(LOCALHOST, 0));
+            String text = fetch(exporter.getPort());
+            assertTrue("Missing request type", text.contains("# TYPE modbus_requests_total counter\n"));
+            assertTrue("Missing master requests", text.contains("modbus_requests_total{role=\"master\",source=\"test\",endpoint=\"" + LOCALHOST + ":" + PORT + "\",unit=\"" + UNIT_ID + "\",function=\"3\"} 1\n"));
+            assertTrue("Missing latency summary", text.contains("modbus_latency_seconds_count{role=\"master\",source=\"test\""));
+            assertTrue("Missing quantile", text.contains(",quantile=\"0.99\"}"));
+            assertTrue("Missing connected gauge", text.contains("modbus_master_connected{role=\"master\",source=\"test\"} 1\n"));
+            assertTrue("Missing running gauge", text.contains("modbus_slave_running{role=\"slave\",source=\"" + slaveStats.getName() + "\"} 1\n"));
+        }
+        finally {
+            master.setMetrics(null);
+            slave.setMetrics(null);
+            exporter.stop();
+            slaveStats.unregister();
+            masterStats.unregister();
+        }
+        assertFalse("Slave bean should be unregistered", server.isRegistered(slaveStats.getObjectName()));
+        assertEquals("Exporter should be stopped", -1, exporter.getPort());
+    }
+}
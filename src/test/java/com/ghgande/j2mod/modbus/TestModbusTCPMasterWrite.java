@@ -104,4 +104,23 @@ public class TestModbusTCPMasterWrite extends AbstractTestModbusTCPMaster {
             fail(String.format("Cannot mask write to register 1 - %s", e.getMessage()));
         }
     }
+
+    @Test
+    public void testWriteThenReadRegisters() {
+        try {
+            Register[] beforeRegisters = master.readMultipleRegisters(UNIT_ID, 1, 2);
+            Register[] readRegisters = master.writeThenReadRegisters(UNIT_ID, 1,
+                    new Register[] {new SimpleRegister(1234), new SimpleRegister(5678)}, 0, 3);
+
+            assertEquals("FC23 should have been detected as supported", Boolean.TRUE, master.isReadWriteMultipleSupported(UNIT_ID));
+            assertEquals("Incorrect number of registers read", 3, readRegisters.length);
+            assertEquals("Incorrect status for register 1", 1234, readRegisters[1].getValue());
+            assertEquals("Incorrect status for register 2", 5678, readRegisters[2].getValue());
+
+            master.writeMultipleRegisters(UNIT_ID, 1, beforeRegisters);
+        }
+        catch (Exception e) {
+            fail(String.format("Cannot write then read registers - %s", e.getMessage()));
+        }
+    }
 }
@@ -0,0 +1,57 @@
+package com.ghgande.j2mod.modbus;
+
+import com.ghgande.j2mod.modbus.facade.ModbusWriteBehind;
+import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
+import com.ghgande.j2mod.modbus.utils.AbstractTestModbusTCPMaster;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the write-behind queue of the master facade
+ */
+public class TestModbusTCPMasterWriteBehind extends AbstractTestModbusTCPMaster {
+
+    @Test
+    public void testCoalescedRegisterWrites() throws Exception {
+        try (ModbusWriteBehind writeBehind = new ModbusWriteBehind(master, 60000)) {
+            CompletableFuture<Void> first = writeBehind.writeRegister(UNIT_ID, 3, 1);
+            CompletableFuture<Void> second = writeBehind.writeRegister(UNIT_ID, 4, 2);
+            CompletableFuture<Void> last = writeBehind.writeRegister(UNIT_ID, 3, 3000);
+            assertEquals("Superseded write should not be queued separately", 2, writeBehind.getPendingCount());
+            writeBehind.flush();
+            first.get(1, TimeUnit.SECONDS);
+            second.get(1, TimeUnit.SECONDS);
+            last.get(1, TimeUnit.SECONDS);
+            assertEquals("Last value should win", 3000, master.readMultipleRegisters(UNIT_ID, 3, 1)[0].getValue());
+            assertEquals("Incorrect value for holding register 4", 2, master.readMultipleRegisters(UNIT_ID, 4, 1)[0].getValue());
+        }
+        finally {
+            master.writeSingleRegister(UNIT_ID, 3, new SimpleRegister(3333));
+            master.writeSingleRegister(UNIT_ID, 4, new SimpleRegister(4444));
+        }
+    }
+
+    @Test
+    public void testWindowedCoilWrite() throws Exception {
+        try (ModbusWriteBehind writeBehind = new ModbusWriteBehind(master, 10)) {
+            writeBehind.writeCoil(UNIT_ID, 1, true).get(5, TimeUnit.SECONDS);
+            assertTrue("Coil should have been written", master.readCoils(UNIT_ID, 1, 1).getBit(0));
+        }
+        finally {
+            master.writeCoil(UNIT_ID, 1, false);
+        }
+    }
+
+    @Test
+    public void testFailedWrite() throws Exception {
+        try (ModbusWriteBehind writeBehind = new ModbusWriteBehind(master, 60000)) {
+            CompletableFuture<Void> future = writeBehind.writeRegister(UNIT_ID, 60000, 1);
+            writeBehind.flush();
+            assertTrue("Write to an illegal address should fail", future.isCompletedExceptionally());
+        }
+    }
+}
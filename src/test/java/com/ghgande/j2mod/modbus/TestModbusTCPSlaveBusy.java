@@ -0,0 +1,54 @@
+package com.ghgande.j2mod.modbus;
+
+import com.ghgande.j2mod.modbus.procimg.SharedMemoryProcessImage;
+import com.ghgande.j2mod.modbus.utils.AbstractTestModbusTCPMaster;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests that a slave answers busy when its process image cannot take a consistent copy
+ */
+public class TestModbusTCPSlaveBusy extends AbstractTestModbusTCPMaster {
+
+    private static final int BUSY_UNIT_ID = 16;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testBusyProducer() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("busy.shm");
+        try (SharedMemoryProcessImage image = new SharedMemoryProcessImage(BUSY_UNIT_ID, file, 0, 0, 2, 2);
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            slave.addProcessImage(BUSY_UNIT_ID, image);
+
+            // A producer that never finishes its update
+            MappedByteBuffer producer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            producer.order(ByteOrder.LITTLE_ENDIAN);
+            producer.putInt(8, 1);
+            try {
+                master.readMultipleRegisters(BUSY_UNIT_ID, 0, 2);
+                fail("Read of a busy process image should fail");
+            }
+            catch (ModbusSlaveException e) {
+                assertEquals("Incorrect exception", Modbus.SLAVE_BUSY_EXCEPTION, e.getType());
+            }
+
+            // The connection is kept and serves the next request once the producer has finished
+            producer.putInt(8, 2);
+            assertEquals("Incorrect register count", 2, master.readMultipleRegisters(BUSY_UNIT_ID, 0, 2).length);
+        }
+        finally {
+            slave.removeProcessImage(BUSY_UNIT_ID);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.ghgande.j2mod.modbus;
+
+import com.ghgande.j2mod.modbus.procimg.ProcessImageProvider;
+import com.ghgande.j2mod.modbus.procimg.Register;
+import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
+import com.ghgande.j2mod.modbus.slave.ProcessImageChangeBus;
+import com.ghgande.j2mod.modbus.slave.ProcessImageChangeEvent;
+import com.ghgande.j2mod.modbus.slave.ProcessImageChangeListener;
+import com.ghgande.j2mod.modbus.utils.AbstractTestModbusTCPMaster;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the publishing of process image changes made by requests
+ */
+public class TestModbusTCPSlaveChangeBus extends AbstractTestModbusTCPMaster {
+
+    private ProcessImageChangeBus bus;
+    private final BlockingQueue<ProcessImageChangeEvent> events = new LinkedBlockingQueue<ProcessImageChangeEvent>();
+
+    @Before
+    public void setUpBus() {
+        bus = new ProcessImageChangeBus();
+        bus.addListener(new ProcessImageChangeListener() {
+            @Override
+            public void changed(ProcessImageChangeEvent event) {
+                events.add(event);
+            }
+        });
+        slave.setChangeBus(bus);
+    }
+
+    @After
+    public void tearDownBus() {
+        slave.setChangeBus(null);
+        bus.close();
+    }
+
+    @Test
+    public void testRangeEvent() throws Exception {
+        Register[] before = master.readMultipleRegisters(UNIT_ID, 1, 2);
+        assertNull("Read should not be published", events.poll(200, TimeUnit.MILLISECONDS));
+        try {
+            master.writeMultipleRegisters(UNIT_ID, 1, new Register[]{new SimpleRegister(10), new SimpleRegister(20)});
+            ProcessImageChangeEvent event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull("No change event published", event);
+            assertEquals("Incorrect table", ProcessImageProvider.Table.HOLDING_REGISTERS, event.getTable());
+            assertEquals("Incorrect unit", UNIT_ID, event.getUnitId());
+            assertEquals("Incorrect reference", 1, event.getReference());
+            assertNull("Old values should not be published", event.getOldValues());
+            assertArrayEquals("Incorrect new values", new int[]{10, 20}, event.getNewValues());
+        }
+        finally {
+            master.writeMultipleRegisters(UNIT_ID, 1, before);
+        }
+    }
+
+    @Test
+    public void testFailedWriteNotPublished() throws Exception {
+        try {
+            master.writeCoil(UNIT_ID, 60000, true);
+            fail("Write to an illegal address should fail");
+        }
+        catch (ModbusSlaveException e) {
+            assertNull("Failed write should not be published", events.poll(200, TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.ghgande.j2mod.modbus.utils;
 
 import com.ghgande.j2mod.modbus.util.BitVector;
+import com.ghgande.j2mod.modbus.util.UnsynchronizedBitVector;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -105,4 +106,50 @@ public class BitVectorTest {
         Assert.assertEquals("BitVector string is incorrect",
                 "00000000 00000001 00000010 00000011 00000100 00000101 00000110 000111 ", bv.toString());
     }
+
+    @Test
+    public void testSetBits() {
+        BitVector bv = new BitVector(70);
+        bv.setBits(3, 67, true);
+        for (int i = 0; i < 70; i++) {
+            Assert.assertEquals("Bit " + i + " has the wrong state", i >= 3 && i < 67, bv.getBit(i));
+        }
+        bv.setBits(5, 20, false);
+        Assert.assertEquals("Incorrect cardinality", 64 - 15, bv.cardinality());
+    }
+
+    @Test
+    public void testLongsAndBooleans() {
+        BitVector bv = new BitVector(100);
+        long[] words = {0x8000000000000001L, 0xFFFFFFFFFL};
+        bv.setLongs(words);
+        Assert.assertTrue("Bit 0 should be set", bv.getBit(0));
+        Assert.assertTrue("Bit 63 should be set", bv.getBit(63));
+        Assert.assertTrue("Bit 99 should be set", bv.getBit(99));
+        Assert.assertArrayEquals("Longs should round trip", words, bv.getLongs());
+
+        boolean[] values = bv.getBooleans();
+        UnsynchronizedBitVector copy = new UnsynchronizedBitVector(100);
+        copy.setBooleans(values);
+        Assert.assertArrayEquals("Booleans should round trip", bv.getBytes(), copy.getBytes());
+        Assert.assertArrayEquals("Unsynchronized bytes should match", copy.getBytes(), copy.getBytesUnsynchronized());
+    }
+
+    @Test
+    public void testDiffAndIteration() {
+        BitVector before = new BitVector(2000);
+        BitVector after = new BitVector(2000);
+        before.setBits(0, 2000, true);
+        after.setBits(0, 2000, true);
+        after.setBit(7, false);
+        after.setBit(1024, false);
+        after.setBit(1999, false);
+        BitVector changed = before.diff(after);
+        Assert.assertEquals("Incorrect number of changes", 3, changed.cardinality());
+        StringBuilder indexes = new StringBuilder();
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            indexes.append(i).append(' ');
+        }
+        Assert.assertEquals("Incorrect changed bits", "7 1024 1999 ", indexes.toString());
+    }
 }
@@ -0,0 +1,84 @@
+package com.ghgande.j2mod.modbus.utils;
+
+import com.ghgande.j2mod.modbus.util.CRC16;
+import com.ghgande.j2mod.modbus.util.LRC;
+import com.ghgande.j2mod.modbus.util.ModbusUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class ChecksumTest {
+
+    private static int bitwiseCRC(byte[] data, int offset, int length) {
+        int crc = 0xFFFF;
+        for (int i = offset; i < offset + length; i++) {
+            crc ^= data[i] & 0xFF;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0xA001 : crc >>> 1;
+            }
+        }
+        return crc;
+    }
+
+    @Test
+    public void testKnownCRCValues() {
+        Assert.assertEquals("Incorrect check value", 0x4B37, CRC16.calculate("123456789".getBytes(), 0, 9));
+
+        byte[] frame = {0x01, 0x03, 0x00, 0x00, 0x00, 0x0A};
+        int crc = CRC16.calculate(frame, 0, frame.length);
+        Assert.assertEquals("Incorrect first CRC byte", 0xC5, crc & 0xFF);
+        Assert.assertEquals("Incorrect second CRC byte", 0xCD, crc >>> 8);
+        Assert.assertArrayEquals("ModbusUtil should match", new int[]{0xC5, 0xCD}, ModbusUtil.calculateCRC(frame, 0, frame.length));
+    }
+
+    @Test
+    public void testCRCMatchesBitwise() {
+        Random random = new Random(45);
+        byte[] data = new byte[300];
+        random.nextBytes(data);
+        for (int offset = 0; offset < 9; offset++) {
+            for (int length = 0; length <= data.length - offset; length += 7) {
+                Assert.assertEquals("CRC mismatch at offset " + offset + " length " + length,
+                        bitwiseCRC(data, offset, length), CRC16.calculate(data, offset, length));
+            }
+        }
+    }
+
+    @Test
+    public void testIncrementalCRC() {
+        byte[] data = new byte[256];
+        new Random(7).nextBytes(data);
+        CRC16 crc = new CRC16();
+        crc.update(data, 0, 100);
+        for (int i = 100; i < 110; i++) {
+            crc.update(data[i]);
+        }
+        crc.update(data, 110, data.length - 110);
+        Assert.assertEquals("Incremental CRC differs", CRC16.calculate(data, 0, data.length), crc.getCRC());
+
+        byte[] frame = new byte[10];
+        System.arraycopy(data, 0, frame, 0, 8);
+        int value = CRC16.calculate(frame, 0, 8);
+        frame[8] = (byte)value;
+        frame[9] = (byte)(value >>> 8);
+        Assert.assertEquals("CRC over a frame and its CRC should be zero", 0, CRC16.calculate(frame, 0, frame.length));
+
+        crc.reset();
+        Assert.assertEquals("Reset should restore the initial value", CRC16.INITIAL_VALUE, crc.getValue());
+    }
+
+    @Test
+    public void testLRC() {
+        byte[] frame = {0x11, 0x03, 0x00, 0x6B, 0x00, 0x03};
+        Assert.assertEquals("Incorrect LRC", 0x7E, LRC.calculate(frame, 0, frame.length));
+
+        LRC lrc = new LRC();
+        lrc.update(frame, 0, 3);
+        lrc.update(frame[3]);
+        lrc.update(frame, 4, 2);
+        Assert.assertEquals("Incremental LRC differs", 0x7E, lrc.getLRC());
+        lrc.update(0x7E);
+        Assert.assertEquals("LRC over a frame and its LRC should be zero", 0, lrc.getLRC());
+    }
+}
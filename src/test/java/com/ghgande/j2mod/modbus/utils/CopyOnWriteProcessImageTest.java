@@ -0,0 +1,94 @@
+package com.ghgande.j2mod.modbus.utils;
+
+import com.ghgande.j2mod.modbus.procimg.CopyOnWriteProcessImage;
+import com.ghgande.j2mod.modbus.procimg.IllegalAddressException;
+import com.ghgande.j2mod.modbus.procimg.Register;
+import com.ghgande.j2mod.modbus.procimg.SimpleDigitalIn;
+import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CopyOnWriteProcessImageTest {
+
+    @Test
+    public void testBatchIsOneVersion() {
+        CopyOnWriteProcessImage image = new CopyOnWriteProcessImage(1, 4, 4, 4, 600);
+        CopyOnWriteProcessImage.Snapshot before = image.getSnapshot();
+        long version = image.beginBatch().setRegister(1, 0x12345).setRegister(513, 7).setCoil(2, true).setInputRegister(3, 9).commit();
+
+        Assert.assertEquals("Batch should produce a single version", before.getVersion() + 1, version);
+        Assert.assertArrayEquals("Old snapshot should not change", new int[]{0, 0}, before.getRegisterValues(0, 2));
+        Assert.assertFalse("Old snapshot should not change", before.getCoil(2));
+
+        CopyOnWriteProcessImage.Snapshot after = image.getSnapshot();
+        Assert.assertArrayEquals("Incorrect register values", new int[]{0, 0x2345}, after.getRegisterValues(0, 2));
+        Assert.assertEquals("Incorrect register value", 7, image.getRegister(513).getValue());
+        Assert.assertTrue("Coil not set", image.getDigitalOut(2).isSet());
+        Assert.assertEquals("Incorrect input register value", 9, after.getInputRegisterValues(3, 1)[0]);
+    }
+
+    @Test
+    public void testRegisterViews() {
+        CopyOnWriteProcessImage image = new CopyOnWriteProcessImage(1, 0, 0, 0, 4);
+        Register live = image.getRegister(2);
+        Register[] range = image.getRegisterRange(0, 4);
+        live.setValue(42);
+        Assert.assertEquals("Live register should see the write", 42, live.getValue());
+        Assert.assertEquals("Range should keep the version it was read at", 0, range[2].getValue());
+        range[3].setValue(5);
+        Assert.assertArrayEquals("Range write not visible", new int[]{0, 0, 42, 5}, image.getRegisterValues(0, 4));
+    }
+
+    @Test(expected = IllegalAddressException.class)
+    public void testIllegalAddress() {
+        new CopyOnWriteProcessImage(1, 4, 4, 4, 4).beginBatch().setCoil(4, true);
+    }
+
+    @Test
+    public void testNoTornReads() throws InterruptedException {
+        final CopyOnWriteProcessImage image = new CopyOnWriteProcessImage(1, 0, 0, 0, 4);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 100000; i++) {
+                    image.setRegisterValues(0, new int[]{i, i, i, i});
+                }
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            int[] values = image.getRegisterValues(0, 4);
+            for (int i = 1; i < values.length; i++) {
+                Assert.assertEquals("Range read was torn", values[0], values[i]);
+            }
+        }
+        writer.join();
+    }
+
+    @Test
+    public void testCoilBytesAreOneVersion() {
+        CopyOnWriteProcessImage image = new CopyOnWriteProcessImage(1, 2000, 0, 0, 0);
+        long before = image.getSnapshot().getVersion();
+        byte[] bits = new byte[250];
+        bits[0] = 0x05;
+        bits[249] = (byte)0x80;
+        image.setCoilBytes(0, 2000, bits);
+
+        Assert.assertEquals("Coil range should be committed as one version", before + 1, image.getSnapshot().getVersion());
+        Assert.assertTrue("Coil 1999 not set", image.getSnapshot().getCoil(1999));
+        Assert.assertArrayEquals("Incorrect packed coils", new byte[]{0x05}, image.getCoilBytes(0, 4));
+    }
+
+    @Test
+    public void testTablesAreFixed() {
+        CopyOnWriteProcessImage image = new CopyOnWriteProcessImage(1, 4, 4, 4, 4);
+        long version = image.getSnapshot().getVersion();
+        image.addRegister(new SimpleRegister(7));
+        image.setRegister(0, new SimpleRegister(7));
+        image.addDigitalIn(new SimpleDigitalIn(true));
+        Assert.assertEquals("Registers should not be added", 4, image.getRegisterCount());
+        Assert.assertEquals("Register should not be replaced", 0, image.getRegister(0).getValue());
+        Assert.assertEquals("Discrete inputs should not be added", 4, image.getDigitalInCount());
+        Assert.assertEquals("No version should be committed", version, image.getSnapshot().getVersion());
+    }
+}
@@ -0,0 +1,42 @@
+package com.ghgande.j2mod.modbus.utils;
+
+import com.ghgande.j2mod.modbus.util.LatencyHistogram;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        Assert.assertEquals("Incorrect count", 1000, snapshot.getCount());
+        Assert.assertEquals("Incorrect max", 1000000, snapshot.getMax());
+        Assert.assertEquals("Incorrect mean", 500500, snapshot.getMean(), 0.001);
+        assertWithin(500000, snapshot.getValueAtPercentile(50));
+        assertWithin(990000, snapshot.getValueAtPercentile(99));
+        Assert.assertEquals("100th percentile should be the max", 1000000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(7);
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        Assert.assertEquals("Negative values should be recorded as zero", 0, snapshot.getValueAtPercentile(0));
+        Assert.assertEquals("Small values should be exact", 7, snapshot.getValueAtPercentile(50));
+        Assert.assertEquals("Large values should be clamped", LatencyHistogram.MAX_VALUE, snapshot.getMax());
+
+        histogram.reset();
+        Assert.assertEquals("Reset should clear the count", 0, histogram.getSnapshot().getCount());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        Assert.assertTrue("Expected about " + expected + " but was " + actual, Math.abs(actual - expected) <= expected * 0.04);
+    }
+}
@@ -0,0 +1,57 @@
+package com.ghgande.j2mod.modbus.utils;
+
+import com.ghgande.j2mod.modbus.procimg.MappedProcessImage;
+import com.ghgande.j2mod.modbus.procimg.SimpleDigitalIn;
+import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public class MappedProcessImageTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testValuesSurviveReopen() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("image.bin");
+        try (MappedProcessImage image = new MappedProcessImage(1, file, 10, 8, MappedProcessImage.SyncPolicy.ALWAYS)) {
+            Assert.assertEquals("New image should be zeroed", 0, image.getRegister(5).getValue());
+            image.setRegisterValues(2, new int[]{100, 200, 300});
+            image.getRegister(9).setValue(0xFFFF);
+            image.getDigitalOut(7).set(true);
+        }
+        try (MappedProcessImage image = new MappedProcessImage(1, file, 10, 8, MappedProcessImage.SyncPolicy.NONE)) {
+            Assert.assertArrayEquals("Range write was not persisted", new int[]{100, 200, 300}, image.getRegisterValues(2, 3));
+            Assert.assertEquals("Register write was not persisted", 0xFFFF, image.getRegister(9).getValue());
+            Assert.assertTrue("Coil write was not persisted", image.getDigitalOut(7).isSet());
+            Assert.assertFalse("Coil should not be set", image.getDigitalOut(6).isSet());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testLayoutMismatch() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("image.bin");
+        new MappedProcessImage(1, file, 10, 8, MappedProcessImage.SyncPolicy.NONE).close();
+        new MappedProcessImage(1, file, 12, 8, MappedProcessImage.SyncPolicy.NONE).close();
+    }
+
+    @Test
+    public void testRegistersAndCoilsAreFixed() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("image.bin");
+        try (MappedProcessImage image = new MappedProcessImage(1, file, 10, 8, MappedProcessImage.SyncPolicy.NONE)) {
+            image.addRegister(new SimpleRegister(7));
+            image.setRegister(0, new SimpleRegister(7));
+            image.removeDigitalOut(image.getDigitalOut(0));
+            image.addDigitalIn(new SimpleDigitalIn(true));
+            Assert.assertEquals("Registers should not be added", 10, image.getRegisterCount());
+            Assert.assertEquals("Register should not be replaced", 0, image.getRegister(0).getValue());
+            Assert.assertEquals("Coils should not be removed", 8, image.getDigitalOutCount());
+            Assert.assertEquals("Discrete inputs should still be added", 1, image.getDigitalInCount());
+        }
+    }
+}
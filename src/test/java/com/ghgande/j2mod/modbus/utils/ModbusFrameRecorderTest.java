@@ -0,0 +1,63 @@
+package com.ghgande.j2mod.modbus.utils;
+
+import com.ghgande.j2mod.modbus.io.ModbusFrameRecorder;
+import com.ghgande.j2mod.modbus.msg.ReadMultipleRegistersRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class ModbusFrameRecorderTest {
+
+    @Test
+    public void testKeepsLastFrames() {
+        ModbusFrameRecorder recorder = new ModbusFrameRecorder(3);
+        for (int i = 0; i < 5; i++) {
+            recorder.record(i % 2 == 0 ? ModbusFrameRecorder.Direction.SENT : ModbusFrameRecorder.Direction.RECEIVED, new byte[]{9, (byte)i, 7}, 1, 1);
+        }
+        Assert.assertEquals("Incorrect count", 5, recorder.getCount());
+
+        List<ModbusFrameRecorder.Frame> frames = recorder.getFrames();
+        Assert.assertEquals("Only the capacity should be kept", 3, frames.size());
+        for (int i = 0; i < 3; i++) {
+            ModbusFrameRecorder.Frame frame = frames.get(i);
+            Assert.assertArrayEquals("Frames should be oldest first", new byte[]{(byte)(i + 2)}, frame.getData());
+            Assert.assertEquals("Incorrect direction", i % 2 == 0 ? ModbusFrameRecorder.Direction.SENT : ModbusFrameRecorder.Direction.RECEIVED, frame.getDirection());
+            Assert.assertFalse("Frame should not be truncated", frame.isTruncated());
+        }
+        Assert.assertTrue("Timestamps should not go backwards", frames.get(0).getTimestamp() <= frames.get(2).getTimestamp());
+
+        recorder.clear();
+        Assert.assertTrue("Frames should be cleared", recorder.getFrames().isEmpty());
+        Assert.assertEquals("Nothing to dump", "", recorder.dump());
+    }
+
+    @Test
+    public void testTruncatesLongFrames() {
+        ModbusFrameRecorder recorder = new ModbusFrameRecorder(1);
+        byte[] frame = new byte[ModbusFrameRecorder.MAX_FRAME_LENGTH + 10];
+        frame[ModbusFrameRecorder.MAX_FRAME_LENGTH - 1] = 1;
+        recorder.record(ModbusFrameRecorder.Direction.RECEIVED, frame, 0, frame.length);
+
+        ModbusFrameRecorder.Frame recorded = recorder.getFrames().get(0);
+        Assert.assertEquals("Length should be the original", frame.length, recorded.getLength());
+        Assert.assertEquals("Data should be truncated", ModbusFrameRecorder.MAX_FRAME_LENGTH, recorded.getData().length);
+        Assert.assertTrue("Frame should be truncated", recorded.isTruncated());
+        Assert.assertTrue("Dump should show the truncation", recorder.dump().trim().endsWith("01 ..."));
+    }
+
+    @Test
+    public void testRecordsMessages() {
+        ModbusFrameRecorder recorder = new ModbusFrameRecorder(2);
+        ReadMultipleRegistersRequest request = new ReadMultipleRegistersRequest(1, 2);
+        request.setUnitID(5);
+        recorder.record(ModbusFrameRecorder.Direction.SENT, request);
+        recorder.record(ModbusFrameRecorder.Direction.INVALID, new byte[]{1, 2}, 0, 2);
+
+        Assert.assertArrayEquals("Incorrect message frame", new byte[]{5, 3, 0, 1, 0, 2}, recorder.getFrames().get(0).getData());
+        String[] lines = recorder.dump().split("\n");
+        Assert.assertEquals("Incorrect line count", 2, lines.length);
+        Assert.assertTrue("Incorrect first line: " + lines[0], lines[0].endsWith("SENT       6: 05 03 00 01 00 02"));
+        Assert.assertTrue("Incorrect second line: " + lines[1], lines[1].trim().startsWith("0.000000 ms INVALID"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.ghgande.j2mod.modbus.utils;
+
+import com.ghgande.j2mod.modbus.Modbus;
+import com.ghgande.j2mod.modbus.msg.*;
+import com.ghgande.j2mod.modbus.procimg.Register;
+import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class ModbusFrameViewTest {
+
+    private static byte[] encode(ModbusMessageImpl msg) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(msg.getOutputLength());
+        msg.writeTo(buffer);
+        buffer.flip();
+        byte[] frame = new byte[buffer.remaining()];
+        buffer.get(frame);
+        return frame;
+    }
+
+    @Test
+    public void testRequestFields() throws IOException {
+        ReadMultipleRegistersRequest request = new ReadMultipleRegistersRequest(100, 12);
+        request.setTransactionID(77);
+        request.setUnitID(15);
+        byte[] frame = encode(request);
+
+        ModbusFrameView view = new ModbusFrameView().wrap(frame, 0, frame.length, false, true);
+        Assert.assertTrue("Frame should be valid", view.isValid());
+        Assert.assertEquals("Incorrect transaction ID", 77, view.getTransactionID());
+        Assert.assertEquals("Incorrect unit ID", 15, view.getUnitID());
+        Assert.assertEquals("Incorrect function code", Modbus.READ_MULTIPLE_REGISTERS, view.getFunctionCode());
+        Assert.assertEquals("Incorrect reference", 100, view.getReference());
+        Assert.assertEquals("Incorrect count", 12, view.getCount());
+        Assert.assertEquals("Requests have no byte count", -1, view.getByteCount());
+
+        ReadMultipleRegistersRequest decoded = (ReadMultipleRegistersRequest)view.toRequest();
+        Assert.assertEquals("Incorrect decoded reference", 100, decoded.getReference());
+        Assert.assertEquals("Incorrect decoded count", 12, decoded.getWordCount());
+        Assert.assertEquals("Incorrect decoded transaction ID", 77, decoded.getTransactionID());
+    }
+
+    @Test
+    public void testResponseFields() throws IOException {
+        Register[] registers = {new SimpleRegister(251), new SimpleRegister(1111), new SimpleRegister(2222)};
+        ReadMultipleRegistersResponse response = new ReadMultipleRegistersResponse(registers);
+        response.setHeadless();
+        byte[] frame = encode(response);
+
+        ModbusFrameView view = new ModbusFrameView().wrap(ByteBuffer.wrap(frame), true, false);
+        Assert.assertTrue("Frame should be valid", view.isValid());
+        Assert.assertEquals("Headless frames have no transaction ID", -1, view.getTransactionID());
+        Assert.assertEquals("Incorrect byte count", 6, view.getByteCount());
+        Assert.assertEquals("Incorrect register value", 1111, view.getRegisterValue(1));
+        Assert.assertEquals("Register past the end should not exist", -1, view.getRegisterValue(3));
+
+        ReadMultipleRegistersResponse decoded = (ReadMultipleRegistersResponse)view.toResponse();
+        Assert.assertEquals("Incorrect decoded value", 2222, decoded.getRegisterValue(2));
+    }
+
+    @Test
+    public void testExceptionResponse() throws IOException {
+        ExceptionResponse response = new ExceptionResponse(Modbus.READ_COILS, Modbus.ILLEGAL_ADDRESS_EXCEPTION);
+        byte[] frame = encode(response);
+
+        ModbusFrameView view = new ModbusFrameView().wrap(frame, 0, frame.length, false, false);
+        Assert.assertTrue("Frame should be valid", view.isValid());
+        Assert.assertTrue("Frame should be an exception", view.isException());
+        Assert.assertEquals("Incorrect exception code", Modbus.ILLEGAL_ADDRESS_EXCEPTION, view.getExceptionCode());
+        Assert.assertEquals("Exceptions have no reference", -1, view.getReference());
+        Assert.assertTrue("Should decode as an exception", view.toResponse() instanceof ExceptionResponse);
+    }
+
+    @Test
+    public void testInvalidFrames() throws IOException {
+        WriteMultipleRegistersRequest request = new WriteMultipleRegistersRequest(5, new Register[]{new SimpleRegister(1), new SimpleRegister(2)});
+        byte[] frame = encode(request);
+        ModbusFrameView view = new ModbusFrameView();
+
+        Assert.assertTrue("Frame should be valid", view.wrap(frame, 0, frame.length, false, true).isValid());
+        Assert.assertEquals("Incorrect register value", 2, view.getRegisterValue(1));
+        Assert.assertFalse("Truncated frame should be invalid", view.wrap(frame, 0, frame.length - 1, false, true).isValid());
+        Assert.assertFalse("Header too short for the function should be invalid", view.wrap(frame, 0, 7, false, true).isValid());
+
+        frame[12] = 6;
+        Assert.assertFalse("Byte count mismatch should be invalid", view.wrap(frame, 0, frame.length, false, true).isValid());
+    }
+}
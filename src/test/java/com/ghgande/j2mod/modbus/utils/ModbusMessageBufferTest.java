@@ -0,0 +1,113 @@
+package com.ghgande.j2mod.modbus.utils;
+
+import com.ghgande.j2mod.modbus.io.BytesOutputStream;
+import com.ghgande.j2mod.modbus.msg.*;
+import com.ghgande.j2mod.modbus.procimg.Register;
+import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+public class ModbusMessageBufferTest {
+
+    private static byte[] streamBytes(ModbusMessageImpl msg) throws IOException {
+        BytesOutputStream out = new BytesOutputStream(msg.getOutputLength());
+        msg.writeTo(out);
+        return Arrays.copyOf(out.getBuffer(), out.size());
+    }
+
+    private static byte[] bufferBytes(ModbusMessageImpl msg) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(300).order(ByteOrder.LITTLE_ENDIAN);
+        msg.writeTo(buffer);
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void testMatchesStreamEncoding() throws IOException {
+        Register[] registers = {new SimpleRegister(1), new SimpleRegister(0x1234), new SimpleRegister(0xFFFF)};
+        WriteMultipleRegistersRequest write = new WriteMultipleRegistersRequest(7, registers);
+        write.setTransactionID(99);
+        ReadMultipleRegistersResponse read = new ReadMultipleRegistersResponse(registers);
+        ReadInputRegistersRequest input = new ReadInputRegistersRequest(3, 10);
+        input.setHeadless();
+        WriteCoilRequest coil = new WriteCoilRequest(5, true);
+
+        for (ModbusMessageImpl msg : new ModbusMessageImpl[]{write, read, input, coil}) {
+            Assert.assertArrayEquals("Buffer encoding differs for " + msg.getClass().getSimpleName(), streamBytes(msg), bufferBytes(msg));
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Register[] registers = {new SimpleRegister(251), new SimpleRegister(1111)};
+        WriteMultipleRegistersRequest write = new WriteMultipleRegistersRequest(20, registers);
+        write.setTransactionID(42);
+        WriteCoilRequest coil = new WriteCoilRequest(9, true);
+        coil.setTransactionID(43);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(100);
+        write.writeTo(buffer);
+        coil.writeTo(buffer);
+        buffer.flip();
+
+        WriteMultipleRegistersRequest decoded = new WriteMultipleRegistersRequest();
+        decoded.readFrom(buffer);
+        Assert.assertEquals("Incorrect transaction ID", 42, decoded.getTransactionID());
+        Assert.assertEquals("Incorrect reference", 20, decoded.getReference());
+        Assert.assertEquals("Incorrect word count", 2, decoded.getWordCount());
+        Assert.assertEquals("Incorrect register value", 1111, decoded.getRegisterValue(1));
+
+        WriteCoilRequest decodedCoil = new WriteCoilRequest();
+        decodedCoil.readFrom(buffer);
+        Assert.assertEquals("Incorrect transaction ID", 43, decodedCoil.getTransactionID());
+        Assert.assertEquals("Incorrect reference", 9, decodedCoil.getReference());
+        Assert.assertTrue("Coil should be set", decodedCoil.getCoil());
+        Assert.assertFalse("Buffer should be fully read", buffer.hasRemaining());
+    }
+
+    @Test
+    public void testShortBufferLeavesPositionUnchanged() throws IOException {
+        ReadMultipleRegistersResponse response = new ReadMultipleRegistersResponse(new Register[]{new SimpleRegister(1), new SimpleRegister(2)});
+        byte[] bytes = streamBytes(response);
+
+        ByteBuffer truncated = ByteBuffer.wrap(bytes, 0, bytes.length - 1);
+        try {
+            new ReadMultipleRegistersResponse().readFrom(truncated);
+            Assert.fail("Reading a truncated frame should fail");
+        }
+        catch (IOException e) {
+            Assert.assertEquals("Position should not move", 0, truncated.position());
+            Assert.assertEquals("Limit should be restored", bytes.length - 1, truncated.limit());
+        }
+
+        ByteBuffer small = ByteBuffer.allocate(bytes.length - 1);
+        try {
+            response.writeTo(small);
+            Assert.fail("Writing to a small buffer should fail");
+        }
+        catch (IOException e) {
+            Assert.assertEquals("Position should not move", 0, small.position());
+        }
+    }
+
+    @Test
+    public void testDataCannotRunPastHeaderLength() throws IOException {
+        ReadInputRegistersRequest request = new ReadInputRegistersRequest(1, 2);
+        byte[] bytes = Arrays.copyOf(streamBytes(request), 20);
+        bytes[5] = 4;
+        try {
+            new ReadInputRegistersRequest().readFrom(ByteBuffer.wrap(bytes));
+            Assert.fail("Data past the header length should not be read");
+        }
+        catch (IOException e) {
+            // Expected
+        }
+    }
+}
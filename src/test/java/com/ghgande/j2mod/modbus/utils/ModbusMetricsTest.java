@@ -0,0 +1,29 @@
+package com.ghgande.j2mod.modbus.utils;
+
+import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.io.ModbusTransactionResult;
+import com.ghgande.j2mod.modbus.msg.ReadMultipleRegistersRequest;
+import com.ghgande.j2mod.modbus.util.ModbusMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ModbusMetricsTest {
+
+    @Test
+    public void testTimeoutsAreCountedByType() {
+        ModbusMetrics metrics = new ModbusMetrics();
+        ModbusTransactionResult result = new ModbusTransactionResult();
+
+        result.reset(new ReadMultipleRegistersRequest(0, 1));
+        result.setFailure(ModbusTransactionResult.Status.IO_ERROR, "Failed", new ModbusIOException("Read failed").setTimeout(true), 1);
+        metrics.recordTransaction("slave:502", result, 0);
+
+        result.reset(new ReadMultipleRegistersRequest(0, 1));
+        result.setFailure(ModbusTransactionResult.Status.IO_ERROR, "Failed", new ModbusIOException("Connection timeout refused"), 1);
+        metrics.recordTransaction("slave:502", result, 0);
+
+        ModbusMetrics.Snapshot snapshot = metrics.getSnapshots().get(0);
+        Assert.assertEquals("Incorrect error count", 2, snapshot.getErrors());
+        Assert.assertEquals("Only the flagged failure is a timeout", 1, snapshot.getTimeouts());
+    }
+}
@@ -0,0 +1,49 @@
+package com.ghgande.j2mod.modbus.utils;
+
+import com.ghgande.j2mod.modbus.Modbus;
+import com.ghgande.j2mod.modbus.ModbusException;
+import com.ghgande.j2mod.modbus.ModbusSlaveException;
+import com.ghgande.j2mod.modbus.io.ModbusTransaction;
+import com.ghgande.j2mod.modbus.io.ModbusTransactionResult;
+import com.ghgande.j2mod.modbus.msg.ReadMultipleRegistersRequest;
+import com.ghgande.j2mod.modbus.msg.ReadMultipleRegistersResponse;
+import com.ghgande.j2mod.modbus.util.ModbusMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ModbusTransactionTest {
+
+    /**
+     * Transaction written against the original API, which only overrides execute()
+     */
+    private static class LegacyTransaction extends ModbusTransaction {
+        int exceptionCode;
+
+        @Override
+        public void execute() throws ModbusException {
+            if (exceptionCode != 0) {
+                throw new ModbusSlaveException(exceptionCode);
+            }
+            response = new ReadMultipleRegistersResponse();
+        }
+    }
+
+    @Test
+    public void testLegacySubclass() throws ModbusException {
+        LegacyTransaction transaction = new LegacyTransaction();
+        transaction.setRequest(new ReadMultipleRegistersRequest(0, 1));
+        ModbusMetrics metrics = new ModbusMetrics();
+        transaction.setMetrics(metrics);
+
+        ModbusTransactionResult result = transaction.execute(new ModbusTransactionResult());
+        Assert.assertTrue("Legacy execute should succeed", result.isSuccess());
+        Assert.assertNotNull("Response should be taken from the transaction", result.getResponse());
+
+        transaction.exceptionCode = Modbus.ILLEGAL_ADDRESS_EXCEPTION;
+        transaction.execute(result);
+        Assert.assertEquals("Slave exception should be kept", ModbusTransactionResult.Status.SLAVE_EXCEPTION, result.getStatus());
+        Assert.assertEquals("Incorrect exception code", Modbus.ILLEGAL_ADDRESS_EXCEPTION, result.getExceptionCode());
+
+        Assert.assertEquals("Both transactions should be recorded", 2, metrics.getSnapshots().get(0).getRequests());
+    }
+}
@@ -0,0 +1,73 @@
+package com.ghgande.j2mod.modbus.utils;
+
+import com.ghgande.j2mod.modbus.procimg.IllegalAddressException;
+import com.ghgande.j2mod.modbus.procimg.PackedBitProcessImage;
+import com.ghgande.j2mod.modbus.procimg.PackedBitTable;
+import com.ghgande.j2mod.modbus.procimg.SimpleDigitalOut;
+import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
+import com.ghgande.j2mod.modbus.util.BitVector;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class PackedBitTableTest {
+
+    @Test
+    public void testRangesMatchBitVector() {
+        Random random = new Random(1234);
+        PackedBitTable table = new PackedBitTable(3000);
+        boolean[] expected = new boolean[3000];
+        for (int pass = 0; pass < 500; pass++) {
+            int offset = random.nextInt(2990);
+            int count = 1 + random.nextInt(Math.min(2000, 3000 - offset));
+            BitVector bits = new BitVector(count);
+            for (int i = 0; i < count; i++) {
+                boolean state = random.nextBoolean();
+                bits.setBit(i, state);
+                expected[offset + i] = state;
+            }
+            table.setBytes(offset, count, bits.getBytes());
+
+            offset = random.nextInt(2990);
+            count = 1 + random.nextInt(Math.min(2000, 3000 - offset));
+            BitVector read = BitVector.createBitVector(table.getBytes(offset, count), count);
+            for (int i = 0; i < count; i++) {
+                Assert.assertEquals("Incorrect bit " + (offset + i), expected[offset + i], read.getBit(i));
+            }
+            for (int i = count; i < read.byteSize() * 8; i++) {
+                Assert.assertFalse("Unused bits should be clear", read.getBit(i));
+            }
+        }
+    }
+
+    @Test
+    public void testImageViews() {
+        PackedBitProcessImage image = new PackedBitProcessImage(1, 100, 10);
+        image.getDigitalOut(70).set(true);
+        Assert.assertTrue("Coil view should write the table", image.getCoilTable().get(70));
+        image.getDiscreteInputTable().setBytes(0, 10, new byte[]{(byte)0x81, 0x02});
+        Assert.assertTrue("Discrete input 0 should be set", image.getDigitalIn(0).isSet());
+        Assert.assertTrue("Discrete input 7 should be set", image.getDigitalIn(7).isSet());
+        Assert.assertTrue("Discrete input 9 should be set", image.getDigitalIn(9).isSet());
+        Assert.assertFalse("Discrete input 8 should be clear", image.getDigitalInRange(0, 10)[8].isSet());
+    }
+
+    @Test(expected = IllegalAddressException.class)
+    public void testIllegalRange() {
+        new PackedBitProcessImage(1, 100, 10).getCoilBytes(90, 11);
+    }
+
+    @Test
+    public void testBitsAreFixed() {
+        PackedBitProcessImage image = new PackedBitProcessImage(1, 100, 10);
+        image.addDigitalOut(new SimpleDigitalOut(true));
+        image.setDigitalOut(0, new SimpleDigitalOut(true));
+        image.removeDigitalIn(image.getDigitalIn(0));
+        image.addRegister(new SimpleRegister(7));
+        Assert.assertEquals("Coils should not be added", 100, image.getDigitalOutCount());
+        Assert.assertFalse("Coil should not be replaced", image.getDigitalOut(0).isSet());
+        Assert.assertEquals("Discrete inputs should not be removed", 10, image.getDigitalInCount());
+        Assert.assertEquals("Registers should still be added", 1, image.getRegisterCount());
+    }
+}
@@ -0,0 +1,88 @@
+package com.ghgande.j2mod.modbus.utils;
+
+import com.ghgande.j2mod.modbus.procimg.ProcessImageProvider;
+import com.ghgande.j2mod.modbus.procimg.ProviderProcessImage;
+import com.ghgande.j2mod.modbus.procimg.SimpleDigitalOut;
+import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProviderProcessImageTest {
+
+    /**
+     * Provider whose holding registers are backed by an array and whose
+     * input registers are computed from the address
+     */
+    private static class TestProvider implements ProcessImageProvider {
+        final int[] holding = new int[16];
+        final int[] coils = new int[16];
+        final AtomicInteger reads = new AtomicInteger();
+        final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        public void read(Table table, int ref, int count, int[] dest) {
+            reads.incrementAndGet();
+            for (int i = 0; i < count; i++) {
+                dest[i] = table == Table.HOLDING_REGISTERS ? holding[ref + i] : table == Table.COILS ? coils[ref + i] : ref + i;
+            }
+        }
+
+        @Override
+        public void write(Table table, int ref, int[] values) {
+            writes.incrementAndGet();
+            System.arraycopy(values, 0, table == Table.COILS ? coils : holding, ref, values.length);
+        }
+    }
+
+    @Test
+    public void testLazyReadsAndWrites() {
+        TestProvider provider = new TestProvider();
+        ProviderProcessImage image = new ProviderProcessImage(1, provider);
+        Assert.assertEquals("Incorrect computed input register", 42, image.getInputRegisterRange(40, 5)[2].getValue());
+        Assert.assertEquals("Range should be read in a single call", 1, provider.reads.get());
+
+        image.setRegisterValues(2, new int[]{7, 8});
+        image.getRegister(4).setValue(9);
+        Assert.assertArrayEquals("Writes should reach the provider", new int[]{7, 8, 9}, image.getRegisterValues(2, 3));
+    }
+
+    @Test
+    public void testMemoization() {
+        TestProvider provider = new TestProvider();
+        ProviderProcessImage image = new ProviderProcessImage(1, provider, 60000);
+        image.getRegisterValues(0, 4);
+        image.getRegisterValues(0, 4);
+        Assert.assertEquals("Second read should be memoized", 1, provider.reads.get());
+
+        image.setRegisterValues(3, new int[]{5});
+        Assert.assertEquals("Overlapping write should discard the memoized range", 5, image.getRegisterValues(0, 4)[3]);
+        Assert.assertEquals("Range should have been read again", 2, provider.reads.get());
+    }
+
+    @Test
+    public void testCoilBytes() {
+        TestProvider provider = new TestProvider();
+        ProviderProcessImage image = new ProviderProcessImage(1, provider, 60000);
+        Assert.assertArrayEquals("Coils should start clear", new byte[]{0, 0}, image.getCoilBytes(2, 10));
+
+        image.setCoilBytes(2, 10, new byte[]{(byte)0x81, 0x02});
+        Assert.assertEquals("Range should be written in a single call", 1, provider.writes.get());
+        Assert.assertArrayEquals("Written coils should be read back", new byte[]{(byte)0x81, 0x02}, image.getCoilBytes(2, 10));
+        Assert.assertTrue("Coil 11 should be set", image.getDigitalOut(11).isSet());
+        Assert.assertFalse("Coil 10 should be clear", image.getDigitalOut(10).isSet());
+    }
+
+    @Test
+    public void testTablesAreFixed() {
+        TestProvider provider = new TestProvider();
+        ProviderProcessImage image = new ProviderProcessImage(1, provider);
+        image.setRegister(3, new SimpleRegister(7));
+        image.addDigitalOut(new SimpleDigitalOut(true));
+        image.removeRegister(image.getRegister(3));
+        Assert.assertEquals("Nothing should be written to the provider", 0, provider.writes.get());
+        Assert.assertEquals("Register should not be replaced", 0, image.getRegister(3).getValue());
+        Assert.assertFalse("Coil should not be added", image.getDigitalOut(0).isSet());
+    }
+}
@@ -0,0 +1,82 @@
+package com.ghgande.j2mod.modbus.utils;
+
+import com.ghgande.j2mod.modbus.msg.ReadFIFOQueueResponse;
+import com.ghgande.j2mod.modbus.procimg.RingBufferFIFO;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RingBufferFIFOTest {
+
+    @Test
+    public void testOverflowPolicies() {
+        RingBufferFIFO oldest = new RingBufferFIFO(1, 4, RingBufferFIFO.OverflowPolicy.DROP_OLDEST);
+        Assert.assertEquals("All values should be accepted", 6, oldest.push(new int[]{1, 2, 3, 4, 5, 6}, 0, 6));
+        Assert.assertArrayEquals("Oldest values should be dropped", new int[]{3, 4, 5, 6}, oldest.peek(31));
+        Assert.assertEquals("Incorrect dropped count", 2, oldest.getDroppedCount());
+        Assert.assertTrue("Single push should drop the oldest value", oldest.push(7));
+        Assert.assertArrayEquals("Oldest value should be dropped", new int[]{4, 5, 6, 7}, oldest.peek(31));
+        Assert.assertEquals("Incorrect dropped count", 3, oldest.getDroppedCount());
+
+        RingBufferFIFO newest = new RingBufferFIFO(1, 4, RingBufferFIFO.OverflowPolicy.DROP_NEWEST);
+        Assert.assertEquals("Only the values that fit should be accepted", 4, newest.push(new int[]{1, 2, 3, 4, 5, 6}, 0, 6));
+        Assert.assertFalse("Push to a full FIFO should fail", newest.push(7));
+        Assert.assertArrayEquals("Newest values should be dropped", new int[]{1, 2, 3, 4}, newest.peek(31));
+        Assert.assertEquals("Incorrect dropped count", 3, newest.getDroppedCount());
+    }
+
+    @Test
+    public void testDrainIntoResponse() {
+        RingBufferFIFO fifo = new RingBufferFIFO(1, 64, RingBufferFIFO.OverflowPolicy.DROP_OLDEST);
+        for (int i = 0; i < 40; i++) {
+            fifo.push(i + 0x10000);
+        }
+        int[] values = new int[RingBufferFIFO.MAX_READ_COUNT];
+        int count = fifo.drain(values, values.length);
+        Assert.assertEquals("Drain should stop at 31 values", 31, count);
+        Assert.assertEquals("Only the low 16 bits should be kept", 0, values[0]);
+        Assert.assertEquals("Incorrect remaining count", 9, fifo.getRegisterCount());
+
+        ReadFIFOQueueResponse response = new ReadFIFOQueueResponse();
+        response.setRegisters(values, count);
+        byte[] message = response.getMessage();
+        Assert.assertEquals("Incorrect queue count", 31, message[3]);
+        Assert.assertEquals("Incorrect last value", 30, message[message.length - 1]);
+    }
+
+    @Test
+    public void testConcurrentConsumers() throws InterruptedException {
+        final RingBufferFIFO fifo = new RingBufferFIFO(1, 64, RingBufferFIFO.OverflowPolicy.BLOCK);
+        final int total = 50000;
+        final AtomicLong sum = new AtomicLong();
+        final AtomicLong received = new AtomicLong();
+        Thread[] consumers = new Thread[3];
+        for (int c = 0; c < consumers.length; c++) {
+            consumers[c] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    int[] values = new int[RingBufferFIFO.MAX_READ_COUNT];
+                    while (received.get() < total) {
+                        int count = fifo.drain(values, values.length);
+                        for (int i = 0; i < count; i++) {
+                            sum.addAndGet(values[i]);
+                        }
+                        received.addAndGet(count);
+                    }
+                }
+            });
+            consumers[c].start();
+        }
+        long expected = 0;
+        for (int i = 0; i < total; i++) {
+            fifo.push(i & 0xFFFF);
+            expected += i & 0xFFFF;
+        }
+        for (Thread consumer : consumers) {
+            consumer.join(10000);
+        }
+        Assert.assertEquals("Every value should be received exactly once", total, received.get());
+        Assert.assertEquals("Every value should be received exactly once", expected, sum.get());
+    }
+}
@@ -0,0 +1,58 @@
+package com.ghgande.j2mod.modbus.utils;
+
+import com.ghgande.j2mod.modbus.procimg.IllegalAddressException;
+import com.ghgande.j2mod.modbus.procimg.SeqlockProcessImage;
+import com.ghgande.j2mod.modbus.procimg.SimpleDigitalOut;
+import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SeqlockProcessImageTest {
+
+    @Test
+    public void testRangeAccess() {
+        SeqlockProcessImage image = new SeqlockProcessImage(1, 4);
+        image.setRegisterValues(1, new int[]{1, 0x12345});
+        Assert.assertArrayEquals("Incorrect register values", new int[]{0, 1, 0x2345, 0}, image.getRegisterValues(0, 4));
+        image.getRegister(3).setValue(99);
+        Assert.assertEquals("Single register write not visible in range", 99, image.getRegisterValues(3, 1)[0]);
+        Assert.assertEquals("Range write not visible in register", 1, image.getRegister(1).getValue());
+    }
+
+    @Test(expected = IllegalAddressException.class)
+    public void testIllegalRange() {
+        new SeqlockProcessImage(1, 4).getRegisterValues(2, 3);
+    }
+
+    @Test
+    public void testRegistersAreFixed() {
+        SeqlockProcessImage image = new SeqlockProcessImage(1, 4);
+        image.addRegister(new SimpleRegister(7));
+        image.setRegister(0, new SimpleRegister(7));
+        image.addDigitalOut(new SimpleDigitalOut(true));
+        Assert.assertEquals("Registers should not be added", 4, image.getRegisterCount());
+        Assert.assertEquals("Register should not be replaced", 0, image.getRegister(0).getValue());
+        Assert.assertEquals("Coils should still be added", 1, image.getDigitalOutCount());
+    }
+
+    @Test
+    public void testNoTornReads() throws InterruptedException {
+        final SeqlockProcessImage image = new SeqlockProcessImage(1, 4);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 200000; i++) {
+                    image.setRegisterValues(0, new int[]{i, i, i, i});
+                }
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            int[] values = image.getRegisterValues(0, 4);
+            for (int i = 1; i < values.length; i++) {
+                Assert.assertEquals("Range read was torn", values[0], values[i]);
+            }
+        }
+        writer.join();
+    }
+}
@@ -0,0 +1,88 @@
+package com.ghgande.j2mod.modbus.utils;
+
+import com.ghgande.j2mod.modbus.procimg.ProcessImageBusyException;
+import com.ghgande.j2mod.modbus.procimg.SharedMemoryProcessImage;
+import com.ghgande.j2mod.modbus.procimg.SimpleDigitalIn;
+import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class SharedMemoryProcessImageTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testExchangeWithProducer() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("image.shm");
+        try (SharedMemoryProcessImage image = new SharedMemoryProcessImage(1, file, 3, 3, 4, 4);
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            // Act as the external producer, using only the documented layout
+
+            MappedByteBuffer producer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            producer.order(ByteOrder.LITTLE_ENDIAN);
+            Assert.assertEquals("Incorrect magic", SharedMemoryProcessImage.MAGIC, producer.getInt(0));
+            int discretes = producer.getInt(36);
+            int inputRegisters = producer.getInt(40);
+            int holdingRegisters = producer.getInt(44);
+
+            producer.putInt(8, 1);
+            producer.putShort(inputRegisters + 2, (short)1234);
+            producer.put(discretes + 2, (byte)1);
+            producer.putInt(8, 2);
+
+            Assert.assertEquals("Producer input register not visible", 1234, image.getInputRegisterRange(1, 1)[0].getValue());
+            Assert.assertTrue("Producer discrete input not visible", image.getDigitalIn(2).isSet());
+
+            image.setRegisterValues(1, new int[]{0xABCD, 7});
+            Assert.assertEquals("Slave sequence should be even and bumped once", 2, producer.getInt(12));
+            Assert.assertEquals("Holding register not visible to producer", 0xABCD, producer.getShort(holdingRegisters + 2) & 0xFFFF);
+            Assert.assertEquals("Holding register not visible to producer", 7, producer.getShort(holdingRegisters + 4));
+        }
+
+        try (SharedMemoryProcessImage image = new SharedMemoryProcessImage(1, file)) {
+            Assert.assertEquals("Layout should be read from the header", 4, image.getRegisterCount());
+            Assert.assertEquals("Values should be kept", 0xABCD, image.getRegister(1).getValue());
+        }
+    }
+
+    @Test(expected = ProcessImageBusyException.class)
+    public void testUnsettledProducerFails() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("busy.shm");
+        try (SharedMemoryProcessImage image = new SharedMemoryProcessImage(1, file, 0, 0, 2, 2);
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            // A producer that never finishes its update must not have its registers served
+
+            MappedByteBuffer producer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            producer.order(ByteOrder.LITTLE_ENDIAN);
+            producer.putInt(8, 1);
+            image.getRegisterValues(0, 2);
+        }
+    }
+
+    @Test
+    public void testTablesAreFixed() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("fixed.shm");
+        try (SharedMemoryProcessImage image = new SharedMemoryProcessImage(1, file, 3, 3, 4, 4)) {
+            image.addRegister(new SimpleRegister(7));
+            image.setRegister(0, new SimpleRegister(7));
+            image.addDigitalIn(new SimpleDigitalIn(true));
+            image.removeInputRegister(image.getInputRegister(0));
+            Assert.assertEquals("Registers should not be added", 4, image.getRegisterCount());
+            Assert.assertEquals("Register should not be replaced", 0, image.getRegister(0).getValue());
+            Assert.assertEquals("Discrete inputs should not be added", 3, image.getDigitalInCount());
+            Assert.assertEquals("Input registers should not be removed", 4, image.getInputRegisterCount());
+        }
+    }
+}
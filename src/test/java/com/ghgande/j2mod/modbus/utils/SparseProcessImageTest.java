@@ -0,0 +1,65 @@
+package com.ghgande.j2mod.modbus.utils;
+
+import com.ghgande.j2mod.modbus.procimg.IllegalAddressException;
+import com.ghgande.j2mod.modbus.procimg.Register;
+import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
+import com.ghgande.j2mod.modbus.procimg.SparseProcessImage;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SparseProcessImageTest {
+
+    @Test
+    public void testScatteredRegisters() {
+        SparseProcessImage image = new SparseProcessImage(1);
+        for (int i = 0; i < 100; i++) {
+            image.addRegister(i, new SimpleRegister(i));
+        }
+        for (int i = 40000; i <= 40100; i++) {
+            image.addRegister(i, new SimpleRegister(i));
+        }
+        Assert.assertEquals("Incorrect register count", 40101, image.getRegisterCount());
+        Assert.assertEquals("Incorrect mapped register count", 201, image.getMappedRegisterCount());
+
+        Register[] range = image.getRegisterRange(40050, 51);
+        Assert.assertEquals("Incorrect first register", 40050, range[0].getValue());
+        Assert.assertEquals("Incorrect last register", 40100, range[50].getValue());
+
+        try {
+            image.getRegisterRange(90, 20);
+            Assert.fail("Range across a hole should be illegal");
+        }
+        catch (IllegalAddressException e) {
+            Assert.assertEquals("Exception should not have a stack trace", 0, e.getStackTrace().length);
+        }
+    }
+
+    @Test
+    public void testRemoveShrinksCount() {
+        SparseProcessImage image = new SparseProcessImage(1);
+        Register low = new SimpleRegister(1);
+        Register high = new SimpleRegister(2);
+        image.addRegister(10, low);
+        image.addRegister(60000, high);
+        image.removeRegister(high);
+        Assert.assertEquals("Count should shrink to the highest remaining register", 11, image.getRegisterCount());
+        image.addRegister(high);
+        Assert.assertSame("Appended register should follow the last one", high, image.getRegister(11));
+    }
+
+    @Test(expected = IllegalAddressException.class)
+    public void testUnmappedRegister() {
+        new SparseProcessImage(1).getRegister(65535);
+    }
+
+    @Test
+    public void testUnmappedAddressMessage() {
+        try {
+            new SparseProcessImage(1).getRegister(300);
+            Assert.fail("Unmapped register should be rejected");
+        }
+        catch (IllegalAddressException ex) {
+            Assert.assertTrue("Message should name the address", ex.getMessage().endsWith("address 300"));
+        }
+    }
+}